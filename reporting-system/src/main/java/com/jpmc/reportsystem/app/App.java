@@ -1,14 +1,28 @@
 package com.jpmc.reportsystem.app;
 
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.OffHeapInstructionStore;
 import com.jpmc.reportsystem.service.CalculationServiceImpl;
 import com.jpmc.reportsystem.service.DataManipulationServiceImpl;
+import com.jpmc.reportsystem.service.DeduplicationServiceImpl;
 import com.jpmc.reportsystem.service.RankingServiceImpl;
 import com.jpmc.reportsystem.service.reader.CSVDataReader;
+import com.jpmc.reportsystem.service.reader.CorrectionDataReader;
 import com.jpmc.reportsystem.service.reader.DataReader;
+import com.jpmc.reportsystem.service.reader.DataReaderFactory;
 import com.jpmc.reportsystem.service.writer.ConsoleDataWriter;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
 
 /**
  * 
@@ -21,13 +35,132 @@ public class App {
 
 	public static void main(String[] args) throws Exception {
 		LOGGER.info("start");
-		DataReader dataReader = new CSVDataReader();
-		dataReader.addConnectionDetails("src/main/resources", "client-instructions.csv");
+		DataReader dataReader = DataReaderFactory.getDataReader();
+		dataReader.addConnectionDetails("src/main/resources",
+				ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_RESOURCE));
 		
 		ReportingSystemProcessor processor = new ReportingSystemProcessor(new CalculationServiceImpl(),
 				new RankingServiceImpl(), new DataManipulationServiceImpl(), dataReader,
 				new ConsoleDataWriter());
-		processor.process();
+		OffHeapInstructionStore instructionStore = createInstructionStore();
+		processor.setInstructionStore(instructionStore);
+		processor.setDeduplicationService(createDeduplicationService());
+		DeadLetterDataWriter lateDataWriter = null;
+		String latenessDays = ReportingSystemResourceUtil.getValue(ReportingSystemConstants.WATERMARK_LATENESS_DAYS);
+		if (latenessDays != null && !latenessDays.trim().isEmpty()) {
+			lateDataWriter = new DeadLetterDataWriter(
+					Paths.get(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.WATERMARK_LATE_FILE)),
+					Long.MAX_VALUE);
+			processor.setWatermark(Integer.parseInt(latenessDays.trim()), lateDataWriter);
+		}
+		CorrectionDataReader correctionReader = null;
+		String correctionsFile = ReportingSystemResourceUtil.getValue(ReportingSystemConstants.CORRECTIONS_FILE);
+		if (correctionsFile != null && !correctionsFile.trim().isEmpty()) {
+			correctionReader = new CorrectionDataReader();
+			correctionReader.addConnectionDetails("src/main/resources", correctionsFile.trim());
+			processor.setCorrections(Integer.parseInt(ReportingSystemResourceUtil
+					.getValue(ReportingSystemConstants.CORRECTIONS_EXPECTED_INSTRUCTIONS)), correctionReader);
+		}
+		String checkpointFile = ReportingSystemResourceUtil.getValue(ReportingSystemConstants.CHECKPOINT_FILE);
+		if (checkpointFile != null && !checkpointFile.trim().isEmpty())
+			processor.setCheckpoint(Paths.get(checkpointFile.trim()), Long.parseLong(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.CHECKPOINT_INTERVAL_MILLIS)));
+		CountDownLatch processed = new CountDownLatch(1);
+		ScheduledExecutorService refresher = Boolean
+				.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FOLLOW))
+						? follow(processor, dataReader, processed) : null;
+		try {
+			processor.process();
+		} finally {
+			if (refresher != null)
+				refresher.shutdownNow();
+			if (instructionStore != null)
+				instructionStore.free();
+			if (lateDataWriter != null)
+				lateDataWriter.close();
+			if (correctionReader != null)
+				correctionReader.close();
+			processed.countDown();
+		}
+	}
+
+	/**
+	 * in follow mode the reports are refreshed at the configured interval
+	 * while the file is followed, and a shutdown signal, e.g. Ctrl+C, stops
+	 * the following. The shutdown waits for the final reports of the
+	 * instructions read till then
+	 * 
+	 * @return refresher of the reports, <tt>null</tt> in case disabled
+	 * @throws ReportingSystemException
+	 *             in case the reader can not follow a file
+	 */
+	private static ScheduledExecutorService follow(ReportingSystemProcessor processor, DataReader dataReader,
+			CountDownLatch processed) throws ReportingSystemException {
+		// sorting, caching, merging and read ahead wrap the csv reader, none
+		// of them hands back the lines appended
+		if (!(dataReader instanceof CSVDataReader))
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_FOLLOW_UNSUPPORTED)
+							+ " reader=" + dataReader.getClass().getSimpleName());
+		CSVDataReader followedReader = (CSVDataReader) dataReader;
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			followedReader.stopFollowing();
+			try {
+				processed.await();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		}, "follow-stop"));
+		long refreshMillis = Long
+				.parseLong(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FOLLOW_REFRESH_MILLIS));
+		LOGGER.info("following the file till shutdown, refreshMillis={}", refreshMillis);
+		if (refreshMillis <= 0)
+			return null;
+		ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "report-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		refresher.scheduleWithFixedDelay(() -> {
+			try {
+				processor.refreshReports();
+			} catch (RuntimeException exception) {
+				// a failed refresh must not cancel the next ones
+				LOGGER.warn("Report refresh failed", exception);
+			}
+		}, refreshMillis, refreshMillis, TimeUnit.MILLISECONDS);
+		return refresher;
+	}
+
+	/**
+	 * creates the deduplication stage configured in the properties file, if
+	 * any
+	 */
+	private static DeduplicationServiceImpl createDeduplicationService() {
+		if (!Boolean.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DEDUP_ENABLED)))
+			return null;
+		int expectedInstructions = Integer
+				.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DEDUP_EXPECTED_INSTRUCTIONS));
+		double bloomFalsePositiveRate = Boolean
+				.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DEDUP_BLOOM_ENABLED))
+						? Double.parseDouble(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DEDUP_BLOOM_FPP))
+						: 0;
+		LOGGER.info("dropping duplicate instructions, expectedInstructions={} and bloomFalsePositiveRate={}",
+				expectedInstructions, bloomFalsePositiveRate);
+		return new DeduplicationServiceImpl(expectedInstructions, bloomFalsePositiveRate);
+	}
 
+	/**
+	 * creates the off heap store configured in the properties file, if any
+	 */
+	private static OffHeapInstructionStore createInstructionStore() {
+		if (!Boolean.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.STORE_OFFHEAP_ENABLED)))
+			return null;
+		int segmentRecords = Integer
+				.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.STORE_OFFHEAP_SEGMENT_RECORDS));
+		String directory = ReportingSystemResourceUtil.getValue(ReportingSystemConstants.STORE_OFFHEAP_DIRECTORY);
+		LOGGER.info("keeping the instructions off heap, segmentRecords={} and directory={}", segmentRecords, directory);
+		return new OffHeapInstructionStore(segmentRecords,
+				directory == null || directory.trim().isEmpty() ? null : Paths.get(directory.trim()));
 	}
 }
@@ -0,0 +1,437 @@
+package com.jpmc.reportsystem.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.FixedPointAmount;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.LongHashSet;
+import com.jpmc.reportsystem.model.SettlementAdjustmentJournal;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Progress of a processing run, for the run to be resumed once it died
+ *
+ * <p>
+ * Holds the byte offset of the reader just after the last instruction
+ * processed, and everything the reports are generated from: the daily
+ * incoming and outgoing amounts, the totals of the entities feeding the
+ * rankings and the journal of the settlement dates moved, along with the
+ * watermark of a run finalizing its settlement days, the rows rejected and
+ * the line number of a tolerant reader, the fingerprints of the
+ * instructions a run taking corrections may still correct, and the
+ * fingerprints of the instructions seen by a run dropping duplicates. The
+ * instructions themselves are not kept.
+ *
+ * <p>
+ * The checkpoint is a compact binary file. Amounts are written as their
+ * scale and unscaled value, dates as epoch days and entities by name, since
+ * the ids of the entities are only valid within a single run, the
+ * fingerprints are built from the names as well. The file is
+ * written next to its target and moved over it, a run dying while writing
+ * leaves the previous checkpoint in place.
+ *
+ * @author jnair1
+ *
+ */
+public final class ProcessingCheckpoint {
+
+	private static final int MAGIC = 0x52534350;
+
+	private static final int VERSION = 7;
+
+	private final long readerPosition;
+
+	private final Map<LocalDate, FixedPointAmount> incomings;
+
+	private final Map<LocalDate, FixedPointAmount> outgoings;
+
+	private final Map<String, FixedPointAmount> incomingTotals;
+
+	private final Map<String, FixedPointAmount> outgoingTotals;
+
+	private final SettlementAdjustmentJournal adjustmentJournal;
+
+	private final int maxSettlementDay;
+
+	private final long lateCount;
+
+	private final long rejectedCount;
+
+	private final long lineNumber;
+
+	/**
+	 * <tt>null</tt> unless the run takes corrections
+	 */
+	private final LongHashSet correctableFingerprints;
+
+	/**
+	 * <tt>null</tt> unless the run drops duplicates
+	 */
+	private final LongHashSet seenFingerprints;
+
+	private final long duplicateCount;
+
+	/**
+	 * checkpoint of a run without watermark
+	 * 
+	 * @param readerPosition
+	 *            - byte offset of the reader to resume from
+	 * @param incomings
+	 *            - daily incoming amounts
+	 * @param outgoings
+	 *            - daily outgoing amounts
+	 * @param incomingTotals
+	 *            - incoming totals by entity name
+	 * @param outgoingTotals
+	 *            - outgoing totals by entity name
+	 * @param adjustmentJournal
+	 *            - settlement dates moved
+	 */
+	public ProcessingCheckpoint(long readerPosition, Map<LocalDate, FixedPointAmount> incomings,
+			Map<LocalDate, FixedPointAmount> outgoings, Map<String, FixedPointAmount> incomingTotals,
+			Map<String, FixedPointAmount> outgoingTotals, SettlementAdjustmentJournal adjustmentJournal) {
+		this(readerPosition, incomings, outgoings, incomingTotals, outgoingTotals, adjustmentJournal,
+				InstructionBatch.NO_DATE, 0);
+	}
+
+	/**
+	 * @param readerPosition
+	 *            - byte offset of the reader to resume from
+	 * @param incomings
+	 *            - daily incoming amounts
+	 * @param outgoings
+	 *            - daily outgoing amounts
+	 * @param incomingTotals
+	 *            - incoming totals by entity name
+	 * @param outgoingTotals
+	 *            - outgoing totals by entity name
+	 * @param adjustmentJournal
+	 *            - settlement dates moved
+	 * @param maxSettlementDay
+	 *            - latest settlement day seen by the watermark, as epoch day
+	 * @param lateCount
+	 *            - rows dropped behind the watermark
+	 */
+	public ProcessingCheckpoint(long readerPosition, Map<LocalDate, FixedPointAmount> incomings,
+			Map<LocalDate, FixedPointAmount> outgoings, Map<String, FixedPointAmount> incomingTotals,
+			Map<String, FixedPointAmount> outgoingTotals, SettlementAdjustmentJournal adjustmentJournal,
+			int maxSettlementDay, long lateCount) {
+		this(readerPosition, incomings, outgoings, incomingTotals, outgoingTotals, adjustmentJournal,
+				maxSettlementDay, lateCount, 0, -1, null, null, 0);
+	}
+
+	/**
+	 * @param readerPosition
+	 *            - byte offset of the reader to resume from
+	 * @param incomings
+	 *            - daily incoming amounts
+	 * @param outgoings
+	 *            - daily outgoing amounts
+	 * @param incomingTotals
+	 *            - incoming totals by entity name
+	 * @param outgoingTotals
+	 *            - outgoing totals by entity name
+	 * @param adjustmentJournal
+	 *            - settlement dates moved
+	 * @param maxSettlementDay
+	 *            - latest settlement day seen by the watermark, as epoch day
+	 * @param lateCount
+	 *            - rows dropped behind the watermark
+	 * @param rejectedCount
+	 *            - malformed rows rejected by the reader
+	 * @param lineNumber
+	 *            - number of the last line read, <tt>-1</tt> when unknown
+	 * @param correctableFingerprints
+	 *            - fingerprints of the instructions which may still be
+	 *            corrected, <tt>null</tt> unless taking corrections
+	 * @param seenFingerprints
+	 *            - fingerprints of the distinct instructions seen,
+	 *            <tt>null</tt> unless dropping duplicates
+	 * @param duplicateCount
+	 *            - duplicates dropped
+	 */
+	public ProcessingCheckpoint(long readerPosition, Map<LocalDate, FixedPointAmount> incomings,
+			Map<LocalDate, FixedPointAmount> outgoings, Map<String, FixedPointAmount> incomingTotals,
+			Map<String, FixedPointAmount> outgoingTotals, SettlementAdjustmentJournal adjustmentJournal,
+			int maxSettlementDay, long lateCount, long rejectedCount, long lineNumber,
+			LongHashSet correctableFingerprints, LongHashSet seenFingerprints, long duplicateCount) {
+		this.correctableFingerprints = correctableFingerprints;
+		this.seenFingerprints = seenFingerprints;
+		this.duplicateCount = duplicateCount;
+		this.maxSettlementDay = maxSettlementDay;
+		this.lateCount = lateCount;
+		this.rejectedCount = rejectedCount;
+		this.lineNumber = lineNumber;
+		this.readerPosition = readerPosition;
+		this.incomings = incomings;
+		this.outgoings = outgoings;
+		this.incomingTotals = incomingTotals;
+		this.outgoingTotals = outgoingTotals;
+		this.adjustmentJournal = adjustmentJournal;
+	}
+
+	public long getReaderPosition() {
+		return readerPosition;
+	}
+
+	public Map<LocalDate, FixedPointAmount> getIncomings() {
+		return incomings;
+	}
+
+	public Map<LocalDate, FixedPointAmount> getOutgoings() {
+		return outgoings;
+	}
+
+	public Map<String, FixedPointAmount> getIncomingTotals() {
+		return incomingTotals;
+	}
+
+	public Map<String, FixedPointAmount> getOutgoingTotals() {
+		return outgoingTotals;
+	}
+
+	public SettlementAdjustmentJournal getAdjustmentJournal() {
+		return adjustmentJournal;
+	}
+
+	/**
+	 * latest settlement day seen by the watermark, {@link InstructionBatch#NO_DATE}
+	 * for none
+	 */
+	public int getMaxSettlementDay() {
+		return maxSettlementDay;
+	}
+
+	public long getLateCount() {
+		return lateCount;
+	}
+
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * number of the last line read, <tt>-1</tt> when unknown
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * fingerprints of the instructions which may still be corrected,
+	 * <tt>null</tt> unless the run takes corrections
+	 */
+	public LongHashSet getCorrectableFingerprints() {
+		return correctableFingerprints;
+	}
+
+	/**
+	 * fingerprints of the distinct instructions seen, <tt>null</tt> unless
+	 * the run drops duplicates
+	 */
+	public LongHashSet getSeenFingerprints() {
+		return seenFingerprints;
+	}
+
+	public long getDuplicateCount() {
+		return duplicateCount;
+	}
+
+	/**
+	 * writes the checkpoint, replacing the file once completely written
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(Path file) throws IOException {
+		Path absolute = file.toAbsolutePath();
+		Path temporary = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(readerPosition);
+			writeDailyAmounts(output, incomings);
+			writeDailyAmounts(output, outgoings);
+			writeEntityTotals(output, incomingTotals);
+			writeEntityTotals(output, outgoingTotals);
+			writeJournal(output, adjustmentJournal);
+			output.writeInt(maxSettlementDay);
+			output.writeLong(lateCount);
+			output.writeLong(rejectedCount);
+			output.writeLong(lineNumber);
+			writeFingerprints(output, correctableFingerprints);
+			writeFingerprints(output, seenFingerprints);
+			output.writeLong(duplicateCount);
+		}
+		Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * reads a checkpoint written by {@link #write(Path)}
+	 *
+	 * @param file
+	 * @return checkpoint
+	 * @throws IOException
+	 * @throws ReportingSystemException
+	 *             in case the file is not a checkpoint
+	 */
+	public static ProcessingCheckpoint read(Path file) throws IOException, ReportingSystemException {
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION)
+				throw new ReportingSystemException(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_CHECKPOINT_INVALID)
+								+ " file=" + file);
+			long readerPosition = input.readLong();
+			Map<LocalDate, FixedPointAmount> incomings = readDailyAmounts(input);
+			Map<LocalDate, FixedPointAmount> outgoings = readDailyAmounts(input);
+			Map<String, FixedPointAmount> incomingTotals = readEntityTotals(input);
+			Map<String, FixedPointAmount> outgoingTotals = readEntityTotals(input);
+			SettlementAdjustmentJournal adjustmentJournal = readJournal(input);
+			int maxSettlementDay = input.readInt();
+			long lateCount = input.readLong();
+			long rejectedCount = input.readLong();
+			long lineNumber = input.readLong();
+			LongHashSet correctableFingerprints = readFingerprints(input);
+			LongHashSet seenFingerprints = readFingerprints(input);
+			long duplicateCount = input.readLong();
+			return new ProcessingCheckpoint(readerPosition, incomings, outgoings, incomingTotals, outgoingTotals,
+					adjustmentJournal, maxSettlementDay, lateCount, rejectedCount, lineNumber,
+					correctableFingerprints, seenFingerprints, duplicateCount);
+		}
+	}
+
+	private static void writeDailyAmounts(DataOutputStream output, Map<LocalDate, FixedPointAmount> amounts)
+			throws IOException {
+		output.writeInt(amounts.size());
+		for (Map.Entry<LocalDate, FixedPointAmount> entry : amounts.entrySet()) {
+			output.writeBoolean(entry.getKey() != null);
+			if (entry.getKey() != null)
+				output.writeLong(entry.getKey().toEpochDay());
+			writeAmount(output, entry.getValue());
+		}
+	}
+
+	private static Map<LocalDate, FixedPointAmount> readDailyAmounts(DataInputStream input) throws IOException {
+		int size = input.readInt();
+		Map<LocalDate, FixedPointAmount> amounts = new LinkedHashMap<>();
+		for (int entry = 0; entry < size; entry++) {
+			LocalDate date = input.readBoolean() ? LocalDate.ofEpochDay(input.readLong()) : null;
+			amounts.put(date, readAmount(input));
+		}
+		return amounts;
+	}
+
+	private static void writeEntityTotals(DataOutputStream output, Map<String, FixedPointAmount> totals)
+			throws IOException {
+		output.writeInt(totals.size());
+		for (Map.Entry<String, FixedPointAmount> entry : totals.entrySet()) {
+			output.writeBoolean(entry.getKey() != null);
+			if (entry.getKey() != null)
+				output.writeUTF(entry.getKey());
+			writeAmount(output, entry.getValue());
+		}
+	}
+
+	private static Map<String, FixedPointAmount> readEntityTotals(DataInputStream input) throws IOException {
+		int size = input.readInt();
+		Map<String, FixedPointAmount> totals = new LinkedHashMap<>();
+		for (int entry = 0; entry < size; entry++) {
+			String entity = input.readBoolean() ? input.readUTF() : null;
+			totals.put(entity, readAmount(input));
+		}
+		return totals;
+	}
+
+	/**
+	 * count of the fingerprints followed by the fingerprints, -1 for none
+	 */
+	private static void writeFingerprints(DataOutputStream output, LongHashSet fingerprints) throws IOException {
+		output.writeInt(fingerprints == null ? -1 : fingerprints.size());
+		if (fingerprints == null)
+			return;
+		for (long fingerprint : fingerprints.toArray())
+			output.writeLong(fingerprint);
+	}
+
+	private static LongHashSet readFingerprints(DataInputStream input) throws IOException {
+		int size = input.readInt();
+		if (size < 0)
+			return null;
+		LongHashSet fingerprints = new LongHashSet(size);
+		for (int fingerprint = 0; fingerprint < size; fingerprint++)
+			fingerprints.add(input.readLong());
+		return fingerprints;
+	}
+
+	/**
+	 * entries of the journal, with the rules by name along with their
+	 * compacted counts
+	 */
+	private static void writeJournal(DataOutputStream output, SettlementAdjustmentJournal journal)
+			throws IOException {
+		output.writeLong(journal.getInstructionCount());
+		int ruleCount = journal.getRuleCount();
+		output.writeInt(ruleCount);
+		for (int ruleId = 0; ruleId < ruleCount; ruleId++) {
+			output.writeUTF(journal.getRuleName(ruleId));
+			output.writeLong(journal.getCompactedCount(ruleId));
+			output.writeLong(journal.getCompactedDaysMoved(ruleId));
+		}
+		int size = journal.size();
+		output.writeInt(size);
+		for (int entry = 0; entry < size; entry++) {
+			output.writeLong(journal.getInstructionIndex(entry));
+			output.writeInt((int) journal.getOriginalDate(entry).toEpochDay());
+			output.writeInt((int) journal.getAdjustedDate(entry).toEpochDay());
+			output.writeInt(journal.getRuleId(entry));
+		}
+	}
+
+	private static SettlementAdjustmentJournal readJournal(DataInputStream input) throws IOException {
+		SettlementAdjustmentJournal journal = new SettlementAdjustmentJournal();
+		journal.reserveInstructionIndexes(input.readLong());
+		int[] ruleIds = new int[input.readInt()];
+		for (int ruleId = 0; ruleId < ruleIds.length; ruleId++) {
+			ruleIds[ruleId] = journal.ruleIdOf(input.readUTF());
+			journal.addCompacted(ruleIds[ruleId], input.readLong(), input.readLong());
+		}
+		int size = input.readInt();
+		for (int entry = 0; entry < size; entry++) {
+			long instructionIndex = input.readLong();
+			int originalDay = input.readInt();
+			int adjustedDay = input.readInt();
+			journal.record(instructionIndex, originalDay, adjustedDay, ruleIds[input.readInt()]);
+		}
+		return journal;
+	}
+
+	private static void writeAmount(DataOutputStream output, FixedPointAmount amount) throws IOException {
+		BigDecimal value = amount.toBigDecimal();
+		byte[] unscaled = value.unscaledValue().toByteArray();
+		output.writeInt(value.scale());
+		output.writeShort(unscaled.length);
+		output.write(unscaled);
+	}
+
+	private static FixedPointAmount readAmount(DataInputStream input) throws IOException {
+		int scale = input.readInt();
+		byte[] unscaled = new byte[input.readUnsignedShort()];
+		input.readFully(unscaled);
+		return new FixedPointAmount().add(new BigDecimal(new BigInteger(unscaled), scale));
+	}
+}
@@ -1,11 +1,17 @@
 package com.jpmc.reportsystem.app;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 
 import org.slf4j.Logger;
@@ -13,11 +19,21 @@ import org.slf4j.LoggerFactory;
 
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.FixedPointAmount;
 import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.InstructionCorrection;
+import com.jpmc.reportsystem.model.LongHashSet;
+import com.jpmc.reportsystem.model.OffHeapInstructionStore;
+import com.jpmc.reportsystem.model.SettlementAdjustmentJournal;
+import com.jpmc.reportsystem.model.SymbolTable;
 import com.jpmc.reportsystem.service.CalculationService;
 import com.jpmc.reportsystem.service.DataManipulationService;
+import com.jpmc.reportsystem.service.DeduplicationService;
 import com.jpmc.reportsystem.service.RankingService;
 import com.jpmc.reportsystem.service.RankingServiceImpl;
+import com.jpmc.reportsystem.service.reader.CorrectionDataReader;
 import com.jpmc.reportsystem.service.reader.DataReader;
 import com.jpmc.reportsystem.service.writer.DataWriter;
 import com.jpmc.reportsystem.util.ReportingSystemConstants;
@@ -62,6 +78,55 @@ public class ReportingSystemProcessor {
 	 * data writer object
 	 */
 	private DataWriter dataWriter;
+	/**
+	 * optional store keeping all the processed instructions off the heap
+	 */
+	private OffHeapInstructionStore instructionStore;
+	/**
+	 * optional stage dropping the duplicate instructions before the services
+	 */
+	private DeduplicationService deduplicationService;
+	/**
+	 * file the progress of the run is checkpointed to, <tt>null</tt> unless
+	 * checkpointing
+	 */
+	private Path checkpointFile;
+	/**
+	 * time between two checkpoints
+	 */
+	private long checkpointIntervalMillis;
+	private long lastCheckpointMillis;
+	/**
+	 * days a settlement day is kept open behind the latest settlement day
+	 * seen, negative unless finalizing the days on a watermark
+	 */
+	private int latenessDays = -1;
+	/**
+	 * side output of the rows settling on a day already finalized,
+	 * <tt>null</tt> to only count them
+	 */
+	private DataWriter lateDataWriter;
+	/**
+	 * latest settlement day seen, the watermark trailing it by the lateness
+	 */
+	private int maxSettlementDay = InstructionBatch.NO_DATE;
+	private long lateCount;
+	/**
+	 * fingerprints of the instructions processed and not corrected since,
+	 * <tt>null</tt> unless taking corrections
+	 */
+	private LongHashSet correctableFingerprints;
+	/**
+	 * fingerprints of the instructions of the current read, made correctable
+	 * once the read is processed
+	 */
+	private long[] readFingerprints = new long[64];
+	private int readFingerprintCount;
+	/**
+	 * optional feed of the corrections applied once the instructions are read
+	 */
+	private CorrectionDataReader correctionReader;
+	private long rejectedCorrectionCount;
 
 	public CalculationService getCalculationService() {
 		return calculationService;
@@ -71,6 +136,121 @@ public class ReportingSystemProcessor {
 		return manipulationService;
 	}
 
+	public OffHeapInstructionStore getInstructionStore() {
+		return instructionStore;
+	}
+
+	/**
+	 * keeps every processed instruction in the store, with its settlement date
+	 * already validated, e.g. to aggregate the instructions of the day again.
+	 * The store is not freed by the processor
+	 * 
+	 * @param instructionStore
+	 */
+	public void setInstructionStore(OffHeapInstructionStore instructionStore) {
+		this.instructionStore = instructionStore;
+	}
+
+	public DeduplicationService getDeduplicationService() {
+		return deduplicationService;
+	}
+
+	/**
+	 * drops the duplicate instructions as they are read, before any service
+	 * sees them. Requires all the columns to be read. The instructions seen
+	 * are not checkpointed, duplicates of instructions read before a resumed
+	 * checkpoint are not dropped
+	 * 
+	 * @param deduplicationService
+	 *            - <tt>null</tt> to keep all the instructions
+	 */
+	public void setDeduplicationService(DeduplicationService deduplicationService) {
+		this.deduplicationService = deduplicationService;
+	}
+
+	public Path getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * checkpoints the progress of the run to the file, once a read is
+	 * processed and the interval passed since the last checkpoint. A run
+	 * finding the file resumes from it, reading the same input from the
+	 * offset of the checkpoint on, and deletes it once completed successfully.
+	 * The instructions read before the checkpoint are not added to the
+	 * instruction store again
+	 * 
+	 * @param checkpointFile
+	 *            - <tt>null</tt> to disable checkpoints
+	 * @param checkpointIntervalMillis
+	 *            - time between two checkpoints, 0 checkpoints every read
+	 */
+	public void setCheckpoint(Path checkpointFile, long checkpointIntervalMillis) {
+		this.checkpointFile = checkpointFile;
+		this.checkpointIntervalMillis = checkpointIntervalMillis;
+	}
+
+	public int getLatenessDays() {
+		return latenessDays;
+	}
+
+	/**
+	 * finalizes the settlement days once the stream moved past them, for input
+	 * arriving roughly ordered by settlement date. Once a read brings a
+	 * settlement day more than the lateness after a day, the amounts of the
+	 * day are written through the data writer and evicted, hence the amounts
+	 * held stay flat however long the stream runs. The reports at the end of
+	 * the run only hold the days not finalized yet. Rows settling on a day
+	 * already finalized are counted and written to the late data writer
+	 * instead. The rankings are run wide, by entity
+	 * 
+	 * @param latenessDays
+	 *            - days a settlement day is kept open behind the latest one,
+	 *            negative to disable the watermark
+	 * @param lateDataWriter
+	 *            - side output of the late rows, <tt>null</tt> to only count
+	 *            them
+	 */
+	public void setWatermark(int latenessDays, DataWriter lateDataWriter) {
+		this.latenessDays = latenessDays;
+		this.lateDataWriter = lateDataWriter;
+	}
+
+	/**
+	 * takes corrections of the instructions processed, through
+	 * {@link #correct(InstructionCorrection)} and from the correction reader
+	 * once all the instructions are read. The fingerprints of the instructions
+	 * processed are tracked, about 16MB per million instructions, so a
+	 * correction of an instruction never processed or already corrected is
+	 * rejected. Identical instructions are tracked once, only one of them can
+	 * be corrected
+	 * 
+	 * @param expectedInstructions
+	 *            - number of instructions the tracking is sized for
+	 * @param correctionReader
+	 *            - corrections applied once the instructions are read,
+	 *            <tt>null</tt> for none
+	 */
+	public void setCorrections(int expectedInstructions, CorrectionDataReader correctionReader) {
+		this.correctableFingerprints = new LongHashSet(expectedInstructions);
+		this.correctionReader = correctionReader;
+	}
+
+	/**
+	 * number of corrections rejected by the correction reader path
+	 */
+	public synchronized long getRejectedCorrectionCount() {
+		return rejectedCorrectionCount;
+	}
+
+	/**
+	 * number of rows settling on a day already finalized, dropped from the
+	 * amounts and rankings
+	 */
+	public synchronized long getLateCount() {
+		return lateCount;
+	}
+
 	/**
 	 * constructor injection of beans
 	 * 
@@ -90,21 +270,44 @@ public class ReportingSystemProcessor {
 	}
 
 	/**
-	 * predicate configured to filter out only the incoming data
+	 * columnar batch the reader pushes the instructions of a read to, reused
+	 * for every read. Duplicates are dropped on the way in
+	 */
+	private final InstructionBatch batch = new InstructionBatch();
+	private final Consumer<ClientInstructions> batchConsumer = instruction -> {
+		if (deduplicationService != null && deduplicationService.isDuplicate(instruction))
+			return;
+		batch.add(instruction);
+		if (correctableFingerprints != null) {
+			if (readFingerprintCount == readFingerprints.length)
+				readFingerprints = Arrays.copyOf(readFingerprints, readFingerprintCount * 2);
+			readFingerprints[readFingerprintCount++] = instruction.getFingerprint();
+		}
+	};
+
+	/**
+	 * indicator of the incoming data
 	 */
-	private static final Predicate<ClientInstructions> incomingPredicate = buyingPredicate -> buyingPredicate
-			.getIndicator().equals(Indicator.BUY);
+	private static final Indicator incomingIndicator = Indicator.BUY;
 	/**
-	 * predicate configured to filter out only the outgoing data
+	 * indicator of the outgoing data
 	 */
-	private static final Predicate<ClientInstructions> outgoingPredicate = sellingPredicate -> sellingPredicate
-			.getIndicator().equals(Indicator.SELL);
+	private static final Indicator outgoingIndicator = Indicator.SELL;
+	/**
+	 * filters of the single instructions corrected
+	 */
+	private static final Predicate<ClientInstructions> incomingPredicate = instruction -> instruction
+			.getIndicator() == incomingIndicator;
+	private static final Predicate<ClientInstructions> outgoingPredicate = instruction -> instruction
+			.getIndicator() == outgoingIndicator;
 
 	/**
 	 * 
 	 * this method would be orchestrating all the dependant services to gather
 	 * all the data. Once done, it would compute and would be printing it using
-	 * the selected writer
+	 * the selected writer. Malformed rows skipped by a tolerant reader and
+	 * rejected corrections make the status {@code SUCCESS_WITH_ERRORS}, while
+	 * exceeding the error limit of the reader fails the run
 	 * 
 	 * @param readerType
 	 * @param writerType
@@ -117,25 +320,33 @@ public class ReportingSystemProcessor {
 		try {
 			//validate the injections
 			validateDependencies();
+			dataReader.setRequiredColumns(getRequiredColumns());
 			
 			// check whether the connection is properly established before the
 			// processor starts with its orchestration
 			if (dataReader.isConnectedEstablished()) {
+				// continue from where a previous run died, if it left a
+				// checkpoint
+				resumeFromCheckpoint();
 				// read till there is no more data available with the reader
+				// instructions are pushed into the columnar batch, which is
+				// processed once per read
 				while (!dataReader.isDone()) {
-
-					List<ClientInstructions> instructions = dataReader.read();
-					// validate the settlement date before we start with actual
-					// processing
-					instructions.forEach(p -> getManipulationService().updateSettlementDates(p));
-					calculateOutgoings(instructions);
-					calculateIncomings(instructions);
-					calculateOutgoingRankings(instructions);
-					calculateIncomingRankings(instructions);
+					batch.clear();
+					dataReader.read(batchConsumer);
+					processBatch(batch);
+					checkpointIfDue();
 				}
+				// the corrections follow the instructions they correct
+				applyCorrections();
 				// generate reports for the dataset
 				generateReports();
-				status = ReportingSystemConstants.STATUS_SUCCESS;
+				// malformed rows skipped in tolerant mode and rejected
+				// corrections are reported in the status
+				status = dataReader.getRejectedCount() > 0 || rejectedCorrectionCount > 0
+						? ReportingSystemConstants.STATUS_SUCCESS_WITH_ERRORS : ReportingSystemConstants.STATUS_SUCCESS;
+				if (checkpointFile != null)
+					Files.deleteIfExists(checkpointFile);
 			} else {
 				LOGGER.error("Connection not established, please open a connection");
 				status = ReportingSystemConstants.STATUS_FAILURE;
@@ -153,7 +364,11 @@ public class ReportingSystemProcessor {
 			}
 		}
 
-		LOGGER.info("Orchestration completed with status={}", status);
+		LOGGER.info(
+				"Orchestration completed with status={}, rejectedCount={}, duplicateCount={}, lateCount={} and rejectedCorrectionCount={}",
+				status, dataReader == null ? 0 : dataReader.getRejectedCount(),
+				deduplicationService == null ? 0 : deduplicationService.getDuplicateCount(), getLateCount(),
+				getRejectedCorrectionCount());
 		return status;
 	}
 
@@ -174,15 +389,317 @@ public class ReportingSystemProcessor {
 
 	}
 
+	/**
+	 * columns read while generating the reports, i.e. the columns read by the
+	 * services and the indicator the instructions are filtered by
+	 * 
+	 * @return requiredColumns
+	 */
+	public Set<InstructionColumn> getRequiredColumns() {
+		Set<InstructionColumn> requiredColumns = EnumSet.of(InstructionColumn.INDICATOR);
+		requiredColumns.addAll(calculationService.getRequiredColumns());
+		requiredColumns.addAll(manipulationService.getRequiredColumns());
+		requiredColumns.addAll(incomingRankingService.getRequiredColumns());
+		requiredColumns.addAll(outgoingRankingService.getRequiredColumns());
+		if (deduplicationService != null)
+			requiredColumns.addAll(deduplicationService.getRequiredColumns());
+		// instructions are identified by all the columns
+		if (correctableFingerprints != null)
+			requiredColumns.addAll(EnumSet.allOf(InstructionColumn.class));
+		return requiredColumns;
+	}
+
+	/**
+	 * generates the reports for the instructions processed so far. Can be
+	 * called from any thread while the processor is still reading, e.g. from a
+	 * reader following a file being appended to, without reading the earlier
+	 * instructions again
+	 */
+	public void refreshReports() {
+		LOGGER.info("Report refresh requested");
+		generateReports();
+	}
+
+	/**
+	 * processes the instructions of a single read. Settlement dates are
+	 * validated before the rows are added to the amounts and rankings.
+	 * Synchronized with the report generation, which may be running on another
+	 * thread
+	 * 
+	 * @param batch
+	 */
+	private synchronized void processBatch(InstructionBatch batch) {
+		for (int index = 0; index < readFingerprintCount; index++)
+			correctableFingerprints.add(readFingerprints[index]);
+		readFingerprintCount = 0;
+		if (batch.isEmpty())
+			return;
+		// validate the settlement date before we start with actual
+		// processing
+		getManipulationService().updateSettlementDates(batch);
+		if (latenessDays >= 0)
+			removeLateRows(batch);
+		if (instructionStore != null)
+			instructionStore.addAll(batch);
+		calculateOutgoings(batch);
+		calculateIncomings(batch);
+		outgoingRankingService.accumulate(batch, outgoingIndicator);
+		incomingRankingService.accumulate(batch, incomingIndicator);
+		if (latenessDays >= 0)
+			advanceWatermark(batch);
+	}
+
+	/**
+	 * removes the rows settling before the watermark, on a day already
+	 * finalized, writing them to the late data writer
+	 * 
+	 * @param batch
+	 */
+	private void removeLateRows(InstructionBatch batch) {
+		if (maxSettlementDay == InstructionBatch.NO_DATE)
+			return;
+		int watermarkDay = maxSettlementDay - latenessDays;
+		int[] settlementDays = batch.getSettlementDays();
+		int late = batch.removeIf(row -> {
+			if (settlementDays[row] == InstructionBatch.NO_DATE || settlementDays[row] >= watermarkDay)
+				return false;
+			if (lateDataWriter != null)
+				lateDataWriter.write(batch.getSettlementDate(row) + "," + batch.getIndicator(row) + ","
+						+ SymbolTable.entities().valueOf(batch.getEntityIds()[row]) + ","
+						+ SymbolTable.currencies().valueOf(batch.getCurrencyIds()[row]) + ","
+						+ batch.getTradeAmount(row));
+			return true;
+		});
+		if (late > 0) {
+			lateCount += late;
+			LOGGER.debug("Late rows={} dropped behind watermark={}", late, LocalDate.ofEpochDay(watermarkDay));
+		}
+	}
+
+	/**
+	 * moves the watermark up to the latest settlement day of the batch, and
+	 * finalizes the days left behind
+	 * 
+	 * @param batch
+	 */
+	private void advanceWatermark(InstructionBatch batch) {
+		int[] settlementDays = batch.getSettlementDays();
+		int size = batch.size();
+		int previous = maxSettlementDay;
+		for (int row = 0; row < size; row++)
+			maxSettlementDay = Math.max(maxSettlementDay, settlementDays[row]);
+		if (maxSettlementDay != previous)
+			generateFinalizedReport(maxSettlementDay - latenessDays);
+	}
+
+	/**
+	 * writes the amounts of the days settling before the watermark, in date
+	 * order, and evicts them along with their entries of the adjustment
+	 * journal, which are kept as counts for the adjustment report
+	 * 
+	 * @param watermarkDay
+	 */
+	private void generateFinalizedReport(int watermarkDay) {
+		getManipulationService().getAdjustmentJournal().compact(watermarkDay);
+		Set<LocalDate> finalized = new TreeSet<>();
+		for (LocalDate date : allIncomings.keySet())
+			if (date != null && date.toEpochDay() < watermarkDay)
+				finalized.add(date);
+		for (LocalDate date : allOutgoings.keySet())
+			if (date != null && date.toEpochDay() < watermarkDay)
+				finalized.add(date);
+		if (finalized.isEmpty())
+			return;
+
+		StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append("\n----------------------------------------\n")
+				.append("         Finalized Daily Amount         \n")
+				.append("----------------------------------------\n")
+				.append("      Date       | Incoming | Outgoing  \n")
+				.append("-----------------+----------+-----------\n");
+		for (LocalDate date : finalized) {
+			FixedPointAmount incoming = allIncomings.remove(date);
+			FixedPointAmount outgoing = allOutgoings.remove(date);
+			stringBuilder.append(date + "       |    " + (incoming == null ? BigDecimal.ZERO : incoming.toBigDecimal())
+					+ "    |    " + (outgoing == null ? BigDecimal.ZERO : outgoing.toBigDecimal()) + "\n");
+		}
+		dataWriter.write(stringBuilder.toString());
+		LOGGER.debug("Settlement days={} finalized", finalized.size());
+	}
+
+	/**
+	 * applies the correction of an instruction already processed to the
+	 * amounts and rankings, without going through the instructions processed
+	 * so far. The original is retracted from the total of its settlement day
+	 * and of its entity, and an amended instruction is added as a new one,
+	 * hence a correction costs a couple of lookups. Can be called from any
+	 * thread, in between the reads of the processor.
+	 * 
+	 * <p>
+	 * Only an instruction processed and not corrected since can be corrected,
+	 * and neither the original nor the amended instruction may settle on a
+	 * day already finalized. The instructions of the correction are left as
+	 * sent, copies are applied. The journal and the instruction store keep
+	 * the original as it was processed, the amended instruction being
+	 * recorded as a new one
+	 * 
+	 * @param correction
+	 * @throws ReportingSystemException
+	 *             in case the correction is rejected, nothing is changed then
+	 */
+	public synchronized void correct(InstructionCorrection correction) throws ReportingSystemException {
+		LOGGER.debug("Applying correction={}", correction);
+		ClientInstructions original = correction.getOriginal().copy();
+		long originalFingerprint = original.getFingerprint();
+		// the original was aggregated on its settlement date once moved to a
+		// working day
+		getManipulationService().resolveSettlementDates(original);
+		boolean amend = correction.getType() == InstructionCorrection.Type.AMEND;
+		if (correctableFingerprints == null || !correctableFingerprints.contains(originalFingerprint)
+				|| isFinalized(original) || (amend
+						&& isFinalized(getManipulationService().resolveSettlementDates(correction.getAmended().copy()))))
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_CORRECTION_REJECTED)
+							+ " correction=" + correction);
+		correctableFingerprints.remove(originalFingerprint);
+		getCalculationService().retractTotalAmount(allOutgoings, original, outgoingPredicate);
+		getCalculationService().retractTotalAmount(allIncomings, original, incomingPredicate);
+		outgoingRankingService.retract(original, outgoingPredicate);
+		incomingRankingService.retract(original, incomingPredicate);
+		if (!amend)
+			return;
+
+		ClientInstructions amended = correction.getAmended().copy();
+		correctableFingerprints.add(amended.getFingerprint());
+		getManipulationService().updateSettlementDates(amended);
+		getCalculationService().accumulateTotalAmount(allOutgoings, amended, outgoingPredicate);
+		getCalculationService().accumulateTotalAmount(allIncomings, amended, incomingPredicate);
+		outgoingRankingService.accumulate(amended, outgoingPredicate);
+		incomingRankingService.accumulate(amended, incomingPredicate);
+	}
+
+	/**
+	 * applies the corrections of the correction reader, a rejected correction
+	 * is logged and counted
+	 * 
+	 * @throws Exception
+	 */
+	private void applyCorrections() throws Exception {
+		if (correctionReader == null)
+			return;
+		while (!correctionReader.isDone()) {
+			for (InstructionCorrection correction : correctionReader.read()) {
+				try {
+					correct(correction);
+				} catch (ReportingSystemException exception) {
+					LOGGER.warn(exception.getMessage());
+					synchronized (this) {
+						rejectedCorrectionCount++;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * whether the instruction settles on a day already finalized by the
+	 * watermark
+	 */
+	private boolean isFinalized(ClientInstructions instruction) {
+		LocalDate settlementDate = instruction.getSettlementDate();
+		return latenessDays >= 0 && maxSettlementDay != InstructionBatch.NO_DATE && settlementDate != null
+				&& settlementDate.toEpochDay() < maxSettlementDay - latenessDays;
+	}
+
+	/**
+	 * restores the amounts, rankings and adjustments of the checkpoint, and
+	 * positions the reader right after the instructions they were made of.
+	 * The rejected and late rows are appended to the ones written before
+	 * 
+	 * @throws Exception
+	 */
+	private synchronized void resumeFromCheckpoint() throws Exception {
+		lastCheckpointMillis = System.currentTimeMillis();
+		if (checkpointFile == null || !Files.exists(checkpointFile))
+			return;
+		ProcessingCheckpoint checkpoint = ProcessingCheckpoint.read(checkpointFile);
+		dataReader.resume(checkpoint.getReaderPosition(), checkpoint.getLineNumber(), checkpoint.getRejectedCount());
+		if (lateDataWriter != null)
+			lateDataWriter.resume();
+		allIncomings.clear();
+		allIncomings.putAll(checkpoint.getIncomings());
+		allOutgoings.clear();
+		allOutgoings.putAll(checkpoint.getOutgoings());
+		incomingRankingService.addEntityTotals(checkpoint.getIncomingTotals());
+		outgoingRankingService.addEntityTotals(checkpoint.getOutgoingTotals());
+		SettlementAdjustmentJournal adjustmentJournal = getManipulationService().getAdjustmentJournal();
+		adjustmentJournal.clear();
+		adjustmentJournal.addAll(checkpoint.getAdjustmentJournal());
+		maxSettlementDay = checkpoint.getMaxSettlementDay();
+		lateCount = checkpoint.getLateCount();
+		if (correctableFingerprints != null && checkpoint.getCorrectableFingerprints() != null)
+			for (long fingerprint : checkpoint.getCorrectableFingerprints().toArray())
+				correctableFingerprints.add(fingerprint);
+		if (deduplicationService != null && checkpoint.getSeenFingerprints() != null)
+			deduplicationService.restore(checkpoint.getSeenFingerprints(), checkpoint.getDuplicateCount());
+		LOGGER.info("Resumed from checkpoint={} at readerPosition={} after instructions={}", checkpointFile,
+				checkpoint.getReaderPosition(), adjustmentJournal.getInstructionCount());
+	}
+
+	/**
+	 * writes a checkpoint in case the interval passed since the last one
+	 * 
+	 * @throws IOException
+	 */
+	private void checkpointIfDue() throws IOException {
+		if (checkpointFile == null)
+			return;
+		long now = System.currentTimeMillis();
+		if (now - lastCheckpointMillis < checkpointIntervalMillis)
+			return;
+		writeCheckpoint();
+		lastCheckpointMillis = now;
+	}
+
+	/**
+	 * writes the position of the reader along with the amounts, rankings and
+	 * adjustments accumulated so far. Checkpoints are disabled for a reader
+	 * which can not resume
+	 * 
+	 * @throws IOException
+	 */
+	private synchronized void writeCheckpoint() throws IOException {
+		long readerPosition = dataReader.getPosition();
+		if (readerPosition < 0) {
+			LOGGER.warn("Reader can not resume from a position, checkpoints disabled");
+			checkpointFile = null;
+			return;
+		}
+		// the rows quarantined so far are kept by the file, a resumed run
+		// appends to them
+		dataReader.flushRejected();
+		if (lateDataWriter != null)
+			lateDataWriter.flush();
+		new ProcessingCheckpoint(readerPosition, allIncomings, allOutgoings, incomingRankingService.getEntityTotals(),
+				outgoingRankingService.getEntityTotals(), getManipulationService().getAdjustmentJournal(),
+				maxSettlementDay, lateCount, dataReader.getRejectedCount(), dataReader.getLineNumber(),
+				correctableFingerprints, deduplicationService == null ? null : deduplicationService.getFingerprints(),
+				deduplicationService == null ? 0 : deduplicationService.getDuplicateCount()).write(checkpointFile);
+		LOGGER.debug("Checkpoint written at readerPosition={}", readerPosition);
+	}
+
 	/**
 	 * trigger generation of all reports
 	 */
-	private void generateReports() {
+	private synchronized void generateReports() {
 		LOGGER.debug("Report generation trigerred");
+		calculateIncomingRankings();
+		calculateOutgoingRankings();
 		generateIncomingReport();
 		generateOutgoingReport();
 		generateIncomingRankingReport();
 		generateOutgoingRankingReport();
+		generateAdjustmentReport();
 		LOGGER.debug("Report generation completed");
 	}
 
@@ -198,7 +715,7 @@ public class ReportingSystemProcessor {
 				.append("      Date       |    Trade Amount      \n")
 				.append("-----------------+----------------------\n");
 		allOutgoings.entrySet().forEach(
-				key -> stringBuilder.append(key.getKey() + "       |      " + key.getValue().get() + "\n"));
+				key -> stringBuilder.append(key.getKey() + "       |      " + key.getValue().toBigDecimal() + "\n"));
 		dataWriter.write(stringBuilder.toString());
 	}
 
@@ -214,7 +731,7 @@ public class ReportingSystemProcessor {
 				.append("      Date       |    Trade Amount      \n")
 				.append("-----------------+----------------------\n");
 		allIncomings.entrySet().forEach(
-				key -> stringBuilder.append(key.getKey() + "       |      " + key.getValue().get() + "\n"));
+				key -> stringBuilder.append(key.getKey() + "       |      " + key.getValue().toBigDecimal() + "\n"));
 		dataWriter.write(stringBuilder.toString());
 	}
 
@@ -253,68 +770,64 @@ public class ReportingSystemProcessor {
 	}
 
 	/**
-	 * call ranking service and get all the ranks for incoming data. Once done
-	 * merge the same into main dataset
-	 * 
-	 * @param instructions
-	 * @throws ReportingSystemException
+	 * method to generate the summary of the settlement dates moved, per
+	 * partner calendar
 	 */
-	private void calculateIncomingRankings(List<ClientInstructions> instructions) throws ReportingSystemException {
-		allIncomingRankings = incomingRankingService.evaluateRanking(instructions, incomingPredicate);
+	private void generateAdjustmentReport() {
 
+		StringBuilder stringBuilder = new StringBuilder();
+		stringBuilder.append("\n----------------------------------------\n")
+				.append("         Settlement Adjustments         \n")
+				.append("----------------------------------------\n")
+				.append("  Partner Calendar  | Adjusted | Days   \n")
+				.append("--------------------+----------+--------\n");
+		// rows padded to the widths of the header columns
+		getManipulationService().getAdjustmentJournal().summarize().entrySet().forEach(key -> stringBuilder
+				.append(String.format(" %-19s|%9d |%7d \n", key.getKey(), key.getValue()[0], key.getValue()[1])));
+		dataWriter.write(stringBuilder.toString());
 	}
 
 	/**
-	 * call ranking service and get all the ranks for outgoing data. Once done
-	 * merge the same into main dataset
-	 * 
-	 * @param instructions
-	 * @throws ReportingSystemException
+	 * call ranking service and get all the ranks for the incoming data
+	 * accumulated so far
 	 */
-	private void calculateOutgoingRankings(List<ClientInstructions> instructions) throws ReportingSystemException {
-		allOutgoingRankings = outgoingRankingService.evaluateRanking(instructions, outgoingPredicate);
+	private void calculateIncomingRankings() {
+		allIncomingRankings = incomingRankingService.evaluateRanking();
 	}
 
 	/**
-	 * call calculation service and calculate the amount for incoming data. Once
-	 * done merge the same into main dataset
-	 * 
-	 * @param instructions
-	 * @throws ReportingSystemException
+	 * call ranking service and get all the ranks for the outgoing data
+	 * accumulated so far
 	 */
-	private void calculateIncomings(List<ClientInstructions> instructions) {
-		getCalculationService().calculateTotalAmount(instructions, incomingPredicate).entrySet().stream()
-				.forEach(p -> allIncomings.merge(p.getKey(), p.getValue(), ReportingSystemProcessor::addition));
+	private void calculateOutgoingRankings() {
+		allOutgoingRankings = outgoingRankingService.evaluateRanking();
 	}
 
 	/**
-	 * call calculation service and calculate the amount for outgoing data. Once
-	 * done merge the same into main dataset
+	 * call calculation service and add the amounts of the batch to the
+	 * incoming dataset
 	 * 
-	 * @param instructions
-	 * @throws ReportingSystemException
+	 * @param batch
 	 */
-	private void calculateOutgoings(List<ClientInstructions> instructions) {
-		getCalculationService().calculateTotalAmount(instructions, outgoingPredicate).entrySet().stream()
-				.forEach(p -> allOutgoings.merge(p.getKey(), p.getValue(), ReportingSystemProcessor::addition));
+	private void calculateIncomings(InstructionBatch batch) {
+		getCalculationService().accumulateTotalAmount(allIncomings, batch, incomingIndicator);
 	}
 
 	/**
-	 * adds two big integers
+	 * call calculation service and add the amounts of the batch to the
+	 * outgoing dataset
 	 * 
-	 * @param existing
-	 * @param fetched
-	 * @return
+	 * @param batch
 	 */
-	private static Optional<BigDecimal> addition(Optional<BigDecimal> existing, Optional<BigDecimal> fetched) {
-		return Optional.of(existing.get().add(fetched.get()));
+	private void calculateOutgoings(InstructionBatch batch) {
+		getCalculationService().accumulateTotalAmount(allOutgoings, batch, outgoingIndicator);
 	}
 
 	/**
 	 * maps to store the actual value for printing
 	 */
-	private Map<LocalDate, Optional<BigDecimal>> allOutgoings = new HashMap<>();
-	private Map<LocalDate, Optional<BigDecimal>> allIncomings = new HashMap<>();
+	private Map<LocalDate, FixedPointAmount> allOutgoings = new HashMap<>();
+	private Map<LocalDate, FixedPointAmount> allIncomings = new HashMap<>();
 	private Map<String, Integer> allIncomingRankings = new HashMap<>();
 	private Map<String, Integer> allOutgoingRankings = new HashMap<>();
 }
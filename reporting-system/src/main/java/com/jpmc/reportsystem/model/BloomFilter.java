@@ -0,0 +1,93 @@
+package com.jpmc.reportsystem.model;
+
+/**
+ * Bloom filter of primitive longs
+ *
+ * <p>
+ * Answers whether a value may have been added, never missing a value that
+ * was added, and wrongly answering <tt>true</tt> for a value never added at
+ * about the false positive rate the filter is sized for. The filter is sized
+ * once for the expected number of values: about 9.6 bits per value for a
+ * false positive rate of 1%, i.e. 1.2MB per million values. The bit
+ * positions are derived from the two halves of the value (double hashing),
+ * hence the values are expected to be well spread hashes, e.g. fingerprints.
+ *
+ * <p>
+ * It is not thread safe.
+ *
+ * @author jnair1
+ *
+ */
+public final class BloomFilter {
+
+	private final long[] bits;
+
+	private final long bitCount;
+
+	private final int hashCount;
+
+	/**
+	 * @param expectedSize
+	 *            - number of values the filter is sized for
+	 * @param falsePositiveRate
+	 *            - rate of wrong answers once the expected number of values
+	 *            is added, between 0 and 1
+	 */
+	public BloomFilter(long expectedSize, double falsePositiveRate) {
+		if (expectedSize < 1 || falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException(
+					"expectedSize=" + expectedSize + ", falsePositiveRate=" + falsePositiveRate);
+		long optimalBits = (long) Math.ceil(-expectedSize * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		bits = new long[(int) ((Math.max(Long.SIZE, optimalBits) + Long.SIZE - 1) / Long.SIZE)];
+		bitCount = (long) bits.length * Long.SIZE;
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedSize * Math.log(2)));
+	}
+
+	/**
+	 * adds the value
+	 *
+	 * @param value
+	 * @return <tt>true</tt> in case the value was definitely not added before
+	 */
+	public boolean put(long value) {
+		long hash1 = value;
+		long hash2 = Long.rotateLeft(value, 32) | 1;
+		boolean added = false;
+		for (int index = 0; index < hashCount; index++) {
+			long bit = Math.floorMod(hash1 + index * hash2, bitCount);
+			long word = bits[(int) (bit >>> 6)];
+			long updated = word | (1L << bit);
+			if (updated != word) {
+				bits[(int) (bit >>> 6)] = updated;
+				added = true;
+			}
+		}
+		return added;
+	}
+
+	/**
+	 * @param value
+	 * @return <tt>false</tt> in case the value was definitely never added
+	 */
+	public boolean mightContain(long value) {
+		long hash1 = value;
+		long hash2 = Long.rotateLeft(value, 32) | 1;
+		for (int index = 0; index < hashCount; index++) {
+			long bit = Math.floorMod(hash1 + index * hash2, bitCount);
+			if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}
+		return true;
+	}
+
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * bytes taken by the bits
+	 */
+	public long memoryBytes() {
+		return (long) bits.length * Long.BYTES;
+	}
+}
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDate;
 import java.util.Currency;
+import java.util.function.Supplier;
 
 /**
  * This model data represents the instructions sent by various clients to JP
@@ -11,6 +12,16 @@ import java.util.Currency;
  * 
  * Only comments, settlementDate and instructionDate can be changed
  * 
+ * <p>
+ * Entity and currency are also held as the ids given by the shared
+ * {@code SymbolTable}, so services can aggregate by the ids. The entity is
+ * the instance held by the table, hence each distinct entity name is kept
+ * once no matter the number of instructions
+ * 
+ * <p>
+ * Readers skipping the decoding of a date column hand over a supplier instead
+ * of the date, the date is then decoded on first access
+ * 
  * @author jnair1
  *
  */
@@ -21,6 +32,11 @@ public final class ClientInstructions {
 	 */
 	private final String entity;
 
+	/**
+	 * id of the entity within {@link SymbolTable#entities()}
+	 */
+	private final int entityId;
+
 	/**
 	 * Buy/Sell flag: B  Buy  outgoing S  Sell  incoming
 	 */
@@ -36,9 +52,14 @@ public final class ClientInstructions {
 	 */
 	private final BigDecimal unitPrice;
 	/**
-	 * USD amount of a trade = Price per unit * Units * Agreed Fx
+	 * USD amount of a trade = Price per unit * Units * Agreed Fx, held as a
+	 * long scaled by a power of ten. The BigDecimal is only created once
+	 * accessed, unless the amount does not fit into a long
 	 */
-	private final BigDecimal tradeAmount;
+	private final long tradeAmountUnscaled;
+	private final int tradeAmountScale;
+	private final boolean tradeAmountOverflow;
+	private BigDecimal tradeAmount;
 	/**
 	 * Units: Number of shares to be bought or sold
 	 */
@@ -49,6 +70,11 @@ public final class ClientInstructions {
 	 */
 	private final Currency currency;
 
+	/**
+	 * id of the currency within {@link SymbolTable#currencies()}
+	 */
+	private final int currencyId;
+
 	/**
 	 * Instruction Date: Date on which the instruction was sent to JP Morgan by
 	 * various clients
@@ -61,10 +87,24 @@ public final class ClientInstructions {
 	private LocalDate settlementDate;
 
 	/**
-	 * comments to update the modification happening in case of settlement date
-	 * change or instruction date change
+	 * decode the dates on first access, <tt>null</tt> once decoded or in case
+	 * the dates were decoded by the reader
 	 */
-	private StringBuilder comments = new StringBuilder();
+	private Supplier<LocalDate> instructionDateDecoder;
+	private Supplier<LocalDate> settlementDateDecoder;
+
+	/**
+	 * settlement date before it was moved to a working day of the partner,
+	 * <tt>null</tt> unless moved. The comment on the move is rendered from it
+	 * when asked for
+	 */
+	private LocalDate originalSettlementDate;
+
+	/**
+	 * comments to update the modification happening in case of instruction
+	 * date change, <tt>null</tt> until the first comment
+	 */
+	private StringBuilder comments;
 
 	/**
 	 * parameterized constructor for initializing all the fields with inputed
@@ -83,7 +123,8 @@ public final class ClientInstructions {
 	public ClientInstructions(String entity, Indicator indicator, BigDecimal agreedFx, BigDecimal unitPrice,
 			BigInteger units, Currency currency, LocalDate instructionDate, LocalDate settlementDate) {
 
-		this.entity = entity;
+		this.entityId = SymbolTable.entities().idOf(entity);
+		this.entity = SymbolTable.entities().valueOf(entityId);
 		this.indicator = indicator;
 
 		// initialize the values with ONE in case its null or negative
@@ -103,23 +144,86 @@ public final class ClientInstructions {
 
 		// calculate the tradeamout during the initialization itself
 		// as we have all the dependent variables right during initialization
-		this.tradeAmount = this.getUnitPrice().multiply(BigDecimal.valueOf(this.getUnits().longValue()))
-				.multiply(this.agreedFx);
+		long unscaled = 0;
+		BigDecimal amount = null;
+		try {
+			unscaled = Math.multiplyExact(
+					Math.multiplyExact(this.unitPrice.unscaledValue().longValueExact(), this.units.longValue()),
+					this.agreedFx.unscaledValue().longValueExact());
+		} catch (ArithmeticException exception) {
+			amount = this.unitPrice.multiply(BigDecimal.valueOf(this.units.longValue())).multiply(this.agreedFx);
+		}
+		this.tradeAmountUnscaled = unscaled;
+		this.tradeAmountScale = this.unitPrice.scale() + this.agreedFx.scale();
+		this.tradeAmountOverflow = amount != null;
+		this.tradeAmount = amount;
 
 		this.currency = currency;
+		this.currencyId = SymbolTable.currencies().idOf(currency);
 		this.instructionDate = instructionDate;
 		this.settlementDate = settlementDate;
 
 	}
 
 	public BigDecimal getTradeAmount() {
-		return tradeAmount;
+		BigDecimal amount = tradeAmount;
+		if (amount == null) {
+			amount = BigDecimal.valueOf(tradeAmountUnscaled, tradeAmountScale);
+			tradeAmount = amount;
+		}
+		return amount;
+	}
+
+	long getTradeAmountUnscaled() {
+		return tradeAmountUnscaled;
+	}
+
+	int getTradeAmountScale() {
+		return tradeAmountScale;
+	}
+
+	/**
+	 * whether the trade amount does not fit into a long, only held as
+	 * BigDecimal then
+	 */
+	boolean isTradeAmountOverflow() {
+		return tradeAmountOverflow;
+	}
+
+	/**
+	 * adds the trade amount to the sum, without creating a BigDecimal unless
+	 * the amount does not fit into a long
+	 * 
+	 * @param sum
+	 */
+	public void addTradeAmountTo(FixedPointAmount sum) {
+		if (tradeAmountOverflow)
+			sum.add(tradeAmount);
+		else
+			sum.add(tradeAmountUnscaled, tradeAmountScale);
+	}
+
+	/**
+	 * subtracts the trade amount from the running sum, retracting an earlier
+	 * {@link #addTradeAmountTo(FixedPointAmount)}
+	 * 
+	 * @param sum
+	 */
+	public void retractTradeAmountFrom(FixedPointAmount sum) {
+		if (tradeAmountOverflow)
+			sum.subtract(tradeAmount);
+		else
+			sum.subtract(tradeAmountUnscaled, tradeAmountScale);
 	}
 
 	public String getEntity() {
 		return entity;
 	}
 
+	public int getEntityId() {
+		return entityId;
+	}
+
 	public Indicator getIndicator() {
 		return indicator;
 	}
@@ -140,28 +244,100 @@ public final class ClientInstructions {
 		return currency;
 	}
 
+	public int getCurrencyId() {
+		return currencyId;
+	}
+
 	public LocalDate getInstructionDate() {
+		if (instructionDateDecoder != null) {
+			instructionDate = instructionDateDecoder.get();
+			instructionDateDecoder = null;
+		}
 		return instructionDate;
 	}
 
 	public LocalDate getSettlementDate() {
+		if (settlementDateDecoder != null) {
+			settlementDate = settlementDateDecoder.get();
+			settlementDateDecoder = null;
+		}
 		return settlementDate;
 	}
 
+	/**
+	 * comments on the modifications of the instruction, rendered on every call
+	 * 
+	 * @return comments
+	 */
 	public StringBuilder getComments() {
-		return comments;
+		StringBuilder rendered = new StringBuilder();
+		if (originalSettlementDate != null)
+			rendered.append(SettlementAdjustmentJournal.renderComment(originalSettlementDate, getSettlementDate()))
+					.append('\t');
+		if (comments != null)
+			rendered.append(comments);
+		return rendered;
 	}
 
 	public void setComments(String comments) {
-		this.comments.append(comments + "\t");
+		if (this.comments == null)
+			this.comments = new StringBuilder();
+		this.comments.append(comments).append('\t');
+	}
+
+	/**
+	 * settlement date before it was moved by
+	 * {@link #moveSettlementDate(LocalDate)}, <tt>null</tt> unless moved
+	 */
+	public LocalDate getOriginalSettlementDate() {
+		return originalSettlementDate;
+	}
+
+	/**
+	 * copy of the instruction as first sent, i.e. with the settlement date it
+	 * had before it was moved, and without comments
+	 */
+	public ClientInstructions copy() {
+		return new ClientInstructions(entity, indicator, agreedFx, unitPrice, units, currency, getInstructionDate(),
+				originalSettlementDate == null ? getSettlementDate() : originalSettlementDate);
+	}
+
+	/**
+	 * moves the settlement date to a working day of the partner, keeping the
+	 * date it was first moved from for the comments
+	 * 
+	 * @param settlementDate
+	 */
+	public void moveSettlementDate(LocalDate settlementDate) {
+		if (originalSettlementDate == null)
+			originalSettlementDate = getSettlementDate();
+		setSettlementDate(settlementDate);
 	}
 
 	public void setInstructionDate(LocalDate instructionDate) {
 		this.instructionDate = instructionDate;
+		this.instructionDateDecoder = null;
 	}
 
 	public void setSettlementDate(LocalDate settlementDate) {
 		this.settlementDate = settlementDate;
+		this.settlementDateDecoder = null;
+	}
+
+	/**
+	 * @param instructionDateDecoder
+	 *            - decodes the instruction date on first access
+	 */
+	public void setInstructionDate(Supplier<LocalDate> instructionDateDecoder) {
+		this.instructionDateDecoder = instructionDateDecoder;
+	}
+
+	/**
+	 * @param settlementDateDecoder
+	 *            - decodes the settlement date on first access
+	 */
+	public void setSettlementDate(Supplier<LocalDate> settlementDateDecoder) {
+		this.settlementDateDecoder = settlementDateDecoder;
 	}
 
 	/**
@@ -176,13 +352,71 @@ public final class ClientInstructions {
 		result = prime * result + agreedFx.hashCode();
 		result = prime * result + unitPrice.hashCode();
 		result = prime * result + units.hashCode();
-		result = prime * result + instructionDate.hashCode();
-		result = prime * result + settlementDate.hashCode();
+		result = prime * result + getInstructionDate().hashCode();
+		result = prime * result + getSettlementDate().hashCode();
 		result = prime * result + currency.hashCode();
-		result = prime * result + tradeAmount.hashCode();
+		result = prime * result + getTradeAmount().hashCode();
 		return result;
 	}
 
+	/**
+	 * 64 bit fingerprint of the fields compared by {@link #equals(Object)}.
+	 * The trade amount is left out, as it is derived from the agreed fx, unit
+	 * price and units. Amounts are compared by value, 0.5 has the same
+	 * fingerprint as 0.50, and the entity and currency by the name and the
+	 * currency code rather than the ids of the shared {@link SymbolTable}s,
+	 * which depend on the order the values were first seen. Hence the
+	 * fingerprints are comparable across runs, e.g. when kept in a
+	 * checkpoint. Decodes the dates not decoded yet
+	 * 
+	 * @return fingerprint
+	 */
+	public long getFingerprint() {
+		long hash = 0x2545F4914F6CDD1DL;
+		hash = mixFingerprint(hash, entity);
+		hash = mixFingerprint(hash, indicator == null ? -1 : indicator.ordinal());
+		hash = mixFingerprint(hash, agreedFx);
+		hash = mixFingerprint(hash, unitPrice);
+		hash = mixFingerprint(hash, units.bitLength() < Long.SIZE ? units.longValue() : units.hashCode());
+		hash = mixFingerprint(hash, currency == null ? null : currency.getCurrencyCode());
+		LocalDate date = getInstructionDate();
+		hash = mixFingerprint(hash, date == null ? Long.MIN_VALUE : date.toEpochDay());
+		date = getSettlementDate();
+		hash = mixFingerprint(hash, date == null ? Long.MIN_VALUE : date.toEpochDay());
+		// final avalanche, so every bit of the fields affects every bit
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+
+	private static long mixFingerprint(long hash, long value) {
+		return Long.rotateLeft(hash ^ (value * 0x9E3779B97F4A7C15L), 29) * 0xC2B2AE3D27D4EB4FL;
+	}
+
+	private static long mixFingerprint(long hash, String value) {
+		if (value == null)
+			return mixFingerprint(hash, -1L);
+		int length = value.length();
+		hash = mixFingerprint(hash, length);
+		// four chars of 16 bits per mix
+		for (int i = 0; i < length; i += 4) {
+			long chars = 0;
+			for (int j = i; j < Math.min(i + 4, length); j++)
+				chars = chars << Character.SIZE | value.charAt(j);
+			hash = mixFingerprint(hash, chars);
+		}
+		return hash;
+	}
+
+	private static long mixFingerprint(long hash, BigDecimal value) {
+		if (value.signum() == 0)
+			return mixFingerprint(hash, 0L);
+		BigDecimal normalized = value.stripTrailingZeros();
+		BigInteger unscaled = normalized.unscaledValue();
+		hash = mixFingerprint(hash, unscaled.bitLength() < Long.SIZE ? unscaled.longValue() : unscaled.hashCode());
+		return mixFingerprint(hash, normalized.scale());
+	}
+
 	/**
 	 * equals implementation
 	 */
@@ -205,12 +439,12 @@ public final class ClientInstructions {
 			return false;
 		if (units.compareTo(instructions.getUnits()) != 0)
 			return false;
-		if (tradeAmount.compareTo(instructions.getTradeAmount()) != 0)
+		if (getTradeAmount().compareTo(instructions.getTradeAmount()) != 0)
 			return false;
 
-		if (instructionDate != instructions.getInstructionDate())
+		if (getInstructionDate() != instructions.getInstructionDate())
 			return false;
-		if (settlementDate != instructions.getSettlementDate())
+		if (getSettlementDate() != instructions.getSettlementDate())
 			return false;
 		if (currency != instructions.getCurrency())
 			return false;
@@ -224,7 +458,7 @@ public final class ClientInstructions {
 	@Override
 	public String toString() {
 		return "[entity=" + entity + " indicator=" + indicator + ", agreedFx=" + agreedFx + ", currency=" + currency
-				+ ", instructionDate=" + instructionDate + ", settlementDate=" + settlementDate + ", units=" + units
-				+ ", unitPrice=" + unitPrice + ", tradeAmount=" + tradeAmount + ", comments=" + comments.toString() + "]";
+				+ ", instructionDate=" + getInstructionDate() + ", settlementDate=" + getSettlementDate() + ", units=" + units
+				+ ", unitPrice=" + unitPrice + ", tradeAmount=" + getTradeAmount() + ", comments=" + getComments() + "]";
 	}
 }
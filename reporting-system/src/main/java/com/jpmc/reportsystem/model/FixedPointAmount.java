@@ -0,0 +1,194 @@
+package com.jpmc.reportsystem.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact running sum of amounts, held as a long scaled by a power of ten
+ *
+ * <p>
+ * Adding an amount only takes long arithmetic as long as the sum fits into a
+ * long. The sum keeps the largest scale of the amounts added, which is the
+ * scale {@code BigDecimal.add} would give, hence {@link #toBigDecimal()} is
+ * equal to the sum of the amounts as BigDecimals, including the trailing
+ * zeros. In case an addition overflows, the sum moves over to BigDecimal for
+ * good, so the result stays exact.
+ *
+ * <p>
+ * A sum is not thread safe.
+ *
+ * @author jnair1
+ *
+ */
+public final class FixedPointAmount implements Comparable<FixedPointAmount> {
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	private long unscaled;
+
+	private int scale;
+
+	private boolean empty = true;
+
+	/**
+	 * sum once it no longer fits into a long, <tt>null</tt> till then
+	 */
+	private BigDecimal overflow;
+
+	/**
+	 * adds the amount of <tt>unscaled * 10^-scale</tt>
+	 *
+	 * @param unscaled
+	 * @param scale
+	 * @return this sum
+	 */
+	public FixedPointAmount add(long unscaled, int scale) {
+		if (overflow != null) {
+			overflow = overflow.add(BigDecimal.valueOf(unscaled, scale));
+			return this;
+		}
+		if (empty) {
+			this.unscaled = unscaled;
+			this.scale = scale;
+			empty = false;
+			return this;
+		}
+		try {
+			if (scale > this.scale) {
+				this.unscaled = Math.addExact(rescale(this.unscaled, scale - this.scale), unscaled);
+				this.scale = scale;
+			} else {
+				this.unscaled = Math.addExact(this.unscaled, rescale(unscaled, this.scale - scale));
+			}
+		} catch (ArithmeticException exception) {
+			overflow = BigDecimal.valueOf(this.unscaled, this.scale).add(BigDecimal.valueOf(unscaled, scale));
+		}
+		return this;
+	}
+
+	/**
+	 * adds the amount
+	 *
+	 * @param amount
+	 * @return this sum
+	 */
+	public FixedPointAmount add(BigDecimal amount) {
+		if (overflow == null && amount.unscaledValue().bitLength() < Long.SIZE)
+			return add(amount.unscaledValue().longValue(), amount.scale());
+		overflow = toBigDecimal(amount);
+		empty = false;
+		return this;
+	}
+
+	/**
+	 * adds the other sum
+	 *
+	 * @param amount
+	 * @return this sum
+	 */
+	public FixedPointAmount add(FixedPointAmount amount) {
+		if (amount.empty)
+			return this;
+		if (amount.overflow != null)
+			return add(amount.overflow);
+		return add(amount.unscaled, amount.scale);
+	}
+
+	/**
+	 * subtracts the amount of <tt>unscaled * 10^-scale</tt>, e.g. to retract
+	 * an amount added before. The scale of the sum is kept
+	 *
+	 * @param unscaled
+	 * @param scale
+	 * @return this sum
+	 */
+	public FixedPointAmount subtract(long unscaled, int scale) {
+		if (unscaled == Long.MIN_VALUE)
+			return add(BigDecimal.valueOf(unscaled, scale).negate());
+		return add(-unscaled, scale);
+	}
+
+	/**
+	 * subtracts the amount
+	 *
+	 * @param amount
+	 * @return this sum
+	 */
+	public FixedPointAmount subtract(BigDecimal amount) {
+		return add(amount.negate());
+	}
+
+	/**
+	 * sign of the sum, 0 in case nothing has been added
+	 */
+	public int signum() {
+		if (overflow != null)
+			return overflow.signum();
+		return Long.signum(unscaled);
+	}
+
+	/**
+	 * whether nothing has been added yet
+	 */
+	public boolean isEmpty() {
+		return empty;
+	}
+
+	/**
+	 * whether the sum moved over to BigDecimal
+	 */
+	public boolean isOverflow() {
+		return overflow != null;
+	}
+
+	/**
+	 * the sum, zero in case nothing has been added
+	 */
+	public BigDecimal toBigDecimal() {
+		if (overflow != null)
+			return overflow;
+		if (empty)
+			return BigDecimal.ZERO;
+		return BigDecimal.valueOf(unscaled, scale);
+	}
+
+	@Override
+	public int compareTo(FixedPointAmount other) {
+		if (overflow == null && other.overflow == null && !empty && !other.empty && scale == other.scale)
+			return Long.compare(unscaled, other.unscaled);
+		return toBigDecimal().compareTo(other.toBigDecimal());
+	}
+
+	@Override
+	public String toString() {
+		return toBigDecimal().toString();
+	}
+
+	/**
+	 * sum of this and the amount as BigDecimal, for the overflow
+	 */
+	private BigDecimal toBigDecimal(BigDecimal amount) {
+		if (empty && overflow == null)
+			return amount;
+		return toBigDecimal().add(amount);
+	}
+
+	/**
+	 * multiplies by a power of ten
+	 *
+	 * @throws ArithmeticException
+	 *             in case the result does not fit into a long
+	 */
+	private static long rescale(long value, int digits) {
+		if (digits == 0)
+			return value;
+		if (digits >= POWERS_OF_TEN.length)
+			throw new ArithmeticException("scale out of range");
+		return Math.multiplyExact(value, POWERS_OF_TEN[digits]);
+	}
+}
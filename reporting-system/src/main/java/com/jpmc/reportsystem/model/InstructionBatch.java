@@ -0,0 +1,319 @@
+package com.jpmc.reportsystem.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Batch of client instructions held column by column
+ *
+ * <p>
+ * Every column the reports aggregate on is a primitive array, indexed by the
+ * row: the entity and currency as the ids of the shared {@link SymbolTable}s,
+ * the indicator as its ordinal, the settlement date as its epoch day and the
+ * trade amount as a long scaled by a power of ten, same as
+ * {@link FixedPointAmount}. A trade amount not fitting into a long is kept as
+ * BigDecimal on the side. Services loop over the arrays instead of following
+ * a reference per instruction, and a batch holds a handful of arrays instead
+ * of a dozen objects per instruction.
+ *
+ * <p>
+ * A batch is meant to be filled, processed and cleared for the next batch,
+ * reusing the arrays. It is not thread safe.
+ *
+ * @author jnair1
+ *
+ */
+public final class InstructionBatch {
+
+	/**
+	 * ordinal of a missing indicator
+	 */
+	public static final byte NO_INDICATOR = -1;
+
+	/**
+	 * epoch day of a missing settlement date
+	 */
+	public static final int NO_DATE = Integer.MIN_VALUE;
+
+	private static final Indicator[] INDICATORS = Indicator.values();
+
+	private int size;
+
+	private int[] entityIds;
+
+	private byte[] indicators;
+
+	private int[] currencyIds;
+
+	private int[] settlementDays;
+
+	private long[] tradeAmounts;
+
+	private int[] tradeAmountScales;
+
+	/**
+	 * trade amounts not fitting into a long, <tt>null</tt> unless any
+	 */
+	private BigDecimal[] overflowAmounts;
+
+	public InstructionBatch() {
+		this(256);
+	}
+
+	/**
+	 * @param capacity
+	 *            - number of rows the batch holds before it grows
+	 */
+	public InstructionBatch(int capacity) {
+		capacity = Math.max(1, capacity);
+		entityIds = new int[capacity];
+		indicators = new byte[capacity];
+		currencyIds = new int[capacity];
+		settlementDays = new int[capacity];
+		tradeAmounts = new long[capacity];
+		tradeAmountScales = new int[capacity];
+	}
+
+	/**
+	 * creates a batch of the instructions
+	 *
+	 * @param clientInstructions
+	 */
+	public static InstructionBatch of(List<ClientInstructions> clientInstructions) {
+		InstructionBatch batch = new InstructionBatch(clientInstructions.size());
+		clientInstructions.forEach(batch::add);
+		return batch;
+	}
+
+	/**
+	 * appends the instruction as a row of the batch
+	 *
+	 * @param instruction
+	 */
+	public void add(ClientInstructions instruction) {
+		LocalDate settlementDate = instruction.getSettlementDate();
+		int settlementDay = settlementDate == null ? NO_DATE : (int) settlementDate.toEpochDay();
+		byte indicator = instruction.getIndicator() == null ? NO_INDICATOR
+				: (byte) instruction.getIndicator().ordinal();
+		if (instruction.isTradeAmountOverflow())
+			add(instruction.getEntityId(), indicator, instruction.getCurrencyId(), settlementDay,
+					instruction.getTradeAmount());
+		else
+			add(instruction.getEntityId(), indicator, instruction.getCurrencyId(), settlementDay,
+					instruction.getTradeAmountUnscaled(), instruction.getTradeAmountScale());
+	}
+
+	/**
+	 * appends a row out of its columns
+	 *
+	 * @param entityId
+	 * @param indicator
+	 *            - ordinal of the indicator, {@link #NO_INDICATOR} for none
+	 * @param currencyId
+	 * @param settlementDay
+	 *            - epoch day of the settlement date, {@link #NO_DATE} for none
+	 * @param tradeAmountUnscaled
+	 * @param tradeAmountScale
+	 */
+	public void add(int entityId, byte indicator, int currencyId, int settlementDay, long tradeAmountUnscaled,
+			int tradeAmountScale) {
+		int row = addRow(entityId, indicator, currencyId, settlementDay);
+		tradeAmounts[row] = tradeAmountUnscaled;
+		tradeAmountScales[row] = tradeAmountScale;
+		if (overflowAmounts != null)
+			overflowAmounts[row] = null;
+	}
+
+	/**
+	 * appends a row out of its columns, with a trade amount not fitting into a
+	 * long
+	 *
+	 * @param entityId
+	 * @param indicator
+	 *            - ordinal of the indicator, {@link #NO_INDICATOR} for none
+	 * @param currencyId
+	 * @param settlementDay
+	 *            - epoch day of the settlement date, {@link #NO_DATE} for none
+	 * @param tradeAmount
+	 */
+	public void add(int entityId, byte indicator, int currencyId, int settlementDay, BigDecimal tradeAmount) {
+		int row = addRow(entityId, indicator, currencyId, settlementDay);
+		if (overflowAmounts == null)
+			overflowAmounts = new BigDecimal[entityIds.length];
+		overflowAmounts[row] = tradeAmount;
+	}
+
+	/**
+	 * removes all the rows, keeping the arrays for the next rows
+	 */
+	public void clear() {
+		size = 0;
+		if (overflowAmounts != null)
+			Arrays.fill(overflowAmounts, null);
+	}
+
+	/**
+	 * removes the rows matching the filter, moving the rows kept up in place
+	 * and keeping their order. The filter is given the index of the row
+	 * before any row is moved
+	 *
+	 * @param filter
+	 *            - rows to remove
+	 * @return number of rows removed
+	 */
+	public int removeIf(IntPredicate filter) {
+		int kept = 0;
+		for (int row = 0; row < size; row++) {
+			if (filter.test(row))
+				continue;
+			if (kept != row) {
+				entityIds[kept] = entityIds[row];
+				indicators[kept] = indicators[row];
+				currencyIds[kept] = currencyIds[row];
+				settlementDays[kept] = settlementDays[row];
+				tradeAmounts[kept] = tradeAmounts[row];
+				tradeAmountScales[kept] = tradeAmountScales[row];
+				if (overflowAmounts != null)
+					overflowAmounts[kept] = overflowAmounts[row];
+			}
+			kept++;
+		}
+		int removed = size - kept;
+		if (overflowAmounts != null)
+			Arrays.fill(overflowAmounts, kept, size, null);
+		size = kept;
+		return removed;
+	}
+
+	/**
+	 * number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * entity ids by row, valid up to {@link #size()}
+	 */
+	public int[] getEntityIds() {
+		return entityIds;
+	}
+
+	/**
+	 * indicator ordinals by row, {@link #NO_INDICATOR} for a missing one,
+	 * valid up to {@link #size()}
+	 */
+	public byte[] getIndicators() {
+		return indicators;
+	}
+
+	/**
+	 * currency ids by row, valid up to {@link #size()}
+	 */
+	public int[] getCurrencyIds() {
+		return currencyIds;
+	}
+
+	/**
+	 * settlement dates as epoch days by row, {@link #NO_DATE} for a missing
+	 * one, valid up to {@link #size()}. Can be updated in place
+	 */
+	public int[] getSettlementDays() {
+		return settlementDays;
+	}
+
+	public Indicator getIndicator(int row) {
+		byte indicator = indicators[row];
+		return indicator == NO_INDICATOR ? null : INDICATORS[indicator];
+	}
+
+	public LocalDate getSettlementDate(int row) {
+		int settlementDay = settlementDays[row];
+		return settlementDay == NO_DATE ? null : LocalDate.ofEpochDay(settlementDay);
+	}
+
+	/**
+	 * trade amount of the row
+	 *
+	 * @param row
+	 */
+	public BigDecimal getTradeAmount(int row) {
+		if (overflowAmounts != null && overflowAmounts[row] != null)
+			return overflowAmounts[row];
+		return BigDecimal.valueOf(tradeAmounts[row], tradeAmountScales[row]);
+	}
+
+	/**
+	 * unscaled trade amount of the row, valid unless
+	 * {@link #isTradeAmountOverflow(int)}
+	 *
+	 * @param row
+	 */
+	public long getTradeAmountUnscaled(int row) {
+		return tradeAmounts[row];
+	}
+
+	/**
+	 * scale of the trade amount of the row, valid unless
+	 * {@link #isTradeAmountOverflow(int)}
+	 *
+	 * @param row
+	 */
+	public int getTradeAmountScale(int row) {
+		return tradeAmountScales[row];
+	}
+
+	/**
+	 * whether the trade amount of the row does not fit into a long, only held
+	 * as BigDecimal then
+	 *
+	 * @param row
+	 */
+	public boolean isTradeAmountOverflow(int row) {
+		return overflowAmounts != null && overflowAmounts[row] != null;
+	}
+
+	/**
+	 * adds the trade amount of the row to the sum, without creating a
+	 * BigDecimal unless the amount does not fit into a long
+	 *
+	 * @param row
+	 * @param sum
+	 */
+	public void addTradeAmountTo(int row, FixedPointAmount sum) {
+		if (overflowAmounts != null && overflowAmounts[row] != null)
+			sum.add(overflowAmounts[row]);
+		else
+			sum.add(tradeAmounts[row], tradeAmountScales[row]);
+	}
+
+	private int addRow(int entityId, byte indicator, int currencyId, int settlementDay) {
+		if (size == entityIds.length)
+			grow();
+		int row = size++;
+		entityIds[row] = entityId;
+		indicators[row] = indicator;
+		currencyIds[row] = currencyId;
+		settlementDays[row] = settlementDay;
+		return row;
+	}
+
+	private void grow() {
+		int capacity = entityIds.length * 2;
+		entityIds = Arrays.copyOf(entityIds, capacity);
+		indicators = Arrays.copyOf(indicators, capacity);
+		currencyIds = Arrays.copyOf(currencyIds, capacity);
+		settlementDays = Arrays.copyOf(settlementDays, capacity);
+		tradeAmounts = Arrays.copyOf(tradeAmounts, capacity);
+		tradeAmountScales = Arrays.copyOf(tradeAmountScales, capacity);
+		if (overflowAmounts != null)
+			overflowAmounts = Arrays.copyOf(overflowAmounts, capacity);
+	}
+}
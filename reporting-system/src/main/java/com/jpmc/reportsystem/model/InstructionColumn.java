@@ -0,0 +1,23 @@
+package com.jpmc.reportsystem.model;
+
+/**
+ * Columns of the client instructions, in the order of the csv files
+ *
+ * <p>
+ * Services declare the columns they read, so that readers can skip decoding
+ * the columns none of the reports need
+ *
+ * @author jnair1
+ *
+ */
+public enum InstructionColumn {
+
+	ENTITY, INDICATOR, AGREED_FX, CURRENCY, INSTRUCTION_DATE, SETTLEMENT_DATE, UNITS, UNIT_PRICE;
+
+	/**
+	 * position of the column within a row
+	 */
+	public int getIndex() {
+		return ordinal();
+	}
+}
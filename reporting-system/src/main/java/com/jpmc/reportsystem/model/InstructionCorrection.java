@@ -0,0 +1,75 @@
+package com.jpmc.reportsystem.model;
+
+/**
+ * Correction of an instruction already processed, sent after the instruction
+ * itself
+ *
+ * <p>
+ * The original instruction is identified by its content as first sent, the
+ * same fields {@link ClientInstructions#equals(Object)} compares. An
+ * amendment replaces the original with the amended instruction, a
+ * cancellation withdraws the original.
+ *
+ * @author jnair1
+ *
+ */
+public final class InstructionCorrection {
+
+	public enum Type {
+		AMEND, CANCEL
+	}
+
+	private final Type type;
+
+	private final ClientInstructions original;
+
+	/**
+	 * <tt>null</tt> for a cancellation
+	 */
+	private final ClientInstructions amended;
+
+	private InstructionCorrection(Type type, ClientInstructions original, ClientInstructions amended) {
+		if (original == null || (type == Type.AMEND && amended == null))
+			throw new IllegalArgumentException("type=" + type + ", original=" + original + ", amended=" + amended);
+		this.type = type;
+		this.original = original;
+		this.amended = amended;
+	}
+
+	/**
+	 * @param original
+	 *            - instruction as first sent
+	 * @param amended
+	 *            - instruction replacing it
+	 * @return amendment
+	 */
+	public static InstructionCorrection amend(ClientInstructions original, ClientInstructions amended) {
+		return new InstructionCorrection(Type.AMEND, original, amended);
+	}
+
+	/**
+	 * @param original
+	 *            - instruction as first sent
+	 * @return cancellation
+	 */
+	public static InstructionCorrection cancel(ClientInstructions original) {
+		return new InstructionCorrection(Type.CANCEL, original, null);
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	public ClientInstructions getOriginal() {
+		return original;
+	}
+
+	public ClientInstructions getAmended() {
+		return amended;
+	}
+
+	@Override
+	public String toString() {
+		return "InstructionCorrection [type=" + type + ", original=" + original + ", amended=" + amended + "]";
+	}
+}
@@ -0,0 +1,206 @@
+package com.jpmc.reportsystem.model;
+
+import java.util.Arrays;
+
+/**
+ * Set of primitive longs held in a single open addressing table
+ *
+ * <p>
+ * Values are stored inline in a <tt>long[]</tt> whose length is a power of
+ * two, colliding values are placed in the next free slot (linear probing).
+ * Zero marks a free slot, the value zero itself is tracked by a flag. The
+ * table doubles once it is three quarters full, hence a set of n values
+ * takes between 10.7 and 21.3 bytes per value, about 16MB per million values
+ * on average, without any object per value. Sizing the set up front for the
+ * expected number of values avoids the copies while growing.
+ *
+ * <p>
+ * The values are expected to be well spread hashes, e.g. fingerprints, as
+ * the slot is taken from their low bits after a cheap remix. It is not
+ * thread safe.
+ *
+ * @author jnair1
+ *
+ */
+public final class LongHashSet {
+
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] table;
+
+	private int mask;
+
+	private int size;
+
+	private boolean containsZero;
+
+	public LongHashSet() {
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * @param expectedSize
+	 *            - number of values the table is sized for, without growing
+	 */
+	public LongHashSet(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+		while (capacity * 3L / 4 < expectedSize)
+			capacity <<= 1;
+		table = new long[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * adds the value
+	 *
+	 * @param value
+	 * @return <tt>true</tt> in case the value was not in the set yet
+	 */
+	public boolean add(long value) {
+		if (value == 0) {
+			if (containsZero)
+				return false;
+			containsZero = true;
+			size++;
+			return true;
+		}
+		int slot = slot(value);
+		while (table[slot] != 0) {
+			if (table[slot] == value)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = value;
+		if (++size > table.length * 3L / 4)
+			grow();
+		return true;
+	}
+
+	/**
+	 * adds a value known not to be in the set yet, e.g. told by a filter in
+	 * front of the set, without comparing it with the values it collides with
+	 *
+	 * @param value
+	 */
+	public void addAbsent(long value) {
+		if (value == 0) {
+			containsZero = true;
+			size++;
+			return;
+		}
+		int slot = slot(value);
+		while (table[slot] != 0)
+			slot = (slot + 1) & mask;
+		table[slot] = value;
+		if (++size > table.length * 3L / 4)
+			grow();
+	}
+
+	public boolean contains(long value) {
+		if (value == 0)
+			return containsZero;
+		int slot = slot(value);
+		while (table[slot] != 0) {
+			if (table[slot] == value)
+				return true;
+			slot = (slot + 1) & mask;
+		}
+		return false;
+	}
+
+	/**
+	 * removes the value, the values colliding with it are shifted back so no
+	 * probe sequence is broken
+	 *
+	 * @param value
+	 * @return <tt>true</tt> in case the value was in the set
+	 */
+	public boolean remove(long value) {
+		if (value == 0) {
+			if (!containsZero)
+				return false;
+			containsZero = false;
+			size--;
+			return true;
+		}
+		int slot = slot(value);
+		while (table[slot] != value) {
+			if (table[slot] == 0)
+				return false;
+			slot = (slot + 1) & mask;
+		}
+		int free = slot;
+		for (int next = (free + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+			// a value may fill the free slot unless its own slot lies
+			// cyclically between the free slot and where it is now
+			int home = slot(table[next]);
+			if (((next - home) & mask) >= ((next - free) & mask)) {
+				table[free] = table[next];
+				free = next;
+			}
+		}
+		table[free] = 0;
+		size--;
+		return true;
+	}
+
+	/**
+	 * the values, in no particular order
+	 */
+	public long[] toArray() {
+		long[] values = new long[size];
+		int index = 0;
+		if (containsZero)
+			values[index++] = 0;
+		for (long value : table)
+			if (value != 0)
+				values[index++] = value;
+		return values;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * number of slots of the table
+	 */
+	public int capacity() {
+		return table.length;
+	}
+
+	/**
+	 * bytes taken by the table
+	 */
+	public long memoryBytes() {
+		return (long) table.length * Long.BYTES;
+	}
+
+	/**
+	 * removes all the values, keeping the table
+	 */
+	public void clear() {
+		Arrays.fill(table, 0);
+		size = 0;
+		containsZero = false;
+	}
+
+	private int slot(long value) {
+		long hash = value ^ (value >>> 32);
+		return (int) (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void grow() {
+		long[] previous = table;
+		table = new long[previous.length * 2];
+		mask = table.length - 1;
+		for (long value : previous) {
+			if (value == 0)
+				continue;
+			int slot = slot(value);
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = value;
+		}
+	}
+}
@@ -0,0 +1,460 @@
+package com.jpmc.reportsystem.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps client instructions outside of the heap, e.g. the instructions of a
+ * whole trading day kept for aggregating them again
+ *
+ * <p>
+ * Every instruction is a record of {@link #RECORD_SIZE} bytes within a
+ * segment, a direct buffer or a buffer mapped to a file of the given
+ * directory. The store grows a segment at a time, the records never move.
+ * The record holds the columns of an {@link InstructionBatch}:
+ *
+ * <pre>
+ *  0 entity id          int
+ *  4 currency id        int
+ *  8 settlement day     int, epoch day
+ * 12 trade amount scale int
+ * 16 trade amount       long, unscaled
+ * 24 indicator          byte, ordinal
+ * 25 overflow           byte, 1 in case the trade amount does not fit a long
+ * </pre>
+ *
+ * The few trade amounts not fitting into a long are kept on the heap. The
+ * columns are read with typed accessors by row, and the services iterate the
+ * store through {@link #forEachBatch(int, Consumer)}, which fills a single
+ * reused batch, hence no object is created per instruction.
+ *
+ * <p>
+ * Segments are released by {@link #free()} instead of waiting for the
+ * garbage collector, the store can not be used afterwards. A store is not
+ * thread safe.
+ *
+ * @author jnair1
+ *
+ */
+public final class OffHeapInstructionStore implements AutoCloseable {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(OffHeapInstructionStore.class);
+
+	/**
+	 * number of bytes of a record
+	 */
+	public static final int RECORD_SIZE = 32;
+
+	private static final int ENTITY_ID = 0;
+	private static final int CURRENCY_ID = 4;
+	private static final int SETTLEMENT_DAY = 8;
+	private static final int TRADE_AMOUNT_SCALE = 12;
+	private static final int TRADE_AMOUNT = 16;
+	private static final int INDICATOR = 24;
+	private static final int OVERFLOW = 25;
+
+	private static final Indicator[] INDICATORS = Indicator.values();
+
+	/**
+	 * releases a direct or mapped buffer right away, where the runtime allows
+	 * to
+	 */
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final int segmentRecords;
+
+	/**
+	 * directory of the files the segments are mapped to, <tt>null</tt> for
+	 * direct buffers
+	 */
+	private final Path directory;
+
+	private final List<ByteBuffer> segments = new ArrayList<>();
+
+	private final List<Path> segmentFiles = new ArrayList<>();
+
+	private final Map<Long, BigDecimal> overflowAmounts = new HashMap<>();
+
+	private long size;
+
+	private boolean freed;
+
+	/**
+	 * whether the segments were released by {@link #free()}
+	 */
+	private boolean released;
+
+	/**
+	 * creates a store of direct buffers
+	 *
+	 * @param segmentRecords
+	 *            - number of records per segment
+	 */
+	public OffHeapInstructionStore(int segmentRecords) {
+		this(segmentRecords, null);
+	}
+
+	/**
+	 * @param segmentRecords
+	 *            - number of records per segment
+	 * @param directory
+	 *            - directory of the files the segments are mapped to,
+	 *            <tt>null</tt> for direct buffers
+	 */
+	public OffHeapInstructionStore(int segmentRecords, Path directory) {
+		this.segmentRecords = Math.max(1, Math.min(segmentRecords, Integer.MAX_VALUE / RECORD_SIZE));
+		this.directory = directory;
+	}
+
+	/**
+	 * appends the instruction
+	 *
+	 * @param instruction
+	 * @return row of the instruction
+	 */
+	public long add(ClientInstructions instruction) {
+		LocalDate settlementDate = instruction.getSettlementDate();
+		long row = addRow(instruction.getEntityId(),
+				instruction.getIndicator() == null ? InstructionBatch.NO_INDICATOR
+						: (byte) instruction.getIndicator().ordinal(),
+				instruction.getCurrencyId(),
+				settlementDate == null ? InstructionBatch.NO_DATE : (int) settlementDate.toEpochDay());
+		if (instruction.isTradeAmountOverflow())
+			setOverflowAmount(row, instruction.getTradeAmount());
+		else
+			setTradeAmount(row, instruction.getTradeAmountUnscaled(), instruction.getTradeAmountScale());
+		return row;
+	}
+
+	/**
+	 * appends all the rows of the batch
+	 *
+	 * @param batch
+	 */
+	public void addAll(InstructionBatch batch) {
+		byte[] indicators = batch.getIndicators();
+		int[] entityIds = batch.getEntityIds();
+		int[] currencyIds = batch.getCurrencyIds();
+		int[] settlementDays = batch.getSettlementDays();
+		for (int i = 0; i < batch.size(); i++) {
+			long row = addRow(entityIds[i], indicators[i], currencyIds[i], settlementDays[i]);
+			if (batch.isTradeAmountOverflow(i))
+				setOverflowAmount(row, batch.getTradeAmount(i));
+			else
+				setTradeAmount(row, batch.getTradeAmountUnscaled(i), batch.getTradeAmountScale(i));
+		}
+	}
+
+	/**
+	 * pushes the rows to the consumer, a batch of up to the given size at a
+	 * time. The batch is reused for every call of the consumer
+	 *
+	 * @param batchSize
+	 *            - largest number of rows per batch
+	 * @param consumer
+	 */
+	public void forEachBatch(int batchSize, Consumer<? super InstructionBatch> consumer) {
+		batchSize = Math.max(1, batchSize);
+		InstructionBatch batch = new InstructionBatch((int) Math.min(batchSize, Math.max(1, size)));
+		for (long row = 0; row < size; row++) {
+			ByteBuffer segment = segment(row);
+			int offset = offset(row);
+			if (segment.get(offset + OVERFLOW) != 0)
+				batch.add(segment.getInt(offset + ENTITY_ID), segment.get(offset + INDICATOR),
+						segment.getInt(offset + CURRENCY_ID), segment.getInt(offset + SETTLEMENT_DAY),
+						overflowAmounts.get(row));
+			else
+				batch.add(segment.getInt(offset + ENTITY_ID), segment.get(offset + INDICATOR),
+						segment.getInt(offset + CURRENCY_ID), segment.getInt(offset + SETTLEMENT_DAY),
+						segment.getLong(offset + TRADE_AMOUNT), segment.getInt(offset + TRADE_AMOUNT_SCALE));
+			if (batch.size() == batchSize) {
+				consumer.accept(batch);
+				batch.clear();
+			}
+		}
+		if (!batch.isEmpty())
+			consumer.accept(batch);
+	}
+
+	/**
+	 * number of instructions held
+	 */
+	public long size() {
+		return size;
+	}
+
+	/**
+	 * number of segments allocated
+	 */
+	public int getSegmentCount() {
+		return segments.size();
+	}
+
+	public int getEntityId(long row) {
+		return segment(row).getInt(offset(row) + ENTITY_ID);
+	}
+
+	public int getCurrencyId(long row) {
+		return segment(row).getInt(offset(row) + CURRENCY_ID);
+	}
+
+	public Indicator getIndicator(long row) {
+		byte indicator = segment(row).get(offset(row) + INDICATOR);
+		return indicator == InstructionBatch.NO_INDICATOR ? null : INDICATORS[indicator];
+	}
+
+	/**
+	 * epoch day of the settlement date, {@link InstructionBatch#NO_DATE} for
+	 * none
+	 *
+	 * @param row
+	 */
+	public int getSettlementDay(long row) {
+		return segment(row).getInt(offset(row) + SETTLEMENT_DAY);
+	}
+
+	/**
+	 * updates the settlement date in place
+	 *
+	 * @param row
+	 * @param settlementDay
+	 *            - epoch day of the settlement date
+	 */
+	public void setSettlementDay(long row, int settlementDay) {
+		segment(row).putInt(offset(row) + SETTLEMENT_DAY, settlementDay);
+	}
+
+	public LocalDate getSettlementDate(long row) {
+		int settlementDay = getSettlementDay(row);
+		return settlementDay == InstructionBatch.NO_DATE ? null : LocalDate.ofEpochDay(settlementDay);
+	}
+
+	/**
+	 * trade amount of the row, creates a BigDecimal
+	 *
+	 * @param row
+	 */
+	public BigDecimal getTradeAmount(long row) {
+		ByteBuffer segment = segment(row);
+		int offset = offset(row);
+		if (segment.get(offset + OVERFLOW) != 0)
+			return overflowAmounts.get(row);
+		return BigDecimal.valueOf(segment.getLong(offset + TRADE_AMOUNT), segment.getInt(offset + TRADE_AMOUNT_SCALE));
+	}
+
+	/**
+	 * adds the trade amount of the row to the sum, without creating a
+	 * BigDecimal unless the amount does not fit into a long
+	 *
+	 * @param row
+	 * @param sum
+	 */
+	public void addTradeAmountTo(long row, FixedPointAmount sum) {
+		ByteBuffer segment = segment(row);
+		int offset = offset(row);
+		if (segment.get(offset + OVERFLOW) != 0)
+			sum.add(overflowAmounts.get(row));
+		else
+			sum.add(segment.getLong(offset + TRADE_AMOUNT), segment.getInt(offset + TRADE_AMOUNT_SCALE));
+	}
+
+	/**
+	 * releases all the segments and deletes their files. The store can not be
+	 * used afterwards
+	 * 
+	 * @return <tt>true</tt> in case the memory of all the segments was
+	 *         released right away, <tt>false</tt> in case some is left to the
+	 *         garbage collector as the runtime does not allow to release it
+	 */
+	public boolean free() {
+		if (freed)
+			return released;
+		freed = true;
+		LOGGER.debug("freeing instructions={} in segments={}", size, segments.size());
+		released = true;
+		for (ByteBuffer segment : segments)
+			released &= CLEANER.clean(segment);
+		if (!released)
+			LOGGER.debug("segments={} left to the garbage collector", segments.size());
+		segments.clear();
+		overflowAmounts.clear();
+		size = 0;
+		for (Path segmentFile : segmentFiles) {
+			try {
+				Files.deleteIfExists(segmentFile);
+			} catch (IOException exception) {
+				LOGGER.warn("segment file {} could not be deleted", segmentFile, exception);
+			}
+		}
+		segmentFiles.clear();
+		return released;
+	}
+
+	public boolean isFreed() {
+		return freed;
+	}
+
+	/**
+	 * same as {@link #free()}
+	 */
+	@Override
+	public void close() {
+		free();
+	}
+
+	private long addRow(int entityId, byte indicator, int currencyId, int settlementDay) {
+		if (freed)
+			throw new IllegalStateException("instruction store has been freed");
+		if (size == (long) segments.size() * segmentRecords)
+			segments.add(allocateSegment());
+		long row = size++;
+		ByteBuffer segment = segment(row);
+		int offset = offset(row);
+		segment.putInt(offset + ENTITY_ID, entityId);
+		segment.putInt(offset + CURRENCY_ID, currencyId);
+		segment.putInt(offset + SETTLEMENT_DAY, settlementDay);
+		segment.put(offset + INDICATOR, indicator);
+		return row;
+	}
+
+	private void setTradeAmount(long row, long unscaled, int scale) {
+		ByteBuffer segment = segment(row);
+		int offset = offset(row);
+		segment.putLong(offset + TRADE_AMOUNT, unscaled);
+		segment.putInt(offset + TRADE_AMOUNT_SCALE, scale);
+		segment.put(offset + OVERFLOW, (byte) 0);
+	}
+
+	private void setOverflowAmount(long row, BigDecimal tradeAmount) {
+		segment(row).put(offset(row) + OVERFLOW, (byte) 1);
+		overflowAmounts.put(row, tradeAmount);
+	}
+
+	private ByteBuffer segment(long row) {
+		if (row < 0 || row >= size)
+			throw new IndexOutOfBoundsException("row " + row + " out of " + size);
+		return segments.get((int) (row / segmentRecords));
+	}
+
+	private int offset(long row) {
+		return (int) (row % segmentRecords) * RECORD_SIZE;
+	}
+
+	private ByteBuffer allocateSegment() {
+		int capacity = segmentRecords * RECORD_SIZE;
+		LOGGER.debug("allocating segment={} of bytes={}", segments.size(), capacity);
+		if (directory == null)
+			return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+		try {
+			Path segmentFile = Files.createTempFile(directory, "instructions-", ".segment");
+			segmentFiles.add(segmentFile);
+			try (FileChannel channel = FileChannel.open(segmentFile, StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+				return channel.map(MapMode.READ_WRITE, 0, capacity).order(ByteOrder.nativeOrder());
+			}
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * invokes the cleaner of a direct buffer: through
+	 * <tt>Unsafe.invokeCleaner</tt> from Java 9 on, through the cleaner of
+	 * <tt>sun.nio.ch.DirectBuffer</tt> on Java 8. Where neither is available
+	 * the buffers are left to the garbage collector
+	 */
+	private static final class Cleaner {
+
+		/**
+		 * Logger
+		 */
+		private static Logger LOGGER = LoggerFactory.getLogger(Cleaner.class);
+
+		/**
+		 * <tt>Unsafe</tt> from Java 9 on, <tt>null</tt> on Java 8
+		 */
+		private final Object unsafe;
+
+		/**
+		 * <tt>Unsafe.invokeCleaner</tt> from Java 9 on,
+		 * <tt>DirectBuffer.cleaner</tt> on Java 8
+		 */
+		private final Method cleaner;
+
+		/**
+		 * <tt>Cleaner.clean</tt> on Java 8, <tt>null</tt> otherwise
+		 */
+		private final Method clean;
+
+		private Cleaner(Object unsafe, Method cleaner, Method clean) {
+			this.unsafe = unsafe;
+			this.cleaner = cleaner;
+			this.clean = clean;
+		}
+
+		private static Cleaner create() {
+			try {
+				Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+				Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+				Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+				theUnsafe.setAccessible(true);
+				return new Cleaner(theUnsafe.get(null), invokeCleaner, null);
+			} catch (ReflectiveOperationException | RuntimeException exception) {
+				// not Java 9 or later
+			}
+			try {
+				Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+				Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+				return new Cleaner(null, cleaner, clean);
+			} catch (ReflectiveOperationException | RuntimeException exception) {
+				LOGGER.warn("direct buffers can not be released by this runtime, left to the garbage collector",
+						exception);
+				return new Cleaner(null, null, null);
+			}
+		}
+
+		/**
+		 * @return <tt>true</tt> in case the buffer was released
+		 */
+		private boolean clean(ByteBuffer buffer) {
+			if (cleaner == null)
+				return false;
+			try {
+				if (clean == null) {
+					cleaner.invoke(unsafe, buffer);
+					return true;
+				}
+				Object bufferCleaner = cleaner.invoke(buffer);
+				if (bufferCleaner == null)
+					return false;
+				clean.invoke(bufferCleaner);
+				return true;
+			} catch (ReflectiveOperationException | RuntimeException exception) {
+				LOGGER.warn("buffer could not be released, left to the garbage collector", exception);
+				return false;
+			}
+		}
+	}
+}
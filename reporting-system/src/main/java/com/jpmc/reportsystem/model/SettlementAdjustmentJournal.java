@@ -0,0 +1,326 @@
+package com.jpmc.reportsystem.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Append-only journal of the settlement dates moved to a working day of the
+ * partner
+ *
+ * <p>
+ * Every adjustment is an entry of four primitives: the index of the
+ * instruction, the original and the new settlement date as epoch days, and
+ * the id of the rule, i.e. the partner calendar, that moved the date. Entries
+ * are kept column by column in arrays growing as needed, no comment is built
+ * while the instructions are processed. The comment of an entry is rendered
+ * by {@link #getComment(int)} when asked for, and the number of adjustments
+ * and days moved are counted per rule for the summary. The journal also
+ * hands out the indexes of the instructions, so they keep counting up when
+ * a journal restored from a checkpoint is appended to.
+ *
+ * <p>
+ * Entries of the settlement days already finalized are folded into the
+ * counts of their rule by {@link #compact(int)} and dropped, a run finalizing
+ * its days keeps only the entries of the days still open.
+ *
+ * <p>
+ * Appending is synchronized, the journal can be shared by services running
+ * on multiple threads.
+ *
+ * @author jnair1
+ *
+ */
+public final class SettlementAdjustmentJournal {
+
+	private static final int DEFAULT_CAPACITY = 1024;
+
+	/**
+	 * names of the rules, the id of a rule indexes the counts
+	 */
+	private final SymbolTable<String> rules = new SymbolTable<>();
+
+	private int size;
+
+	/**
+	 * instructions handed an index so far
+	 */
+	private long instructionCount;
+
+	private long[] instructionIndexes = new long[DEFAULT_CAPACITY];
+
+	private int[] originalDays = new int[DEFAULT_CAPACITY];
+
+	private int[] adjustedDays = new int[DEFAULT_CAPACITY];
+
+	private int[] ruleIds = new int[DEFAULT_CAPACITY];
+
+	/**
+	 * adjustments and days moved, by rule id, including the compacted ones
+	 */
+	private long[] adjustmentCounts = new long[8];
+
+	private long[] daysMoved = new long[8];
+
+	/**
+	 * adjustments and days moved of the entries compacted, by rule id
+	 */
+	private long[] compactedCounts = new long[8];
+
+	private long[] compactedDaysMoved = new long[8];
+
+	/**
+	 * id of the rule, the rule is added in case it is not known yet
+	 *
+	 * @param ruleName
+	 *            - name of the partner calendar
+	 * @return ruleId
+	 */
+	public int ruleIdOf(String ruleName) {
+		return rules.idOf(ruleName);
+	}
+
+	/**
+	 * name of the rule
+	 *
+	 * @param ruleId
+	 * @return ruleName
+	 */
+	public String getRuleName(int ruleId) {
+		return rules.valueOf(ruleId);
+	}
+
+	/**
+	 * reserves the indexes of the next instructions
+	 *
+	 * @param count
+	 *            - number of instructions
+	 * @return index of the first instruction
+	 */
+	public synchronized long reserveInstructionIndexes(long count) {
+		long first = instructionCount;
+		instructionCount += count;
+		return first;
+	}
+
+	/**
+	 * number of instructions handed an index so far
+	 */
+	public synchronized long getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * number of rules, the ids of the rules are below this
+	 */
+	public int getRuleCount() {
+		return rules.size();
+	}
+
+	/**
+	 * appends an adjustment to the journal
+	 *
+	 * @param instructionIndex
+	 *            - index of the adjusted instruction
+	 * @param originalDay
+	 *            - epoch day of the original settlement date
+	 * @param adjustedDay
+	 *            - epoch day of the new settlement date
+	 * @param ruleId
+	 *            - id of the rule, from {@link #ruleIdOf(String)}
+	 * @return index of the entry
+	 */
+	public synchronized int record(long instructionIndex, int originalDay, int adjustedDay, int ruleId) {
+		if (size == instructionIndexes.length) {
+			int capacity = size * 2;
+			instructionIndexes = Arrays.copyOf(instructionIndexes, capacity);
+			originalDays = Arrays.copyOf(originalDays, capacity);
+			adjustedDays = Arrays.copyOf(adjustedDays, capacity);
+			ruleIds = Arrays.copyOf(ruleIds, capacity);
+		}
+		ensureRule(ruleId);
+		instructionIndexes[size] = instructionIndex;
+		originalDays[size] = originalDay;
+		adjustedDays[size] = adjustedDay;
+		ruleIds[size] = ruleId;
+		adjustmentCounts[ruleId]++;
+		daysMoved[ruleId] += adjustedDay - originalDay;
+		return size++;
+	}
+
+	/**
+	 * folds the entries of the settlement days before the given day into the
+	 * counts of their rule, and drops them. The summary is left unchanged
+	 *
+	 * @param beforeDay
+	 *            - epoch day, entries adjusted to an earlier day are compacted
+	 * @return number of entries compacted
+	 */
+	public synchronized int compact(int beforeDay) {
+		int kept = 0;
+		for (int entry = 0; entry < size; entry++) {
+			if (adjustedDays[entry] < beforeDay) {
+				compactedCounts[ruleIds[entry]]++;
+				compactedDaysMoved[ruleIds[entry]] += adjustedDays[entry] - originalDays[entry];
+				continue;
+			}
+			instructionIndexes[kept] = instructionIndexes[entry];
+			originalDays[kept] = originalDays[entry];
+			adjustedDays[kept] = adjustedDays[entry];
+			ruleIds[kept] = ruleIds[entry];
+			kept++;
+		}
+		int compacted = size - kept;
+		size = kept;
+		return compacted;
+	}
+
+	/**
+	 * adds adjustments compacted elsewhere, e.g. by the journal a checkpoint
+	 * was taken of, to the counts of the rule
+	 *
+	 * @param ruleId
+	 *            - id of the rule, from {@link #ruleIdOf(String)}
+	 * @param adjustmentCount
+	 * @param days
+	 *            - days moved by the adjustments
+	 */
+	public synchronized void addCompacted(int ruleId, long adjustmentCount, long days) {
+		ensureRule(ruleId);
+		compactedCounts[ruleId] += adjustmentCount;
+		compactedDaysMoved[ruleId] += days;
+		adjustmentCounts[ruleId] += adjustmentCount;
+		daysMoved[ruleId] += days;
+	}
+
+	/**
+	 * number of adjustments of the rule compacted so far
+	 *
+	 * @param ruleId
+	 */
+	public synchronized long getCompactedCount(int ruleId) {
+		return ruleId < compactedCounts.length ? compactedCounts[ruleId] : 0;
+	}
+
+	/**
+	 * days moved by the adjustments of the rule compacted so far
+	 *
+	 * @param ruleId
+	 */
+	public synchronized long getCompactedDaysMoved(int ruleId) {
+		return ruleId < compactedDaysMoved.length ? compactedDaysMoved[ruleId] : 0;
+	}
+
+	/**
+	 * number of entries
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	public synchronized long getInstructionIndex(int entry) {
+		checkEntry(entry);
+		return instructionIndexes[entry];
+	}
+
+	public synchronized LocalDate getOriginalDate(int entry) {
+		checkEntry(entry);
+		return LocalDate.ofEpochDay(originalDays[entry]);
+	}
+
+	public synchronized LocalDate getAdjustedDate(int entry) {
+		checkEntry(entry);
+		return LocalDate.ofEpochDay(adjustedDays[entry]);
+	}
+
+	public synchronized int getRuleId(int entry) {
+		checkEntry(entry);
+		return ruleIds[entry];
+	}
+
+	/**
+	 * human readable comment of the entry, rendered on every call
+	 *
+	 * @param entry
+	 * @return comment
+	 */
+	public String getComment(int entry) {
+		return renderComment(getOriginalDate(entry), getAdjustedDate(entry));
+	}
+
+	/**
+	 * number of adjustments and days moved of every rule, in the order the
+	 * rules were first used
+	 *
+	 * @return summary, the adjustments at index 0 and the days moved at index
+	 *         1 of the value
+	 */
+	public synchronized Map<String, long[]> summarize() {
+		Map<String, long[]> summary = new LinkedHashMap<>();
+		int ruleCount = rules.size();
+		for (int ruleId = 0; ruleId < ruleCount; ruleId++) {
+			if (ruleId < adjustmentCounts.length && adjustmentCounts[ruleId] > 0)
+				summary.put(rules.valueOf(ruleId), new long[] { adjustmentCounts[ruleId], daysMoved[ruleId] });
+		}
+		return summary;
+	}
+
+	/**
+	 * appends the entries and the compacted counts of the other journal, and
+	 * reserves the indexes of its instructions. Rules are matched by name
+	 *
+	 * @param other
+	 */
+	public void addAll(SettlementAdjustmentJournal other) {
+		int otherRuleCount = other.getRuleCount();
+		for (int ruleId = 0; ruleId < otherRuleCount; ruleId++)
+			addCompacted(ruleIdOf(other.getRuleName(ruleId)), other.getCompactedCount(ruleId),
+					other.getCompactedDaysMoved(ruleId));
+		int otherSize = other.size();
+		for (int entry = 0; entry < otherSize; entry++)
+			record(other.getInstructionIndex(entry), (int) other.getOriginalDate(entry).toEpochDay(),
+					(int) other.getAdjustedDate(entry).toEpochDay(),
+					ruleIdOf(other.getRuleName(other.getRuleId(entry))));
+		reserveInstructionIndexes(other.getInstructionCount());
+	}
+
+	/**
+	 * drops all the entries and restarts the indexes of the instructions, the
+	 * rules are kept
+	 */
+	public synchronized void clear() {
+		size = 0;
+		instructionCount = 0;
+		Arrays.fill(adjustmentCounts, 0);
+		Arrays.fill(daysMoved, 0);
+		Arrays.fill(compactedCounts, 0);
+		Arrays.fill(compactedDaysMoved, 0);
+	}
+
+	/**
+	 * comment of a settlement date moved from the original to the adjusted date
+	 *
+	 * @param originalDate
+	 * @param adjustedDate
+	 * @return comment
+	 */
+	public static String renderComment(LocalDate originalDate, LocalDate adjustedDate) {
+		return " Settlement date changed from " + originalDate + " to " + adjustedDate;
+	}
+
+	private void ensureRule(int ruleId) {
+		if (ruleId >= adjustmentCounts.length) {
+			int capacity = Math.max(ruleId + 1, adjustmentCounts.length * 2);
+			adjustmentCounts = Arrays.copyOf(adjustmentCounts, capacity);
+			daysMoved = Arrays.copyOf(daysMoved, capacity);
+			compactedCounts = Arrays.copyOf(compactedCounts, capacity);
+			compactedDaysMoved = Arrays.copyOf(compactedDaysMoved, capacity);
+		}
+	}
+
+	private void checkEntry(int entry) {
+		if (entry < 0 || entry >= size)
+			throw new IndexOutOfBoundsException("entry=" + entry + ", size=" + size);
+	}
+}
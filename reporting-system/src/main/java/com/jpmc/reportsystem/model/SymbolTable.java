@@ -0,0 +1,111 @@
+package com.jpmc.reportsystem.model;
+
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary giving every distinct value a dense int id, starting at 0
+ *
+ * <p>
+ * Instructions hold the ids of their entity and currency, taken from the
+ * shared tables {@link #entities()} and {@link #currencies()} while the
+ * instruction is created. Services aggregate by the ids, e.g. in arrays
+ * indexed by id, and resolve the values only when the reports are rendered.
+ * Every distinct value is kept once, as the instructions refer to the value
+ * held by the table.
+ *
+ * <p>
+ * Ids are never reused or removed. Lookups are lock-free, only adding a new
+ * value is synchronized, hence the tables can be shared by readers parsing on
+ * multiple threads.
+ *
+ * @author jnair1
+ *
+ * @param <T>
+ *            - type of the values
+ */
+public final class SymbolTable<T> {
+
+	/**
+	 * id of <tt>null</tt>
+	 */
+	public static final int NO_ID = -1;
+
+	private static final SymbolTable<String> ENTITIES = new SymbolTable<>();
+
+	private static final SymbolTable<Currency> CURRENCIES = new SymbolTable<>();
+
+	private final Map<T, Integer> ids = new ConcurrentHashMap<>();
+
+	/**
+	 * values by id, replaced by a larger copy when full
+	 */
+	private volatile Object[] values = new Object[64];
+
+	private int size;
+
+	/**
+	 * table shared by all the entities
+	 */
+	public static SymbolTable<String> entities() {
+		return ENTITIES;
+	}
+
+	/**
+	 * table shared by all the currencies
+	 */
+	public static SymbolTable<Currency> currencies() {
+		return CURRENCIES;
+	}
+
+	/**
+	 * id of the value, the value is added in case it is not known yet
+	 *
+	 * @param value
+	 * @return id, {@link #NO_ID} for <tt>null</tt>
+	 */
+	public int idOf(T value) {
+		if (value == null)
+			return NO_ID;
+		Integer id = ids.get(value);
+		if (id != null)
+			return id;
+		return add(value);
+	}
+
+	/**
+	 * value of the id
+	 *
+	 * @param id
+	 * @return value, <tt>null</tt> for {@link #NO_ID}
+	 */
+	@SuppressWarnings("unchecked")
+	public T valueOf(int id) {
+		if (id == NO_ID)
+			return null;
+		return (T) values[id];
+	}
+
+	/**
+	 * number of distinct values, the ids are below this
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	private synchronized int add(T value) {
+		Integer id = ids.get(value);
+		if (id != null)
+			return id;
+		Object[] current = values;
+		if (size == current.length)
+			current = Arrays.copyOf(current, current.length * 2);
+		current[size] = value;
+		values = current;
+		// the value is stored before the id is published
+		ids.put(value, size);
+		return size++;
+	}
+}
@@ -0,0 +1,158 @@
+package com.jpmc.reportsystem.operatingstrategies;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Operational days of a partner, precomputed over a range of years
+ *
+ * <p>
+ * Holds one bit per day of the range, set for the days the partner operates
+ * on: the days of its operating window which are not a public holiday.
+ * Along with the bits, a jump table holds for every day of the range the
+ * epoch day of the first operational day on or after it, hence checking a
+ * day and finding the next operational day are a single array index. Fifty
+ * years take about 2.3KB of bits and 73KB of jump table.
+ *
+ * <p>
+ * Days outside the range are answered from the operating window alone, the
+ * holidays of those years not being known. The calendar is immutable once
+ * built and safe to share across threads.
+ *
+ * @author jnair1
+ *
+ */
+public final class BusinessDayCalendar {
+
+	/**
+	 * operating window by day of week starting on Monday
+	 */
+	private final boolean[] operatingWeek = new boolean[7];
+
+	/**
+	 * epoch day of the first day of the range
+	 */
+	private final int firstDay;
+
+	/**
+	 * one bit per day of the range, set for the operational days
+	 */
+	private final long[] operationalDays;
+
+	/**
+	 * epoch day of the first operational day on or after each day of the
+	 * range
+	 */
+	private final int[] nextOperationalDays;
+
+	/**
+	 * @param operatingWindow
+	 *            - whether the partner operates, by day of week
+	 * @param holidays
+	 *            - days of the operating window the partner does not operate
+	 *            on, the ones outside the range are ignored
+	 * @param firstYear
+	 *            - first year of the range
+	 * @param lastYear
+	 *            - last year of the range, included
+	 * @throws IllegalArgumentException
+	 *             in case the partner operates on no day of the week or the
+	 *             range is empty
+	 */
+	public BusinessDayCalendar(Map<DayOfWeek, Boolean> operatingWindow, Collection<LocalDate> holidays, int firstYear,
+			int lastYear) {
+		boolean operating = false;
+		for (DayOfWeek dayOfWeek : DayOfWeek.values()) {
+			operatingWeek[dayOfWeek.ordinal()] = Boolean.TRUE.equals(operatingWindow.get(dayOfWeek));
+			operating |= operatingWeek[dayOfWeek.ordinal()];
+		}
+		if (!operating || lastYear < firstYear)
+			throw new IllegalArgumentException("operatingWindow=" + operatingWindow + ", firstYear=" + firstYear
+					+ ", lastYear=" + lastYear);
+
+		firstDay = (int) LocalDate.of(firstYear, 1, 1).toEpochDay();
+		int dayCount = (int) LocalDate.of(lastYear + 1, 1, 1).toEpochDay() - firstDay;
+		operationalDays = new long[(dayCount + Long.SIZE - 1) / Long.SIZE];
+		for (int index = 0; index < dayCount; index++) {
+			if (operatingWeek[dayOfWeek(firstDay + index)])
+				operationalDays[index >>> 6] |= 1L << index;
+		}
+		for (LocalDate holiday : holidays) {
+			long index = holiday.toEpochDay() - firstDay;
+			if (index >= 0 && index < dayCount)
+				operationalDays[(int) (index >>> 6)] &= ~(1L << index);
+		}
+
+		nextOperationalDays = new int[dayCount];
+		int nextOperationalDay = nextOperationalDayOfWeek(firstDay + dayCount);
+		for (int index = dayCount - 1; index >= 0; index--) {
+			if ((operationalDays[index >>> 6] & (1L << index)) != 0)
+				nextOperationalDay = firstDay + index;
+			nextOperationalDays[index] = nextOperationalDay;
+		}
+	}
+
+	/**
+	 * @param epochDay
+	 * @return <tt>true</tt> in case the partner operates on the day
+	 */
+	public boolean isOperationalDay(int epochDay) {
+		int index = epochDay - firstDay;
+		if (index >= 0 && index < nextOperationalDays.length)
+			return (operationalDays[index >>> 6] & (1L << index)) != 0;
+		return operatingWeek[dayOfWeek(epochDay)];
+	}
+
+	/**
+	 * @param epochDay
+	 * @return epoch day of the first operational day on or after the day
+	 */
+	public int nextOperationalDay(int epochDay) {
+		int index = epochDay - firstDay;
+		if (index >= 0 && index < nextOperationalDays.length)
+			return nextOperationalDays[index];
+		return nextOperationalDayOfWeek(epochDay);
+	}
+
+	public boolean isOperationalDay(LocalDate date) {
+		return isOperationalDay((int) date.toEpochDay());
+	}
+
+	public LocalDate nextOperationalDay(LocalDate date) {
+		int epochDay = (int) date.toEpochDay();
+		int nextOperationalDay = nextOperationalDay(epochDay);
+		return nextOperationalDay == epochDay ? date : LocalDate.ofEpochDay(nextOperationalDay);
+	}
+
+	public LocalDate getFirstDate() {
+		return LocalDate.ofEpochDay(firstDay);
+	}
+
+	/**
+	 * last day of the range, included
+	 */
+	public LocalDate getLastDate() {
+		return LocalDate.ofEpochDay(firstDay + nextOperationalDays.length - 1);
+	}
+
+	/**
+	 * first day on or after the epoch day within the operating window,
+	 * ignoring the holidays
+	 */
+	private int nextOperationalDayOfWeek(int epochDay) {
+		int day = epochDay;
+		while (!operatingWeek[dayOfWeek(day)])
+			day++;
+		return day;
+	}
+
+	/**
+	 * day of week of the epoch day starting on Monday, the epoch being a
+	 * Thursday
+	 */
+	private static int dayOfWeek(int epochDay) {
+		return Math.floorMod(epochDay + 3, 7);
+	}
+}
@@ -0,0 +1,67 @@
+package com.jpmc.reportsystem.operatingstrategies;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partner defined by configuration rather than by a class of its own, see
+ * {@link PartnerRegistry}
+ * 
+ * <p>
+ * Holds the name, the days of week and the public holidays of the partner.
+ * It is immutable.
+ * 
+ * @author jnair1
+ *
+ */
+public final class ConfiguredPartnerOperationalWindow extends PartnerOperationalWindow {
+
+	private final String name;
+
+	private final Map<DayOfWeek, Boolean> operatingWindow;
+
+	private final List<LocalDate> holidays;
+
+	/**
+	 * @param name
+	 *            - name of the partner, the moved settlement dates are
+	 *            journaled by
+	 * @param operatingDays
+	 *            - days of week the partner operates on
+	 * @param holidays
+	 *            - days of the operating window the partner does not operate
+	 *            on
+	 */
+	public ConfiguredPartnerOperationalWindow(String name, Set<DayOfWeek> operatingDays,
+			Collection<LocalDate> holidays) {
+		Map<DayOfWeek, Boolean> window = new EnumMap<>(DayOfWeek.class);
+		for (DayOfWeek dayOfWeek : DayOfWeek.values())
+			window.put(dayOfWeek, operatingDays.contains(dayOfWeek));
+		this.name = name;
+		this.operatingWindow = Collections.unmodifiableMap(window);
+		this.holidays = Collections.unmodifiableList(new ArrayList<>(holidays));
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	protected Map<DayOfWeek, Boolean> getOperatingWindow() {
+		return operatingWindow;
+	}
+
+	@Override
+	protected Collection<LocalDate> getHolidays() {
+		return holidays;
+	}
+
+}
@@ -2,14 +2,25 @@ package com.jpmc.reportsystem.operatingstrategies;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
 /**
  * abstract class for operational window
+ * 
+ * <p>
+ * The operational days are answered from a {@link BusinessDayCalendar} built
+ * once per partner on first use, from the operating window and the public
+ * holidays of the partner over the configured years.
+ * 
  * @author jnair1
  *
  */
@@ -20,6 +31,11 @@ public abstract class PartnerOperationalWindow {
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(PartnerOperationalWindow.class);			
 
+	/**
+	 * calendar of the partner, built on first use
+	 */
+	private volatile BusinessDayCalendar calendar;
+
 	/**
 	 * <p>
 	 * Finds the operating window of the partner for which the processing needs
@@ -32,20 +48,37 @@ public abstract class PartnerOperationalWindow {
 
 	/**
 	 * <p>
-	 * Finds the details from the pre-populated list of days, based on the input
+	 * Name of the partner, the settlement dates moved are journaled by. The
+	 * name of the class by default
+	 * 
+	 * @return name
+	 */
+	public String getName() {
+		return getClass().getSimpleName();
+	}
+
+	/**
+	 * <p>
+	 * Finds the public holidays of the partner, the days of its operating
+	 * window it does not operate on. None by default
+	 * 
+	 * @return holidays
+	 */
+	protected Collection<LocalDate> getHolidays() {
+		return new ArrayList<>();
+	}
+
+	/**
+	 * <p>
+	 * Finds the details from the precomputed calendar, based on the input
 	 * 
 	 * @param date
 	 *            - date that needs to be validated
-	 * @return <tt>true</tt> if the selected date is a weekday and
-	 *         <tt> false</tt> in case of weekend
-	 * @throws IllegalArgumentException
-	 *             in case the entered date contains an invalid day, which is
-	 *             not part of the configured list returned from db. Exception
-	 *             scenario will not happen as the input is a LocalDate,
-	 *             exception would be throw while creation itself
+	 * @return <tt>true</tt> if the selected date is an operational day and
+	 *         <tt> false</tt> in case of weekend or public holiday
 	 */
-	public boolean isSelectedDayWeekday(LocalDate date) throws IllegalArgumentException {
-		boolean isWeekday = Optional.ofNullable(getOperatingWindow().get(date.getDayOfWeek())).get();
+	public boolean isSelectedDayWeekday(LocalDate date) {
+		boolean isWeekday = getCalendar().isOperationalDay(date);
 		
 		LOGGER.debug("Is incoming date={} weekday={}",date, isWeekday);
 		return isWeekday;
@@ -53,23 +86,60 @@ public abstract class PartnerOperationalWindow {
 
 	/**
 	 * <p>
-	 * Obtains the next working day in case the encountered date is a weekend.
-	 * All the trade settlement should happen on the immediate working day, in
-	 * case the entered settlement date is a weekend.
+	 * Obtains the next working day in case the encountered date is a weekend
+	 * or a public holiday. All the trade settlement should happen on the
+	 * immediate working day, in case the entered settlement date is not one.
 	 * 
 	 * @param date
 	 * @return
 	 */
 	public LocalDate findNextOperationalDay(LocalDate date) {
-		final DayOfWeek inputDay = date.getDayOfWeek();
+		return getCalendar().nextOperationalDay(date);
+	}
+
+	/**
+	 * <p>
+	 * Calendar of the partner, built once over the configured years. Racing
+	 * threads wait for the single calendar being built
+	 * 
+	 * @return calendar
+	 */
+	public BusinessDayCalendar getCalendar() {
+		BusinessDayCalendar current = calendar;
+		if (current == null) {
+			synchronized (this) {
+				current = calendar;
+				if (current == null) {
+					current = new BusinessDayCalendar(getOperatingWindow(), getHolidays(),
+							Integer.parseInt(ReportingSystemResourceUtil
+									.getValue(ReportingSystemConstants.CALENDAR_FIRST_YEAR).trim()),
+							Integer.parseInt(ReportingSystemResourceUtil
+									.getValue(ReportingSystemConstants.CALENDAR_LAST_YEAR).trim()));
+					LOGGER.debug("Calendar of partner={} built from={} to={}", getClass().getSimpleName(),
+							current.getFirstDate(), current.getLastDate());
+					calendar = current;
+				}
+			}
+		}
+		return current;
+	}
 
-		// in case the given date is working date, just return this
-		if (getOperatingWindow().get(inputDay)) {
-			return date;
-		} else {
-			// otherwise look for the next working date (Recursively)
-			return findNextOperationalDay(date.plusDays(1));
+	/**
+	 * <p>
+	 * Parses comma separated ISO dates, none for <tt>null</tt>
+	 * 
+	 * @param dates
+	 * @return dates
+	 */
+	static List<LocalDate> parseDates(String dates) {
+		List<LocalDate> parsed = new ArrayList<>();
+		if (dates == null)
+			return parsed;
+		for (String date : dates.split(",")) {
+			if (!date.trim().isEmpty())
+				parsed.add(LocalDate.parse(date.trim()));
 		}
+		return parsed;
 	}
 
 }
@@ -0,0 +1,279 @@
+package com.jpmc.reportsystem.operatingstrategies;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.MissingResourceException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.SymbolTable;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Partners the settlement dates are moved for, and the currencies each of
+ * them serves
+ * 
+ * <p>
+ * The partners are read from configuration: the list of their names, and
+ * for each of them its operating days, public holidays and currencies, e.g.
+ * 
+ * <pre>
+ * partners=Default,AED
+ * partner.AED.operating.days=SUNDAY,MONDAY,TUESDAY,WEDNESDAY,THURSDAY
+ * partner.AED.holidays=2018-12-02,2018-12-03
+ * partner.AED.currencies=AED,SAR
+ * </pre>
+ * 
+ * The first partner serves the currencies assigned to none. Onboarding a
+ * partner is a change of configuration only.
+ * 
+ * <p>
+ * The registry is immutable. The partners are held in an array indexed by
+ * the id of the currency in {@link SymbolTable#currencies()}, hence looking
+ * up the partner of an instruction is a single array index without any
+ * allocation, however many partners are configured. The calendars of the
+ * partners are built along with the registry. The registry in use is
+ * replaced atomically by {@link #setInstance(PartnerRegistry)}, a batch
+ * being processed keeps the registry it started with.
+ * 
+ * @author jnair1
+ *
+ */
+public final class PartnerRegistry {
+
+	/**
+	 * Logger
+	 */
+	private static Logger LOGGER = LoggerFactory.getLogger(PartnerRegistry.class);
+
+	/**
+	 * registry in use, read from the configuration on first use
+	 */
+	private static final AtomicReference<PartnerRegistry> INSTANCE = new AtomicReference<>();
+
+	/**
+	 * partners by name, the default one first
+	 */
+	private final Map<String, PartnerOperationalWindow> partners;
+
+	private final PartnerOperationalWindow defaultPartner;
+
+	/**
+	 * partners indexed by the id of the currency, <tt>null</tt> for the
+	 * currencies of the default partner
+	 */
+	private final PartnerOperationalWindow[] partnersByCurrencyId;
+
+	/**
+	 * @param defaultPartner
+	 *            - partner of the currencies assigned to none
+	 * @param assignments
+	 *            - partner of each currency
+	 * @throws IllegalArgumentException
+	 *             in case two different partners share a name
+	 */
+	public PartnerRegistry(PartnerOperationalWindow defaultPartner,
+			Map<Currency, ? extends PartnerOperationalWindow> assignments) {
+		Map<String, PartnerOperationalWindow> partners = new LinkedHashMap<>();
+		partners.put(defaultPartner.getName(), defaultPartner);
+		PartnerOperationalWindow[] partnersByCurrencyId = new PartnerOperationalWindow[0];
+		for (Map.Entry<Currency, ? extends PartnerOperationalWindow> assignment : assignments.entrySet()) {
+			int currencyId = SymbolTable.currencies().idOf(assignment.getKey());
+			if (currencyId >= partnersByCurrencyId.length)
+				partnersByCurrencyId = Arrays.copyOf(partnersByCurrencyId, currencyId + 1);
+			partnersByCurrencyId[currencyId] = assignment.getValue();
+			PartnerOperationalWindow named = partners.put(assignment.getValue().getName(), assignment.getValue());
+			if (named != null && named != assignment.getValue())
+				throw new IllegalArgumentException("partner=" + named.getName() + " configured twice");
+		}
+		for (PartnerOperationalWindow partner : partners.values())
+			partner.getCalendar();
+		this.defaultPartner = defaultPartner;
+		this.partners = Collections.unmodifiableMap(partners);
+		this.partnersByCurrencyId = partnersByCurrencyId;
+	}
+
+	/**
+	 * registry in use, read from the configuration on first use
+	 * 
+	 * @return registry
+	 */
+	public static PartnerRegistry getInstance() {
+		PartnerRegistry registry = INSTANCE.get();
+		if (registry == null) {
+			try {
+				INSTANCE.compareAndSet(null, load());
+			} catch (IOException | ReportingSystemException e) {
+				throw new IllegalStateException(e.getMessage(), e);
+			}
+			registry = INSTANCE.get();
+		}
+		return registry;
+	}
+
+	/**
+	 * replaces the registry in use
+	 * 
+	 * @param registry
+	 * @return registry replaced
+	 */
+	public static PartnerRegistry setInstance(PartnerRegistry registry) {
+		PartnerRegistry previous = INSTANCE.getAndSet(registry);
+		LOGGER.info("Partner registry replaced, partners={}", registry.getPartners().keySet());
+		return previous;
+	}
+
+	/**
+	 * reads the registry from the file configured by
+	 * {@link ReportingSystemConstants#PARTNER_REGISTRY_FILE}, from the
+	 * application properties when none is
+	 * 
+	 * @return registry
+	 * @throws IOException
+	 * @throws ReportingSystemException
+	 *             in case the configuration is invalid
+	 */
+	public static PartnerRegistry load() throws IOException, ReportingSystemException {
+		String file = ReportingSystemResourceUtil.getValue(ReportingSystemConstants.PARTNER_REGISTRY_FILE);
+		if (file != null && !file.trim().isEmpty())
+			return load(Paths.get(file.trim()));
+		return load(propertyName -> {
+			try {
+				return ReportingSystemResourceUtil.getValue(propertyName);
+			} catch (MissingResourceException e) {
+				return null;
+			}
+		});
+	}
+
+	/**
+	 * reads the registry from a properties file
+	 * 
+	 * @param file
+	 * @return registry
+	 * @throws IOException
+	 * @throws ReportingSystemException
+	 *             in case the configuration is invalid
+	 */
+	public static PartnerRegistry load(Path file) throws IOException, ReportingSystemException {
+		Properties properties = new Properties();
+		try (InputStream input = Files.newInputStream(file)) {
+			properties.load(input);
+		}
+		return load(properties::getProperty);
+	}
+
+	/**
+	 * reads the registry from the properties
+	 * 
+	 * @param properties
+	 *            - value of a property by name, <tt>null</tt> when missing
+	 * @return registry
+	 * @throws ReportingSystemException
+	 *             in case the configuration is invalid
+	 */
+	public static PartnerRegistry load(Function<String, String> properties) throws ReportingSystemException {
+		try {
+			PartnerOperationalWindow defaultPartner = null;
+			Map<Currency, PartnerOperationalWindow> assignments = new LinkedHashMap<>();
+			Set<String> names = new HashSet<>();
+			for (String name : split(required(properties, ReportingSystemConstants.PARTNERS))) {
+				if (!names.add(name))
+					throw new IllegalArgumentException("partner=" + name + " configured twice");
+				String prefix = ReportingSystemConstants.PARTNER_PREFIX + name;
+				Set<DayOfWeek> operatingDays = EnumSet.noneOf(DayOfWeek.class);
+				for (String day : split(required(properties, prefix + ReportingSystemConstants.PARTNER_OPERATING_DAYS)))
+					operatingDays.add(DayOfWeek.valueOf(day.toUpperCase()));
+				List<LocalDate> holidays = PartnerOperationalWindow
+						.parseDates(properties.apply(prefix + ReportingSystemConstants.PARTNER_HOLIDAYS));
+				PartnerOperationalWindow partner = new ConfiguredPartnerOperationalWindow(name, operatingDays,
+						holidays);
+				if (defaultPartner == null)
+					defaultPartner = partner;
+				for (String currency : split(properties.apply(prefix + ReportingSystemConstants.PARTNER_CURRENCIES))) {
+					PartnerOperationalWindow assigned = assignments.put(Currency.getInstance(currency), partner);
+					if (assigned != null)
+						throw new IllegalArgumentException(
+								"currency=" + currency + " assigned to " + assigned.getName() + " and " + name);
+				}
+			}
+			if (defaultPartner == null)
+				throw new IllegalArgumentException("no partner configured");
+			PartnerRegistry registry = new PartnerRegistry(defaultPartner, assignments);
+			LOGGER.debug("Partner registry loaded, partners={} currencies={}", registry.getPartners().keySet(),
+					assignments.keySet());
+			return registry;
+		} catch (RuntimeException e) {
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_PARTNER_REGISTRY_INVALID)
+							+ " " + e.getMessage());
+		}
+	}
+
+	/**
+	 * partner of the currency
+	 * 
+	 * @param currencyId
+	 *            - id of the currency in {@link SymbolTable#currencies()}
+	 * @return partner, the default one for the currencies assigned to none
+	 */
+	public PartnerOperationalWindow getPartner(int currencyId) {
+		if (currencyId >= 0 && currencyId < partnersByCurrencyId.length) {
+			PartnerOperationalWindow partner = partnersByCurrencyId[currencyId];
+			if (partner != null)
+				return partner;
+		}
+		return defaultPartner;
+	}
+
+	public PartnerOperationalWindow getPartner(Currency currency) {
+		return getPartner(SymbolTable.currencies().idOf(currency));
+	}
+
+	public PartnerOperationalWindow getDefaultPartner() {
+		return defaultPartner;
+	}
+
+	/**
+	 * partners by name, the default one first
+	 */
+	public Map<String, PartnerOperationalWindow> getPartners() {
+		return partners;
+	}
+
+	private static String required(Function<String, String> properties, String propertyName) {
+		String value = properties.apply(propertyName);
+		if (value == null || value.trim().isEmpty())
+			throw new IllegalArgumentException("missing " + propertyName);
+		return value;
+	}
+
+	private static String[] split(String value) {
+		if (value == null || value.trim().isEmpty())
+			return new String[0];
+		String[] values = value.split(",");
+		for (int index = 0; index < values.length; index++)
+			values[index] = values[index].trim();
+		return values;
+	}
+}
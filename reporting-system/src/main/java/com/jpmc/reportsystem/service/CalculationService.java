@@ -5,9 +5,14 @@ import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.FixedPointAmount;
+import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
 
 /**
  * Calculation service interface that holds all the calculation needs to be done
@@ -42,4 +47,65 @@ public interface CalculationService {
 	 */
 	public BigDecimal calculateDayWiseTotalAmount(List<ClientInstructions> clientInstructions,
 			Predicate<ClientInstructions> predicate, LocalDate selectedDate);
+	
+	/**
+	 * <p>
+	 * Adds the trade amount of a single client-instruction to the running
+	 * date-wise totals, in case it matches the predicate. This is the streaming
+	 * counterpart of calculateTotalAmount, the totals are exact fixed point
+	 * sums
+	 * 
+	 * @param totals
+	 * @param clientInstruction
+	 * @param predicate
+	 */
+	public void accumulateTotalAmount(Map<LocalDate, FixedPointAmount> totals,
+			ClientInstructions clientInstruction, Predicate<ClientInstructions> predicate);
+
+	/**
+	 * <p>
+	 * Retracts the trade amount of a client-instruction accumulated before
+	 * from the running date-wise totals, in case it matches the predicate. A
+	 * day retracted down to zero is removed from the totals
+	 * 
+	 * @param totals
+	 * @param clientInstruction
+	 * @param predicate
+	 */
+	public void retractTotalAmount(Map<LocalDate, FixedPointAmount> totals, ClientInstructions clientInstruction,
+			Predicate<ClientInstructions> predicate);
+
+	/**
+	 * <p>
+	 * Adds the trade amounts of the rows of the batch with the indicator to the
+	 * running date-wise totals. Same as accumulateTotalAmount for every
+	 * instruction of the batch
+	 * 
+	 * @param totals
+	 * @param batch
+	 * @param indicator
+	 */
+	public void accumulateTotalAmount(Map<LocalDate, FixedPointAmount> totals, InstructionBatch batch,
+			Indicator indicator);
+
+	/**
+	 * <p>
+	 * Sums up the trade amounts of the rows of the batch with the indicator,
+	 * settled on the selected date
+	 * 
+	 * @param batch
+	 * @param indicator
+	 * @param selectedDate
+	 * @return
+	 */
+	public BigDecimal calculateDayWiseTotalAmount(InstructionBatch batch, Indicator indicator, LocalDate selectedDate);
+
+	/**
+	 * <p>
+	 * Columns of the client-instructions read by the calculations, readers may skip
+	 * decoding the other columns
+	 * 
+	 * @return
+	 */
+	public Set<InstructionColumn> getRequiredColumns();
 }
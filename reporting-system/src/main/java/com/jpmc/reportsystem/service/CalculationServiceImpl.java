@@ -2,17 +2,23 @@ package com.jpmc.reportsystem.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collector;
 import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.FixedPointAmount;
+import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
 
 /**
  * Calculation service implementation that holds all the calculation needs to be
@@ -27,6 +33,12 @@ public class CalculationServiceImpl implements CalculationService {
 	 * Logger
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(CalculationServiceImpl.class);
+
+	/**
+	 * sums up the trade amounts as exact fixed point amounts
+	 */
+	private static final Collector<ClientInstructions, FixedPointAmount, FixedPointAmount> TRADE_AMOUNT_SUM = Collector
+			.of(FixedPointAmount::new, (sum, instruction) -> instruction.addTradeAmountTo(sum), FixedPointAmount::add);
 	
 	/**
 	 * <p>
@@ -51,8 +63,8 @@ public class CalculationServiceImpl implements CalculationService {
 		// pages would be retrieved, instead of entire dataset
 
 		Map<LocalDate, Optional<BigDecimal>> settlement = clientInstructions.stream().filter(predicate)
-				.collect(Collectors.groupingBy(ClientInstructions::getSettlementDate,
-						Collectors.mapping(ClientInstructions::getTradeAmount, Collectors.reducing(BigDecimal::add))));
+				.collect(Collectors.groupingBy(ClientInstructions::getSettlementDate, Collectors
+						.collectingAndThen(TRADE_AMOUNT_SUM, sum -> Optional.of(sum.toBigDecimal()))));
 
 		return settlement;
 	}
@@ -74,12 +86,140 @@ public class CalculationServiceImpl implements CalculationService {
 			Predicate<ClientInstructions> predicate, LocalDate selectedDate) {
 		LOGGER.debug("calculating total amount for selectedDate={}", selectedDate);
 		
-		double settlementAmount = clientInstructions.stream()
+		BigDecimal settlementAmount = clientInstructions.stream()
 				.filter(p -> selectedDate.isEqual(p.getSettlementDate()))
 				.filter(predicate)
-				.flatMapToDouble(ins -> DoubleStream.of(ins.getTradeAmount().doubleValue())).sum();
+				.collect(TRADE_AMOUNT_SUM).toBigDecimal();
 
 		LOGGER.debug("calculated total amount for settlementAmount={}", settlementAmount);
-		return BigDecimal.valueOf(settlementAmount);
+		return settlementAmount;
+	}
+
+	/**
+	 * <p>
+	 * Adds the trade amount of a single client-instruction to the running
+	 * date-wise totals, in case it matches the predicate. Summation is the same
+	 * as calculateTotalAmount, without building an intermediate dataset
+	 * 
+	 * @param totals
+	 *            - running settlement totals, updated in place
+	 * @param clientInstruction
+	 *            - instruction to add
+	 * @param predicate
+	 *            - predicate that would be applied to filter
+	 */
+	@Override
+	public void accumulateTotalAmount(Map<LocalDate, FixedPointAmount> totals,
+			ClientInstructions clientInstruction, Predicate<ClientInstructions> predicate) {
+
+		if (predicate.test(clientInstruction))
+			clientInstruction.addTradeAmountTo(
+					totals.computeIfAbsent(clientInstruction.getSettlementDate(), date -> new FixedPointAmount()));
+	}
+
+	/**
+	 * <p>
+	 * Subtracts the trade amount of a client-instruction added before from its
+	 * settlement day, in case it matches the predicate. The day is removed
+	 * once retracted down to zero, as if its instructions never came in. The
+	 * cost is a single lookup of the day, whatever the number of instructions
+	 * accumulated
+	 * 
+	 * @param totals
+	 *            - running settlement totals, updated in place
+	 * @param clientInstruction
+	 *            - instruction to retract, with the settlement date it was
+	 *            added on
+	 * @param predicate
+	 *            - predicate that would be applied to filter
+	 */
+	@Override
+	public void retractTotalAmount(Map<LocalDate, FixedPointAmount> totals, ClientInstructions clientInstruction,
+			Predicate<ClientInstructions> predicate) {
+
+		if (!predicate.test(clientInstruction))
+			return;
+		FixedPointAmount total = totals.get(clientInstruction.getSettlementDate());
+		if (total == null) {
+			LOGGER.warn("nothing to retract on settlementDate={} for instruction={}",
+					clientInstruction.getSettlementDate(), clientInstruction);
+			return;
+		}
+		clientInstruction.retractTradeAmountFrom(total);
+		if (total.signum() == 0)
+			totals.remove(clientInstruction.getSettlementDate());
+	}
+
+	/**
+	 * <p>
+	 * Adds the trade amounts of the rows of the batch with the indicator to the
+	 * running date-wise totals. Consecutive rows settling on the same day are
+	 * added without looking up the totals again
+	 * 
+	 * @param totals
+	 *            - running settlement totals, updated in place
+	 * @param batch
+	 *            - rows to add
+	 * @param indicator
+	 *            - indicator of the rows to add
+	 */
+	@Override
+	public void accumulateTotalAmount(Map<LocalDate, FixedPointAmount> totals, InstructionBatch batch,
+			Indicator indicator) {
+
+		byte selected = (byte) indicator.ordinal();
+		byte[] indicators = batch.getIndicators();
+		int[] settlementDays = batch.getSettlementDays();
+		int size = batch.size();
+		FixedPointAmount total = null;
+		int totalDay = InstructionBatch.NO_DATE;
+		for (int row = 0; row < size; row++) {
+			if (indicators[row] != selected)
+				continue;
+			if (total == null || settlementDays[row] != totalDay) {
+				totalDay = settlementDays[row];
+				total = totals.computeIfAbsent(batch.getSettlementDate(row), date -> new FixedPointAmount());
+			}
+			batch.addTradeAmountTo(row, total);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Sums up the trade amounts of the rows of the batch with the indicator,
+	 * settled on the selected date
+	 * 
+	 * @param batch
+	 *            - rows to sum up
+	 * @param indicator
+	 *            - indicator of the rows to sum up
+	 * @param selectedDate
+	 * @return amount - trade amount summation
+	 */
+	@Override
+	public BigDecimal calculateDayWiseTotalAmount(InstructionBatch batch, Indicator indicator,
+			LocalDate selectedDate) {
+		LOGGER.debug("calculating total amount of the batch for selectedDate={}", selectedDate);
+
+		byte selected = (byte) indicator.ordinal();
+		int selectedDay = (int) selectedDate.toEpochDay();
+		byte[] indicators = batch.getIndicators();
+		int[] settlementDays = batch.getSettlementDays();
+		int size = batch.size();
+		FixedPointAmount settlementAmount = new FixedPointAmount();
+		for (int row = 0; row < size; row++) {
+			if (settlementDays[row] == selectedDay && indicators[row] == selected)
+				batch.addTradeAmountTo(row, settlementAmount);
+		}
+		return settlementAmount.toBigDecimal();
+	}
+
+	/**
+	 * columns feeding the settlement date wise trade amounts
+	 */
+	@Override
+	public Set<InstructionColumn> getRequiredColumns() {
+		return EnumSet.of(InstructionColumn.SETTLEMENT_DATE, InstructionColumn.AGREED_FX,
+				InstructionColumn.UNITS, InstructionColumn.UNIT_PRICE);
 	}
 }
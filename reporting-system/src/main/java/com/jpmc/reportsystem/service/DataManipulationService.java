@@ -1,6 +1,11 @@
 package com.jpmc.reportsystem.service;
 
+import java.util.Set;
+
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.SettlementAdjustmentJournal;
 
 /**
  * Data Manipulation Service interface that holds all the manipulation methods
@@ -23,5 +28,42 @@ public interface DataManipulationService {
 	 */
 	public ClientInstructions updateSettlementDates(ClientInstructions instruction);
 
-	
+	/**
+	 * <p>
+	 * Moves the settlement date of an instruction already recorded to the
+	 * journal, e.g. the original of an amendment, the same way as
+	 * {@link #updateSettlementDates(ClientInstructions)} without recording it
+	 * again
+	 * 
+	 * @param instruction
+	 * @return
+	 */
+	public ClientInstructions resolveSettlementDates(ClientInstructions instruction);
+
+	/**
+	 * <p>
+	 * Moves the settlement dates of the rows of the batch falling on a non
+	 * working day of the partner to the next working day, in place
+	 * 
+	 * @param batch
+	 * @return number of settlement dates moved
+	 */
+	public int updateSettlementDates(InstructionBatch batch);
+
+	/**
+	 * <p>
+	 * Journal of the settlement dates moved by the service
+	 * 
+	 * @return adjustmentJournal
+	 */
+	public SettlementAdjustmentJournal getAdjustmentJournal();
+
+	/**
+	 * <p>
+	 * Columns of the client-instructions read by the manipulations, readers may skip
+	 * decoding the other columns
+	 * 
+	 * @return
+	 */
+	public Set<InstructionColumn> getRequiredColumns();
 }
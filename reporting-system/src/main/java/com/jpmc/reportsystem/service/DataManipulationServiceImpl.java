@@ -1,16 +1,19 @@
 package com.jpmc.reportsystem.service;
 
 import java.time.LocalDate;
-import java.util.Currency;
+import java.util.EnumSet;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.jpmc.reportsystem.model.ClientInstructions;
-import com.jpmc.reportsystem.operatingstrategies.AEDPartnerOperationalWindow;
-import com.jpmc.reportsystem.operatingstrategies.DefaultPartnerOperationalWindow;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.SettlementAdjustmentJournal;
+import com.jpmc.reportsystem.operatingstrategies.BusinessDayCalendar;
 import com.jpmc.reportsystem.operatingstrategies.PartnerOperationalWindow;
-import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.operatingstrategies.PartnerRegistry;
 
 /**
  * Data Manipulation Service interface that holds all the manipulation methods
@@ -26,11 +29,34 @@ public class DataManipulationServiceImpl implements DataManipulationService {
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(DataManipulationService.class);
 
+	/**
+	 * journal of the settlement dates moved by the service
+	 */
+	private final SettlementAdjustmentJournal adjustmentJournal;
+
+	public DataManipulationServiceImpl() {
+		this(new SettlementAdjustmentJournal());
+	}
+
+	/**
+	 * @param adjustmentJournal
+	 *            - journal the moved settlement dates are recorded to
+	 */
+	public DataManipulationServiceImpl(SettlementAdjustmentJournal adjustmentJournal) {
+		this.adjustmentJournal = adjustmentJournal;
+	}
+
+	@Override
+	public SettlementAdjustmentJournal getAdjustmentJournal() {
+		return adjustmentJournal;
+	}
+
 	/**
 	 * <p>
 	 * Takes the client-instructions and checks for the settlement date. If the
 	 * date is valid workday for the partner, then sets the same date, in case
-	 * of weekend, changes the same to valid workday
+	 * of weekend, changes the same to valid workday. The change is recorded to
+	 * the journal, the instruction renders its comment when asked for
 	 * 
 	 * @param instruction
 	 * @return
@@ -38,13 +64,15 @@ public class DataManipulationServiceImpl implements DataManipulationService {
 	public ClientInstructions updateSettlementDates(ClientInstructions instruction) {
 		LOGGER.debug("updating the settlement date in case of weekend for Currency={} and for settlementDate={}",
 				instruction.getCurrency(), instruction.getSettlementDate());
-		PartnerOperationalWindow operationalWindow = getWorkingDaysStrategy(instruction.getCurrency());
+		long instructionIndex = adjustmentJournal.reserveInstructionIndexes(1);
+		PartnerOperationalWindow operationalWindow = PartnerRegistry.getInstance()
+				.getPartner(instruction.getCurrencyId());
 		LocalDate localDate = instruction.getSettlementDate();
 		if (!operationalWindow.isSelectedDayWeekday(localDate)) {
-			instruction.setSettlementDate(operationalWindow.findNextOperationalDay(localDate));
-			instruction.setComments(
-					" Settlement date changed from " + localDate + " to " + instruction.getSettlementDate());
-			LOGGER.info(" Settlement date changed from previousDate={} to newDate={} ", localDate,
+			instruction.moveSettlementDate(operationalWindow.findNextOperationalDay(localDate));
+			adjustmentJournal.record(instructionIndex, (int) localDate.toEpochDay(),
+					(int) instruction.getSettlementDate().toEpochDay(), getRuleId(operationalWindow));
+			LOGGER.debug(" Settlement date changed from previousDate={} to newDate={} ", localDate,
 					instruction.getSettlementDate());
 		}
 
@@ -52,19 +80,76 @@ public class DataManipulationServiceImpl implements DataManipulationService {
 	}
 
 	/**
-	 * this would return the appropriate instance of the partner.
-	 * Currently we have only two partners configured, one for AED\SAR
-	 * and one for the remaining currencies 
+	 * <p>
+	 * Moves the settlement date falling on a non working day of the partner to
+	 * the next working day, without recording it to the journal. A date moved
+	 * before is a working day already and stays as is
 	 * 
-	 * @param currency
+	 * @param instruction
 	 * @return
 	 */
-	private static PartnerOperationalWindow getWorkingDaysStrategy(Currency currency) {
-		if ((currency.getCurrencyCode().equals(ReportingSystemConstants.CURRENCY_AED))
-				|| (currency.getCurrencyCode().equals(ReportingSystemConstants.CURRENCY_SAR))) {
-			return AEDPartnerOperationalWindow.getInstance();
+	@Override
+	public ClientInstructions resolveSettlementDates(ClientInstructions instruction) {
+		LocalDate localDate = instruction.getSettlementDate();
+		if (localDate == null)
+			return instruction;
+		BusinessDayCalendar calendar = PartnerRegistry.getInstance().getPartner(instruction.getCurrencyId())
+				.getCalendar();
+		if (!calendar.isOperationalDay(localDate))
+			instruction.moveSettlementDate(calendar.nextOperationalDay(localDate));
+		return instruction;
+	}
+
+	/**
+	 * <p>
+	 * Moves the settlement dates of the rows of the batch falling on a non
+	 * working day of the partner to the next working day. The settlement days
+	 * are updated in place, from the jump table of the precomputed calendar of
+	 * the partner. Every move is recorded to the journal, indexed by
+	 * the position of the row among the instructions passed to the service
+	 * 
+	 * @param batch
+	 * @return number of settlement dates moved
+	 */
+	@Override
+	public int updateSettlementDates(InstructionBatch batch) {
+		int[] currencyIds = batch.getCurrencyIds();
+		int[] settlementDays = batch.getSettlementDays();
+		int size = batch.size();
+		PartnerRegistry registry = PartnerRegistry.getInstance();
+		long firstIndex = adjustmentJournal.reserveInstructionIndexes(size);
+		int moved = 0;
+		for (int row = 0; row < size; row++) {
+			int settlementDay = settlementDays[row];
+			if (settlementDay == InstructionBatch.NO_DATE)
+				continue;
+			PartnerOperationalWindow operationalWindow = registry.getPartner(currencyIds[row]);
+			int operationalDay = operationalWindow.getCalendar().nextOperationalDay(settlementDay);
+			if (operationalDay != settlementDay) {
+				settlementDays[row] = operationalDay;
+				adjustmentJournal.record(firstIndex + row, settlementDay, operationalDay, getRuleId(operationalWindow));
+				moved++;
+			}
 		}
-		return DefaultPartnerOperationalWindow.getInstance();
+		LOGGER.debug("Settlement dates moved for rows={} of batchSize={}", moved, size);
+		return moved;
+	}
+
+	/**
+	 * id of the partner calendar in the journal, by the name of the partner
+	 * 
+	 * @param operationalWindow
+	 * @return ruleId
+	 */
+	private int getRuleId(PartnerOperationalWindow operationalWindow) {
+		return adjustmentJournal.ruleIdOf(operationalWindow.getName());
 	}
 
+	/**
+	 * columns feeding the adjustment of the settlement dates
+	 */
+	@Override
+	public Set<InstructionColumn> getRequiredColumns() {
+		return EnumSet.of(InstructionColumn.CURRENCY, InstructionColumn.SETTLEMENT_DATE);
+	}
 }
@@ -0,0 +1,65 @@
+package com.jpmc.reportsystem.service;
+
+import java.util.Set;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.LongHashSet;
+
+/**
+ * Deduplication service interface, dropping the instructions replayed by the
+ * upstream feed before they reach the other services
+ * 
+ * @author jnair1
+ *
+ */
+public interface DeduplicationService {
+
+	/**
+	 * <p>
+	 * Checks whether the same instruction was seen before, remembering the
+	 * instruction otherwise. To be called before the settlement date is
+	 * moved
+	 * 
+	 * @param instruction
+	 * @return <tt>true</tt> in case the instruction is a duplicate
+	 */
+	public boolean isDuplicate(ClientInstructions instruction);
+
+	/**
+	 * <p>
+	 * Number of duplicates found so far
+	 * 
+	 * @return
+	 */
+	public long getDuplicateCount();
+
+	/**
+	 * <p>
+	 * Fingerprints of the distinct instructions seen so far, kept by a
+	 * checkpoint so a resumed run still drops the instructions read before
+	 * 
+	 * @return
+	 */
+	public LongHashSet getFingerprints();
+
+	/**
+	 * <p>
+	 * Restores the instructions seen and the duplicates found by a run
+	 * resumed from a checkpoint
+	 * 
+	 * @param fingerprints
+	 *            - fingerprints of the distinct instructions seen
+	 * @param duplicateCount
+	 *            - number of duplicates found
+	 */
+	public void restore(LongHashSet fingerprints, long duplicateCount);
+
+	/**
+	 * <p>
+	 * Columns of the client-instructions compared by the deduplication
+	 * 
+	 * @return
+	 */
+	public Set<InstructionColumn> getRequiredColumns();
+}
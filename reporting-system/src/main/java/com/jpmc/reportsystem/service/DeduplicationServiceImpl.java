@@ -0,0 +1,151 @@
+package com.jpmc.reportsystem.service;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.model.BloomFilter;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.LongHashSet;
+
+/**
+ * This service is responsible for dropping duplicate instructions.
+ * 
+ * <p>
+ * Every instruction is reduced to its 64 bit fingerprint, covering the same
+ * fields as {@link ClientInstructions#equals(Object)}, and only the
+ * fingerprints are kept, in a {@code LongHashSet} taking about 16 bytes per
+ * instruction. Two different instructions sharing a fingerprint are
+ * possible, but unlikely: about once in 10^7 runs of a million instructions.
+ * 
+ * <p>
+ * For very large days a {@code BloomFilter} can be put in front of the set.
+ * Instructions the filter has definitely not seen, i.e. most of them, are
+ * added to the set without comparing them with the fingerprints they collide
+ * with, and only the few the filter may have seen are looked up. The set
+ * stays the authority, a false positive of the filter costs a lookup and
+ * never drops an instruction. The filter takes about 1.2MB per million
+ * instructions for a false positive rate of 1%, on top of the set.
+ * 
+ * <p>
+ * It is not thread safe, instructions are expected to be checked on the
+ * reading thread.
+ * 
+ * @author jnair1
+ *
+ */
+public class DeduplicationServiceImpl implements DeduplicationService {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(DeduplicationServiceImpl.class);
+
+	private final LongHashSet fingerprints;
+
+	/**
+	 * filter in front of the fingerprints, <tt>null</tt> unless enabled
+	 */
+	private final BloomFilter bloomFilter;
+
+	private int instructionCount;
+
+	private long duplicateCount;
+
+	/**
+	 * @param expectedInstructions
+	 *            - number of instructions the set is sized for
+	 */
+	public DeduplicationServiceImpl(int expectedInstructions) {
+		this(expectedInstructions, 0);
+	}
+
+	/**
+	 * @param expectedInstructions
+	 *            - number of instructions the set and filter are sized for
+	 * @param bloomFalsePositiveRate
+	 *            - false positive rate of the bloom filter in front of the
+	 *            set, i.e. the share of new instructions still looked up, 0
+	 *            for no filter
+	 */
+	public DeduplicationServiceImpl(int expectedInstructions, double bloomFalsePositiveRate) {
+		this.bloomFilter = bloomFalsePositiveRate > 0
+				? new BloomFilter(Math.max(1, expectedInstructions), bloomFalsePositiveRate) : null;
+		this.fingerprints = new LongHashSet(expectedInstructions);
+		LOGGER.debug("deduplication sized for instructions={} taking bytes={}", expectedInstructions,
+				getMemoryBytes());
+	}
+
+	/**
+	 * <p>
+	 * Checks the fingerprint of the instruction against the fingerprints seen
+	 * so far, and counts the duplicates
+	 * 
+	 * @param instruction
+	 * @return <tt>true</tt> in case the instruction is a duplicate
+	 */
+	@Override
+	public boolean isDuplicate(ClientInstructions instruction) {
+		long fingerprint = instruction.getFingerprint();
+		if (bloomFilter != null && bloomFilter.put(fingerprint)) {
+			// definitely not seen, no need to look for it
+			fingerprints.addAbsent(fingerprint);
+			instructionCount++;
+			return false;
+		}
+		if (fingerprints.add(fingerprint)) {
+			instructionCount++;
+			return false;
+		}
+		duplicateCount++;
+		LOGGER.debug("duplicate instruction dropped, instruction={}", instruction);
+		return true;
+	}
+
+	@Override
+	public long getDuplicateCount() {
+		return duplicateCount;
+	}
+
+	@Override
+	public LongHashSet getFingerprints() {
+		return fingerprints;
+	}
+
+	@Override
+	public void restore(LongHashSet fingerprints, long duplicateCount) {
+		for (long fingerprint : fingerprints.toArray()) {
+			if (bloomFilter != null)
+				bloomFilter.put(fingerprint);
+			if (this.fingerprints.add(fingerprint))
+				instructionCount++;
+		}
+		this.duplicateCount += duplicateCount;
+	}
+
+	/**
+	 * number of distinct instructions seen so far
+	 */
+	public int getInstructionCount() {
+		return instructionCount;
+	}
+
+	/**
+	 * bytes taken by the fingerprints and the bloom filter
+	 */
+	public long getMemoryBytes() {
+		return fingerprints.memoryBytes() + (bloomFilter == null ? 0 : bloomFilter.memoryBytes());
+	}
+
+	/**
+	 * all the columns compared by equals, the trade amount is derived from the
+	 * amounts
+	 */
+	@Override
+	public Set<InstructionColumn> getRequiredColumns() {
+		return EnumSet.allOf(InstructionColumn.class);
+	}
+}
@@ -2,10 +2,15 @@ package com.jpmc.reportsystem.service;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.FixedPointAmount;
+import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
 
 /**
  * This service is responsible for calculating the ranks for the entities.
@@ -23,4 +28,61 @@ public interface RankingService {
 	 */
 	public Map<String, Integer> evaluateRanking(List<ClientInstructions> clientInstructions,
 			Predicate<ClientInstructions> predicate) throws ReportingSystemException;
+
+	/**
+	 * <p>
+	 * Adds the trade amount of a single instruction to the total of its
+	 * entity, in case it matches the predicate. Ranks are only calculated once
+	 * asked for through {@link #evaluateRanking()}
+	 * 
+	 */
+	public void accumulate(ClientInstructions clientInstruction, Predicate<ClientInstructions> predicate);
+
+	/**
+	 * <p>
+	 * Retracts the trade amount of an instruction accumulated before from the
+	 * total of its entity, in case it matches the predicate. An entity
+	 * retracted down to zero is no longer ranked
+	 * 
+	 */
+	public void retract(ClientInstructions clientInstruction, Predicate<ClientInstructions> predicate);
+
+	/**
+	 * <p>
+	 * Adds the trade amounts of the rows of the batch with the indicator to
+	 * the totals of their entities
+	 * 
+	 */
+	public void accumulate(InstructionBatch batch, Indicator indicator);
+
+	/**
+	 * <p>
+	 * Ranks all the entities accumulated so far by their total trade amount
+	 * 
+	 */
+	public Map<String, Integer> evaluateRanking();
+
+	/**
+	 * <p>
+	 * Copy of the total trade amounts accumulated so far, by entity name
+	 * 
+	 */
+	public Map<String, FixedPointAmount> getEntityTotals();
+
+	/**
+	 * <p>
+	 * Adds the total trade amounts to the entities, e.g. totals restored from
+	 * a checkpoint
+	 * 
+	 */
+	public void addEntityTotals(Map<String, FixedPointAmount> entityTotals);
+
+	/**
+	 * <p>
+	 * Columns of the client-instructions read by the rankings, readers may skip
+	 * decoding the other columns
+	 * 
+	 * @return
+	 */
+	public Set<InstructionColumn> getRequiredColumns();
 }
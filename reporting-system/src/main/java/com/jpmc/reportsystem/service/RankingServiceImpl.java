@@ -1,17 +1,26 @@
 package com.jpmc.reportsystem.service;
 
-import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.FixedPointAmount;
+import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.SymbolTable;
 import com.jpmc.reportsystem.util.ReportingSystemConstants;
 import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
 
@@ -31,12 +40,12 @@ public class RankingServiceImpl implements RankingService {
 	 * Logger
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(RankingServiceImpl.class);
-	private static int rank = 1;
 	
 	/**
-	 * holds the ranks of all the entities 
+	 * holds the total trade amount of all the entities, indexed by the id of
+	 * the entity plus one. Slot 0 holds the instructions without an entity
 	 */
-	Map<String, BigDecimal> records = new HashMap<>();
+	private FixedPointAmount[] records = new FixedPointAmount[64];
 
 	/**
 	 * 
@@ -64,7 +73,6 @@ public class RankingServiceImpl implements RankingService {
 			Predicate<ClientInstructions> predicate) throws ReportingSystemException {
 
 		LOGGER.debug("ranking the entities based on the buying/selling amount");
-		rank = 1;
 		if (clientInstructions == null) {
 			LOGGER.error("Exception occured {} ",
 					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_EMPTY_CLIENT_INSTRUCTIONS));
@@ -73,16 +81,158 @@ public class RankingServiceImpl implements RankingService {
 		}
 
 		// arrange by entity names and tradeAmount
-		clientInstructions.stream().filter(predicate).forEach(c -> records.merge(c.getEntity(),
-				BigDecimal.valueOf(c.getTradeAmount().doubleValue()), (v1, v2) -> v1.add(v2)));
+		clientInstructions.forEach(c -> accumulate(c, predicate));
+
+		return evaluateRanking();
+	}
+
+	/**
+	 * <p>
+	 * Adds the trade amount of a single instruction to the total of its
+	 * entity, in case it matches the predicate
+	 * 
+	 * @param clientInstruction
+	 *            - instruction to add
+	 * @param predicate
+	 *            - predicate used to filter out the incoming and outgoing
+	 */
+	@Override
+	public void accumulate(ClientInstructions clientInstruction, Predicate<ClientInstructions> predicate) {
+		if (!predicate.test(clientInstruction))
+			return;
+		int slot = clientInstruction.getEntityId() + 1;
+		if (slot >= records.length)
+			records = Arrays.copyOf(records, Math.max(slot + 1, records.length * 2));
+		if (records[slot] == null)
+			records[slot] = new FixedPointAmount();
+		clientInstruction.addTradeAmountTo(records[slot]);
+	}
+
+	/**
+	 * <p>
+	 * Subtracts the trade amount of an instruction added before from the total
+	 * of its entity, in case it matches the predicate. An entity retracted down
+	 * to zero is dropped, as if its instructions never came in. The cost is a
+	 * single slot of the entity, ranks are only calculated once asked for
+	 * 
+	 * @param clientInstruction
+	 *            - instruction to retract
+	 * @param predicate
+	 *            - predicate used to filter out the incoming and outgoing
+	 */
+	@Override
+	public void retract(ClientInstructions clientInstruction, Predicate<ClientInstructions> predicate) {
+		if (!predicate.test(clientInstruction))
+			return;
+		int slot = clientInstruction.getEntityId() + 1;
+		if (slot >= records.length || records[slot] == null) {
+			LOGGER.warn("nothing to retract for entity={}", clientInstruction.getEntity());
+			return;
+		}
+		clientInstruction.retractTradeAmountFrom(records[slot]);
+		if (records[slot].signum() == 0)
+			records[slot] = null;
+	}
+
+	/**
+	 * <p>
+	 * Adds the trade amounts of the rows of the batch with the indicator to
+	 * the totals of their entities
+	 * 
+	 * @param batch
+	 *            - rows to add
+	 * @param indicator
+	 *            - indicator of the rows to add
+	 */
+	@Override
+	public void accumulate(InstructionBatch batch, Indicator indicator) {
+		byte selected = (byte) indicator.ordinal();
+		byte[] indicators = batch.getIndicators();
+		int[] entityIds = batch.getEntityIds();
+		int size = batch.size();
+		for (int row = 0; row < size; row++) {
+			if (indicators[row] != selected)
+				continue;
+			int slot = entityIds[row] + 1;
+			if (slot >= records.length)
+				records = Arrays.copyOf(records, Math.max(slot + 1, records.length * 2));
+			if (records[slot] == null)
+				records[slot] = new FixedPointAmount();
+			batch.addTradeAmountTo(row, records[slot]);
+		}
+	}
+
+	/**
+	 * <p>
+	 * Ranks all the entities accumulated so far, the entity with the highest
+	 * total trade amount being rank 1. Entity names are only resolved here,
+	 * from the ids the amounts were accumulated by
+	 * 
+	 * @return entityRankings - entity names along with their rank
+	 */
+	@Override
+	public Map<String, Integer> evaluateRanking() {
 
 		// calculate the rank
-		Map<String, Integer> entityRankings = records.entrySet().stream()
-				.sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue())).map(e -> e.getKey())
-				.collect(Collectors.toMap(s -> s, s -> rank++));
+		FixedPointAmount[] totals = records;
+		List<Integer> rankedSlots = IntStream.range(0, totals.length).filter(slot -> totals[slot] != null).boxed()
+				.sorted((s1, s2) -> totals[s2].compareTo(totals[s1])).collect(Collectors.toList());
+
+		Map<String, Integer> entityRankings = new HashMap<>();
+		int rank = 1;
+		for (int slot : rankedSlots)
+			entityRankings.put(SymbolTable.entities().valueOf(slot - 1), rank++);
 
 		LOGGER.debug("entity ranking completed");
 		return entityRankings;
 	}
 
+	/**
+	 * <p>
+	 * Copy of the total trade amounts accumulated so far, by entity name in
+	 * the order of the ids of the entities, which breaks the ties of the
+	 * ranking. The instructions without an entity are held by the
+	 * <tt>null</tt> key
+	 * 
+	 * @return entityTotals
+	 */
+	@Override
+	public Map<String, FixedPointAmount> getEntityTotals() {
+		FixedPointAmount[] totals = records;
+		Map<String, FixedPointAmount> entityTotals = new LinkedHashMap<>();
+		for (int slot = 0; slot < totals.length; slot++) {
+			if (totals[slot] != null)
+				entityTotals.put(SymbolTable.entities().valueOf(slot - 1), new FixedPointAmount().add(totals[slot]));
+		}
+		return entityTotals;
+	}
+
+	/**
+	 * <p>
+	 * Adds the total trade amounts to the entities, resolving the ids of the
+	 * entities
+	 * 
+	 * @param entityTotals
+	 *            - total trade amounts by entity name
+	 */
+	@Override
+	public void addEntityTotals(Map<String, FixedPointAmount> entityTotals) {
+		entityTotals.forEach((entity, total) -> {
+			int slot = SymbolTable.entities().idOf(entity) + 1;
+			if (slot >= records.length)
+				records = Arrays.copyOf(records, Math.max(slot + 1, records.length * 2));
+			if (records[slot] == null)
+				records[slot] = new FixedPointAmount();
+			records[slot].add(total);
+		});
+	}
+
+	/**
+	 * columns feeding the entity wise trade amounts
+	 */
+	@Override
+	public Set<InstructionColumn> getRequiredColumns() {
+		return EnumSet.of(InstructionColumn.ENTITY, InstructionColumn.AGREED_FX, InstructionColumn.UNITS,
+				InstructionColumn.UNIT_PRICE);
+	}
 }
@@ -0,0 +1,189 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Chooses the number of instructions read per batch at runtime
+ *
+ * <p>
+ * The time between two consecutive batches covers reading a batch and
+ * processing it by the caller. The sizer measures it per instruction and
+ * picks the size whose batches would take the configured target time, moving
+ * by at most a factor of two per batch so a single slow batch does not throw
+ * the size off. The size is halved whenever the free heap drops below the
+ * configured share, regardless of the time taken.
+ *
+ * <p>
+ * The size always stays within the configured floor and ceiling. Every change
+ * is logged at DEBUG, the range of chosen sizes is available through the
+ * getters and logged by the reader once done.
+ *
+ * @author jnair1
+ *
+ */
+public class AdaptiveBatchSizer {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(AdaptiveBatchSizer.class);
+
+	private final int floor;
+
+	private final int ceiling;
+
+	private final long targetBatchNanos;
+
+	private final double minFreeHeap;
+
+	private int batchSize;
+
+	private int minChosen;
+
+	private int maxChosen;
+
+	private int adjustments;
+
+	/**
+	 * start of the previous batch, 0 before the first batch
+	 */
+	private long batchStart;
+
+	private int lastBatchCount;
+
+	/**
+	 * creates the sizer with the limits configured in the properties file
+	 */
+	public AdaptiveBatchSizer() {
+		this(Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE)),
+				Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE_MAX)),
+				Long.parseLong(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_ADAPTIVE_TARGET_MILLIS)),
+				Double.parseDouble(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_ADAPTIVE_MIN_FREE_HEAP)));
+	}
+
+	/**
+	 * @param floor
+	 *            - smallest batch size, also the size of the first batch
+	 * @param ceiling
+	 *            - largest batch size
+	 * @param targetBatchMillis
+	 *            - time a batch should take to be read and processed
+	 * @param minFreeHeap
+	 *            - share of the maximum heap, between 0 and 1, below which the
+	 *            size is reduced
+	 */
+	public AdaptiveBatchSizer(int floor, int ceiling, long targetBatchMillis, double minFreeHeap) {
+		this.floor = Math.max(1, floor);
+		this.ceiling = Math.max(this.floor, ceiling);
+		this.targetBatchNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, targetBatchMillis));
+		this.minFreeHeap = minFreeHeap;
+		this.batchSize = this.floor;
+		this.minChosen = this.floor;
+		this.maxChosen = this.floor;
+	}
+
+	/**
+	 * to be called at the start of every batch, adapts the size based on the
+	 * previous batch
+	 *
+	 * @return number of instructions to be read in this batch
+	 */
+	public int nextBatchSize() {
+		long now = System.nanoTime();
+		if (batchStart != 0)
+			adapt(lastBatchCount, now - batchStart, freeHeap());
+		batchStart = now;
+		return batchSize;
+	}
+
+	/**
+	 * to be called at the end of every batch
+	 *
+	 * @param count
+	 *            - number of instructions read in the batch
+	 */
+	public void batchRead(int count) {
+		lastBatchCount = count;
+	}
+
+	/**
+	 * adapts the size to the measurements of the previous batch
+	 *
+	 * @param count
+	 *            - number of instructions in the previous batch
+	 * @param elapsedNanos
+	 *            - time taken by the previous batch
+	 * @param freeHeap
+	 *            - share of the maximum heap currently free
+	 * @return new batch size
+	 */
+	int adapt(int count, long elapsedNanos, double freeHeap) {
+		int size = batchSize;
+		if (freeHeap < minFreeHeap) {
+			size = batchSize / 2;
+		} else if (count > 0 && elapsedNanos > 0) {
+			double nanosPerInstruction = (double) elapsedNanos / count;
+			double ideal = targetBatchNanos / nanosPerInstruction;
+			size = (int) Math.max(batchSize / 2, Math.min(ideal, 2L * batchSize));
+		}
+		size = Math.max(floor, Math.min(ceiling, size));
+
+		if (size != batchSize) {
+			LOGGER.debug("batch size changed from {} to {}, previous batch of {} took {}ms with freeHeap={}",
+					batchSize, size, count, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), freeHeap);
+			batchSize = size;
+			adjustments++;
+			minChosen = Math.min(minChosen, size);
+			maxChosen = Math.max(maxChosen, size);
+		}
+		return batchSize;
+	}
+
+	/**
+	 * current batch size
+	 */
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	/**
+	 * smallest batch size chosen so far
+	 */
+	public int getMinChosen() {
+		return minChosen;
+	}
+
+	/**
+	 * largest batch size chosen so far
+	 */
+	public int getMaxChosen() {
+		return maxChosen;
+	}
+
+	/**
+	 * number of times the batch size was changed
+	 */
+	public int getAdjustments() {
+		return adjustments;
+	}
+
+	@Override
+	public String toString() {
+		return "AdaptiveBatchSizer [batchSize=" + batchSize + ", minChosen=" + minChosen + ", maxChosen="
+				+ maxChosen + ", adjustments=" + adjustments + ", floor=" + floor + ", ceiling=" + ceiling + "]";
+	}
+
+	private static double freeHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		return (double) (runtime.maxMemory() - used) / runtime.maxMemory();
+	}
+}
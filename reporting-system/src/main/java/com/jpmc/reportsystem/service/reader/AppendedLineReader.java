@@ -0,0 +1,130 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the lines of a file which is still being appended to
+ *
+ * <p>
+ * Only complete lines are handed out, i.e. lines followed by a line
+ * terminator. The bytes of a line still being written are kept till the rest
+ * of it is appended, so a row is never parsed half written. Once nothing more
+ * is available the reader simply reports so, and picks up the appended bytes
+ * on the next call, from where it stopped. Earlier bytes are never read
+ * again.
+ *
+ * <p>
+ * Blank lines are skipped, hence <tt>\r\n</tt> terminated files are handled
+ * the same as <tt>\n</tt> terminated ones.
+ *
+ * <p>
+ * The offset just after the last line handed out is kept, a file read once
+ * can be read again from there with {@link #seek(long)}.
+ *
+ * @author jnair1
+ *
+ */
+class AppendedLineReader implements Closeable {
+
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+
+	private final ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+	/**
+	 * bytes of the line read so far
+	 */
+	private byte[] line = new byte[256];
+
+	private int lineLength;
+
+	/**
+	 * offset just after the last complete line handed out
+	 */
+	private long position;
+
+	AppendedLineReader(Path path) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.READ);
+		buffer.flip();
+	}
+
+	/**
+	 * @param endOfInput
+	 *            - <tt>true</tt> in case nothing more is going to be
+	 *            appended, the last line is then handed out even without a
+	 *            line terminator
+	 * @return next complete line, <tt>null</tt> in case there is none
+	 *         available yet
+	 * @throws IOException
+	 */
+	String nextLine(boolean endOfInput) throws IOException {
+		while (true) {
+			while (buffer.hasRemaining()) {
+				byte current = buffer.get();
+				if (current == '\n' || current == '\r') {
+					if (lineLength == 0) {
+						position++;
+						continue;
+					}
+					return takeLine(1);
+				}
+				if (lineLength == line.length)
+					line = Arrays.copyOf(line, line.length * 2);
+				line[lineLength++] = current;
+			}
+			buffer.clear();
+			int read = channel.read(buffer);
+			buffer.flip();
+			if (read <= 0) {
+				if (endOfInput && lineLength > 0)
+					return takeLine(0);
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * offset of the file just after the last line handed out
+	 */
+	long getPosition() {
+		return position;
+	}
+
+	/**
+	 * continues with the line starting at the offset, dropping the bytes
+	 * already buffered
+	 *
+	 * @param position
+	 *            - offset of the file, e.g. returned by {@link #getPosition()}
+	 * @throws IOException
+	 */
+	void seek(long position) throws IOException {
+		if (position < 0 || position > channel.size())
+			throw new IOException("position " + position + " out of " + channel.size() + " bytes");
+		channel.position(position);
+		buffer.clear();
+		buffer.flip();
+		lineLength = 0;
+		this.position = position;
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private String takeLine(int terminatorLength) {
+		String value = new String(line, 0, lineLength, StandardCharsets.UTF_8);
+		position += lineLength + terminatorLength;
+		lineLength = 0;
+		return value;
+	}
+}
@@ -1,6 +1,9 @@
 package com.jpmc.reportsystem.service.reader;
 
 import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.charset.Charset;
@@ -9,10 +12,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Currency;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +27,8 @@ import org.slf4j.LoggerFactory;
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
 import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
 import com.jpmc.reportsystem.util.ReportingSystemConstants;
 import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
 
@@ -36,6 +45,30 @@ import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
  * calling application has to only deal with the set of instructions, without
  * worrying about the underlying implementation
  * 
+ * <p>
+ * The number of lines read per batch is either the configured chunk size, or
+ * chosen at runtime by an {@code AdaptiveBatchSizer} in case adaptive
+ * batching is enabled
+ * 
+ * <p>
+ * In follow mode the reader keeps the file open once the end is reached and
+ * hands out the lines appended meanwhile, polling the file for new lines.
+ * Only complete lines are read, and the lines already read are never read
+ * again. The reader is done once {@link #stopFollowing()} was called and the
+ * lines appended till then are handed out
+ * 
+ * <p>
+ * Gzip compressed files are detected by their leading bytes and decompressed
+ * on a dedicated thread while the lines are parsed, without any temporary
+ * file. Blank lines of uncompressed files are skipped, and reading can be
+ * resumed from the byte offset of the last line read
+ * 
+ * <p>
+ * In tolerant mode a line that can not be parsed is handed to the
+ * {@code DeadLetterDataWriter} along with its line number and the reason,
+ * and reading goes on with the next line. Dates decoded on first access are
+ * not validated while reading
+ * 
  * @author jnair1
  *
  */
@@ -46,6 +79,13 @@ public class CSVDataReader implements DataReader {
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(CSVDataReader.class);
 
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+	/**
+	 * length of a date of the formatter, e.g. 01/01/2019
+	 */
+	private static final int DATE_LENGTH = 10;
+
 	/**
 	 * reader flag to indicate whether the reader is done with the reading
 	 * operation or not
@@ -59,8 +99,98 @@ public class CSVDataReader implements DataReader {
 	private int batchFileCount = Integer
 			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
 
+	/**
+	 * chooses the batch size at runtime, <tt>null</tt> in case the chunk size
+	 * is used as is
+	 */
+	private final AdaptiveBatchSizer batchSizer;
+
+	/**
+	 * source of gzip compressed files
+	 */
 	private BufferedReader source;
 
+	/**
+	 * keeps reading the lines appended to the file once the end is reached,
+	 * till the following is stopped
+	 */
+	private boolean follow = Boolean
+			.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FOLLOW));
+
+	/**
+	 * time waited for new lines in follow mode, before handing back an empty
+	 * batch
+	 */
+	private long followPollMillis = Long
+			.parseLong(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FOLLOW_POLL_MILLIS));
+
+	private final CountDownLatch followStopped = new CountDownLatch(1);
+
+	/**
+	 * source of uncompressed files, keeping the byte offset of the lines read
+	 */
+	private AppendedLineReader tail;
+
+	/**
+	 * number of decompressed chunks held ahead of the parser, for gzip
+	 * compressed files
+	 */
+	private int decompressionBufferChunks = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_GZIP_BUFFER_CHUNKS));
+
+	/**
+	 * date columns decoded while reading, the others are decoded on first
+	 * access. The remaining columns are always decoded, as they are validated
+	 * and combined into the trade amount by the instruction itself
+	 */
+	private boolean decodeInstructionDate = true;
+	private boolean decodeSettlementDate = true;
+
+	/**
+	 * end offsets of the columns of the line being parsed, reused from line
+	 * to line
+	 */
+	private final int[] columnEnds = new int[InstructionColumn.values().length];
+
+	/**
+	 * writer of the malformed lines in tolerant mode, <tt>null</tt> to fail on
+	 * the first malformed line
+	 */
+	private DeadLetterDataWriter deadLetterWriter;
+
+	/**
+	 * malformed lines of this reader written to the dead letter writer
+	 */
+	private long rejectedCount;
+
+	/**
+	 * name of the resource read, the rejected lines are written with
+	 */
+	private String resourceName;
+
+	/**
+	 * number of the last line read
+	 */
+	private long lineNumber;
+
+	/**
+	 * creates the reader, with adaptive batching in case it is enabled within
+	 * the properties file
+	 */
+	public CSVDataReader() {
+		this(Boolean.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_ADAPTIVE_BATCH))
+				? new AdaptiveBatchSizer() : null);
+	}
+
+	/**
+	 * @param batchSizer
+	 *            - sizer choosing the batch size, <tt>null</tt> to use the
+	 *            configured chunk size
+	 */
+	public CSVDataReader(AdaptiveBatchSizer batchSizer) {
+		this.batchSizer = batchSizer;
+	}
+
 	/**
 	 * method to add a new connection with the url and the resource name This
 	 * would throw exception in case of invalid input. In case of valid data,
@@ -82,9 +212,19 @@ public class CSVDataReader implements DataReader {
 					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
 
 		Path path = Paths.get(url, resourceName);
-		source = new BufferedReader(Files.newBufferedReader(path, Charset.forName("UTF-8")));
+		this.resourceName = resourceName;
+		boolean compressed = isCompressed(path);
+		if (follow && compressed)
+			LOGGER.warn("follow mode is not supported for the compressed resourceName={}, reading it once", resourceName);
+		if (compressed)
+			source = new BufferedReader(new InputStreamReader(
+					new PipelinedGzipInputStream(Files.newInputStream(path), decompressionBufferChunks),
+					Charset.forName("UTF-8")));
+		else
+			tail = new AppendedLineReader(path);
 		
-		LOGGER.debug("connection successfully added with url={} and resourceName={}", url, resourceName);
+		LOGGER.debug("connection successfully added with url={}, resourceName={}, follow={} and compressed={}", url,
+				resourceName, follow, compressed);
 		return true;
 	}
 
@@ -92,7 +232,7 @@ public class CSVDataReader implements DataReader {
 	 * this is to check the status of the connection that was established.
 	 */
 	public boolean isConnectedEstablished() throws Exception {
-		if (null == source)
+		if (null == source && null == tail)
 			return false;
 		return true;
 	}
@@ -107,6 +247,22 @@ public class CSVDataReader implements DataReader {
 	 */
 	@Override
 	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>(batchFileCount);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * read the data from the file based on the batch count specified, pushing
+	 * every parsed {@code ClientInstructions} to the consumer line by line
+	 * 
+	 * @param consumer
+	 *            - consumer of the parsed instructions
+	 * @return number of instructions read
+	 * @throws Exception
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
 		LOGGER.debug("reading in progress, is connectionAvailable={}", isConnectedEstablished());
 		
 		// data processing should not happen if the connection is not valid
@@ -114,21 +270,40 @@ public class CSVDataReader implements DataReader {
 			throw new ReportingSystemException(
 					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
 
-		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>();
-
 		// limiting the read to the value configured within properties file
-		instructions = source.lines().skip(0).limit(batchFileCount).map(line -> populateClientInstructions(line))
-				.collect(Collectors.toList());
+		int batchSize = batchSizer == null ? batchFileCount : batchSizer.nextBatchSize();
+		// checked before reading, the lines appended before the following
+		// was stopped are all read
+		boolean endOfInput = !isFollowing();
+		int lines = 0;
+		int count = 0;
+		String line;
+		while (lines < batchSize && (line = readLine(endOfInput)) != null) {
+			lines++;
+			lineNumber++;
+			ClientInstructions instruction = parseLine(line);
+			if (instruction != null) {
+				consumer.accept(instruction);
+				count++;
+			}
+		}
+		if (batchSizer != null)
+			batchSizer.batchRead(lines);
+
+		// waiting for new lines to be appended
+		if (lines == 0 && !endOfInput) {
+			followStopped.await(followPollMillis, TimeUnit.MILLISECONDS);
+			return count;
+		}
 
-		// stream would return a blank list if it has reached the end of
-		// processing.manually checking and populating the done flag and closing
-		// the resource
-		if (instructions.isEmpty()) {
+		// reader has reached the end of processing, manually populating the
+		// done flag and closing the resource
+		if (lines == 0) {
 			LOGGER.debug("Reader reached the end of file, no more data to read. is EoF={} and connectionClosed={} ", isDone(), !isConnectedEstablished());
 			close();
 		}
 
-		return instructions;
+		return count;
 	}
 
 	/**
@@ -139,6 +314,143 @@ public class CSVDataReader implements DataReader {
 		return isDone;
 	}
 
+	/**
+	 * dates not required are not parsed while reading, only the raw value is
+	 * kept and parsed on first access
+	 */
+	@Override
+	public void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+		LOGGER.debug("required columns={}", requiredColumns);
+		decodeInstructionDate = requiredColumns.contains(InstructionColumn.INSTRUCTION_DATE);
+		decodeSettlementDate = requiredColumns.contains(InstructionColumn.SETTLEMENT_DATE);
+	}
+
+	/**
+	 * to be set before adding the connection
+	 * 
+	 * @param follow
+	 *            - <tt>true</tt> to keep reading the lines appended to the file
+	 */
+	public void setFollow(boolean follow) {
+		this.follow = follow;
+	}
+
+	/**
+	 * @param followPollMillis
+	 *            - time waited for new lines in follow mode
+	 */
+	public void setFollowPollMillis(long followPollMillis) {
+		this.followPollMillis = followPollMillis;
+	}
+
+	/**
+	 * indicates whether the reader is still waiting for lines to be appended
+	 */
+	public boolean isFollowing() {
+		return follow && followStopped.getCount() > 0;
+	}
+
+	/**
+	 * stops the follow mode, can be called from any thread. The reader is done
+	 * once the lines appended till now are read
+	 */
+	public void stopFollowing() {
+		LOGGER.debug("following stopped");
+		followStopped.countDown();
+	}
+
+	/**
+	 * byte offset just after the last line read, <tt>-1</tt> for gzip
+	 * compressed files
+	 */
+	@Override
+	public long getPosition() {
+		return tail == null ? -1 : tail.getPosition();
+	}
+
+	/**
+	 * continues reading from the byte offset returned by
+	 * {@link #getPosition()}, not supported for gzip compressed files
+	 * 
+	 * @param position
+	 * @throws Exception
+	 */
+	@Override
+	public void resume(long position) throws Exception {
+		if (tail == null)
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_NOT_RESUMABLE));
+		LOGGER.debug("resuming from position={}", position);
+		tail.seek(position);
+	}
+
+	/**
+	 * continues reading from the byte offset returned by
+	 * {@link #getPosition()}, numbering the lines on from the line number.
+	 * The dead letter writer appends to its file, the lines rejected before
+	 * counting against its cap
+	 * 
+	 * @param position
+	 * @param lineNumber
+	 * @param rejectedCount
+	 * @throws Exception
+	 */
+	@Override
+	public void resume(long position, long lineNumber, long rejectedCount) throws Exception {
+		resume(position);
+		this.lineNumber = Math.max(0, lineNumber);
+		this.rejectedCount = rejectedCount;
+		if (deadLetterWriter != null)
+			deadLetterWriter.resume(rejectedCount);
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void flushRejected() {
+		if (deadLetterWriter != null)
+			deadLetterWriter.flush();
+	}
+
+	/**
+	 * to be set before reading
+	 * 
+	 * @param deadLetterWriter
+	 *            - writer of the malformed lines, <tt>null</tt> to fail on the
+	 *            first malformed line
+	 */
+	public void setDeadLetterWriter(DeadLetterDataWriter deadLetterWriter) {
+		this.deadLetterWriter = deadLetterWriter;
+	}
+
+	/**
+	 * number of malformed lines of this reader written to the dead letter
+	 * writer, the writer may be shared with other readers
+	 */
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * number of lines read per batch, currently chosen by the adaptive sizer
+	 * or the configured chunk size
+	 */
+	public int getBatchSize() {
+		return batchSizer == null ? batchFileCount : batchSizer.getBatchSize();
+	}
+
+	/**
+	 * adaptive sizer of the reader, <tt>null</tt> in case the chunk size is
+	 * used as is
+	 */
+	public AdaptiveBatchSizer getBatchSizer() {
+		return batchSizer;
+	}
+
 	/**
 	 * close the resource for memory utilization. Currently there is no explicit
 	 * call required, reader is closing it own its own, once there is nothing
@@ -149,9 +461,15 @@ public class CSVDataReader implements DataReader {
 	@Override
 	public void close() throws Exception {
 		LOGGER.debug("Closing the connection");
+		if (batchSizer != null && !isDone)
+			LOGGER.info("adaptive batch sizing done with {}", batchSizer);
 		setDone(Boolean.TRUE);
-		if(isConnectedEstablished())
+		if (source != null)
 			source.close();
+		if (tail != null)
+			tail.close();
+		if (deadLetterWriter != null)
+			deadLetterWriter.close();
 	}
 
 	public void setDone(boolean isDone) {
@@ -159,38 +477,186 @@ public class CSVDataReader implements DataReader {
 	}
 
 	/**
-	 * Method to convert comma separated String in to ClientInstructions
+	 * checks whether the file is gzip compressed, by its leading bytes
+	 */
+	private static boolean isCompressed(Path path) throws IOException {
+		byte[] header = new byte[2];
+		int length = 0;
+		try (InputStream input = Files.newInputStream(path)) {
+			int read;
+			while (length < header.length && (read = input.read(header, length, header.length - length)) > 0)
+				length += read;
+		}
+		return PipelinedGzipInputStream.isGzip(header, length);
+	}
+
+	/**
+	 * reads the next complete line of the file, in follow mode <tt>null</tt>
+	 * only means there is no new line yet
+	 */
+	private String readLine(boolean endOfInput) throws Exception {
+		if (tail != null)
+			return tail.nextLine(endOfInput);
+		return source.readLine();
+	}
+
+	/**
+	 * parses the line, in tolerant mode a malformed line is rejected instead
 	 * 
-	 * This needs to be moved outside this class and has to part of a utility
-	 * class
+	 * @return instruction, <tt>null</tt> in case the line was rejected
+	 */
+	private ClientInstructions parseLine(String line) throws ReportingSystemException {
+		if (deadLetterWriter == null)
+			return populateClientInstructions(line);
+		try {
+			return populateClientInstructions(line);
+		} catch (RuntimeException exception) {
+			deadLetterWriter.reject(resourceName, lineNumber, exception.toString(), line);
+			rejectedCount++;
+			return null;
+		}
+	}
+
+	/**
+	 * Method to convert comma separated String in to ClientInstructions. The
+	 * columns are located by their offsets within the line, without splitting
+	 * it. Dates not required are validated while scanning, so a malformed one
+	 * is rejected like any other malformed column, and only decoded once
+	 * accessed
 	 * 
-	 * @param lineRead
+	 * @param line
 	 * @return
 	 */
-	private ClientInstructions populateClientInstructions(String lineRead) {
+	private ClientInstructions populateClientInstructions(String line) {
 		LOGGER.debug("parsing the read data to pojo");
-		
-		String[] rawInstructions = lineRead.split(",");
 
+		scanColumns(line);
 		ClientInstructions instruction = new ClientInstructions(
 				// entity
-				rawInstructions[0],
+				column(line, InstructionColumn.ENTITY),
 				// indicator
-				Indicator.valueOf(rawInstructions[1].toUpperCase()),
+				Indicator.valueOf(column(line, InstructionColumn.INDICATOR).toUpperCase()),
 				// agreedFx
-				BigDecimal.valueOf(Double.valueOf(rawInstructions[2])),
+				BigDecimal.valueOf(Double.valueOf(column(line, InstructionColumn.AGREED_FX))),
 				// unitPrice
-				BigDecimal.valueOf(Double.valueOf(rawInstructions[7])),
+				BigDecimal.valueOf(Double.valueOf(column(line, InstructionColumn.UNIT_PRICE))),
 				// units
-				BigInteger.valueOf(Integer.valueOf(rawInstructions[6])),
+				BigInteger.valueOf(Integer.valueOf(column(line, InstructionColumn.UNITS))),
 				// currency
-				Currency.getInstance(rawInstructions[3]),
+				Currency.getInstance(column(line, InstructionColumn.CURRENCY)),
 				// instructionDate
-				LocalDate.parse(rawInstructions[4],DateTimeFormatter.ofPattern("dd/MM/yyyy")),
+				decodeInstructionDate
+						? LocalDate.parse(column(line, InstructionColumn.INSTRUCTION_DATE), DATE_FORMATTER) : null,
 				// settlementDate
-				LocalDate.parse(rawInstructions[5],DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+				decodeSettlementDate
+						? LocalDate.parse(column(line, InstructionColumn.SETTLEMENT_DATE), DATE_FORMATTER) : null);
+
+		// columns not required are only decoded once accessed, from their
+		// offset within the line
+		if (!decodeInstructionDate) {
+			int instructionDate = validateDate(line, InstructionColumn.INSTRUCTION_DATE);
+			instruction.setInstructionDate(() -> decodeDate(line, instructionDate));
+		}
+		if (!decodeSettlementDate) {
+			int settlementDate = validateDate(line, InstructionColumn.SETTLEMENT_DATE);
+			instruction.setSettlementDate(() -> decodeDate(line, settlementDate));
+		}
 
 		return instruction;
 	}
 
+	/**
+	 * records the end offset of every column of the line
+	 * 
+	 * @throws IllegalArgumentException
+	 *             in case the line has less columns than an instruction
+	 */
+	private void scanColumns(String line) {
+		int column = 0;
+		for (int index = 0; index < line.length() && column < columnEnds.length - 1; index++)
+			if (line.charAt(index) == ',')
+				columnEnds[column++] = index;
+		if (column < columnEnds.length - 1)
+			throw new IllegalArgumentException("columns=" + (column + 1) + ", expected=" + columnEnds.length);
+		int end = line.indexOf(',', columnEnds[column - 1] + 1);
+		columnEnds[column] = end < 0 ? line.length() : end;
+	}
+
+	private int columnStart(InstructionColumn column) {
+		return column.getIndex() == 0 ? 0 : columnEnds[column.getIndex() - 1] + 1;
+	}
+
+	private String column(String line, InstructionColumn column) {
+		return line.substring(columnStart(column), columnEnds[column.getIndex()]);
+	}
+
+	/**
+	 * checks the date column is made of a day, month and year the formatter
+	 * accepts, without decoding it
+	 * 
+	 * @return offset of the date within the line
+	 * @throws DateTimeParseException
+	 *             in case the date is malformed
+	 */
+	private int validateDate(String line, InstructionColumn column) {
+		int start = columnStart(column);
+		int end = columnEnds[column.getIndex()];
+		boolean valid = end - start == DATE_LENGTH && line.charAt(start + 2) == '/' && line.charAt(start + 5) == '/';
+		for (int index = start; valid && index < end; index++) {
+			char character = line.charAt(index);
+			valid = index == start + 2 || index == start + 5 || (character >= '0' && character <= '9');
+		}
+		if (valid) {
+			int day = digits(line, start, start + 2);
+			int month = digits(line, start + 3, start + 5);
+			valid = day >= 1 && day <= 31 && month >= 1 && month <= 12 && digits(line, start + 6, end) >= 1;
+		}
+		if (!valid)
+			throw new DateTimeParseException("Text '" + line.substring(start, end) + "' could not be parsed",
+					line.substring(start, end), 0);
+		return start;
+	}
+
+	private static int digits(String line, int start, int end) {
+		int value = 0;
+		for (int index = start; index < end; index++)
+			value = value * 10 + line.charAt(index) - '0';
+		return value;
+	}
+
+	private static LocalDate decodeDate(String line, int start) {
+		return LocalDate.parse(line.subSequence(start, start + DATE_LENGTH), DATE_FORMATTER);
+	}
+
+	/**
+	 * Method to convert the columns of an instruction, starting at the offset,
+	 * in to ClientInstructions
+	 * 
+	 * @param rawInstructions
+	 *            - columns split from the line
+	 * @param offset
+	 *            - index of the entity column
+	 * @return instruction
+	 */
+	static ClientInstructions populateClientInstructions(String[] rawInstructions, int offset) {
+
+		return new ClientInstructions(
+				// entity
+				rawInstructions[offset],
+				// indicator
+				Indicator.valueOf(rawInstructions[offset + 1].toUpperCase()),
+				// agreedFx
+				BigDecimal.valueOf(Double.valueOf(rawInstructions[offset + 2])),
+				// unitPrice
+				BigDecimal.valueOf(Double.valueOf(rawInstructions[offset + 7])),
+				// units
+				BigInteger.valueOf(Integer.valueOf(rawInstructions[offset + 6])),
+				// currency
+				Currency.getInstance(rawInstructions[offset + 3]),
+				// instructionDate
+				LocalDate.parse(rawInstructions[offset + 4], DATE_FORMATTER),
+				// settlementDate
+				LocalDate.parse(rawInstructions[offset + 5], DATE_FORMATTER));
+	}
+
 }
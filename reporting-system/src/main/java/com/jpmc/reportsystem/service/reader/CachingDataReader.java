@@ -0,0 +1,310 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Decorator over a file based {@code DataReader} keeping a binary image of the
+ * parsed instructions next to the source file
+ *
+ * <p>
+ * The first run reads the source through the wrapped reader and writes every
+ * instruction into the image as it is handed out. The image only replaces the
+ * previous one once the source was read completely, hence an interrupted run
+ * never leaves a partial image behind.
+ *
+ * <p>
+ * The image is keyed by the size, the last modified time and a hash of the
+ * content of the source. Later runs on an unchanged source memory map the
+ * image and decode the instructions from it, without opening the wrapped
+ * reader at all, and report the malformed rows the first run rejected. Any
+ * change of the source invalidates the image, which is then rewritten by the
+ * next run.
+ *
+ * <p>
+ * Caching never fails a run: in case the image cannot be written, e.g. as a
+ * column decoded on first access is malformed, the instructions are still
+ * handed out from the wrapped reader.
+ *
+ * @author jnair1
+ *
+ */
+public class CachingDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(CachingDataReader.class);
+
+	/**
+	 * appended to the name of the source file to get the name of the image
+	 */
+	public static final String IMAGE_SUFFIX = ".image";
+
+	private final DataReader dataReader;
+
+	/**
+	 * number of instructions that needs to be handed out at a single time from
+	 * the image
+	 */
+	private int batchFileCount = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private boolean isDone = false;
+
+	private Path source;
+
+	private Path image;
+
+	private InstructionImage.Fingerprint fingerprint;
+
+	/**
+	 * set when reading from the image
+	 */
+	private InstructionImage.Reader imageReader;
+
+	/**
+	 * malformed rows rejected by the run which wrote the image read
+	 */
+	private long imageRejectedCount;
+
+	/**
+	 * set while the image is being written
+	 */
+	private InstructionImage.Writer imageWriter;
+
+	private Path temporaryImage;
+
+	/**
+	 * @param dataReader
+	 *            - reader parsing the source file
+	 */
+	public CachingDataReader(DataReader dataReader) {
+		this.dataReader = dataReader;
+	}
+
+	/**
+	 * reads from the image in case it is up to date with the source, otherwise
+	 * adds the connection to the wrapped reader and starts writing a new image
+	 *
+	 * @param url
+	 *            - url to the resource where it is located
+	 * @param resourceName
+	 *            - name of the resource that needs to be connected to
+	 * @return addConnection status
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		LOGGER.debug("adding connection with url={} and resourceName={}", url, resourceName);
+
+		if (url == null || url.isEmpty() || resourceName == null || resourceName.isEmpty())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
+
+		source = Paths.get(url, resourceName);
+		image = Paths.get(url, resourceName + IMAGE_SUFFIX);
+		try {
+			fingerprint = InstructionImage.Fingerprint.of(source);
+			MappedByteBuffer mappedImage = InstructionImage.map(image, fingerprint);
+			if (mappedImage != null) {
+				LOGGER.info("reading instructions from the image={} of the source with {}", image, fingerprint);
+				imageReader = new InstructionImage.Reader(mappedImage);
+				imageRejectedCount = InstructionImage.readRejectedCount(mappedImage);
+				return true;
+			}
+			temporaryImage = Files.createTempFile(image.toAbsolutePath().getParent(),
+					image.getFileName().toString(), ".tmp");
+			imageWriter = new InstructionImage.Writer(temporaryImage, fingerprint);
+			LOGGER.debug("writing a new image={} of the source with {}", image, fingerprint);
+		} catch (IOException exception) {
+			LOGGER.warn("instructions of {} are not cached", source, exception);
+			discardImage();
+		}
+		return dataReader.addConnectionDetails(url, resourceName);
+	}
+
+	/**
+	 * passes the required columns on to the wrapped reader
+	 */
+	@Override
+	public void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+		dataReader.setRequiredColumns(requiredColumns);
+	}
+
+	/**
+	 * malformed rows skipped by the wrapped reader, or by the run which wrote
+	 * the image read
+	 */
+	@Override
+	public long getRejectedCount() {
+		return imageReader != null ? imageRejectedCount : dataReader.getRejectedCount();
+	}
+
+	/**
+	 * connection status of the image or the wrapped reader
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		return imageReader != null || dataReader.isConnectedEstablished();
+	}
+
+	/**
+	 * reads the next batch of instructions
+	 *
+	 * @return instructions- list of instructions
+	 * @throws Exception
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>(batchFileCount);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * pushes the next batch of instructions to the consumer, decoded from the
+	 * image or read from the wrapped reader. Instructions read from the
+	 * wrapped reader are written to the image before the consumer gets to
+	 * modify them
+	 *
+	 * @param consumer
+	 *            - consumer of the instructions
+	 * @return number of instructions pushed
+	 * @throws Exception
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		if (imageReader == null) {
+			int count = dataReader.read(instruction -> {
+				writeImage(instruction);
+				consumer.accept(instruction);
+			});
+			if (dataReader.isDone())
+				commitImage();
+			return count;
+		}
+
+		if (isDone)
+			return 0;
+		int count = 0;
+		while (count < batchFileCount && imageReader.hasNext()) {
+			consumer.accept(imageReader.next());
+			count++;
+		}
+		if (count == 0) {
+			LOGGER.debug("Reader reached the end of the image, no more data to read.");
+			close();
+		}
+		return count;
+	}
+
+	/**
+	 * indicates whether the image or the wrapped reader reached the end
+	 */
+	@Override
+	public boolean isDone() throws Exception {
+		if (imageReader != null)
+			return isDone;
+		return dataReader.isDone();
+	}
+
+	/**
+	 * closes the wrapped reader. An image not yet completely written is
+	 * discarded
+	 *
+	 * @throws Exception
+	 */
+	@Override
+	public void close() throws Exception {
+		LOGGER.debug("Closing the connection");
+		isDone = true;
+		discardImage();
+		dataReader.close();
+	}
+
+	private void writeImage(ClientInstructions instruction) {
+		if (imageWriter == null)
+			return;
+		try {
+			imageWriter.write(instruction);
+			if (imageWriter.size() >= InstructionImage.MAX_IMAGE_SIZE) {
+				LOGGER.warn("instructions of {} are not cached, image exceeds {} bytes", source,
+						InstructionImage.MAX_IMAGE_SIZE);
+				discardImage();
+			}
+		} catch (IOException exception) {
+			LOGGER.warn("instructions of {} are not cached", source, exception);
+			discardImage();
+		} catch (RuntimeException exception) {
+			// e.g. a date decoded on first access, left to the consumer to
+			// fail on
+			LOGGER.warn("instructions of {} are not cached, an instruction can not be decoded", source, exception);
+			discardImage();
+		}
+	}
+
+	/**
+	 * replaces the previous image with the one written, unless the source was
+	 * modified while being read
+	 */
+	private void commitImage() {
+		if (imageWriter == null)
+			return;
+		try {
+			imageWriter.commit(dataReader.getRejectedCount());
+			imageWriter = null;
+			if (Files.size(source) != fingerprint.size
+					|| Files.getLastModifiedTime(source).toMillis() != fingerprint.lastModified) {
+				LOGGER.warn("instructions of {} are not cached, source modified while reading", source);
+				discardImage();
+				return;
+			}
+			try {
+				Files.move(temporaryImage, image, StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException exception) {
+				Files.move(temporaryImage, image, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temporaryImage = null;
+			LOGGER.info("image={} written for the source with {}", image, fingerprint);
+		} catch (IOException exception) {
+			LOGGER.warn("instructions of {} are not cached", source, exception);
+			discardImage();
+		}
+	}
+
+	private void discardImage() {
+		try {
+			if (imageWriter != null)
+				imageWriter.close();
+		} catch (IOException exception) {
+			LOGGER.debug("closing the discarded image failed", exception);
+		}
+		imageWriter = null;
+		try {
+			if (temporaryImage != null)
+				Files.deleteIfExists(temporaryImage);
+		} catch (IOException exception) {
+			LOGGER.warn("discarded image {} could not be deleted", temporaryImage, exception);
+		}
+		temporaryImage = null;
+	}
+}
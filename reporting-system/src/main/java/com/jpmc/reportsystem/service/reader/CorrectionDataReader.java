@@ -0,0 +1,141 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionCorrection;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Reader of the corrections of instructions already processed, from a csv
+ * file
+ * 
+ * <p>
+ * Every line is a single correction: its type, followed by the columns of the
+ * original instruction as first sent, in the layout of the instructions file,
+ * and for an amendment the columns of the amended instruction
+ * 
+ * <pre>
+ * AMEND,foo,Buy,0.50,SGD,01/01/2016,02/01/2016,200,100.25,foo,Buy,0.50,SGD,01/01/2016,02/01/2016,300,100.25
+ * CANCEL,bar,Sell,0.22,AED,05/01/2016,07/01/2016,450,150.5
+ * </pre>
+ * 
+ * The lines are read in chunks of the configured chunk size. A malformed line
+ * fails the read, a correction is never guessed.
+ * 
+ * @author jnair1
+ *
+ */
+public class CorrectionDataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(CorrectionDataReader.class);
+
+	/**
+	 * columns of an instruction
+	 */
+	private static final int INSTRUCTION_COLUMNS = 8;
+
+	/**
+	 * number of lines read at a single time
+	 */
+	private int batchFileCount = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private BufferedReader source;
+
+	private boolean isDone = false;
+
+	private String resourceName;
+
+	/**
+	 * number of the last line read
+	 */
+	private long lineNumber;
+
+	/**
+	 * opens the file of the corrections
+	 * 
+	 * @param url
+	 *            - url to the resource where it is located
+	 * @param resourceName
+	 *            - name of the resource that needs to be connected to
+	 * @return addConnection status
+	 */
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		LOGGER.debug("adding connection with url={} and resourceName={}", url, resourceName);
+		if (url == null || url.isEmpty() || resourceName == null || resourceName.isEmpty())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
+		this.resourceName = resourceName;
+		source = Files.newBufferedReader(Paths.get(url, resourceName), Charset.forName("UTF-8"));
+		return true;
+	}
+
+	/**
+	 * reads the next chunk of corrections, closing the file once there is
+	 * nothing more to read
+	 * 
+	 * @return corrections, in the order of the file
+	 * @throws Exception
+	 */
+	public List<InstructionCorrection> read() throws Exception {
+		if (source == null)
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+		List<InstructionCorrection> corrections = new ArrayList<>(batchFileCount);
+		String line;
+		while (corrections.size() < batchFileCount && (line = source.readLine()) != null) {
+			lineNumber++;
+			if (!line.trim().isEmpty())
+				corrections.add(parseLine(line));
+		}
+		if (corrections.isEmpty())
+			close();
+		return corrections;
+	}
+
+	public boolean isDone() {
+		return isDone;
+	}
+
+	public void close() throws IOException {
+		LOGGER.debug("Closing the connection");
+		isDone = true;
+		if (source != null)
+			source.close();
+	}
+
+	private InstructionCorrection parseLine(String line) throws ReportingSystemException {
+		String[] columns = line.split(",");
+		try {
+			InstructionCorrection.Type type = InstructionCorrection.Type.valueOf(columns[0].trim().toUpperCase());
+			int expectedColumns = 1 + (type == InstructionCorrection.Type.AMEND ? 2 : 1) * INSTRUCTION_COLUMNS;
+			if (columns.length != expectedColumns)
+				throw new IllegalArgumentException("columns=" + columns.length + ", expected=" + expectedColumns);
+			ClientInstructions original = CSVDataReader.populateClientInstructions(columns, 1);
+			if (type == InstructionCorrection.Type.CANCEL)
+				return InstructionCorrection.cancel(original);
+			return InstructionCorrection.amend(original,
+					CSVDataReader.populateClientInstructions(columns, 1 + INSTRUCTION_COLUMNS));
+		} catch (RuntimeException exception) {
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_CORRECTION_INVALID)
+							+ " resourceName=" + resourceName + ", lineNumber=" + lineNumber + ", cause="
+							+ exception);
+		}
+	}
+}
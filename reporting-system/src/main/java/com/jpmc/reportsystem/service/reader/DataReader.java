@@ -1,8 +1,14 @@
 package com.jpmc.reportsystem.service.reader;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
 
 /**
  * interface exposed for DataReader services
@@ -19,6 +25,30 @@ public interface DataReader {
 	 */
 	public List<ClientInstructions> read() throws Exception;
 	
+	/**
+	 * to read the next batch of data, pushing every instruction to the
+	 * consumer as soon as it is read instead of collecting them into a list.
+	 * Readers that can stream override this, the default is an adapter over
+	 * {@link #read()}
+	 * @param consumer
+	 * @return number of instructions pushed, 0 once there is nothing more to read
+	 * @throws Exception
+	 */
+	public default int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		List<ClientInstructions> instructions = read();
+		instructions.forEach(consumer);
+		return instructions.size();
+	}
+	
+	/**
+	 * to declare the columns needed by the consumers of the instructions, to
+	 * be called before reading. Readers may skip decoding the other columns
+	 * and decode them only once accessed. The default reads all the columns
+	 * @param requiredColumns
+	 */
+	public default void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+	}
+	
 	/**
 	 * method to indicate whether the reader is done with the processing or not
 	 * @return
@@ -47,5 +77,63 @@ public interface DataReader {
 	 * @throws Exception
 	 */
 	public boolean isConnectedEstablished() throws Exception;
+	
+	/**
+	 * number of malformed rows skipped by a reader running in tolerant mode,
+	 * always 0 for readers failing on the first malformed row
+	 * @return
+	 */
+	public default long getRejectedCount() {
+		return 0;
+	}
+	
+	/**
+	 * byte offset of the source just after the last instruction read, for a
+	 * run to be resumed from. <tt>-1</tt> in case the reader can not resume
+	 * @return
+	 */
+	public default long getPosition() {
+		return -1;
+	}
+	
+	/**
+	 * continues reading from the byte offset returned by {@link #getPosition()},
+	 * to be called once the connection is added and before reading
+	 * @param position
+	 * @throws Exception
+	 */
+	public default void resume(long position) throws Exception {
+		throw new ReportingSystemException(
+				ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_NOT_RESUMABLE));
+	}
+	
+	/**
+	 * number of the last line read, the rejected rows are numbered by.
+	 * <tt>-1</tt> in case the reader does not number its lines
+	 * @return
+	 */
+	public default long getLineNumber() {
+		return -1;
+	}
+	
+	/**
+	 * continues reading from the byte offset returned by {@link #getPosition()},
+	 * numbering the lines on from the line number and counting the rejected
+	 * rows on from the rejected count returned along with it. The default
+	 * only resumes from the position
+	 * @param position
+	 * @param lineNumber
+	 * @param rejectedCount
+	 * @throws Exception
+	 */
+	public default void resume(long position, long lineNumber, long rejectedCount) throws Exception {
+		resume(position);
+	}
+	
+	/**
+	 * writes out the malformed rows rejected so far, e.g. before a checkpoint
+	 */
+	public default void flushRejected() {
+	}
 
 }
@@ -0,0 +1,111 @@
+package com.jpmc.reportsystem.service.reader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Factory responsible for loading the appropriate {@code DataReader}
+ * implementation based on the configured reader type
+ *
+ * @author jnair1
+ *
+ */
+public class DataReaderFactory {
+
+	/**
+	 * Logger
+	 */
+	private static Logger LOGGER = LoggerFactory.getLogger(DataReaderFactory.class);
+
+	private DataReaderFactory() {
+	}
+
+	/**
+	 * creates the reader configured within the properties file, one of
+	 * <tt>csv</tt>, <tt>mapped</tt>, <tt>parallel</tt> and
+	 * <tt>fixedwidth</tt>. Several sorted resources
+	 * are read by a reader each, merged by a {@code MergingDataReader}, in
+	 * case merging is enabled. The reader is wrapped into a
+	 * {@code SortingDataReader} in case sorting is enabled, into a
+	 * {@code CachingDataReader} in case caching is enabled, and into a
+	 * {@code PrefetchingDataReader} in case a read ahead is configured. In
+	 * tolerant mode the csv and mapped readers write the malformed rows to a
+	 * {@code DeadLetterDataWriter}, a single one shared by all the sources
+	 * merged, which hence share the error limit
+	 *
+	 * @return dataReader
+	 * @throws ReportingSystemException
+	 *             in case the reader type is unknown, or the fixed width
+	 *             layout is not valid, raised by the connection of the
+	 *             sources when merging
+	 */
+	public static DataReader getDataReader() throws ReportingSystemException {
+		String readerType = ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_TYPE);
+		int prefetchBatches = Integer
+				.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_PREFETCH_BATCHES));
+		boolean cacheEnabled = Boolean
+				.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_CACHE_ENABLED));
+		LOGGER.debug("creating data reader of type={} with prefetchBatches={} and cacheEnabled={}", readerType,
+				prefetchBatches, cacheEnabled);
+
+		DeadLetterDataWriter deadLetterWriter = createDeadLetterWriter();
+		DataReader dataReader = Boolean
+				.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_MERGE))
+						? new MergingDataReader(() -> createDataReader(readerType, deadLetterWriter))
+						: createDataReader(readerType, deadLetterWriter);
+		if (Boolean.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_SORT)))
+			dataReader = new SortingDataReader(dataReader);
+		if (cacheEnabled)
+			dataReader = new CachingDataReader(dataReader);
+		if (prefetchBatches > 0)
+			return new PrefetchingDataReader(dataReader, prefetchBatches);
+		return dataReader;
+	}
+
+	/**
+	 * reader of a single source, writing its malformed rows to the dead letter
+	 * writer, if any
+	 * 
+	 * @throws ReportingSystemException
+	 *             in case the reader type is unknown or the fixed width
+	 *             layout is not valid
+	 */
+	static DataReader createDataReader(String readerType, DeadLetterDataWriter deadLetterWriter)
+			throws ReportingSystemException {
+		if (ReportingSystemConstants.READER_TYPE_FIXEDWIDTH.equalsIgnoreCase(readerType))
+			return new FixedWidthDataReader();
+		if (ReportingSystemConstants.READER_TYPE_MAPPED.equalsIgnoreCase(readerType)) {
+			MappedCSVDataReader dataReader = new MappedCSVDataReader();
+			dataReader.setDeadLetterWriter(deadLetterWriter);
+			return dataReader;
+		}
+		if (ReportingSystemConstants.READER_TYPE_PARALLEL.equalsIgnoreCase(readerType))
+			return new ParallelCSVDataReader();
+		if (ReportingSystemConstants.READER_TYPE_CSV.equalsIgnoreCase(readerType)) {
+			CSVDataReader dataReader = new CSVDataReader();
+			dataReader.setDeadLetterWriter(deadLetterWriter);
+			return dataReader;
+		}
+		throw new ReportingSystemException(
+				ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_TYPE)
+						+ " readerType=" + readerType);
+	}
+
+	/**
+	 * writer of the malformed rows, <tt>null</tt> unless tolerant mode is
+	 * enabled within the properties file
+	 */
+	private static DeadLetterDataWriter createDeadLetterWriter() {
+		if (!Boolean.parseBoolean(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_TOLERANT)))
+			return null;
+		DeadLetterDataWriter deadLetterWriter = new DeadLetterDataWriter();
+		LOGGER.info("tolerant mode, malformed rows are written to file={} up to maxRejected={}",
+				deadLetterWriter.getFile(), deadLetterWriter.getMaxRejected());
+		return deadLetterWriter;
+	}
+}
@@ -0,0 +1,568 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Reads client instructions from a file of fixed width records
+ *
+ * <p>
+ * As every record has the same length, the offset of any record is known
+ * upfront. The file is memory mapped and the columns are decoded straight
+ * from the bytes at the offsets of the {@code FixedWidthLayout}, using the
+ * decoders of {@code InstructionByteParser}, hence the instructions are the
+ * same as the ones read from the equivalent csv file.
+ *
+ * <p>
+ * The reader can be positioned on any record with {@link #seek(long)}, e.g.
+ * to resume a run from the index returned by {@link #getNextRecord()}, and
+ * any range of records can be decoded with
+ * {@link #readRange(long, long, Consumer)}, which is safe to be called from
+ * multiple threads. With more than one thread configured the records are
+ * decoded in ranges on a pool of workers, and handed out in the order of the
+ * file.
+ *
+ * @author jnair1
+ *
+ */
+public class FixedWidthDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(FixedWidthDataReader.class);
+
+	/**
+	 * largest number of bytes mapped at a time
+	 */
+	private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * parsers are not thread safe, hence one per thread
+	 */
+	private static final ThreadLocal<InstructionByteParser> PARSER = ThreadLocal
+			.withInitial(InstructionByteParser::new);
+
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	/**
+	 * reader flag to indicate whether the reader is done with the reading
+	 * operation or not
+	 */
+	private boolean isDone = false;
+
+	/**
+	 * number of lines that needs to be handed out at a single time
+	 */
+	private int batchFileCount = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private final FixedWidthLayout layout;
+
+	private final int threadCount;
+
+	/**
+	 * number of records decoded by a worker at a time
+	 */
+	private final int rangeRecords;
+
+	/**
+	 * number of records mapped at a time
+	 */
+	private final int windowRecords;
+
+	private volatile boolean decodeInstructionDate = true;
+	private volatile boolean decodeSettlementDate = true;
+
+	private FileChannel source;
+
+	private long fileSize;
+
+	private long recordCount;
+
+	/**
+	 * index of the next record handed out
+	 */
+	private long nextRecord;
+
+	/**
+	 * window of the sequential read and the index of its first record
+	 */
+	private MappedByteBuffer window;
+	private long windowFirstRecord;
+
+	private ExecutorService workers;
+
+	/**
+	 * index of the first record of the next range submitted to the workers
+	 */
+	private long nextRange;
+
+	/**
+	 * ranges submitted to the workers, in the order of the file
+	 */
+	private final Deque<Future<List<ClientInstructions>>> pendingRanges = new ArrayDeque<>();
+
+	/**
+	 * range currently handed out and the position within it
+	 */
+	private List<ClientInstructions> currentRange = Collections.emptyList();
+	private int currentIndex;
+
+	/**
+	 * creates the reader with the layout configured in the properties file
+	 *
+	 * @throws ReportingSystemException
+	 *             in case the configured layout is invalid
+	 */
+	public FixedWidthDataReader() throws ReportingSystemException {
+		this(FixedWidthLayout.fromProperties(),
+				Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FIXEDWIDTH_THREADS)),
+				Long.parseLong(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_PARALLEL_SEGMENT_SIZE)));
+	}
+
+	/**
+	 * @param layout
+	 *            - layout of the records
+	 * @param threadCount
+	 *            - number of workers decoding the records, 1 decodes them on
+	 *            the calling thread and 0 uses all the available cores
+	 * @param rangeSize
+	 *            - approximate number of bytes decoded by a worker at a time
+	 */
+	public FixedWidthDataReader(FixedWidthLayout layout, int threadCount, long rangeSize) {
+		this.layout = layout;
+		this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+		this.rangeRecords = (int) Math.max(1, Math.min(rangeSize, MAP_WINDOW_SIZE) / layout.getRecordLength());
+		this.windowRecords = Math.max(1, MAP_WINDOW_SIZE / layout.getRecordLength());
+	}
+
+	/**
+	 * method to add a new connection with the url and the resource name. This
+	 * would throw exception in case of invalid input. A trailing record
+	 * shorter than the columns of the layout is ignored
+	 *
+	 * @param url
+	 *            - url to the resource where it is located
+	 * @param resourceName
+	 *            - name of the resource that needs to be connected to
+	 * @return addConnection status
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		LOGGER.debug("adding connection with url={} and resourceName={}", url, resourceName);
+
+		if (url == null || url.isEmpty() || resourceName == null || resourceName.isEmpty())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
+
+		Path path = Paths.get(url, resourceName);
+		source = FileChannel.open(path, StandardOpenOption.READ);
+		fileSize = source.size();
+		int recordLength = layout.getRecordLength();
+		recordCount = fileSize / recordLength;
+		long remainder = fileSize % recordLength;
+		if (remainder >= layout.getDataLength())
+			recordCount++;
+		else if (remainder > 0)
+			LOGGER.warn("ignoring {} trailing bytes of {}, shorter than a record of layout {}", remainder, path,
+					layout);
+
+		LOGGER.debug("connection successfully added with url={} and resourceName={}, records={} and threads={}", url,
+				resourceName, recordCount, threadCount);
+		return true;
+	}
+
+	/**
+	 * this is to check the status of the connection that was established.
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		if (null == source)
+			return false;
+		return true;
+	}
+
+	/**
+	 * decodes the next batch of records into List of
+	 * {@code ClientInstructions}
+	 *
+	 * @return instructions- list of parsed instructions
+	 * @throws Exception
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>(batchFileCount);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * decodes the next batch of records, pushing every
+	 * {@code ClientInstructions} to the consumer in the order of the file
+	 *
+	 * @param consumer
+	 *            - consumer of the parsed instructions
+	 * @return number of instructions read
+	 * @throws Exception
+	 *             the exception thrown while decoding, also by a worker
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		LOGGER.debug("reading in progress, is connectionAvailable={}", isConnectedEstablished());
+
+		// data processing should not happen if the connection is not valid
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+
+		int count = threadCount > 1 ? readDecodedRange(consumer) : readWindow(consumer);
+		nextRecord += count;
+
+		// manually checking and populating the done flag and closing the
+		// resource once there is nothing more to read
+		if (count == 0) {
+			LOGGER.debug("Reader reached the end of file, no more data to read.");
+			close();
+		}
+		return count;
+	}
+
+	/**
+	 * decodes the records of the range, independent of the position of the
+	 * reader. Safe to be called from multiple threads, also while the reader
+	 * is reading
+	 *
+	 * @param fromRecord
+	 *            - index of the first record, inclusive
+	 * @param toRecord
+	 *            - index of the last record, exclusive
+	 * @param consumer
+	 *            - consumer of the parsed instructions
+	 * @throws Exception
+	 */
+	public void readRange(long fromRecord, long toRecord, Consumer<? super ClientInstructions> consumer)
+			throws Exception {
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+		if (fromRecord < 0 || toRecord > recordCount || fromRecord > toRecord)
+			throw new IndexOutOfBoundsException(
+					"records " + fromRecord + " to " + toRecord + " out of " + recordCount);
+
+		while (fromRecord < toRecord) {
+			long end = Math.min(toRecord, fromRecord + windowRecords);
+			decodeRecords(map(fromRecord, end), fromRecord, fromRecord, end, consumer);
+			fromRecord = end;
+		}
+	}
+
+	/**
+	 * positions the reader on the record, the next read starts with it
+	 *
+	 * @param recordIndex
+	 *            - index of the record, from 0 up to the number of records
+	 * @throws Exception
+	 */
+	public void seek(long recordIndex) throws Exception {
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+		if (recordIndex < 0 || recordIndex > recordCount)
+			throw new IndexOutOfBoundsException("record " + recordIndex + " out of " + recordCount);
+
+		LOGGER.debug("seeking from record={} to record={}", nextRecord, recordIndex);
+		for (Future<List<ClientInstructions>> range : pendingRanges)
+			range.cancel(true);
+		pendingRanges.clear();
+		currentRange = Collections.emptyList();
+		currentIndex = 0;
+		nextRecord = recordIndex;
+		nextRange = recordIndex;
+	}
+
+	/**
+	 * index of the next record handed out, i.e. the number of records read so
+	 * far when reading from the start
+	 */
+	public long getNextRecord() {
+		return nextRecord;
+	}
+
+	/**
+	 * byte offset of the next record handed out
+	 */
+	@Override
+	public long getPosition() {
+		return nextRecord * layout.getRecordLength();
+	}
+
+	/**
+	 * continues reading from the byte offset returned by
+	 * {@link #getPosition()}, which has to be the start of a record
+	 *
+	 * @param position
+	 * @throws Exception
+	 */
+	@Override
+	public void resume(long position) throws Exception {
+		if (position % layout.getRecordLength() != 0)
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_NOT_RESUMABLE)
+							+ " position=" + position);
+		seek(position / layout.getRecordLength());
+	}
+
+	/**
+	 * number of records of the file
+	 */
+	public long getRecordCount() {
+		return recordCount;
+	}
+
+	/**
+	 * dates of the columns not required are only decoded once accessed
+	 */
+	@Override
+	public void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+		LOGGER.debug("required columns={}", requiredColumns);
+		decodeInstructionDate = requiredColumns.contains(InstructionColumn.INSTRUCTION_DATE);
+		decodeSettlementDate = requiredColumns.contains(InstructionColumn.SETTLEMENT_DATE);
+	}
+
+	/**
+	 * indicates whether the reader has reached the end of processing or not
+	 */
+	@Override
+	public boolean isDone() {
+		return isDone;
+	}
+
+	/**
+	 * stops the workers and closes the file. Reader is closing it own its own,
+	 * once there is nothing more to be read
+	 *
+	 * @throws Exception
+	 */
+	@Override
+	public void close() throws Exception {
+		LOGGER.debug("Closing the connection");
+		setDone(Boolean.TRUE);
+		if (workers != null)
+			workers.shutdownNow();
+		pendingRanges.clear();
+		currentRange = Collections.emptyList();
+		window = null;
+		if (isConnectedEstablished())
+			source.close();
+	}
+
+	public void setDone(boolean isDone) {
+		this.isDone = isDone;
+	}
+
+	/**
+	 * decodes the next batch on the calling thread, out of the mapped window
+	 */
+	private int readWindow(Consumer<? super ClientInstructions> consumer) throws Exception {
+		long end = Math.min(nextRecord + batchFileCount, recordCount);
+		if (nextRecord >= end)
+			return 0;
+		if (window == null || !containsRecords(nextRecord, end)) {
+			windowFirstRecord = nextRecord;
+			window = map(windowFirstRecord, Math.min(recordCount, windowFirstRecord + windowRecords));
+		}
+		decodeRecords(window, windowFirstRecord, nextRecord, end, consumer);
+		return (int) (end - nextRecord);
+	}
+
+	/**
+	 * whether the window holds all the bytes of the records
+	 */
+	private boolean containsRecords(long fromRecord, long toRecord) {
+		long windowEnd = windowFirstRecord * layout.getRecordLength() + window.limit();
+		return fromRecord >= windowFirstRecord && recordEnd(toRecord) <= windowEnd;
+	}
+
+	/**
+	 * hands out the next batch of the ranges decoded by the workers
+	 */
+	private int readDecodedRange(Consumer<? super ClientInstructions> consumer) throws Exception {
+		if (workers == null)
+			startWorkers();
+		while (currentIndex >= currentRange.size()) {
+			submitNextRange();
+			Future<List<ClientInstructions>> range = pendingRanges.poll();
+			if (range == null)
+				return 0;
+			currentRange = awaitRange(range);
+			currentIndex = 0;
+		}
+
+		int end = Math.min(currentIndex + batchFileCount, currentRange.size());
+		int count = end - currentIndex;
+		for (; currentIndex < end; currentIndex++)
+			consumer.accept(currentRange.get(currentIndex));
+		return count;
+	}
+
+	private void startWorkers() {
+		int poolNumber = POOL_COUNT.incrementAndGet();
+		AtomicInteger threadNumber = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable,
+					"fixedwidth-reader-" + poolNumber + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * keeps two ranges per worker in flight
+	 */
+	private void submitNextRange() {
+		while (pendingRanges.size() < 2 * threadCount && nextRange < recordCount) {
+			final long start = nextRange;
+			final long end = Math.min(recordCount, start + rangeRecords);
+			nextRange = end;
+			pendingRanges.add(workers.submit(() -> {
+				List<ClientInstructions> instructions = new ArrayList<>((int) (end - start));
+				readRange(start, end, instructions::add);
+				return instructions;
+			}));
+		}
+	}
+
+	private static List<ClientInstructions> awaitRange(Future<List<ClientInstructions>> range) throws Exception {
+		try {
+			return range.get();
+		} catch (ExecutionException exception) {
+			if (exception.getCause() instanceof Exception)
+				throw (Exception) exception.getCause();
+			throw exception;
+		}
+	}
+
+	/**
+	 * maps the bytes of the records, the last record of the file may be
+	 * shorter than the record length
+	 */
+	private MappedByteBuffer map(long fromRecord, long toRecord) throws Exception {
+		long start = fromRecord * layout.getRecordLength();
+		return source.map(MapMode.READ_ONLY, start, recordEnd(toRecord) - start);
+	}
+
+	private long recordEnd(long toRecord) {
+		return Math.min(fileSize, toRecord * layout.getRecordLength());
+	}
+
+	/**
+	 * decodes the records out of the buffer holding the records from the
+	 * given first record onwards
+	 */
+	private void decodeRecords(ByteBuffer buffer, long bufferFirstRecord, long fromRecord, long toRecord,
+			Consumer<? super ClientInstructions> consumer) {
+		InstructionByteParser parser = PARSER.get();
+		int recordLength = layout.getRecordLength();
+		for (long record = fromRecord; record < toRecord; record++)
+			consumer.accept(decodeRecord(parser, buffer, (int) ((record - bufferFirstRecord) * recordLength)));
+	}
+
+	private ClientInstructions decodeRecord(InstructionByteParser parser, ByteBuffer buffer, int recordStart) {
+		ClientInstructions instruction = new ClientInstructions(
+				parser.decodeEntity(buffer, start(buffer, recordStart, InstructionColumn.ENTITY),
+						end(buffer, recordStart, InstructionColumn.ENTITY)),
+				parser.decodeIndicator(buffer, start(buffer, recordStart, InstructionColumn.INDICATOR),
+						end(buffer, recordStart, InstructionColumn.INDICATOR)),
+				parser.decodeDecimal(buffer, start(buffer, recordStart, InstructionColumn.AGREED_FX),
+						end(buffer, recordStart, InstructionColumn.AGREED_FX)),
+				parser.decodeDecimal(buffer, start(buffer, recordStart, InstructionColumn.UNIT_PRICE),
+						end(buffer, recordStart, InstructionColumn.UNIT_PRICE)),
+				BigInteger.valueOf(parser.decodeInt(buffer, start(buffer, recordStart, InstructionColumn.UNITS),
+						end(buffer, recordStart, InstructionColumn.UNITS))),
+				parser.decodeCurrency(buffer, start(buffer, recordStart, InstructionColumn.CURRENCY),
+						end(buffer, recordStart, InstructionColumn.CURRENCY)),
+				decodeInstructionDate ? decodeDate(parser, buffer, recordStart, InstructionColumn.INSTRUCTION_DATE)
+						: null,
+				decodeSettlementDate ? decodeDate(parser, buffer, recordStart, InstructionColumn.SETTLEMENT_DATE)
+						: null);
+
+		// columns not required are only decoded once accessed, out of a copy
+		// of their bytes as the mapped buffer is released meanwhile
+		if (!decodeInstructionDate) {
+			ByteBuffer instructionDate = copy(buffer, recordStart, InstructionColumn.INSTRUCTION_DATE);
+			instruction.setInstructionDate(
+					() -> PARSER.get().decodeDate(instructionDate, 0, instructionDate.capacity()));
+		}
+		if (!decodeSettlementDate) {
+			ByteBuffer settlementDate = copy(buffer, recordStart, InstructionColumn.SETTLEMENT_DATE);
+			instruction.setSettlementDate(() -> PARSER.get().decodeDate(settlementDate, 0, settlementDate.capacity()));
+		}
+		return instruction;
+	}
+
+	private LocalDate decodeDate(InstructionByteParser parser, ByteBuffer buffer, int recordStart,
+			InstructionColumn column) {
+		return parser.decodeDate(buffer, start(buffer, recordStart, column), end(buffer, recordStart, column));
+	}
+
+	private ByteBuffer copy(ByteBuffer buffer, int recordStart, InstructionColumn column) {
+		int start = start(buffer, recordStart, column);
+		int end = end(buffer, recordStart, column);
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++)
+			bytes[i - start] = buffer.get(i);
+		return ByteBuffer.wrap(bytes);
+	}
+
+	/**
+	 * start of the column within the buffer, after the padding
+	 */
+	private int start(ByteBuffer buffer, int recordStart, InstructionColumn column) {
+		int start = recordStart + layout.getOffset(column);
+		int end = start + layout.getWidth(column);
+		while (start < end && buffer.get(start) == ' ')
+			start++;
+		return start;
+	}
+
+	/**
+	 * end of the column within the buffer, before the padding
+	 */
+	private int end(ByteBuffer buffer, int recordStart, InstructionColumn column) {
+		int start = recordStart + layout.getOffset(column);
+		int end = start + layout.getWidth(column);
+		while (end > start && buffer.get(end - 1) == ' ')
+			end--;
+		return end;
+	}
+}
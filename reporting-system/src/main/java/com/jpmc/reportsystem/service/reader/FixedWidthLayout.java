@@ -0,0 +1,127 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.util.Arrays;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Layout of a fixed width client instruction record
+ *
+ * <p>
+ * Every record has the same length, and every column sits at a fixed offset
+ * and width within the record. The text of a column may be padded with
+ * spaces on either side. Bytes of the record not covered by a column, e.g.
+ * a line terminator or a filler, are ignored.
+ *
+ * <p>
+ * A layout is written as a comma separated list of
+ * <tt>column:offset:width</tt>, e.g.
+ * <tt>ENTITY:0:20,INDICATOR:20:4,...</tt>, and has to define all the
+ * columns.
+ *
+ * @author jnair1
+ *
+ */
+public final class FixedWidthLayout {
+
+	private final int recordLength;
+
+	private final int[] offsets = new int[InstructionColumn.values().length];
+
+	private final int[] widths = new int[InstructionColumn.values().length];
+
+	/**
+	 * @param layout
+	 *            - comma separated list of <tt>column:offset:width</tt>
+	 * @param recordLength
+	 *            - number of bytes of a record, including the line terminator
+	 *            if any
+	 * @throws ReportingSystemException
+	 *             in case the layout is incomplete or a column does not fit
+	 *             into the record
+	 */
+	public FixedWidthLayout(String layout, int recordLength) throws ReportingSystemException {
+		this.recordLength = recordLength;
+		Arrays.fill(widths, -1);
+		if (layout == null)
+			throw new ReportingSystemException("fixed width layout is missing");
+
+		for (String field : layout.split(",")) {
+			String[] parts = field.trim().split(":");
+			if (parts.length != 3)
+				throw new ReportingSystemException("invalid fixed width column " + field);
+			int index;
+			try {
+				index = InstructionColumn.valueOf(parts[0].trim()).getIndex();
+				offsets[index] = Integer.parseInt(parts[1].trim());
+				widths[index] = Integer.parseInt(parts[2].trim());
+			} catch (IllegalArgumentException exception) {
+				throw new ReportingSystemException("invalid fixed width column " + field);
+			}
+			if (offsets[index] < 0 || widths[index] <= 0 || offsets[index] + widths[index] > recordLength)
+				throw new ReportingSystemException("fixed width column " + field + " does not fit into a record of "
+						+ recordLength + " bytes");
+		}
+		for (InstructionColumn column : InstructionColumn.values()) {
+			if (widths[column.getIndex()] < 0)
+				throw new ReportingSystemException("fixed width layout is missing the column " + column);
+		}
+	}
+
+	/**
+	 * creates the layout configured in the properties file
+	 *
+	 * @throws ReportingSystemException
+	 */
+	public static FixedWidthLayout fromProperties() throws ReportingSystemException {
+		return new FixedWidthLayout(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FIXEDWIDTH_LAYOUT),
+				Integer.parseInt(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_FIXEDWIDTH_RECORD_LENGTH)));
+	}
+
+	/**
+	 * number of bytes of a record
+	 */
+	public int getRecordLength() {
+		return recordLength;
+	}
+
+	/**
+	 * offset of the column within the record
+	 */
+	public int getOffset(InstructionColumn column) {
+		return offsets[column.getIndex()];
+	}
+
+	/**
+	 * number of bytes of the column
+	 */
+	public int getWidth(InstructionColumn column) {
+		return widths[column.getIndex()];
+	}
+
+	/**
+	 * number of bytes a record needs at least, i.e. up to the end of the last
+	 * column. The last record of a file may lack the bytes after it
+	 */
+	int getDataLength() {
+		int dataLength = 0;
+		for (int i = 0; i < offsets.length; i++)
+			dataLength = Math.max(dataLength, offsets[i] + widths[i]);
+		return dataLength;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder layout = new StringBuilder();
+		for (InstructionColumn column : InstructionColumn.values()) {
+			if (layout.length() > 0)
+				layout.append(',');
+			layout.append(column).append(':').append(getOffset(column)).append(':').append(getWidth(column));
+		}
+		return layout.append(" (").append(recordLength).append(" bytes)").toString();
+	}
+}
@@ -0,0 +1,393 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.util.Currency;
+import java.util.List;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.Indicator;
+
+/**
+ * Parses comma separated client instructions directly from the raw bytes of a
+ * {@code ByteBuffer}.
+ *
+ * <p>
+ * Unlike the {@code String.split} based parsing of {@code CSVDataReader}, no
+ * intermediate String or array is created for the fields of a row. Dates,
+ * decimals and integers are decoded from the bytes in place, the currency is
+ * looked up from a pre-sized table indexed by its three letter code and the
+ * entity names are cached so that a repeated entity does not allocate a new
+ * String.
+ *
+ * <p>
+ * The produced {@code ClientInstructions} are identical to the ones produced
+ * by {@code CSVDataReader}. Any field that cannot be decoded by the fast path
+ * (exponents, padded values, invalid input) falls back to the same JDK
+ * conversion the String parser uses, so the error behaviour is the same as
+ * well.
+ *
+ * <p>
+ * Only absolute reads are performed on the buffer, hence a single buffer can
+ * be shared by multiple parsers. A parser itself is not thread safe.
+ *
+ * @author jnair1
+ *
+ */
+public class InstructionByteParser {
+
+	/**
+	 * number of columns in a client instruction row
+	 */
+	public static final int COLUMN_COUNT = 8;
+
+	/**
+	 * formatter used only when the date cannot be decoded by the fast path
+	 */
+	private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+	/**
+	 * decimals with more significant digits than this can not be guaranteed to
+	 * match the double based conversion of the String parser
+	 */
+	private static final int MAX_SIGNIFICANT_DIGITS = 15;
+
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++)
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+	}
+
+	/**
+	 * size of the entity cache, needs to be a power of two
+	 */
+	private static final int ENTITY_CACHE_SIZE = 4096;
+
+	/**
+	 * currencies indexed by their three upper case letters
+	 */
+	private final Currency[] currencies = new Currency[26 * 26 * 26];
+
+	/**
+	 * cached entity names along with their encoded bytes
+	 */
+	private final String[] entityNames = new String[ENTITY_CACHE_SIZE];
+	private final byte[][] entityBytes = new byte[ENTITY_CACHE_SIZE][];
+
+	/**
+	 * offsets of the columns of the row currently being parsed
+	 */
+	private final int[] columnStart = new int[COLUMN_COUNT];
+	private final int[] columnEnd = new int[COLUMN_COUNT];
+
+	/**
+	 * parses a single row, excluding the line terminator, into a
+	 * {@code ClientInstructions}
+	 *
+	 * @param buffer
+	 *            - buffer holding the row
+	 * @param start
+	 *            - absolute index of the first byte of the row
+	 * @param end
+	 *            - absolute index after the last byte of the row
+	 * @return instruction - parsed instruction
+	 */
+	public ClientInstructions parse(ByteBuffer buffer, int start, int end) {
+
+		splitColumns(buffer, start, end);
+
+		return new ClientInstructions(
+				// entity
+				decodeEntity(buffer, columnStart[0], columnEnd[0]),
+				// indicator
+				decodeIndicator(buffer, columnStart[1], columnEnd[1]),
+				// agreedFx
+				decodeDecimal(buffer, columnStart[2], columnEnd[2]),
+				// unitPrice
+				decodeDecimal(buffer, columnStart[7], columnEnd[7]),
+				// units
+				BigInteger.valueOf(decodeInt(buffer, columnStart[6], columnEnd[6])),
+				// currency
+				decodeCurrency(buffer, columnStart[3], columnEnd[3]),
+				// instructionDate
+				decodeDate(buffer, columnStart[4], columnEnd[4]),
+				// settlementDate
+				decodeDate(buffer, columnStart[5], columnEnd[5]));
+	}
+
+	/**
+	 * parses all the rows of the given range. The range has to start at the
+	 * beginning of a row and end either after a line terminator or at the end
+	 * of the input. Both \n and \r terminate a row and blank rows are skipped,
+	 * which covers \r\n as well
+	 *
+	 * @param buffer
+	 *            - buffer holding the rows
+	 * @param start
+	 *            - absolute index of the first byte of the range
+	 * @param end
+	 *            - absolute index after the last byte of the range
+	 * @param instructions
+	 *            - list the parsed instructions are added to
+	 */
+	public void parseRows(ByteBuffer buffer, int start, int end, List<ClientInstructions> instructions) {
+		int rowStart = start;
+		for (int i = start; i < end; i++) {
+			byte current = buffer.get(i);
+			if (current == '\n' || current == '\r') {
+				if (i > rowStart)
+					instructions.add(parse(buffer, rowStart, i));
+				rowStart = i + 1;
+			}
+		}
+		if (end > rowStart)
+			instructions.add(parse(buffer, rowStart, end));
+	}
+
+	/**
+	 * finds the offsets of all the columns of the row. Columns after the
+	 * expected ones are ignored, the same way the String parser does
+	 */
+	private void splitColumns(ByteBuffer buffer, int start, int end) {
+		int column = 0;
+		columnStart[0] = start;
+		for (int i = start; i < end && column < COLUMN_COUNT; i++) {
+			if (buffer.get(i) == ',') {
+				columnEnd[column++] = i;
+				if (column < COLUMN_COUNT)
+					columnStart[column] = i + 1;
+			}
+		}
+		if (column < COLUMN_COUNT)
+			columnEnd[column++] = end;
+		if (column < COLUMN_COUNT)
+			throw new IllegalArgumentException(
+					"Expected " + COLUMN_COUNT + " columns but found " + column + " in row: " + asString(buffer, start, end));
+	}
+
+	/**
+	 * decodes the entity, reusing the cached name in case the same entity was
+	 * seen before
+	 */
+	String decodeEntity(ByteBuffer buffer, int start, int end) {
+		int hash = 1;
+		for (int i = start; i < end; i++)
+			hash = 31 * hash + buffer.get(i);
+		int slot = (hash ^ (hash >>> 16)) & (ENTITY_CACHE_SIZE - 1);
+
+		byte[] cached = entityBytes[slot];
+		if (cached != null && matches(buffer, start, end, cached))
+			return entityNames[slot];
+
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++)
+			bytes[i - start] = buffer.get(i);
+		String entity = new String(bytes, StandardCharsets.UTF_8);
+		entityBytes[slot] = bytes;
+		entityNames[slot] = entity;
+		return entity;
+	}
+
+	/**
+	 * decodes the indicator ignoring the case, same as
+	 * {@code Indicator.valueOf(value.toUpperCase())}
+	 */
+	Indicator decodeIndicator(ByteBuffer buffer, int start, int end) {
+		if (equalsIgnoreCase(buffer, start, end, "BUY"))
+			return Indicator.BUY;
+		if (equalsIgnoreCase(buffer, start, end, "SELL"))
+			return Indicator.SELL;
+		return Indicator.valueOf(asString(buffer, start, end).toUpperCase());
+	}
+
+	/**
+	 * decodes the currency through the three letter lookup table
+	 */
+	Currency decodeCurrency(ByteBuffer buffer, int start, int end) {
+		if (end - start == 3) {
+			int first = buffer.get(start) - 'A';
+			int second = buffer.get(start + 1) - 'A';
+			int third = buffer.get(start + 2) - 'A';
+			if (first >= 0 && first < 26 && second >= 0 && second < 26 && third >= 0 && third < 26) {
+				int index = (first * 26 + second) * 26 + third;
+				Currency currency = currencies[index];
+				if (currency == null) {
+					currency = Currency.getInstance(asString(buffer, start, end));
+					currencies[index] = currency;
+				}
+				return currency;
+			}
+		}
+		return Currency.getInstance(asString(buffer, start, end));
+	}
+
+	/**
+	 * decodes a date of format dd/MM/yyyy. Day of month beyond the end of the
+	 * month is adjusted to the last day, same as the smart resolution of the
+	 * {@code DateTimeFormatter}
+	 */
+	LocalDate decodeDate(ByteBuffer buffer, int start, int end) {
+		if (end - start == 10 && buffer.get(start + 2) == '/' && buffer.get(start + 5) == '/') {
+			int day = digits(buffer, start, start + 2);
+			int month = digits(buffer, start + 3, start + 5);
+			int year = digits(buffer, start + 6, start + 10);
+			if (day >= 1 && day <= 31 && month >= 1 && month <= 12 && year >= 1) {
+				if (day > 28) {
+					day = Math.min(day, Month.of(month).length(Year.isLeap(year)));
+				}
+				return LocalDate.of(year, month, day);
+			}
+		}
+		return LocalDate.parse(asString(buffer, start, end), DATE_FORMATTER);
+	}
+
+	/**
+	 * decodes an integer, same as {@code Integer.valueOf}
+	 */
+	int decodeInt(ByteBuffer buffer, int start, int end) {
+		int index = start;
+		boolean negative = false;
+		if (index < end && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+			negative = buffer.get(index) == '-';
+			index++;
+		}
+		if (index == end)
+			return Integer.valueOf(asString(buffer, start, end));
+
+		// accumulate negatively to cover Integer.MIN_VALUE
+		long value = 0;
+		for (; index < end; index++) {
+			int digit = buffer.get(index) - '0';
+			if (digit < 0 || digit > 9)
+				return Integer.valueOf(asString(buffer, start, end));
+			value = value * 10 - digit;
+			if (value < Integer.MIN_VALUE)
+				return Integer.valueOf(asString(buffer, start, end));
+		}
+		if (!negative && value == Integer.MIN_VALUE)
+			return Integer.valueOf(asString(buffer, start, end));
+		return (int) (negative ? value : -value);
+	}
+
+	/**
+	 * decodes a decimal, same as
+	 * {@code BigDecimal.valueOf(Double.valueOf(value))}.
+	 *
+	 * <p>
+	 * For plain decimals within the range printed without an exponent by
+	 * {@code Double.toString} and with no more than 15 significant digits,
+	 * that conversion yields the exact decimal with trailing zeros stripped
+	 * down to a single fraction digit. Everything else goes through the
+	 * double conversion.
+	 */
+	BigDecimal decodeDecimal(ByteBuffer buffer, int start, int end) {
+		int index = start;
+		boolean negative = false;
+		if (index < end && (buffer.get(index) == '-' || buffer.get(index) == '+')) {
+			negative = buffer.get(index) == '-';
+			index++;
+		}
+
+		long unscaled = 0;
+		int scale = 0;
+		int significantDigits = 0;
+		boolean point = false;
+		boolean anyDigit = false;
+		for (; index < end; index++) {
+			byte current = buffer.get(index);
+			if (current == '.' && !point) {
+				point = true;
+				continue;
+			}
+			int digit = current - '0';
+			if (digit < 0 || digit > 9)
+				return parseDecimal(buffer, start, end);
+			anyDigit = true;
+			if (significantDigits > 0 || digit != 0)
+				significantDigits++;
+			if (point)
+				scale++;
+			if (significantDigits > MAX_SIGNIFICANT_DIGITS || scale >= POWERS_OF_TEN.length)
+				return parseDecimal(buffer, start, end);
+			unscaled = unscaled * 10 + digit;
+		}
+		if (!anyDigit)
+			return parseDecimal(buffer, start, end);
+
+		if (unscaled == 0)
+			return BigDecimal.valueOf(0, 1);
+
+		// values below 10^-3 or from 10^7 onwards are printed with an exponent
+		if (scale >= 3 && unscaled < POWERS_OF_TEN[scale - 3])
+			return parseDecimal(buffer, start, end);
+		if (scale + 7 < POWERS_OF_TEN.length && unscaled >= POWERS_OF_TEN[scale + 7])
+			return parseDecimal(buffer, start, end);
+
+		while (scale > 1 && unscaled % 10 == 0) {
+			unscaled /= 10;
+			scale--;
+		}
+		if (scale == 0) {
+			unscaled *= 10;
+			scale = 1;
+		}
+		return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+	}
+
+	private BigDecimal parseDecimal(ByteBuffer buffer, int start, int end) {
+		return BigDecimal.valueOf(Double.valueOf(asString(buffer, start, end)));
+	}
+
+	private static int digits(ByteBuffer buffer, int start, int end) {
+		int value = 0;
+		for (int i = start; i < end; i++) {
+			int digit = buffer.get(i) - '0';
+			if (digit < 0 || digit > 9)
+				return -1;
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static boolean matches(ByteBuffer buffer, int start, int end, byte[] bytes) {
+		if (end - start != bytes.length)
+			return false;
+		for (int i = start; i < end; i++) {
+			if (buffer.get(i) != bytes[i - start])
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean equalsIgnoreCase(ByteBuffer buffer, int start, int end, String upperCase) {
+		if (end - start != upperCase.length())
+			return false;
+		for (int i = start; i < end; i++) {
+			int current = buffer.get(i);
+			if (current >= 'a' && current <= 'z')
+				current -= 'a' - 'A';
+			if (current != upperCase.charAt(i - start))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * creates a String out of the bytes, only used for the fallback and error
+	 * paths
+	 */
+	static String asString(ByteBuffer buffer, int start, int end) {
+		byte[] bytes = new byte[end - start];
+		for (int i = start; i < end; i++)
+			bytes[i - start] = buffer.get(i);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,358 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.Indicator;
+
+/**
+ * Binary image of the instructions parsed from a source file
+ *
+ * <p>
+ * The image starts with a header holding the fingerprint of the source it was
+ * created from, i.e. its size, last modified time and a CRC32 of its content,
+ * and the number of malformed rows the reader rejected from the source. The
+ * header is followed by one record per instruction, in the order of the
+ * source. Entities and currencies are written in full the first time they
+ * occur and referred to by their index afterwards, numbers are written as
+ * unscaled long values wherever they fit.
+ *
+ * <p>
+ * The records hold the values as constructed from the source, so the
+ * instructions decoded from the image are the same as the ones parsed from the
+ * source, including the trade amount computed by the constructor.
+ *
+ * @author jnair1
+ *
+ */
+final class InstructionImage {
+
+	private static final int MAGIC = 0x4a504349;
+
+	private static final int VERSION = 2;
+
+	private static final int REJECTED_COUNT_OFFSET = 4 + 4 + 8 + 8 + 8;
+
+	static final int HEADER_SIZE = REJECTED_COUNT_OFFSET + 8;
+
+	private static final long NULL_DATE = Long.MIN_VALUE;
+
+	/**
+	 * marks a number whose unscaled value does not fit into a long, followed by
+	 * the two's complement bytes
+	 */
+	private static final byte BIG_NUMBER = -1;
+
+	private static final byte LONG_NUMBER = 0;
+
+	/**
+	 * images are memory mapped as a single buffer
+	 */
+	static final long MAX_IMAGE_SIZE = Integer.MAX_VALUE;
+
+	private static final int HASH_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private InstructionImage() {
+	}
+
+	/**
+	 * identifies the content of a source file
+	 */
+	static final class Fingerprint {
+		final long size;
+		final long lastModified;
+		final long hash;
+
+		Fingerprint(long size, long lastModified, long hash) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.hash = hash;
+		}
+
+		/**
+		 * reads the size and last modified time of the source and hashes its
+		 * content
+		 */
+		static Fingerprint of(Path source) throws IOException {
+			long lastModified = Files.getLastModifiedTime(source).toMillis();
+			try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+				long size = channel.size();
+				CRC32 crc = new CRC32();
+				for (long position = 0; position < size; position += HASH_WINDOW_SIZE) {
+					crc.update(channel.map(MapMode.READ_ONLY, position, Math.min(HASH_WINDOW_SIZE, size - position)));
+				}
+				return new Fingerprint(size, lastModified, crc.getValue());
+			}
+		}
+
+		/**
+		 * same size and last modified time, the hash is not compared
+		 */
+		boolean sameFileAttributes(Fingerprint other) {
+			return size == other.size && lastModified == other.lastModified;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Fingerprint))
+				return false;
+			Fingerprint other = (Fingerprint) obj;
+			return sameFileAttributes(other) && hash == other.hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return Long.hashCode(hash);
+		}
+
+		@Override
+		public String toString() {
+			return "Fingerprint [size=" + size + ", lastModified=" + lastModified + ", hash=" + hash + "]";
+		}
+	}
+
+	/**
+	 * reads the fingerprint stored in the header of the image
+	 *
+	 * @return fingerprint, <tt>null</tt> in case the image is too short or
+	 *         not of the current version
+	 */
+	static Fingerprint readFingerprint(ByteBuffer image) {
+		if (image.limit() < HEADER_SIZE || image.getInt(0) != MAGIC || image.getInt(4) != VERSION)
+			return null;
+		return new Fingerprint(image.getLong(8), image.getLong(16), image.getLong(24));
+	}
+
+	/**
+	 * reads the number of malformed rows rejected from the source, stored in
+	 * the header of the image
+	 */
+	static long readRejectedCount(ByteBuffer image) {
+		return image.getLong(REJECTED_COUNT_OFFSET);
+	}
+
+	/**
+	 * maps the image, provided it exists, fits in a single buffer and was
+	 * created from the source with the given fingerprint
+	 *
+	 * @return image positioned at the first record, <tt>null</tt> otherwise
+	 */
+	static MappedByteBuffer map(Path image, Fingerprint source) throws IOException {
+		if (!Files.isRegularFile(image))
+			return null;
+		try (FileChannel channel = FileChannel.open(image, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE || channel.size() > MAX_IMAGE_SIZE)
+				return null;
+			MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			if (!source.equals(readFingerprint(buffer)))
+				return null;
+			buffer.position(HEADER_SIZE);
+			return buffer;
+		}
+	}
+
+	/**
+	 * writes the records of an image, not thread safe
+	 */
+	static final class Writer implements AutoCloseable {
+
+		private final Path image;
+
+		private final DataOutputStream output;
+
+		private final Map<String, Integer> entities = new HashMap<>();
+
+		private final Map<Currency, Integer> currencies = new HashMap<>();
+
+		Writer(Path image, Fingerprint source) throws IOException {
+			this.image = image;
+			this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(image), 64 * 1024));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(source.size);
+			output.writeLong(source.lastModified);
+			output.writeLong(source.hash);
+			// only known once the source is read, see commit
+			output.writeLong(0);
+		}
+
+		/**
+		 * number of bytes written so far, stays at Integer.MAX_VALUE once
+		 * reached
+		 */
+		long size() {
+			return output.size();
+		}
+
+		void write(ClientInstructions instruction) throws IOException {
+			writeString(entities, instruction.getEntity());
+			output.writeByte(instruction.getIndicator() == null ? -1 : instruction.getIndicator().ordinal());
+			writeDecimal(instruction.getAgreedFx());
+			writeDecimal(instruction.getUnitPrice());
+			writeInteger(instruction.getUnits());
+			writeString(currencies, instruction.getCurrency());
+			writeDate(instruction.getInstructionDate());
+			writeDate(instruction.getSettlementDate());
+		}
+
+		private <T> void writeString(Map<T, Integer> dictionary, T value) throws IOException {
+			if (value == null) {
+				output.writeInt(-1);
+				return;
+			}
+			Integer index = dictionary.get(value);
+			if (index != null) {
+				output.writeInt(index);
+				return;
+			}
+			output.writeInt(dictionary.size());
+			dictionary.put(value, dictionary.size());
+			byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+
+		private void writeDecimal(BigDecimal value) throws IOException {
+			output.writeInt(value.scale());
+			writeInteger(value.unscaledValue());
+		}
+
+		private void writeInteger(BigInteger value) throws IOException {
+			if (value.bitLength() < Long.SIZE) {
+				output.writeByte(LONG_NUMBER);
+				output.writeLong(value.longValue());
+				return;
+			}
+			byte[] bytes = value.toByteArray();
+			output.writeByte(BIG_NUMBER);
+			output.writeInt(bytes.length);
+			output.write(bytes);
+		}
+
+		private void writeDate(LocalDate value) throws IOException {
+			output.writeLong(value == null ? NULL_DATE : value.toEpochDay());
+		}
+
+		/**
+		 * closes the image once all the records are written, storing the
+		 * number of malformed rows rejected from the source in the header
+		 */
+		void commit(long rejectedCount) throws IOException {
+			output.close();
+			try (FileChannel channel = FileChannel.open(image, StandardOpenOption.WRITE)) {
+				ByteBuffer count = ByteBuffer.allocate(Long.BYTES);
+				count.putLong(0, rejectedCount);
+				channel.write(count, REJECTED_COUNT_OFFSET);
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			output.close();
+		}
+	}
+
+	/**
+	 * decodes the records of a mapped image, not thread safe
+	 */
+	static final class Reader {
+
+		private static final Indicator[] INDICATORS = Indicator.values();
+
+		private final ByteBuffer image;
+
+		private final List<String> entities = new ArrayList<>();
+
+		private final List<Currency> currencies = new ArrayList<>();
+
+		/**
+		 * @param image
+		 *            - image positioned at the first record
+		 */
+		Reader(ByteBuffer image) {
+			this.image = image;
+		}
+
+		boolean hasNext() {
+			return image.hasRemaining();
+		}
+
+		ClientInstructions next() {
+			String entity = readEntity();
+			byte indicator = image.get();
+			BigDecimal agreedFx = readDecimal();
+			BigDecimal unitPrice = readDecimal();
+			BigInteger units = readInteger();
+			Currency currency = readCurrency();
+			LocalDate instructionDate = readDate();
+			LocalDate settlementDate = readDate();
+			return new ClientInstructions(entity, indicator < 0 ? null : INDICATORS[indicator], agreedFx, unitPrice,
+					units, currency, instructionDate, settlementDate);
+		}
+
+		private String readEntity() {
+			int index = image.getInt();
+			if (index < 0)
+				return null;
+			if (index == entities.size())
+				entities.add(readString());
+			return entities.get(index);
+		}
+
+		private Currency readCurrency() {
+			int index = image.getInt();
+			if (index < 0)
+				return null;
+			if (index == currencies.size())
+				currencies.add(Currency.getInstance(readString()));
+			return currencies.get(index);
+		}
+
+		private String readString() {
+			byte[] bytes = new byte[image.getInt()];
+			image.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		private BigDecimal readDecimal() {
+			int scale = image.getInt();
+			if (image.get(image.position()) == LONG_NUMBER) {
+				image.get();
+				return BigDecimal.valueOf(image.getLong(), scale);
+			}
+			return new BigDecimal(readInteger(), scale);
+		}
+
+		private BigInteger readInteger() {
+			if (image.get() == LONG_NUMBER)
+				return BigInteger.valueOf(image.getLong());
+			byte[] bytes = new byte[image.getInt()];
+			image.get(bytes);
+			return new BigInteger(bytes);
+		}
+
+		private LocalDate readDate() {
+			long epochDay = image.getLong();
+			return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+		}
+	}
+}
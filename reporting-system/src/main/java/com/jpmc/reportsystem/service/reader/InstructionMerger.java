@@ -0,0 +1,140 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+
+/**
+ * K-way merge of runs of instructions, each run sorted in the same order
+ *
+ * <p>
+ * The head of every run is held in a heap, the next instruction is the
+ * smallest head, replaced by the next instruction of its run. Merging n
+ * instructions out of k runs takes n log k comparisons, and only a single
+ * instruction per run is held. Instructions comparing equal are handed out in
+ * the order of their runs, hence the merge is stable as long as the runs are
+ * in input order.
+ *
+ * <p>
+ * It is not thread safe.
+ *
+ * @author jnair1
+ *
+ */
+final class InstructionMerger implements AutoCloseable {
+
+	/**
+	 * sorted source of instructions
+	 */
+	interface Run extends AutoCloseable {
+
+		/**
+		 * @return next instruction, <tt>null</tt> once the run is exhausted
+		 * @throws Exception
+		 */
+		ClientInstructions next() throws Exception;
+
+		/**
+		 * releases the run
+		 * 
+		 * @throws IOException
+		 */
+		@Override
+		void close() throws IOException;
+	}
+
+	private final List<Run> runs;
+
+	private final PriorityQueue<Head> heads;
+
+	private boolean started;
+
+	/**
+	 * @param runs
+	 *            - runs to merge, each sorted in the order
+	 * @param order
+	 *            - order of the runs
+	 */
+	InstructionMerger(List<? extends Run> runs, Comparator<ClientInstructions> order) {
+		this.runs = new ArrayList<>(runs);
+		this.heads = new PriorityQueue<>(Math.max(1, runs.size()), (head1, head2) -> {
+			int compared = order.compare(head1.instruction, head2.instruction);
+			return compared != 0 ? compared : Integer.compare(head1.run, head2.run);
+		});
+	}
+
+	/**
+	 * @return next instruction in order, <tt>null</tt> once all the runs are
+	 *         exhausted
+	 * @throws Exception
+	 *             raised by a run
+	 */
+	ClientInstructions next() throws Exception {
+		if (!started) {
+			started = true;
+			for (int run = 0; run < runs.size(); run++)
+				advance(run);
+		}
+		Head head = heads.poll();
+		if (head == null)
+			return null;
+		advance(head.run);
+		return head.instruction;
+	}
+
+	/**
+	 * whether all the instructions were handed out
+	 */
+	boolean isExhausted() {
+		return started && heads.isEmpty();
+	}
+
+	/**
+	 * number of runs merged
+	 */
+	int getRunCount() {
+		return runs.size();
+	}
+
+	/**
+	 * closes all the runs
+	 */
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (Run run : runs) {
+			try {
+				run.close();
+			} catch (IOException exception) {
+				if (failure == null)
+					failure = exception;
+			}
+		}
+		heads.clear();
+		if (failure != null)
+			throw failure;
+	}
+
+	private void advance(int run) throws Exception {
+		ClientInstructions instruction = runs.get(run).next();
+		if (instruction != null)
+			heads.add(new Head(instruction, run));
+	}
+
+	/**
+	 * head of a run
+	 */
+	private static final class Head {
+		private final ClientInstructions instruction;
+		private final int run;
+
+		private Head(ClientInstructions instruction, int run) {
+			this.instruction = instruction;
+			this.run = run;
+		}
+	}
+}
@@ -0,0 +1,406 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Reads csv file from the specified location by memory-mapping it through a
+ * {@code FileChannel}
+ *
+ * <p>
+ * This is a drop-in replacement of {@code CSVDataReader} for large files. The
+ * rows are never turned into Strings, instead they are parsed straight from
+ * the mapped bytes using {@code InstructionByteParser}. This avoids the
+ * per-row garbage of the line, the split array and the field Strings.
+ *
+ * <p>
+ * The file is mapped in windows, so files larger than the addressable size of
+ * a single buffer can be read as well. Batching, end of file handling and
+ * closing of the resource behave the same as in {@code CSVDataReader}. Blank
+ * lines are skipped.
+ *
+ * <p>
+ * In tolerant mode a row that can not be parsed is handed to the
+ * {@code DeadLetterDataWriter}, the same as in {@code CSVDataReader}. Only a
+ * rejected row is turned into a String.
+ *
+ * @author jnair1
+ *
+ */
+public class MappedCSVDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(MappedCSVDataReader.class);
+
+	/**
+	 * size of the region of the file mapped at a single time. A single row can
+	 * never be larger than this
+	 */
+	private static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+	private final int mapWindowSize;
+
+	/**
+	 * reader flag to indicate whether the reader is done with the reading
+	 * operation or not
+	 */
+	private boolean isDone = false;
+
+	/**
+	 * number of lines that needs to be processed at a single time. This is read
+	 * from properties file, making the decision configurable
+	 */
+	private int batchFileCount = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private final InstructionByteParser parser = new InstructionByteParser();
+
+	private FileChannel source;
+
+	/**
+	 * size of the file at the time the connection was added
+	 */
+	private long fileSize;
+
+	/**
+	 * currently mapped window and its offset within the file
+	 */
+	private MappedByteBuffer window;
+	private long windowOffset;
+
+	/**
+	 * position of the next byte to read, relative to the window
+	 */
+	private int position;
+
+	/**
+	 * writer of the malformed rows in tolerant mode, <tt>null</tt> to fail on
+	 * the first malformed row
+	 */
+	private DeadLetterDataWriter deadLetterWriter;
+
+	/**
+	 * malformed rows of this reader written to the dead letter writer
+	 */
+	private long rejectedCount;
+
+	/**
+	 * name of the resource read, the rejected rows are written with
+	 */
+	private String resourceName;
+
+	/**
+	 * number of the last line read, blank lines included
+	 */
+	private long lineNumber;
+
+	public MappedCSVDataReader() {
+		this(MAP_WINDOW_SIZE);
+	}
+
+	/**
+	 * constructor with a custom window size, to exercise the remapping of
+	 * windows with small files
+	 *
+	 * @param mapWindowSize
+	 */
+	MappedCSVDataReader(int mapWindowSize) {
+		this.mapWindowSize = mapWindowSize;
+	}
+
+	/**
+	 * method to add a new connection with the url and the resource name This
+	 * would throw exception in case of invalid input. In case of valid data,
+	 * this would open and map the source for further processing
+	 *
+	 * @param url
+	 *            - url to the resource where it is located
+	 * @param resourceName
+	 *            - name of the resource that needs to be connected to
+	 * @return addConnection status
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		LOGGER.debug("adding connection with url={} and resourceName={}", url, resourceName);
+
+		if (url == null || url.isEmpty() || resourceName == null || resourceName.isEmpty())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
+
+		Path path = Paths.get(url, resourceName);
+		this.resourceName = resourceName;
+		source = FileChannel.open(path, StandardOpenOption.READ);
+		fileSize = source.size();
+		map(0);
+
+		LOGGER.debug("connection successfully added with url={} and resourceName={} of size={}", url, resourceName,
+				fileSize);
+		return true;
+	}
+
+	/**
+	 * this is to check the status of the connection that was established.
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		if (null == source)
+			return false;
+		return true;
+	}
+
+	/**
+	 * read the rows from the mapped file based on the batch count specified
+	 * and parse them into List of {@code ClientInstructions}
+	 *
+	 * @return instructions- list of parsed instructions
+	 * @throws Exception
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>(batchFileCount);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * read the rows from the mapped file based on the batch count specified,
+	 * pushing every parsed {@code ClientInstructions} to the consumer
+	 *
+	 * @param consumer
+	 *            - consumer of the parsed instructions
+	 * @return number of instructions read
+	 * @throws Exception
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		LOGGER.debug("reading in progress, is connectionAvailable={}", isConnectedEstablished());
+
+		// data processing should not happen if the connection is not valid
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+
+		int count = 0;
+		while (count < batchFileCount && readRow(consumer))
+			count++;
+
+		// manually checking and populating the done flag and closing the
+		// resource once there is nothing more to read
+		if (count == 0) {
+			LOGGER.debug("Reader reached the end of file, no more data to read.");
+			close();
+		}
+
+		return count;
+	}
+
+	/**
+	 * indicates whether the reader has reached the end of processing or not
+	 */
+	@Override
+	public boolean isDone() {
+		return isDone;
+	}
+
+	/**
+	 * close the channel and release the mapped window. Reader is closing it
+	 * own its own, once there is nothing more to be read
+	 *
+	 * @throws Exception
+	 */
+	@Override
+	public void close() throws Exception {
+		LOGGER.debug("Closing the connection");
+		setDone(Boolean.TRUE);
+		window = null;
+		if (isConnectedEstablished())
+			source.close();
+		if (deadLetterWriter != null)
+			deadLetterWriter.close();
+	}
+
+	public void setDone(boolean isDone) {
+		this.isDone = isDone;
+	}
+
+	/**
+	 * byte offset just after the last row read
+	 */
+	@Override
+	public long getPosition() {
+		return window == null ? fileSize : windowOffset + position;
+	}
+
+	/**
+	 * continues reading from the byte offset returned by
+	 * {@link #getPosition()}
+	 *
+	 * @param position
+	 * @throws Exception
+	 */
+	@Override
+	public void resume(long position) throws Exception {
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+		if (position < 0 || position > fileSize)
+			throw new IndexOutOfBoundsException("position " + position + " out of " + fileSize + " bytes");
+		LOGGER.debug("resuming from position={}", position);
+		map(position);
+	}
+
+	/**
+	 * continues reading from the byte offset returned by
+	 * {@link #getPosition()}, numbering the lines on from the line number.
+	 * The dead letter writer appends to its file, the rows rejected before
+	 * counting against its cap
+	 * 
+	 * @param position
+	 * @param lineNumber
+	 * @param rejectedCount
+	 * @throws Exception
+	 */
+	@Override
+	public void resume(long position, long lineNumber, long rejectedCount) throws Exception {
+		resume(position);
+		this.lineNumber = Math.max(0, lineNumber);
+		this.rejectedCount = rejectedCount;
+		if (deadLetterWriter != null)
+			deadLetterWriter.resume(rejectedCount);
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	@Override
+	public void flushRejected() {
+		if (deadLetterWriter != null)
+			deadLetterWriter.flush();
+	}
+
+	/**
+	 * to be set before reading
+	 *
+	 * @param deadLetterWriter
+	 *            - writer of the malformed rows, <tt>null</tt> to fail on the
+	 *            first malformed row
+	 */
+	public void setDeadLetterWriter(DeadLetterDataWriter deadLetterWriter) {
+		this.deadLetterWriter = deadLetterWriter;
+	}
+
+	/**
+	 * number of malformed rows of this reader written to the dead letter
+	 * writer, the writer may be shared with other readers
+	 */
+	@Override
+	public long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	/**
+	 * parses the next non blank row and pushes it to the consumer
+	 *
+	 * @return <tt>false</tt> once the end of file is reached
+	 */
+	private boolean readRow(Consumer<? super ClientInstructions> consumer) throws Exception {
+		while (true) {
+			int limit = window.limit();
+			int end = position;
+			while (end < limit && window.get(end) != '\n' && window.get(end) != '\r')
+				end++;
+
+			if (end == limit && windowOffset + limit < fileSize) {
+				// row continues beyond the mapped window, remap from its start
+				if (position == 0)
+					throw new ReportingSystemException("Row exceeds the mapped window size of " + mapWindowSize
+							+ " bytes at offset " + windowOffset);
+				map(windowOffset + position);
+				continue;
+			}
+
+			// parse before the terminator is consumed, as that may remap
+			int start = position;
+			if (end > start || end < limit)
+				lineNumber++;
+			ClientInstructions instruction = end > start ? parseRow(start, end) : null;
+			position = skipLineTerminator(end, limit);
+			if (instruction != null) {
+				consumer.accept(instruction);
+				return true;
+			}
+			if (end == limit)
+				return false;
+		}
+	}
+
+	/**
+	 * parses the row, in tolerant mode a malformed row is rejected instead
+	 *
+	 * @return instruction, <tt>null</tt> in case the row was rejected
+	 */
+	private ClientInstructions parseRow(int start, int end) throws ReportingSystemException {
+		if (deadLetterWriter == null)
+			return parser.parse(window, start, end);
+		try {
+			return parser.parse(window, start, end);
+		} catch (RuntimeException exception) {
+			byte[] row = new byte[end - start];
+			for (int index = 0; index < row.length; index++)
+				row[index] = window.get(start + index);
+			deadLetterWriter.reject(resourceName, lineNumber, exception.toString(),
+					new String(row, StandardCharsets.UTF_8));
+			rejectedCount++;
+			return null;
+		}
+	}
+
+	/**
+	 * consumes a single \n, \r or \r\n terminator
+	 */
+	private int skipLineTerminator(int end, int limit) throws Exception {
+		if (end < limit && window.get(end) == '\r') {
+			end++;
+			if (end == limit && windowOffset + limit < fileSize) {
+				map(windowOffset + end);
+				end = 0;
+				limit = window.limit();
+			}
+			if (end < limit && window.get(end) == '\n')
+				end++;
+			return end;
+		}
+		return end < limit ? end + 1 : end;
+	}
+
+	/**
+	 * maps the window of the file starting at the given offset
+	 */
+	private void map(long offset) throws Exception {
+		long size = Math.min(mapWindowSize, fileSize - offset);
+		window = source.map(MapMode.READ_ONLY, offset, size);
+		windowOffset = offset;
+		position = 0;
+	}
+}
@@ -0,0 +1,274 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Composite {@code DataReader} merging several sources, each sorted by
+ * settlement date and entity, into a single stream in the same order
+ *
+ * <p>
+ * Every resource connected is read by a reader of its own, wrapped into a
+ * {@code PrefetchingDataReader} in case a read ahead is configured, so the
+ * sources are read concurrently. The sources are merged by an
+ * {@code InstructionMerger}, in the order of
+ * {@link SortingDataReader#SETTLEMENT_ORDER}, holding a batch per source. A
+ * source found out of order fails the read.
+ *
+ * <p>
+ * The order is the one of the settlement dates as read, before they are moved
+ * to a working day of the partner. A date falling on a non working day moves
+ * ahead of the dates following it in the stream, hence the watermark of the
+ * processor needs a lateness of at least the longest stretch of consecutive
+ * non working days of any partner, 2 days for weekends alone, for no valid
+ * row to be dropped as late.
+ *
+ * <p>
+ * The merged reader can not resume from a position.
+ *
+ * @author jnair1
+ *
+ */
+public class MergingDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(MergingDataReader.class);
+
+	private final Callable<? extends DataReader> readerFactory;
+
+	private final int readAheadBatches;
+
+	private final List<SourceRun> sources = new ArrayList<>();
+
+	private Set<InstructionColumn> requiredColumns;
+
+	/**
+	 * number of instructions handed out per read
+	 */
+	private int batchSize = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private InstructionMerger merger;
+
+	/**
+	 * merges readers created by the factory, with the read ahead configured
+	 * within the properties file
+	 * 
+	 * @param readerFactory
+	 *            - creates the reader of a single source, its failure fails
+	 *            the connection
+	 */
+	public MergingDataReader(Callable<? extends DataReader> readerFactory) {
+		this(readerFactory, Integer.parseInt(
+				ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_MERGE_READAHEAD_BATCHES)));
+	}
+
+	/**
+	 * @param readerFactory
+	 *            - creates the reader of a single source, its failure fails
+	 *            the connection
+	 * @param readAheadBatches
+	 *            - batches read ahead per source, 0 reads the sources on the
+	 *            calling thread
+	 */
+	public MergingDataReader(Callable<? extends DataReader> readerFactory, int readAheadBatches) {
+		this.readerFactory = readerFactory;
+		this.readAheadBatches = readAheadBatches;
+	}
+
+	/**
+	 * adds a source per resource, the resource names being separated by
+	 * commas. Can be called once per location of the sources
+	 * 
+	 * @return <tt>true</tt> in case all the sources are connected
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		if (resourceName == null)
+			return false;
+		boolean connected = true;
+		for (String name : resourceName.split(",")) {
+			DataReader dataReader = readerFactory.call();
+			if (requiredColumns != null)
+				dataReader.setRequiredColumns(requiredColumns);
+			connected &= dataReader.addConnectionDetails(url, name.trim());
+			if (readAheadBatches > 0)
+				dataReader = new PrefetchingDataReader(dataReader, readAheadBatches);
+			sources.add(new SourceRun(dataReader, url + "/" + name.trim()));
+		}
+		return connected;
+	}
+
+	/**
+	 * passes the required columns on to the sources, along with the columns
+	 * of the order
+	 */
+	@Override
+	public void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+		this.requiredColumns = EnumSet.of(InstructionColumn.SETTLEMENT_DATE, InstructionColumn.ENTITY);
+		this.requiredColumns.addAll(requiredColumns);
+		for (SourceRun source : sources)
+			source.dataReader.setRequiredColumns(this.requiredColumns);
+	}
+
+	/**
+	 * malformed rows skipped by all the sources
+	 */
+	@Override
+	public long getRejectedCount() {
+		long rejectedCount = 0;
+		for (SourceRun source : sources)
+			rejectedCount += source.dataReader.getRejectedCount();
+		return rejectedCount;
+	}
+
+	/**
+	 * whether there is a source and all of them are connected
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		if (sources.isEmpty())
+			return false;
+		for (SourceRun source : sources)
+			if (!source.dataReader.isConnectedEstablished())
+				return false;
+		return true;
+	}
+
+	/**
+	 * number of sources merged
+	 */
+	public int getSourceCount() {
+		return sources.size();
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * reads the next batch of the merged stream
+	 * 
+	 * @return instructions - next batch of instructions
+	 * @throws Exception
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<>(batchSize);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * pushes the next batch of the merged stream to the consumer
+	 * 
+	 * @param consumer
+	 * @return number of instructions pushed
+	 * @throws Exception
+	 *             raised by a source, or in case a source is not sorted
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		if (merger == null) {
+			if (!isConnectedEstablished())
+				throw new ReportingSystemException(ReportingSystemResourceUtil
+						.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+			LOGGER.info("Merging sources={}", sources.size());
+			merger = new InstructionMerger(sources, SortingDataReader.SETTLEMENT_ORDER);
+		}
+		int count = 0;
+		ClientInstructions instruction;
+		while (count < batchSize && (instruction = merger.next()) != null) {
+			consumer.accept(instruction);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * indicates whether all the sources are handed out
+	 */
+	@Override
+	public boolean isDone() {
+		return merger != null && merger.isExhausted();
+	}
+
+	/**
+	 * closes all the sources
+	 */
+	@Override
+	public void close() throws Exception {
+		if (merger != null) {
+			merger.close();
+			return;
+		}
+		for (SourceRun source : sources)
+			source.close();
+	}
+
+	/**
+	 * source read a batch at a time, checking its order
+	 */
+	private static final class SourceRun implements InstructionMerger.Run {
+		private final DataReader dataReader;
+		private final String name;
+		private List<ClientInstructions> batch = new ArrayList<>();
+		private int index;
+		private ClientInstructions previous;
+
+		private SourceRun(DataReader dataReader, String name) {
+			this.dataReader = dataReader;
+			this.name = name;
+		}
+
+		@Override
+		public ClientInstructions next() throws Exception {
+			while (index == batch.size()) {
+				if (dataReader.isDone())
+					return null;
+				batch = dataReader.read();
+				index = 0;
+			}
+			ClientInstructions instruction = batch.get(index++);
+			if (previous != null && SortingDataReader.SETTLEMENT_ORDER.compare(previous, instruction) > 0)
+				throw new ReportingSystemException(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_UNSORTED)
+								+ " source=" + name + ", instruction=" + instruction);
+			previous = instruction;
+			return instruction;
+		}
+
+		/**
+		 * closes the reader of the source, its failure raised as an
+		 * {@code IOException}
+		 */
+		@Override
+		public void close() throws IOException {
+			try {
+				dataReader.close();
+			} catch (IOException | RuntimeException exception) {
+				throw exception;
+			} catch (Exception exception) {
+				if (exception instanceof InterruptedException)
+					Thread.currentThread().interrupt();
+				throw new IOException("source=" + name, exception);
+			}
+		}
+	}
+}
@@ -1,17 +1,38 @@
 package com.jpmc.reportsystem.service.reader;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
 
 /**
- * Message version of reader implementation. This can be used a as
- * messageListener. This is just a stub without implementation for demonstration
- * purpose
- * 
+ * Message version of reader implementation, fed by producers within the same
+ * JVM instead of a file
+ *
+ * <p>
+ * Any number of producer threads hand over instructions through
+ * {@link #publish(ClientInstructions)}, which stores them in a bounded
+ * lock-free ring buffer. Publishing never blocks: once the buffer is full the
+ * instruction is rejected and the producer is expected to retry or slow down.
+ *
+ * <p>
+ * The reading thread takes the instructions in micro batches, a batch is
+ * handed out once it reached the configured chunk size or the configured
+ * batch timeout elapsed, whichever comes first. A batch can therefore be
+ * empty in case nothing was published meanwhile. Once a producer called
+ * {@link #signalEndOfStream()} and all the buffered instructions are handed
+ * out, the reader closes itself and {@link #isDone()} turns <tt>true</tt>.
+ *
  * @author jnair1
  *
  */
@@ -22,15 +43,147 @@ public class MessageDataReader implements DataReader {
 	 */
 	private Logger LOGGER = LoggerFactory.getLogger(MessageDataReader.class);
 
+	/**
+	 * time the reading thread parks while waiting for the producers
+	 */
+	private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final MpscRingBuffer<ClientInstructions> buffer;
+
+	/**
+	 * number of instructions that needs to be handed out at a single time
+	 */
+	private final int batchFileCount;
+
+	private final long batchTimeoutNanos;
+
+	private final LongAdder backpressureRejectedCount = new LongAdder();
+
+	private volatile boolean endOfStream = false;
+
+	private volatile boolean isDone = false;
+
+	private String channel;
+
+	/**
+	 * creates the reader with the buffer capacity, chunk size and batch
+	 * timeout configured in the properties file
+	 */
+	public MessageDataReader() {
+		this(Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_MESSAGE_CAPACITY)),
+				Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE)),
+				Long.parseLong(ReportingSystemResourceUtil
+						.getValue(ReportingSystemConstants.READER_MESSAGE_BATCH_TIMEOUT_MILLIS)));
+	}
+
+	/**
+	 * @param capacity
+	 *            - number of instructions buffered before the producers are
+	 *            rejected, rounded up to the next power of two
+	 * @param batchSize
+	 *            - maximum number of instructions handed out at a time
+	 * @param batchTimeoutMillis
+	 *            - maximum time spent waiting for a batch to fill up
+	 */
+	public MessageDataReader(int capacity, int batchSize, long batchTimeoutMillis) {
+		this.buffer = new MpscRingBuffer<>(capacity);
+		this.batchFileCount = Math.max(1, batchSize);
+		this.batchTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, batchTimeoutMillis));
+	}
+
+	/**
+	 * hands over an instruction to the reader, safe to be called by any number
+	 * of producer threads
+	 *
+	 * @param instruction
+	 * @return <tt>false</tt> in case the buffer is full or the reader is
+	 *         closed, the instruction is not taken
+	 * @throws IllegalStateException
+	 *             in case the end of stream was already signalled
+	 */
+	public boolean publish(ClientInstructions instruction) {
+		if (endOfStream)
+			throw new IllegalStateException("end of stream already signalled on channel=" + channel);
+		if (isDone || !buffer.offer(instruction)) {
+			backpressureRejectedCount.increment();
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * to be called once all the producers are done publishing. The reader is
+	 * done as soon as the instructions published before are handed out
+	 */
+	public void signalEndOfStream() {
+		LOGGER.debug("end of stream signalled on channel={} with pending={}", channel, buffer.size());
+		endOfStream = true;
+	}
+
+	/**
+	 * number of instructions turned away so far because the buffer was full
+	 * or the reader was closed. Unlike {@link #getRejectedCount()}, counting
+	 * the malformed rows quarantined by a reader, these were never taken and
+	 * are left out of the status of the run
+	 */
+	public long getBackpressureRejectedCount() {
+		return backpressureRejectedCount.sum();
+	}
 
 	/**
 	 * method to read
 	 */
 	@Override
 	public List<ClientInstructions> read() throws Exception {
-		LOGGER.info("reading in progress");
-		// TODO Auto-generated method stub
-		return null;
+		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>(batchFileCount);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * pushes the next micro batch to the consumer. Waits for the producers
+	 * till the batch is full, the batch timeout elapsed or the end of stream
+	 * is reached
+	 *
+	 * @param consumer
+	 *            - consumer of the published instructions
+	 * @return number of instructions pushed
+	 * @throws Exception
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		// data processing should not happen if the connection is not valid
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+		if (isDone)
+			return 0;
+
+		long deadline = System.nanoTime() + batchTimeoutNanos;
+		int count = 0;
+		while (count < batchFileCount) {
+			ClientInstructions instruction = buffer.poll();
+			if (instruction != null) {
+				consumer.accept(instruction);
+				count++;
+				continue;
+			}
+			// end of stream is checked before the buffer, everything
+			// published before the signal is in the buffer by then
+			if (endOfStream && buffer.isEmpty()) {
+				if (count == 0) {
+					LOGGER.debug("Reader reached the end of stream, no more data to read.");
+					close();
+				}
+				break;
+			}
+			if (System.nanoTime() - deadline >= 0)
+				break;
+			if (Thread.currentThread().isInterrupted())
+				throw new InterruptedException("interrupted while waiting on channel=" + channel);
+			LockSupport.parkNanos(IDLE_PARK_NANOS);
+		}
+		return count;
 	}
 
 	/**
@@ -38,26 +191,39 @@ public class MessageDataReader implements DataReader {
 	 */
 	@Override
 	public boolean isDone() throws Exception {
-		// TODO Auto-generated method stub
-		return false;
+		return isDone;
 	}
 
 	/**
-	 * close the resource
+	 * close the resource, the instructions not yet handed out are discarded
+	 * and further publishing is rejected
 	 */
 	@Override
 	public void close() throws Exception {
-		// TODO Auto-generated method stub
-
+		LOGGER.debug("Closing the channel={} with backpressureRejected={}", channel, getBackpressureRejectedCount());
+		isDone = true;
+		int discarded = 0;
+		while (buffer.poll() != null)
+			discarded++;
+		if (discarded > 0)
+			LOGGER.warn("{} instructions discarded while closing the channel={}", discarded, channel);
 	}
 
 	/**
-	 * add a connection
+	 * add a connection, the url and resource name identify the channel the
+	 * producers publish to
 	 */
 	@Override
 	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
-		// TODO Auto-generated method stub
-		return false;
+		LOGGER.debug("adding connection with url={} and resourceName={}", url, resourceName);
+
+		if (url == null || url.isEmpty() || resourceName == null || resourceName.isEmpty())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
+
+		channel = url + "/" + resourceName;
+		LOGGER.debug("connection successfully added with channel={} and capacity={}", channel, buffer.capacity());
+		return true;
 	}
 
 	/**
@@ -65,8 +231,9 @@ public class MessageDataReader implements DataReader {
 	 */
 	@Override
 	public boolean isConnectedEstablished() throws Exception {
-		// TODO Auto-generated method stub
-		return false;
+		if (null == channel)
+			return false;
+		return true;
 	}
 
 }
@@ -0,0 +1,117 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer for multiple producers and a single consumer
+ *
+ * <p>
+ * Producers claim a sequence with a compare and set on the tail and then
+ * publish the element into the claimed slot. The consumer takes the elements
+ * in sequence order and frees a slot by clearing it before moving the head
+ * forward, so a producer never overwrites an element which was not consumed
+ * yet. A slot which was claimed but not yet written reads as <tt>null</tt>,
+ * the consumer stops there till the producer is done writing.
+ *
+ * <p>
+ * {@link #offer(Object)} never blocks, it returns <tt>false</tt> once the
+ * buffer is full and leaves it to the producer to retry, drop or slow down.
+ *
+ * @author jnair1
+ *
+ * @param <E>
+ *            - type of the buffered elements
+ */
+public class MpscRingBuffer<E> {
+
+	private final AtomicReferenceArray<E> slots;
+
+	private final int mask;
+
+	/**
+	 * next sequence to be claimed by a producer
+	 */
+	private final AtomicLong tail = new AtomicLong();
+
+	/**
+	 * next sequence to be taken by the consumer, only moved by the consumer
+	 */
+	private final AtomicLong head = new AtomicLong();
+
+	/**
+	 * @param capacity
+	 *            - minimum number of elements held, rounded up to the next
+	 *            power of two
+	 */
+	public MpscRingBuffer(int capacity) {
+		if (capacity < 1 || capacity > 1 << 30)
+			throw new IllegalArgumentException("capacity must be between 1 and 2^30, was " + capacity);
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity)
+			size <<= 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * adds the element at the end of the buffer, safe to be called by any
+	 * number of threads
+	 *
+	 * @param element
+	 * @return <tt>false</tt> in case the buffer is full
+	 */
+	public boolean offer(E element) {
+		if (element == null)
+			throw new NullPointerException("null elements are not supported");
+		long sequence;
+		do {
+			sequence = tail.get();
+			if (sequence - head.get() >= slots.length())
+				return false;
+		} while (!tail.compareAndSet(sequence, sequence + 1));
+		slots.lazySet((int) sequence & mask, element);
+		return true;
+	}
+
+	/**
+	 * takes the element at the head of the buffer, to be called by the single
+	 * consumer only
+	 *
+	 * @return element, <tt>null</tt> in case there is no element published
+	 *         yet
+	 */
+	public E poll() {
+		long sequence = head.get();
+		int index = (int) sequence & mask;
+		E element = slots.get(index);
+		if (element == null)
+			return null;
+		slots.lazySet(index, null);
+		head.lazySet(sequence + 1);
+		return element;
+	}
+
+	/**
+	 * indicates whether all the claimed slots were consumed. An element still
+	 * being written by a producer counts as not consumed
+	 */
+	public boolean isEmpty() {
+		return head.get() == tail.get();
+	}
+
+	/**
+	 * approximate number of elements in the buffer
+	 */
+	public int size() {
+		long size = tail.get() - head.get();
+		return (int) Math.max(0, Math.min(size, slots.length()));
+	}
+
+	/**
+	 * number of elements the buffer can hold
+	 */
+	public int capacity() {
+		return slots.length();
+	}
+}
@@ -0,0 +1,341 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Reads a single csv file with multiple threads
+ *
+ * <p>
+ * The file is split into segments of the configured size, each aligned on a
+ * line terminator, and the segments are parsed on a pool of workers using
+ * {@code InstructionByteParser}. A bounded number of segments is in flight at
+ * any time, which keeps all the workers busy while limiting the memory to a
+ * few segments worth of instructions.
+ *
+ * <p>
+ * The parsed segments are handed out in the order of the file, in batches of
+ * the configured chunk size. The calling application therefore sees exactly
+ * the same instructions in the same order as with {@code CSVDataReader}, so
+ * the generated reports are identical to a serial run.
+ *
+ * @author jnair1
+ *
+ */
+public class ParallelCSVDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(ParallelCSVDataReader.class);
+
+	/**
+	 * number of bytes read to look for the end of a row while aligning the
+	 * segments
+	 */
+	private static final int ALIGNMENT_READ_SIZE = 4096;
+
+	/**
+	 * parsers are not thread safe, hence one per worker
+	 */
+	private static final ThreadLocal<InstructionByteParser> PARSER = ThreadLocal
+			.withInitial(InstructionByteParser::new);
+
+	private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+	/**
+	 * reader flag to indicate whether the reader is done with the reading
+	 * operation or not
+	 */
+	private boolean isDone = false;
+
+	/**
+	 * number of lines that needs to be handed out at a single time
+	 */
+	private int batchFileCount = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private final int threadCount;
+
+	private final long segmentSize;
+
+	private FileChannel source;
+
+	private ExecutorService workers;
+
+	/**
+	 * start offsets of all the segments, with the file size as the last entry
+	 */
+	private long[] segmentOffsets;
+
+	/**
+	 * index of the next segment to be submitted to the workers
+	 */
+	private int nextSegment;
+
+	/**
+	 * segments submitted to the workers, in the order of the file
+	 */
+	private final Deque<Future<List<ClientInstructions>>> pendingSegments = new ArrayDeque<>();
+
+	/**
+	 * segment currently handed out and the position within it
+	 */
+	private List<ClientInstructions> currentSegment = Collections.emptyList();
+	private int currentIndex;
+
+	/**
+	 * creates the reader with the thread count and segment size configured in
+	 * the properties file. A thread count of 0 uses all the available cores
+	 */
+	public ParallelCSVDataReader() {
+		this(Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_PARALLEL_THREADS)),
+				Long.parseLong(
+						ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_PARALLEL_SEGMENT_SIZE)));
+	}
+
+	/**
+	 * @param threadCount
+	 *            - number of workers, 0 to use all the available cores
+	 * @param segmentSize
+	 *            - approximate number of bytes parsed by a worker at a time
+	 */
+	public ParallelCSVDataReader(int threadCount, long segmentSize) {
+		this.threadCount = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+		this.segmentSize = Math.max(1, Math.min(segmentSize, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * method to add a new connection with the url and the resource name. Once
+	 * the file is opened the segments are aligned and the workers start
+	 * parsing the first segments straight away
+	 *
+	 * @param url
+	 *            - url to the resource where it is located
+	 * @param resourceName
+	 *            - name of the resource that needs to be connected to
+	 * @return addConnection status
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		LOGGER.debug("adding connection with url={} and resourceName={}", url, resourceName);
+
+		if (url == null || url.isEmpty() || resourceName == null || resourceName.isEmpty())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_INPUT));
+
+		Path path = Paths.get(url, resourceName);
+		source = FileChannel.open(path, StandardOpenOption.READ);
+		segmentOffsets = alignSegments(source.size());
+
+		int poolNumber = POOL_COUNT.incrementAndGet();
+		AtomicInteger threadNumber = new AtomicInteger();
+		workers = Executors.newFixedThreadPool(threadCount, runnable -> {
+			Thread thread = new Thread(runnable,
+					"parallel-csv-reader-" + poolNumber + "-" + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < 2 * threadCount; i++)
+			submitNextSegment();
+
+		LOGGER.debug("connection successfully added with url={} and resourceName={}, segments={} and threads={}", url,
+				resourceName, segmentOffsets.length - 1, threadCount);
+		return true;
+	}
+
+	/**
+	 * this is to check the status of the connection that was established.
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		if (null == source)
+			return false;
+		return true;
+	}
+
+	/**
+	 * hands out the next batch of parsed instructions, in the order of the
+	 * file
+	 *
+	 * @return instructions- list of parsed instructions
+	 * @throws Exception
+	 *             the exception thrown by the worker while parsing
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<ClientInstructions>(batchFileCount);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * pushes the next batch of parsed instructions to the consumer, in the
+	 * order of the file. Waits for the worker in case the segment is not
+	 * parsed yet
+	 *
+	 * @param consumer
+	 *            - consumer of the parsed instructions
+	 * @return number of instructions pushed
+	 * @throws Exception
+	 *             the exception thrown by the worker while parsing
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		LOGGER.debug("reading in progress, is connectionAvailable={}", isConnectedEstablished());
+
+		// data processing should not happen if the connection is not valid
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+
+		while (currentIndex >= currentSegment.size()) {
+			Future<List<ClientInstructions>> segment = pendingSegments.poll();
+			if (segment == null) {
+				LOGGER.debug("Reader reached the end of file, no more data to read.");
+				close();
+				return 0;
+			}
+			currentSegment = awaitSegment(segment);
+			currentIndex = 0;
+			submitNextSegment();
+		}
+
+		int end = Math.min(currentIndex + batchFileCount, currentSegment.size());
+		int count = end - currentIndex;
+		for (; currentIndex < end; currentIndex++)
+			consumer.accept(currentSegment.get(currentIndex));
+		return count;
+	}
+
+	/**
+	 * indicates whether the reader has reached the end of processing or not
+	 */
+	@Override
+	public boolean isDone() {
+		return isDone;
+	}
+
+	/**
+	 * stops the workers and closes the file. Reader is closing it own its own,
+	 * once there is nothing more to be read
+	 *
+	 * @throws Exception
+	 */
+	@Override
+	public void close() throws Exception {
+		LOGGER.debug("Closing the connection");
+		setDone(Boolean.TRUE);
+		if (workers != null)
+			workers.shutdownNow();
+		pendingSegments.clear();
+		currentSegment = Collections.emptyList();
+		if (isConnectedEstablished())
+			source.close();
+	}
+
+	public void setDone(boolean isDone) {
+		this.isDone = isDone;
+	}
+
+	/**
+	 * submits the next segment of the file to the workers, if any
+	 */
+	private void submitNextSegment() {
+		if (nextSegment >= segmentOffsets.length - 1)
+			return;
+		final long start = segmentOffsets[nextSegment];
+		final long end = segmentOffsets[nextSegment + 1];
+		nextSegment++;
+		pendingSegments.add(workers.submit(() -> parseSegment(start, end)));
+	}
+
+	/**
+	 * maps and parses a single segment of the file, runs on the worker
+	 */
+	private List<ClientInstructions> parseSegment(long start, long end) throws Exception {
+		MappedByteBuffer buffer = source.map(MapMode.READ_ONLY, start, end - start);
+		List<ClientInstructions> instructions = new ArrayList<>();
+		PARSER.get().parseRows(buffer, 0, buffer.limit(), instructions);
+		return instructions;
+	}
+
+	private static List<ClientInstructions> awaitSegment(Future<List<ClientInstructions>> segment) throws Exception {
+		try {
+			return segment.get();
+		} catch (ExecutionException exception) {
+			if (exception.getCause() instanceof Exception)
+				throw (Exception) exception.getCause();
+			throw exception;
+		}
+	}
+
+	/**
+	 * splits the file into segments of roughly the configured size. Every
+	 * segment boundary is moved forward to just after the next line
+	 * terminator, so that a row never spans two segments
+	 */
+	private long[] alignSegments(long fileSize) throws Exception {
+		List<Long> offsets = new ArrayList<>();
+		offsets.add(0L);
+		ByteBuffer buffer = ByteBuffer.allocate(ALIGNMENT_READ_SIZE);
+		long boundary = segmentSize;
+		while (boundary < fileSize) {
+			boundary = nextRowStart(buffer, boundary, fileSize);
+			if (boundary >= fileSize)
+				break;
+			offsets.add(boundary);
+			boundary += segmentSize;
+		}
+		offsets.add(fileSize);
+
+		long[] segments = new long[offsets.size()];
+		for (int i = 0; i < segments.length; i++)
+			segments[i] = offsets.get(i);
+		return segments;
+	}
+
+	/**
+	 * finds the offset just after the first line terminator at or after the
+	 * given position
+	 */
+	private long nextRowStart(ByteBuffer buffer, long position, long fileSize) throws Exception {
+		while (position < fileSize) {
+			buffer.clear();
+			int read = source.read(buffer, position);
+			if (read <= 0)
+				break;
+			for (int i = 0; i < read; i++) {
+				byte current = buffer.get(i);
+				if (current == '\n' || current == '\r')
+					return position + i + 1;
+			}
+			position += read;
+		}
+		return fileSize;
+	}
+}
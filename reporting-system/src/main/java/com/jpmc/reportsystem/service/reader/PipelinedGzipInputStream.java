@@ -0,0 +1,208 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decompresses a gzip stream on a dedicated thread, ahead of the reader
+ *
+ * <p>
+ * The background thread inflates the compressed input into chunks and hands
+ * them over through a bounded buffer, so the decompression runs in parallel
+ * with the parsing of the chunks already decompressed. The buffer limits the
+ * decompressed data held in memory, the background thread waits once it is
+ * full. Nothing is written to disk.
+ *
+ * <p>
+ * A failure while decompressing is thrown to the reader once it reaches the
+ * chunk it failed on, an error as is and any other failure as an
+ * {@code IOException}.
+ *
+ * @author jnair1
+ *
+ */
+class PipelinedGzipInputStream extends InputStream {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(PipelinedGzipInputStream.class);
+
+	/**
+	 * first two bytes of every gzip stream
+	 */
+	private static final int GZIP_MAGIC_FIRST = 0x1f;
+	private static final int GZIP_MAGIC_SECOND = 0x8b;
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	/**
+	 * marks the end of the decompressed data
+	 */
+	private static final Chunk END = new Chunk(new byte[0], 0, null);
+
+	private final InputStream compressed;
+
+	private final BlockingQueue<Chunk> buffer;
+
+	private final Thread decompressor;
+
+	private volatile boolean closed = false;
+
+	private Chunk current;
+
+	private int position;
+
+	/**
+	 * @param compressed
+	 *            - gzip compressed input, closed along with this stream
+	 * @param bufferedChunks
+	 *            - number of decompressed chunks held ahead of the reader
+	 */
+	PipelinedGzipInputStream(InputStream compressed, int bufferedChunks) {
+		this.compressed = compressed;
+		this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferedChunks));
+		this.decompressor = new Thread(this::decompress, "gzip-decompressor-" + THREAD_COUNT.incrementAndGet());
+		decompressor.setDaemon(true);
+		decompressor.start();
+	}
+
+	/**
+	 * checks the leading bytes for the gzip magic number
+	 *
+	 * @param header
+	 *            - first bytes of the input
+	 * @param length
+	 *            - number of bytes available within the header
+	 */
+	static boolean isGzip(byte[] header, int length) {
+		return length >= 2 && (header[0] & 0xff) == GZIP_MAGIC_FIRST && (header[1] & 0xff) == GZIP_MAGIC_SECOND;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextChunk())
+			return -1;
+		return current.data[position++] & 0xff;
+	}
+
+	@Override
+	public int read(byte[] bytes, int offset, int length) throws IOException {
+		if (length == 0)
+			return 0;
+		if (!nextChunk())
+			return -1;
+		int count = Math.min(length, current.length - position);
+		System.arraycopy(current.data, position, bytes, offset, count);
+		position += count;
+		return count;
+	}
+
+	/**
+	 * stops the decompression and closes the compressed input
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		decompressor.interrupt();
+		try {
+			decompressor.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException exception) {
+			Thread.currentThread().interrupt();
+		}
+		buffer.clear();
+		compressed.close();
+	}
+
+	/**
+	 * moves to the next chunk once the current one is read
+	 *
+	 * @return <tt>false</tt> at the end of the decompressed data
+	 */
+	private boolean nextChunk() throws IOException {
+		if (closed)
+			throw new IOException("stream closed");
+		while (current == null || position == current.length) {
+			if (current == END)
+				return false;
+			try {
+				current = buffer.take();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("interrupted while waiting for the decompression");
+			}
+			position = 0;
+			if (current.error != null) {
+				Chunk failed = current;
+				current = END;
+				if (failed.error instanceof Error)
+					throw (Error) failed.error;
+				throw new IOException("decompression failed", failed.error);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * body of the background thread
+	 */
+	private void decompress() {
+		LOGGER.debug("decompression started");
+		try (GZIPInputStream input = new GZIPInputStream(compressed, CHUNK_SIZE)) {
+			while (true) {
+				byte[] data = new byte[CHUNK_SIZE];
+				int length = 0;
+				int read;
+				while (length < CHUNK_SIZE && (read = input.read(data, length, CHUNK_SIZE - length)) > 0)
+					length += read;
+				if (length > 0)
+					buffer.put(new Chunk(length < CHUNK_SIZE ? Arrays.copyOf(data, length) : data, length, null));
+				if (length < CHUNK_SIZE)
+					break;
+			}
+			buffer.put(END);
+			LOGGER.debug("decompression completed");
+		} catch (InterruptedException exception) {
+			LOGGER.debug("decompression interrupted");
+		} catch (Throwable throwable) {
+			// any failure is handed over, the reader would wait forever
+			// otherwise
+			if (closed)
+				return;
+			try {
+				buffer.put(new Chunk(null, 0, throwable));
+			} catch (InterruptedException interrupted) {
+				LOGGER.debug("decompression interrupted");
+			}
+		}
+	}
+
+	/**
+	 * decompressed bytes, or the failure while decompressing them
+	 */
+	private static final class Chunk {
+		private final byte[] data;
+		private final int length;
+		private final Throwable error;
+
+		private Chunk(byte[] data, int length, Throwable error) {
+			this.data = data;
+			this.length = length;
+			this.error = error;
+		}
+	}
+}
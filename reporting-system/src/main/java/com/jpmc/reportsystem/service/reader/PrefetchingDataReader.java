@@ -0,0 +1,225 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Decorator over any {@code DataReader} reading the next batches ahead of the
+ * caller
+ *
+ * <p>
+ * A background thread keeps calling the wrapped reader and stores the batches
+ * in a bounded buffer, so the reading of the next batches overlaps with the
+ * processing of the current one. The buffer size limits the number of batches
+ * held in memory, the background thread waits once it is full.
+ *
+ * <p>
+ * Batches are handed out in the same order as read. {@link #isDone()} turns
+ * <tt>true</tt> once the batch after which the wrapped reader was done has
+ * been handed out, same as calling the wrapped reader directly. An exception
+ * or error thrown by the wrapped reader is thrown back to the caller of
+ * {@link #read()}, in place of the batch it failed to read.
+ *
+ * @author jnair1
+ *
+ */
+public class PrefetchingDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(PrefetchingDataReader.class);
+
+	/**
+	 * time given to the background thread to finish its current read, when
+	 * the reader is closed
+	 */
+	private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+
+	private final DataReader dataReader;
+
+	private final BlockingQueue<PrefetchedBatch> buffer;
+
+	private Thread prefetcher;
+
+	private volatile boolean isDone = false;
+
+	/**
+	 * @param dataReader
+	 *            - reader to read ahead from
+	 * @param bufferSize
+	 *            - maximum number of batches read ahead
+	 */
+	public PrefetchingDataReader(DataReader dataReader, int bufferSize) {
+		this.dataReader = dataReader;
+		this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize));
+	}
+
+	/**
+	 * adds the connection to the wrapped reader
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		return dataReader.addConnectionDetails(url, resourceName);
+	}
+
+	/**
+	 * passes the required columns on to the wrapped reader
+	 */
+	@Override
+	public void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+		dataReader.setRequiredColumns(requiredColumns);
+	}
+
+	/**
+	 * malformed rows skipped by the wrapped reader
+	 */
+	@Override
+	public long getRejectedCount() {
+		return dataReader.getRejectedCount();
+	}
+
+	/**
+	 * connection status of the wrapped reader
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		return dataReader.isConnectedEstablished();
+	}
+
+	/**
+	 * hands out the next batch read by the background thread. The background
+	 * thread is started with the first read
+	 *
+	 * @return instructions - next batch of instructions
+	 * @throws Exception
+	 *             the exception raised by the wrapped reader
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		if (isDone)
+			return new ArrayList<ClientInstructions>();
+
+		// data processing should not happen if the connection is not valid
+		if (prefetcher == null) {
+			if (!isConnectedEstablished())
+				throw new ReportingSystemException(ReportingSystemResourceUtil
+						.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+			startPrefetching();
+		}
+
+		PrefetchedBatch batch = buffer.take();
+		if (batch.error != null) {
+			isDone = true;
+			if (batch.error instanceof Error)
+				throw (Error) batch.error;
+			throw (Exception) batch.error;
+		}
+		if (batch.last)
+			isDone = true;
+		return batch.instructions;
+	}
+
+	/**
+	 * indicates whether the wrapped reader was done and all of its batches are
+	 * handed out
+	 */
+	@Override
+	public boolean isDone() {
+		return isDone;
+	}
+
+	/**
+	 * stops the background thread, discards the batches read ahead and closes
+	 * the wrapped reader
+	 *
+	 * @throws Exception
+	 */
+	@Override
+	public void close() throws Exception {
+		LOGGER.debug("Closing the prefetching reader");
+		isDone = true;
+		if (prefetcher != null) {
+			prefetcher.interrupt();
+			prefetcher.join(SHUTDOWN_WAIT_MILLIS);
+		}
+		buffer.clear();
+		dataReader.close();
+	}
+
+	private void startPrefetching() {
+		prefetcher = new Thread(this::prefetch, "prefetching-data-reader");
+		prefetcher.setDaemon(true);
+		prefetcher.start();
+	}
+
+	/**
+	 * body of the background thread, reads till the wrapped reader is done or
+	 * fails
+	 */
+	private void prefetch() {
+		LOGGER.debug("prefetching started with bufferSize={}", buffer.remainingCapacity());
+		try {
+			boolean last = false;
+			while (!last) {
+				List<ClientInstructions> instructions;
+				try {
+					instructions = dataReader.read();
+					last = dataReader.isDone();
+				} catch (Throwable throwable) {
+					// errors are handed over too, the caller would wait forever
+					// otherwise
+					enqueue(new PrefetchedBatch(null, false, throwable));
+					return;
+				}
+				if (!enqueue(new PrefetchedBatch(instructions, last, null)))
+					return;
+			}
+			LOGGER.debug("prefetching completed");
+		} catch (InterruptedException exception) {
+			LOGGER.debug("prefetching interrupted");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * waits for the consumer in case the buffer is full
+	 *
+	 * @return <tt>false</tt> in case the reader was closed meanwhile
+	 */
+	private boolean enqueue(PrefetchedBatch batch) throws InterruptedException {
+		while (!buffer.offer(batch, 100, TimeUnit.MILLISECONDS)) {
+			if (isDone)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * batch read ahead, or the failure while reading it
+	 */
+	private static final class PrefetchedBatch {
+		private final List<ClientInstructions> instructions;
+		private final boolean last;
+		private final Throwable error;
+
+		private PrefetchedBatch(List<ClientInstructions> instructions, boolean last, Throwable error) {
+			this.instructions = instructions;
+			this.last = last;
+			this.error = error;
+		}
+	}
+}
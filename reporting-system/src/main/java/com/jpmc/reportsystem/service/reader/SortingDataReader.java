@@ -0,0 +1,407 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.SymbolTable;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * Decorator over any {@code DataReader} handing out the instructions ordered
+ * by settlement date and entity, whatever the order of the input (external
+ * merge sort)
+ *
+ * <p>
+ * The first read drains the wrapped reader in runs of a bounded number of
+ * instructions. Every run is sorted in memory and spilled to a temporary file
+ * as compact binary records, ids instead of names and epoch days instead of
+ * dates, about 50 bytes per instruction. The runs are then merged back by an
+ * {@code InstructionMerger}, holding a single instruction and a read buffer
+ * per run, hence memory is bounded by the run size however large the input.
+ * Input fitting into a single run is never spilled.
+ *
+ * <p>
+ * The order is the settlement date as read, before it is moved to a working
+ * day of the partner, then the entity. Instructions in the same order are
+ * handed out in input order. The ids of the entities and currencies are only
+ * valid within the run, the files are deleted once the reader is closed. The
+ * sorted reader can not resume from a position.
+ *
+ * @author jnair1
+ *
+ */
+public class SortingDataReader implements DataReader {
+
+	/**
+	 * Logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(SortingDataReader.class);
+
+	/**
+	 * order of the instructions handed out, <tt>null</tt> dates and entities
+	 * first
+	 */
+	public static final Comparator<ClientInstructions> SETTLEMENT_ORDER = Comparator
+			.comparing(ClientInstructions::getSettlementDate, Comparator.nullsFirst(Comparator.naturalOrder()))
+			.thenComparing(ClientInstructions::getEntity, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+	private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+	private static final Indicator[] INDICATORS = Indicator.values();
+
+	private final DataReader dataReader;
+
+	private final int runSize;
+
+	/**
+	 * directory of the spilled runs, <tt>null</tt> for the temporary directory
+	 */
+	private final Path spillDirectory;
+
+	private final List<Path> spillFiles = new ArrayList<>();
+
+	/**
+	 * number of instructions handed out per read
+	 */
+	private int batchSize = Integer
+			.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.DATA_CHUNK_SIZE));
+
+	private boolean decodeInstructionDate = true;
+
+	private InstructionMerger merger;
+
+	/**
+	 * sorts with the run size and spill directory configured within the
+	 * properties file
+	 * 
+	 * @param dataReader
+	 *            - reader of the unsorted instructions
+	 */
+	public SortingDataReader(DataReader dataReader) {
+		this(dataReader,
+				Integer.parseInt(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_SORT_RUN_SIZE)),
+				spillDirectory(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_SORT_DIRECTORY)));
+	}
+
+	/**
+	 * @param dataReader
+	 *            - reader of the unsorted instructions
+	 * @param runSize
+	 *            - number of instructions sorted in memory at a time
+	 * @param spillDirectory
+	 *            - directory of the spilled runs, <tt>null</tt> for the
+	 *            temporary directory
+	 */
+	public SortingDataReader(DataReader dataReader, int runSize, Path spillDirectory) {
+		this.dataReader = dataReader;
+		this.runSize = Math.max(1, runSize);
+		this.spillDirectory = spillDirectory;
+	}
+
+	/**
+	 * adds the connection to the wrapped reader
+	 */
+	@Override
+	public boolean addConnectionDetails(String url, String resourceName) throws Exception {
+		return dataReader.addConnectionDetails(url, resourceName);
+	}
+
+	/**
+	 * passes the required columns on to the wrapped reader, along with the
+	 * columns of the order. All the columns are written to the runs, apart
+	 * from the instruction date when not required
+	 */
+	@Override
+	public void setRequiredColumns(Set<InstructionColumn> requiredColumns) {
+		Set<InstructionColumn> columns = EnumSet.of(InstructionColumn.SETTLEMENT_DATE, InstructionColumn.ENTITY);
+		columns.addAll(requiredColumns);
+		decodeInstructionDate = columns.contains(InstructionColumn.INSTRUCTION_DATE);
+		dataReader.setRequiredColumns(columns);
+	}
+
+	/**
+	 * malformed rows skipped by the wrapped reader
+	 */
+	@Override
+	public long getRejectedCount() {
+		return dataReader.getRejectedCount();
+	}
+
+	/**
+	 * connection status of the wrapped reader
+	 */
+	@Override
+	public boolean isConnectedEstablished() throws Exception {
+		return dataReader.isConnectedEstablished();
+	}
+
+	/**
+	 * number of runs merged, 0 before the first read
+	 */
+	public int getRunCount() {
+		return merger == null ? 0 : merger.getRunCount();
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	/**
+	 * reads the next batch of instructions in order, the first read sorts the
+	 * whole input
+	 * 
+	 * @return instructions - next batch of instructions
+	 * @throws Exception
+	 */
+	@Override
+	public List<ClientInstructions> read() throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<>(batchSize);
+		read(instructions::add);
+		return instructions;
+	}
+
+	/**
+	 * pushes the next batch of instructions in order to the consumer, the
+	 * first read sorts the whole input
+	 * 
+	 * @param consumer
+	 * @return number of instructions pushed
+	 * @throws Exception
+	 */
+	@Override
+	public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+		if (merger == null)
+			sortRuns();
+		int count = 0;
+		ClientInstructions instruction;
+		while (count < batchSize && (instruction = merger.next()) != null) {
+			consumer.accept(instruction);
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * indicates whether all the instructions were handed out
+	 */
+	@Override
+	public boolean isDone() throws Exception {
+		return merger != null && merger.isExhausted();
+	}
+
+	/**
+	 * closes the runs and the wrapped reader, deleting the spilled runs
+	 */
+	@Override
+	public void close() throws Exception {
+		try {
+			if (merger != null)
+				merger.close();
+		} finally {
+			for (Path spillFile : spillFiles)
+				Files.deleteIfExists(spillFile);
+			spillFiles.clear();
+			dataReader.close();
+		}
+	}
+
+	/**
+	 * drains the wrapped reader into sorted runs, spilling every full run
+	 */
+	private void sortRuns() throws Exception {
+		if (!isConnectedEstablished())
+			throw new ReportingSystemException(ReportingSystemResourceUtil
+					.getValue(ReportingSystemConstants.EXCEPTION_READER_INVALID_CONNECTION));
+		List<InstructionMerger.Run> runs = new ArrayList<>();
+		List<ClientInstructions> run = new ArrayList<>(Math.min(runSize, 1 << 16));
+		long instructionCount = 0;
+		while (!dataReader.isDone()) {
+			List<ClientInstructions> instructions = dataReader.read();
+			for (ClientInstructions instruction : instructions) {
+				run.add(instruction);
+				if (run.size() == runSize) {
+					runs.add(spill(run));
+					run.clear();
+				}
+			}
+			instructionCount += instructions.size();
+		}
+		if (runs.isEmpty()) {
+			// the input fits into a single run, no need to spill
+			run.sort(SETTLEMENT_ORDER);
+			runs.add(new MemoryRun(run));
+		} else if (!run.isEmpty()) {
+			runs.add(spill(run));
+		}
+		merger = new InstructionMerger(runs, SETTLEMENT_ORDER);
+		LOGGER.info("Sorted instructions={} in runs={} of runSize={}", instructionCount, runs.size(), runSize);
+	}
+
+	/**
+	 * sorts the run and writes it to a temporary file
+	 */
+	private SpillRun spill(List<ClientInstructions> run) throws IOException {
+		run.sort(SETTLEMENT_ORDER);
+		Path file = spillDirectory == null ? Files.createTempFile("instructions-", ".run")
+				: Files.createTempFile(spillDirectory, "instructions-", ".run");
+		spillFiles.add(file);
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file), SPILL_BUFFER_SIZE))) {
+			for (ClientInstructions instruction : run)
+				writeInstruction(output, instruction);
+		}
+		LOGGER.debug("Spilled instructions={} to file={}", run.size(), file);
+		return new SpillRun(file, run.size());
+	}
+
+	private void writeInstruction(DataOutputStream output, ClientInstructions instruction) throws IOException {
+		output.writeInt(instruction.getEntityId());
+		output.writeByte(instruction.getIndicator() == null ? InstructionBatch.NO_INDICATOR
+				: instruction.getIndicator().ordinal());
+		output.writeInt(instruction.getCurrencyId());
+		writeDay(output, decodeInstructionDate ? instruction.getInstructionDate() : null);
+		writeDay(output, instruction.getSettlementDate());
+		writeDecimal(output, instruction.getAgreedFx());
+		writeDecimal(output, instruction.getUnitPrice());
+		writeInteger(output, instruction.getUnits());
+	}
+
+	private static ClientInstructions readInstruction(DataInputStream input) throws IOException {
+		String entity = SymbolTable.entities().valueOf(input.readInt());
+		byte indicator = input.readByte();
+		int currencyId = input.readInt();
+		LocalDate instructionDate = readDay(input);
+		LocalDate settlementDate = readDay(input);
+		BigDecimal agreedFx = readDecimal(input);
+		BigDecimal unitPrice = readDecimal(input);
+		BigInteger units = readInteger(input);
+		return new ClientInstructions(entity, indicator == InstructionBatch.NO_INDICATOR ? null : INDICATORS[indicator],
+				agreedFx, unitPrice, units, SymbolTable.currencies().valueOf(currencyId), instructionDate,
+				settlementDate);
+	}
+
+	private static void writeDay(DataOutputStream output, LocalDate date) throws IOException {
+		output.writeInt(date == null ? InstructionBatch.NO_DATE : (int) date.toEpochDay());
+	}
+
+	private static LocalDate readDay(DataInputStream input) throws IOException {
+		int day = input.readInt();
+		return day == InstructionBatch.NO_DATE ? null : LocalDate.ofEpochDay(day);
+	}
+
+	private static void writeDecimal(DataOutputStream output, BigDecimal value) throws IOException {
+		output.writeInt(value.scale());
+		writeInteger(output, value.unscaledValue());
+	}
+
+	private static BigDecimal readDecimal(DataInputStream input) throws IOException {
+		int scale = input.readInt();
+		return new BigDecimal(readInteger(input), scale);
+	}
+
+	/**
+	 * a long when it fits, the bytes otherwise
+	 */
+	private static void writeInteger(DataOutputStream output, BigInteger value) throws IOException {
+		if (value.bitLength() < Long.SIZE) {
+			output.writeByte(0);
+			output.writeLong(value.longValue());
+		} else {
+			byte[] bytes = value.toByteArray();
+			output.writeByte(bytes.length);
+			output.write(bytes);
+		}
+	}
+
+	private static BigInteger readInteger(DataInputStream input) throws IOException {
+		int length = input.readUnsignedByte();
+		if (length == 0)
+			return BigInteger.valueOf(input.readLong());
+		byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		return new BigInteger(bytes);
+	}
+
+	private static Path spillDirectory(String directory) {
+		return directory == null || directory.trim().isEmpty() ? null : Paths.get(directory.trim());
+	}
+
+	/**
+	 * run held in memory, when the input fits into a single run
+	 */
+	private static final class MemoryRun implements InstructionMerger.Run {
+		private final Iterator<ClientInstructions> instructions;
+
+		private MemoryRun(List<ClientInstructions> instructions) {
+			this.instructions = instructions.iterator();
+		}
+
+		@Override
+		public ClientInstructions next() {
+			return instructions.hasNext() ? instructions.next() : null;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+
+	/**
+	 * run spilled to a file, opened with its first read
+	 */
+	private static final class SpillRun implements InstructionMerger.Run {
+		private final Path file;
+		private int remaining;
+		private DataInputStream input;
+
+		private SpillRun(Path file, int count) {
+			this.file = file;
+			this.remaining = count;
+		}
+
+		@Override
+		public ClientInstructions next() throws IOException {
+			if (remaining == 0) {
+				close();
+				return null;
+			}
+			if (input == null)
+				input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), SPILL_BUFFER_SIZE));
+			remaining--;
+			return readInstruction(input);
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (input != null) {
+				input.close();
+				input = null;
+			}
+		}
+	}
+}
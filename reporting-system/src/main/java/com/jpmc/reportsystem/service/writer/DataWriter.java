@@ -18,6 +18,21 @@ public interface DataWriter {
 	 */
 	public void write(String data);
 
+	/**
+	 * method to write out the data buffered so far, e.g. before a checkpoint.
+	 * Writers not buffering do nothing
+	 */
+	public default void flush() {
+	}
+
+	/**
+	 * method to continue the output of a run resumed from a checkpoint,
+	 * keeping the data written before. Writers replacing their output do
+	 * nothing
+	 */
+	public default void resume() {
+	}
+
 	/**
 	 * method to close the resource
 	 * 
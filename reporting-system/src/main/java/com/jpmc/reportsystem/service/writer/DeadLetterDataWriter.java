@@ -0,0 +1,198 @@
+package com.jpmc.reportsystem.service.writer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import javax.naming.OperationNotSupportedException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.util.ReportingSystemConstants;
+import com.jpmc.reportsystem.util.ReportingSystemResourceUtil;
+
+/**
+ * File implementation of DataWriter, collecting the rows a reader could not
+ * parse
+ *
+ * <p>
+ * Every rejected row is written as a single tab separated line holding the
+ * name of the source, the line number, the reason and the row as read. Lines are buffered and only
+ * flushed once the writer is closed, hence a bad row costs about as much as
+ * parsing a good one. The file is created on the first rejected row, no file
+ * is left behind by a clean run. A run resumed from a checkpoint appends to
+ * the file instead, the rows written after the checkpoint being flushed with
+ * it.
+ *
+ * <p>
+ * The number of rejected rows is capped, the row exceeding the cap raises a
+ * {@code ReportingSystemException} failing the run. Rejecting is
+ * synchronized, the writer can be shared by readers parsing on multiple
+ * threads, e.g. by all the sources of a run, which then share the cap.
+ *
+ * @author jnair1
+ *
+ */
+public class DeadLetterDataWriter implements DataWriter {
+
+	/**
+	 * logger
+	 */
+	private Logger LOGGER = LoggerFactory.getLogger(DeadLetterDataWriter.class);
+
+	private final Path file;
+
+	private final long maxRejected;
+
+	private BufferedWriter writer;
+
+	/**
+	 * file was created by this writer, rows rejected after closing are
+	 * appended
+	 */
+	private boolean created;
+
+	private long rejectedCount;
+
+	/**
+	 * writer of the file and error limit configured within the properties file
+	 */
+	public DeadLetterDataWriter() {
+		this(Paths.get(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_DEADLETTER_FILE)),
+				Long.parseLong(ReportingSystemResourceUtil.getValue(ReportingSystemConstants.READER_ERROR_LIMIT)));
+	}
+
+	/**
+	 * @param file
+	 *            - file the rejected rows are written to
+	 * @param maxRejected
+	 *            - number of rows that can be rejected before the run fails
+	 */
+	public DeadLetterDataWriter(Path file, long maxRejected) {
+		this.file = file;
+		this.maxRejected = maxRejected;
+	}
+
+	/**
+	 * writes a rejected row, counting it against the cap
+	 *
+	 * @param source
+	 *            - name of the source the row was read from
+	 * @param lineNumber
+	 *            - number of the line, starting at 1
+	 * @param reason
+	 *            - why the row was rejected
+	 * @param row
+	 *            - the row as read
+	 * @throws ReportingSystemException
+	 *             in case the cap is exceeded
+	 */
+	public synchronized void reject(String source, long lineNumber, String reason, String row)
+			throws ReportingSystemException {
+		rejectedCount++;
+		if (rejectedCount > maxRejected)
+			throw new ReportingSystemException(
+					ReportingSystemResourceUtil.getValue(ReportingSystemConstants.EXCEPTION_READER_ERROR_LIMIT)
+							+ " maxRejected=" + maxRejected + ", source=" + source + ", lineNumber=" + lineNumber);
+		LOGGER.debug("rejected source={} lineNumber={} for reason={}", source, lineNumber, reason);
+		write(clean(source) + "\t" + lineNumber + "\t" + clean(reason) + "\t" + row);
+	}
+
+	/**
+	 * continues the file of a run resumed from a checkpoint, the rows
+	 * rejected before the checkpoint counting against the cap
+	 *
+	 * @param rejectedCount
+	 *            - rows rejected before the checkpoint
+	 */
+	public synchronized void resume(long rejectedCount) {
+		this.rejectedCount = rejectedCount;
+		resume();
+	}
+
+	/**
+	 * appends to the file from now on, keeping the rows written before
+	 */
+	@Override
+	public synchronized void resume() {
+		created = true;
+	}
+
+	/**
+	 * writes out the rows buffered so far
+	 */
+	@Override
+	public synchronized void flush() {
+		if (writer == null)
+			return;
+		try {
+			writer.flush();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * number of rows rejected so far, by all the readers sharing the writer
+	 */
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	public long getMaxRejected() {
+		return maxRejected;
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	/**
+	 * appends the data as a line of the file
+	 */
+	@Override
+	public synchronized void write(String data) {
+		try {
+			if (writer == null) {
+				writer = created ? Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.APPEND)
+						: Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+				created = true;
+			}
+			writer.write(data);
+			writer.newLine();
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+	/**
+	 * flushes and closes the file, in case any row was rejected
+	 */
+	@Override
+	public synchronized void close() throws OperationNotSupportedException {
+		if (writer == null)
+			return;
+		try {
+			writer.close();
+			LOGGER.info("rejectedCount={} rows written to file={}", rejectedCount, file);
+		} catch (IOException exception) {
+			throw new UncheckedIOException(exception);
+		} finally {
+			writer = null;
+		}
+	}
+
+	/**
+	 * the text on a single line, without tabs
+	 */
+	private static String clean(String reason) {
+		return reason == null ? "" : reason.replace('\t', ' ').replace('\r', ' ').replace('\n', ' ');
+	}
+}
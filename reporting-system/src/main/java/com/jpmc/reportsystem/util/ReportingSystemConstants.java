@@ -15,14 +15,74 @@ public interface ReportingSystemConstants {
 	
 	public static String EXCEPTION_READER_INVALID_INPUT = "exceptions.reader.invalidinput"; 
 	public static String EXCEPTION_READER_INVALID_CONNECTION = "exceptions.reader.invalidconnection";
+	public static String EXCEPTION_READER_INVALID_TYPE = "exceptions.reader.invalidtype";
 	public static String EXCEPTION_DEPENDENCY_INJECTION = "exceptions.dependencies";
+	public static String EXCEPTION_READER_ERROR_LIMIT = "exceptions.reader.errorlimit";
+	public static String EXCEPTION_READER_NOT_RESUMABLE = "exceptions.reader.notresumable";
+	public static String EXCEPTION_CHECKPOINT_INVALID = "exceptions.checkpoint.invalid";
+	public static String EXCEPTION_READER_UNSORTED = "exceptions.reader.unsorted";
+	public static String EXCEPTION_READER_FOLLOW_UNSUPPORTED = "exceptions.reader.follow.unsupported";
+	public static String EXCEPTION_PARTNER_REGISTRY_INVALID = "exceptions.partner.registry.invalid";
+	public static String EXCEPTION_CORRECTION_INVALID = "exceptions.correction.invalid";
+	public static String EXCEPTION_CORRECTION_REJECTED = "exceptions.correction.rejected";
 	
 	public static String DATA_CHUNK_SIZE = "chunksize";
+	public static String DATA_CHUNK_SIZE_MAX = "chunksize.max";
 	
-	public static String CURRENCY_AED = "AED";
-	public static String CURRENCY_SAR = "SAR";
+	public static String READER_TYPE = "reader.type";
+	public static String READER_TYPE_CSV = "csv";
+	public static String READER_TYPE_MAPPED = "mapped";
+	public static String READER_TYPE_PARALLEL = "parallel";
+	public static String READER_TYPE_FIXEDWIDTH = "fixedwidth";
+	public static String READER_PARALLEL_THREADS = "reader.parallel.threads";
+	public static String READER_PARALLEL_SEGMENT_SIZE = "reader.parallel.segment.size";
+	public static String READER_FIXEDWIDTH_LAYOUT = "reader.fixedwidth.layout";
+	public static String READER_FIXEDWIDTH_RECORD_LENGTH = "reader.fixedwidth.record.length";
+	public static String READER_FIXEDWIDTH_THREADS = "reader.fixedwidth.threads";
+	public static String READER_PREFETCH_BATCHES = "reader.prefetch.batches";
+	public static String READER_CACHE_ENABLED = "reader.cache.enabled";
+	public static String READER_FOLLOW = "reader.follow";
+	public static String READER_FOLLOW_POLL_MILLIS = "reader.follow.poll.millis";
+	public static String READER_FOLLOW_REFRESH_MILLIS = "reader.follow.refresh.millis";
+	public static String READER_GZIP_BUFFER_CHUNKS = "reader.gzip.buffer.chunks";
+	public static String READER_ADAPTIVE_BATCH = "reader.adaptive.batch";
+	public static String READER_ADAPTIVE_TARGET_MILLIS = "reader.adaptive.target.millis";
+	public static String READER_ADAPTIVE_MIN_FREE_HEAP = "reader.adaptive.min.free.heap";
+	public static String READER_MESSAGE_CAPACITY = "reader.message.capacity";
+	public static String READER_MESSAGE_BATCH_TIMEOUT_MILLIS = "reader.message.batch.timeout.millis";
+	public static String READER_TOLERANT = "reader.tolerant";
+	public static String READER_DEADLETTER_FILE = "reader.deadletter.file";
+	public static String READER_ERROR_LIMIT = "reader.error.limit";
+	public static String READER_SORT = "reader.sort";
+	public static String READER_SORT_RUN_SIZE = "reader.sort.run.size";
+	public static String READER_SORT_DIRECTORY = "reader.sort.directory";
+	public static String READER_RESOURCE = "reader.resource";
+	public static String READER_MERGE = "reader.merge";
+	public static String READER_MERGE_READAHEAD_BATCHES = "reader.merge.readahead.batches";
+	public static String STORE_OFFHEAP_ENABLED = "store.offheap.enabled";
+	public static String STORE_OFFHEAP_SEGMENT_RECORDS = "store.offheap.segment.records";
+	public static String STORE_OFFHEAP_DIRECTORY = "store.offheap.directory";
+	public static String CHECKPOINT_FILE = "checkpoint.file";
+	public static String CHECKPOINT_INTERVAL_MILLIS = "checkpoint.interval.millis";
+	public static String DEDUP_ENABLED = "dedup.enabled";
+	public static String DEDUP_EXPECTED_INSTRUCTIONS = "dedup.expected.instructions";
+	public static String DEDUP_BLOOM_ENABLED = "dedup.bloom.enabled";
+	public static String DEDUP_BLOOM_FPP = "dedup.bloom.fpp";
+	public static String WATERMARK_LATENESS_DAYS = "watermark.lateness.days";
+	public static String WATERMARK_LATE_FILE = "watermark.late.file";
+	public static String CORRECTIONS_FILE = "corrections.file";
+	public static String CORRECTIONS_EXPECTED_INSTRUCTIONS = "corrections.expected.instructions";
+	public static String CALENDAR_FIRST_YEAR = "calendar.first.year";
+	public static String CALENDAR_LAST_YEAR = "calendar.last.year";
+	public static String PARTNERS = "partners";
+	public static String PARTNER_PREFIX = "partner.";
+	public static String PARTNER_OPERATING_DAYS = ".operating.days";
+	public static String PARTNER_HOLIDAYS = ".holidays";
+	public static String PARTNER_CURRENCIES = ".currencies";
+	public static String PARTNER_REGISTRY_FILE = "partner.registry.file";
 	
 	public static String STATUS_SUCCESS = "SUCCESS";
 	public static String STATUS_FAILURE = "FAILURE";
+	public static String STATUS_SUCCESS_WITH_ERRORS = "SUCCESS_WITH_ERRORS";
 	
 }
@@ -0,0 +1,98 @@
+package com.jpmc.reportsystem.app;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.FixedPointAmount;
+import com.jpmc.reportsystem.model.LongHashSet;
+import com.jpmc.reportsystem.model.SettlementAdjustmentJournal;
+
+/**
+ * Tests for the ProcessingCheckpoint
+ *
+ * @author jnair1
+ *
+ */
+public class ProcessingCheckpointTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * a checkpoint read back holds the same position, amounts and journal,
+	 * amounts beyond a long and missing keys included
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void write_Read() throws Exception {
+		Map<LocalDate, FixedPointAmount> incomings = new HashMap<>();
+		incomings.put(LocalDate.of(2018, 7, 27), new FixedPointAmount().add(new BigDecimal("12.500")));
+		incomings.put(null, new FixedPointAmount().add(new BigDecimal("1")));
+		Map<LocalDate, FixedPointAmount> outgoings = new HashMap<>();
+		outgoings.put(LocalDate.of(2018, 7, 30),
+				new FixedPointAmount().add(new BigDecimal("123456789012345678901234567890.25")));
+		Map<String, FixedPointAmount> incomingTotals = new HashMap<>();
+		incomingTotals.put("foo", new FixedPointAmount().add(new BigDecimal("13.500")));
+		incomingTotals.put(null, new FixedPointAmount().add(new BigDecimal("-2")));
+		SettlementAdjustmentJournal journal = new SettlementAdjustmentJournal();
+		journal.reserveInstructionIndexes(10);
+		journal.record(3, 17740, 17742, journal.ruleIdOf("AED"));
+		journal.record(7, 17741, 17743, journal.ruleIdOf("Default"));
+		journal.record(8, 17735, 17737, journal.ruleIdOf("AED"));
+		journal.compact(17740);
+
+		File file = new File(folder.getRoot(), "run.checkpoint");
+		LongHashSet fingerprints = new LongHashSet();
+		fingerprints.add(0);
+		fingerprints.add(-42);
+		new ProcessingCheckpoint(4096, incomings, outgoings, incomingTotals, new HashMap<>(), journal, 17745, 3, 2,
+				1234, fingerprints, fingerprints, 5).write(file.toPath());
+		ProcessingCheckpoint checkpoint = ProcessingCheckpoint.read(file.toPath());
+
+		Assert.assertEquals(4096, checkpoint.getReaderPosition());
+		Assert.assertEquals(17745, checkpoint.getMaxSettlementDay());
+		Assert.assertEquals(3, checkpoint.getLateCount());
+		Assert.assertEquals(2, checkpoint.getRejectedCount());
+		Assert.assertEquals(1234, checkpoint.getLineNumber());
+		Assert.assertEquals(2, checkpoint.getCorrectableFingerprints().size());
+		Assert.assertTrue(checkpoint.getCorrectableFingerprints().contains(0));
+		Assert.assertTrue(checkpoint.getCorrectableFingerprints().contains(-42));
+		Assert.assertEquals(2, checkpoint.getSeenFingerprints().size());
+		Assert.assertTrue(checkpoint.getSeenFingerprints().contains(-42));
+		Assert.assertEquals(5, checkpoint.getDuplicateCount());
+		Assert.assertEquals(new BigDecimal("12.500"),
+				checkpoint.getIncomings().get(LocalDate.of(2018, 7, 27)).toBigDecimal());
+		Assert.assertEquals(BigDecimal.ONE, checkpoint.getIncomings().get(null).toBigDecimal());
+		Assert.assertEquals(new BigDecimal("123456789012345678901234567890.25"),
+				checkpoint.getOutgoings().get(LocalDate.of(2018, 7, 30)).toBigDecimal());
+		Assert.assertEquals(new BigDecimal("-2"), checkpoint.getIncomingTotals().get(null).toBigDecimal());
+		Assert.assertTrue(checkpoint.getOutgoingTotals().isEmpty());
+
+		SettlementAdjustmentJournal restored = checkpoint.getAdjustmentJournal();
+		Assert.assertEquals(10, restored.getInstructionCount());
+		Assert.assertEquals(2, restored.size());
+		Assert.assertEquals(7, restored.getInstructionIndex(1));
+		Assert.assertEquals(LocalDate.ofEpochDay(17743), restored.getAdjustedDate(1));
+		Assert.assertEquals("Default", restored.getRuleName(restored.getRuleId(1)));
+		Assert.assertArrayEquals(new long[] { 2, 4 }, restored.summarize().get("AED"));
+	}
+
+	@Test(expected = ReportingSystemException.class)
+	public void read_Invalid() throws Exception {
+		File file = folder.newFile("run.checkpoint");
+		Files.write(file.toPath(), "not a checkpoint".getBytes(StandardCharsets.UTF_8));
+		ProcessingCheckpoint.read(file.toPath());
+	}
+}
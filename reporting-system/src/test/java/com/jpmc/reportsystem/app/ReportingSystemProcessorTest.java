@@ -1,17 +1,54 @@
 package com.jpmc.reportsystem.app;
 
+import java.io.File;
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.naming.OperationNotSupportedException;
 
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.model.InstructionCorrection;
+import com.jpmc.reportsystem.model.OffHeapInstructionStore;
+import com.jpmc.reportsystem.model.SymbolTable;
 import com.jpmc.reportsystem.service.CalculationServiceImpl;
 import com.jpmc.reportsystem.service.DataManipulationServiceImpl;
+import com.jpmc.reportsystem.service.DeduplicationServiceImpl;
 import com.jpmc.reportsystem.service.RankingServiceImpl;
 import com.jpmc.reportsystem.service.reader.CSVDataReader;
+import com.jpmc.reportsystem.service.reader.CorrectionDataReader;
 import com.jpmc.reportsystem.service.reader.DataReader;
+import com.jpmc.reportsystem.service.reader.InstructionFileGenerator;
 import com.jpmc.reportsystem.service.writer.ConsoleDataWriter;
+import com.jpmc.reportsystem.service.writer.DataWriter;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
 
 /**
  * tests for ReportingSystemProcessor as most of the individual components have
@@ -25,6 +62,9 @@ import com.jpmc.reportsystem.service.writer.ConsoleDataWriter;
  */
 public class ReportingSystemProcessorTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private ReportingSystemProcessor processor;
 	private DataReader dataReader;
 
@@ -90,8 +130,626 @@ public class ReportingSystemProcessorTest {
 
 		processor.process();
 	}
-	
-	
-	
+
+	/**
+	 * the rows of the adjustment report line up with the columns of its
+	 * header
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_AdjustmentReportLayout() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		// a friday off for the AED partner, a saturday off for the default one
+		append(file, "Foo1,Buy,0.50,AED,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,12/01/2019,200,100.25\n"
+				+ "Foo3,Sell,0.50,GBP,01/01/2019,12/01/2019,300,100.25\n");
+		List<String> reports = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		Assert.assertEquals("SUCCESS", newProcessor(reader, reports).process());
+
+		String[] lines = reports.get(4).split("\n");
+		Assert.assertEquals("  Partner Calendar  | Adjusted | Days   ", lines[4]);
+		Assert.assertEquals("--------------------+----------+--------", lines[5]);
+		List<String> rows = Arrays.asList(lines).subList(6, lines.length);
+		Assert.assertTrue(rows.toString(), rows.contains(" Default            |        2 |      4 "));
+		Assert.assertTrue(rows.toString(), rows.contains(" AED                |        1 |      2 "));
+		for (String row : rows) {
+			Assert.assertEquals(row, lines[5].length(), row.length());
+			Assert.assertEquals(row, lines[5].indexOf('+'), row.indexOf('|'));
+			Assert.assertEquals(row, lines[5].lastIndexOf('+'), row.lastIndexOf('|'));
+		}
+	}
+
+	/**
+	 * processed instructions are kept in the store, with the settlement dates
+	 * validated
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_WithInstructionStore() throws Exception {
+		dataReader.addConnectionDetails("src/main/resources", "client-instructions.csv");
+		try (OffHeapInstructionStore instructionStore = new OffHeapInstructionStore(4)) {
+			processor.setInstructionStore(instructionStore);
+			Assert.assertEquals("SUCCESS", processor.process());
+
+			Assert.assertEquals(18, instructionStore.size());
+			for (long row = 0; row < instructionStore.size(); row++) {
+				DayOfWeek dayOfWeek = instructionStore.getSettlementDate(row).getDayOfWeek();
+				Assert.assertNotEquals(DayOfWeek.SATURDAY, dayOfWeek);
+			}
+		}
+	}
+
+	/**
+	 * malformed rows skipped by a tolerant reader are reported in the status
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_Tolerant() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Sell,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,11/01/2019,abc,100.25\n");
+		CSVDataReader tolerantReader = new CSVDataReader();
+		tolerantReader.setDeadLetterWriter(
+				new DeadLetterDataWriter(new File(folder.getRoot(), "instructions.rejected").toPath(), 10));
+		tolerantReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor processor = new ReportingSystemProcessor(new CalculationServiceImpl(),
+				new RankingServiceImpl(), new DataManipulationServiceImpl(), tolerantReader, new ConsoleDataWriter());
+
+		Assert.assertEquals("SUCCESS_WITH_ERRORS", processor.process());
+		Assert.assertEquals(1, tolerantReader.getRejectedCount());
+	}
+
+	/**
+	 * none of the reports read the instruction date
+	 */
+	@Test
+	public void getRequiredColumns_WithoutInstructionDate() {
+		Assert.assertFalse(processor.getRequiredColumns().contains(InstructionColumn.INSTRUCTION_DATE));
+		Assert.assertTrue(processor.getRequiredColumns().contains(InstructionColumn.SETTLEMENT_DATE));
+		Assert.assertTrue(processor.getRequiredColumns().contains(InstructionColumn.ENTITY));
+	}
+
+	/**
+	 * reports refreshed while following a file contain the instructions
+	 * appended so far
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void refreshReports_WhileFollowing() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Sell,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		CSVDataReader followingReader = new CSVDataReader();
+		followingReader.setFollow(true);
+		followingReader.setFollowPollMillis(1);
+		followingReader.addConnectionDetails(file.getParent(), file.getName());
+
+		List<String> reports = new CopyOnWriteArrayList<>();
+		ReportingSystemProcessor processor = new ReportingSystemProcessor(new CalculationServiceImpl(),
+				new RankingServiceImpl(), new DataManipulationServiceImpl(), followingReader, new DataWriter() {
+
+					@Override
+					public void write(String data) {
+						reports.add(data);
+					}
+
+					@Override
+					public void close() throws OperationNotSupportedException {
+					}
+				});
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> status = executor.submit(processor::process);
+
+			append(file, "Bar1,Sell,0.50,GBP,01/01/2019,11/01/2019,500,100.25\n");
+			String outgoingRanking = awaitOutgoingRanking(processor, reports, "Bar1");
+			Assert.assertTrue(outgoingRanking.contains("Foo1"));
+
+			followingReader.stopFollowing();
+			Assert.assertEquals("SUCCESS", status.get(5, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * a run dying half way leaves a checkpoint, the next run resumes from it
+	 * and produces the same reports as an uninterrupted run
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_ResumeFromCheckpoint() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 500, 17);
+		File checkpointFile = new File(folder.getRoot(), "instructions.checkpoint");
+
+		List<String> expected = new ArrayList<>();
+		CSVDataReader uninterruptedReader = new CSVDataReader();
+		uninterruptedReader.addConnectionDetails(file.getParent(), file.getName());
+		Assert.assertEquals("SUCCESS", newProcessor(uninterruptedReader, expected).process());
+
+		CSVDataReader dyingReader = new CSVDataReader() {
+			private int reads;
+
+			@Override
+			public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+				if (++reads > 100)
+					throw new IllegalStateException("died");
+				return super.read(consumer);
+			}
+		};
+		dyingReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor dyingProcessor = newProcessor(dyingReader, new ArrayList<>());
+		dyingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("FAILURE", dyingProcessor.process());
+		Assert.assertTrue(checkpointFile.exists());
+		Assert.assertTrue(ProcessingCheckpoint.read(checkpointFile.toPath()).getReaderPosition() > 0);
+
+		List<String> actual = new ArrayList<>();
+		CSVDataReader resumingReader = new CSVDataReader();
+		resumingReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor resumingProcessor = newProcessor(resumingReader, actual);
+		resumingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("SUCCESS", resumingProcessor.process());
+
+		Assert.assertEquals(expected, actual);
+		Assert.assertFalse(checkpointFile.exists());
+	}
+
+	/**
+	 * a tolerant run resumed from a checkpoint keeps the rows quarantined
+	 * before dying, numbers the lines on and reports the same status as an
+	 * uninterrupted run
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_ResumeTolerantFromCheckpoint() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 500, 17);
+		List<String> lines = new ArrayList<>(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+		lines.add(400, "Foo2,Hold,0.50,GBP,01/01/2019,11/01/2019,100,100.25");
+		lines.add(50, "Foo1,Hold,0.50,GBP,01/01/2019,11/01/2019,100,100.25");
+		Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+		File checkpointFile = new File(folder.getRoot(), "instructions.checkpoint");
+
+		List<String> expected = new ArrayList<>();
+		File expectedRejected = new File(folder.getRoot(), "uninterrupted.rejected");
+		CSVDataReader uninterruptedReader = new CSVDataReader();
+		uninterruptedReader.setDeadLetterWriter(new DeadLetterDataWriter(expectedRejected.toPath(), 10));
+		uninterruptedReader.addConnectionDetails(file.getParent(), file.getName());
+		Assert.assertEquals("SUCCESS_WITH_ERRORS", newProcessor(uninterruptedReader, expected).process());
+
+		File actualRejected = new File(folder.getRoot(), "resumed.rejected");
+		CSVDataReader dyingReader = new CSVDataReader() {
+			private int reads;
+
+			@Override
+			public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+				if (++reads > 100)
+					throw new IllegalStateException("died");
+				return super.read(consumer);
+			}
+		};
+		dyingReader.setDeadLetterWriter(new DeadLetterDataWriter(actualRejected.toPath(), 10));
+		dyingReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor dyingProcessor = newProcessor(dyingReader, new ArrayList<>());
+		dyingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("FAILURE", dyingProcessor.process());
+		Assert.assertEquals(1, ProcessingCheckpoint.read(checkpointFile.toPath()).getRejectedCount());
+
+		List<String> actual = new ArrayList<>();
+		CSVDataReader resumingReader = new CSVDataReader();
+		resumingReader.setDeadLetterWriter(new DeadLetterDataWriter(actualRejected.toPath(), 10));
+		resumingReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor resumingProcessor = newProcessor(resumingReader, actual);
+		resumingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("SUCCESS_WITH_ERRORS", resumingProcessor.process());
+
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(2, resumingReader.getRejectedCount());
+		Assert.assertEquals(Files.readAllLines(expectedRejected.toPath(), StandardCharsets.UTF_8),
+				Files.readAllLines(actualRejected.toPath(), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * a feed replaying every instruction produces the same reports as the
+	 * feed read once, the replayed instructions being dropped and counted
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_DropDuplicates() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 500, 23);
+		File replayedFile = folder.newFile("replayed-instructions.csv");
+		byte[] content = Files.readAllBytes(file.toPath());
+		Files.write(replayedFile.toPath(), content);
+		Files.write(replayedFile.toPath(), content, StandardOpenOption.APPEND);
+
+		List<String> expected = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		Assert.assertEquals("SUCCESS", newProcessor(reader, expected).process());
+
+		List<String> actual = new ArrayList<>();
+		CSVDataReader replayedReader = new CSVDataReader();
+		replayedReader.addConnectionDetails(replayedFile.getParent(), replayedFile.getName());
+		ReportingSystemProcessor deduplicatingProcessor = newProcessor(replayedReader, actual);
+		DeduplicationServiceImpl deduplicationService = new DeduplicationServiceImpl(500);
+		deduplicatingProcessor.setDeduplicationService(deduplicationService);
+		Assert.assertEquals(EnumSet.allOf(InstructionColumn.class), deduplicatingProcessor.getRequiredColumns());
+		Assert.assertEquals("SUCCESS", deduplicatingProcessor.process());
+
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(500, deduplicationService.getDuplicateCount());
+	}
+
+	/**
+	 * a run dropping duplicates resumed from a checkpoint still drops the
+	 * replays of the instructions read before the checkpoint
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_DropDuplicatesAfterResume() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 500, 29);
+		File replayedFile = folder.newFile("replayed-instructions.csv");
+		byte[] content = Files.readAllBytes(file.toPath());
+		Files.write(replayedFile.toPath(), content);
+		Files.write(replayedFile.toPath(), content, StandardOpenOption.APPEND);
+		File checkpointFile = new File(folder.getRoot(), "instructions.checkpoint");
+
+		List<String> expected = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		Assert.assertEquals("SUCCESS", newProcessor(reader, expected).process());
+
+		CSVDataReader dyingReader = new CSVDataReader() {
+			private int reads;
+
+			@Override
+			public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+				if (++reads > 100)
+					throw new IllegalStateException("died");
+				return super.read(consumer);
+			}
+		};
+		dyingReader.addConnectionDetails(replayedFile.getParent(), replayedFile.getName());
+		ReportingSystemProcessor dyingProcessor = newProcessor(dyingReader, new ArrayList<>());
+		dyingProcessor.setDeduplicationService(new DeduplicationServiceImpl(1000));
+		dyingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("FAILURE", dyingProcessor.process());
+
+		List<String> actual = new ArrayList<>();
+		CSVDataReader resumingReader = new CSVDataReader();
+		resumingReader.addConnectionDetails(replayedFile.getParent(), replayedFile.getName());
+		ReportingSystemProcessor resumingProcessor = newProcessor(resumingReader, actual);
+		DeduplicationServiceImpl deduplicationService = new DeduplicationServiceImpl(1000);
+		resumingProcessor.setDeduplicationService(deduplicationService);
+		resumingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("SUCCESS", resumingProcessor.process());
+
+		Assert.assertEquals(expected, actual);
+		Assert.assertEquals(500, deduplicationService.getDuplicateCount());
+	}
+
+	/**
+	 * corrections applied to the amounts and rankings give the same reports
+	 * as the day processed with the corrections already in, apart from the
+	 * journal still holding the settlement dates moved for the originals
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void correct_SameAsCorrectedInstructions() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,12/01/2019,200,100.25\n"
+				+ "Foo3,Buy,0.50,AED,01/01/2019,13/01/2019,300,100.25\n"
+				+ "Foo4,Sell,0.50,GBP,01/01/2019,15/01/2019,50,100.25\n");
+		File correctedFile = folder.newFile("corrected-instructions.csv");
+		append(correctedFile, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,19/01/2019,20,100.25\n"
+				+ "Foo4,Sell,0.50,GBP,01/01/2019,15/01/2019,50,100.25\n");
+
+		List<String> expected = new ArrayList<>();
+		CSVDataReader correctedReader = new CSVDataReader();
+		correctedReader.addConnectionDetails(correctedFile.getParent(), correctedFile.getName());
+		Assert.assertEquals("SUCCESS", newProcessor(correctedReader, expected).process());
+
+		List<String> actual = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor correctedProcessor = newProcessor(reader, actual);
+		correctedProcessor.setCorrections(16, null);
+		Assert.assertEquals("SUCCESS", correctedProcessor.process());
+		Assert.assertNotEquals(expected.subList(0, 4), actual.subList(0, 4));
+
+		correctedProcessor.correct(InstructionCorrection.cancel(new ClientInstructions("Foo3", Indicator.BUY,
+				BigDecimal.valueOf(0.50), new BigDecimal("100.25"), BigInteger.valueOf(300), Currency.getInstance("AED"),
+				LocalDate.of(2019, 1, 1), LocalDate.of(2019, 1, 13))));
+		correctedProcessor.correct(InstructionCorrection.amend(
+				new ClientInstructions("Foo2", Indicator.SELL, BigDecimal.valueOf(0.50), new BigDecimal("100.25"),
+						BigInteger.valueOf(200), Currency.getInstance("GBP"), LocalDate.of(2019, 1, 1),
+						LocalDate.of(2019, 1, 12)),
+				new ClientInstructions("Foo2", Indicator.SELL, BigDecimal.valueOf(0.50), new BigDecimal("100.25"),
+						BigInteger.valueOf(20), Currency.getInstance("GBP"), LocalDate.of(2019, 1, 1),
+						LocalDate.of(2019, 1, 19))));
+		actual.clear();
+		correctedProcessor.refreshReports();
+
+		Assert.assertEquals(expected.subList(0, 4), actual.subList(0, 4));
+	}
+
+	/**
+	 * a correction of an instruction never processed or already corrected is
+	 * rejected without changing the amounts, and the instructions of the
+	 * caller are left as sent
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void correct_RejectsUnknownAndRepeated() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,12/01/2019,200,100.25\n");
+		List<String> reports = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor correctedProcessor = newProcessor(reader, reports);
+		correctedProcessor.setCorrections(16, null);
+		Assert.assertEquals("SUCCESS", correctedProcessor.process());
+
+		ClientInstructions original = new ClientInstructions("Foo2", Indicator.SELL, BigDecimal.valueOf(0.50),
+				new BigDecimal("100.25"), BigInteger.valueOf(200), Currency.getInstance("GBP"),
+				LocalDate.of(2019, 1, 1), LocalDate.of(2019, 1, 12));
+		ClientInstructions amended = new ClientInstructions("Foo2", Indicator.SELL, BigDecimal.valueOf(0.50),
+				new BigDecimal("100.25"), BigInteger.valueOf(20), Currency.getInstance("GBP"),
+				LocalDate.of(2019, 1, 1), LocalDate.of(2019, 1, 19));
+		correctedProcessor.correct(InstructionCorrection.amend(original, amended));
+		Assert.assertEquals(LocalDate.of(2019, 1, 12), original.getSettlementDate());
+		Assert.assertEquals(LocalDate.of(2019, 1, 19), amended.getSettlementDate());
+		reports.clear();
+		correctedProcessor.refreshReports();
+		List<String> corrected = new ArrayList<>(reports);
+
+		assertRejected(correctedProcessor, InstructionCorrection.cancel(original));
+		assertRejected(correctedProcessor,
+				InstructionCorrection.cancel(new ClientInstructions("Foo3", Indicator.BUY, BigDecimal.valueOf(0.50),
+						new BigDecimal("100.25"), BigInteger.valueOf(300), Currency.getInstance("GBP"),
+						LocalDate.of(2019, 1, 1), LocalDate.of(2019, 1, 11))));
+		reports.clear();
+		correctedProcessor.refreshReports();
+		Assert.assertEquals(corrected, reports);
+
+		// the amended instruction replaced the original, it can be cancelled
+		// once
+		correctedProcessor.correct(InstructionCorrection.cancel(amended));
+		assertRejected(correctedProcessor, InstructionCorrection.cancel(amended));
+	}
+
+	/**
+	 * the corrections of the correction reader are applied once the
+	 * instructions are read, a rejected correction is reported in the status
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_CorrectionsFromReader() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,12/01/2019,200,100.25\n"
+				+ "Foo3,Buy,0.50,AED,01/01/2019,13/01/2019,300,100.25\n"
+				+ "Foo4,Sell,0.50,GBP,01/01/2019,15/01/2019,50,100.25\n");
+		File correctedFile = folder.newFile("corrected-instructions.csv");
+		append(correctedFile, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,19/01/2019,20,100.25\n"
+				+ "Foo4,Sell,0.50,GBP,01/01/2019,15/01/2019,50,100.25\n");
+		File correctionFile = folder.newFile("corrections.csv");
+		append(correctionFile, "CANCEL,Foo3,Buy,0.50,AED,01/01/2019,13/01/2019,300,100.25\n"
+				+ "AMEND,Foo2,Sell,0.50,GBP,01/01/2019,12/01/2019,200,100.25,"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,19/01/2019,20,100.25\n"
+				+ "CANCEL,Foo3,Buy,0.50,AED,01/01/2019,13/01/2019,300,100.25\n");
+
+		List<String> expected = new ArrayList<>();
+		CSVDataReader correctedReader = new CSVDataReader();
+		correctedReader.addConnectionDetails(correctedFile.getParent(), correctedFile.getName());
+		Assert.assertEquals("SUCCESS", newProcessor(correctedReader, expected).process());
+
+		List<String> actual = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		CorrectionDataReader correctionReader = new CorrectionDataReader();
+		correctionReader.addConnectionDetails(correctionFile.getParent(), correctionFile.getName());
+		ReportingSystemProcessor correctedProcessor = newProcessor(reader, actual);
+		correctedProcessor.setCorrections(16, correctionReader);
+		Assert.assertEquals("SUCCESS_WITH_ERRORS", correctedProcessor.process());
+
+		Assert.assertEquals(1, correctedProcessor.getRejectedCorrectionCount());
+		Assert.assertEquals(expected.subList(0, 4), actual.subList(0, 4));
+	}
+
+	/**
+	 * the instructions processed before a checkpoint can be corrected by the
+	 * run resuming from it, though the resuming run gives the entities and
+	 * currencies other ids. The dying run is loaded by a class loader of its
+	 * own, with symbol tables of its own
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void correct_AfterResumeWithFreshSymbolTables() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo7,Buy,0.50,SGD,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo8,Sell,0.50,GBP,01/01/2019,12/01/2019,200,100.25\n"
+				+ "Foo9,Buy,0.50,GBP,01/01/2019,13/01/2019,300,100.25\n");
+		File checkpointFile = new File(folder.getRoot(), "instructions.checkpoint");
+
+		URL[] classPath = { ReportingSystemProcessor.class.getProtectionDomain().getCodeSource().getLocation(),
+				ReportingSystemProcessorTest.class.getProtectionDomain().getCodeSource().getLocation() };
+		try (URLClassLoader isolatedLoader = new URLClassLoader(classPath,
+				ReportingSystemProcessorTest.class.getClassLoader()) {
+
+			@Override
+			protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+				if (!name.startsWith("com.jpmc."))
+					return super.loadClass(name, resolve);
+				synchronized (getClassLoadingLock(name)) {
+					Class<?> loaded = findLoadedClass(name);
+					return loaded != null ? loaded : findClass(name);
+				}
+			}
+		}) {
+			Class<?> isolatedTest = isolatedLoader.loadClass(ReportingSystemProcessorTest.class.getName());
+			Assert.assertNotSame(ReportingSystemProcessorTest.class, isolatedTest);
+			isolatedTest.getDeclaredMethod("dieAfterFirstRead", File.class, File.class).invoke(null, file,
+					checkpointFile);
+		}
+		Assert.assertTrue(checkpointFile.exists());
+
+		CSVDataReader resumingReader = new CSVDataReader();
+		resumingReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor resumingProcessor = newProcessor(resumingReader, new ArrayList<>());
+		resumingProcessor.setCorrections(16, null);
+		resumingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("SUCCESS", resumingProcessor.process());
+
+		// read before the checkpoint, by the run with the other symbol tables
+		ClientInstructions checkpointed = new ClientInstructions("Foo7", Indicator.BUY, BigDecimal.valueOf(0.50),
+				new BigDecimal("100.25"), BigInteger.valueOf(100), Currency.getInstance("SGD"),
+				LocalDate.of(2019, 1, 1), LocalDate.of(2019, 1, 11));
+		resumingProcessor.correct(InstructionCorrection.cancel(checkpointed));
+		assertRejected(resumingProcessor, InstructionCorrection.cancel(checkpointed));
+	}
+
+	/**
+	 * run of {@link #correct_AfterResumeWithFreshSymbolTables()} dying after
+	 * the first rows, called within the class loader of its own
+	 */
+	public static void dieAfterFirstRead(File file, File checkpointFile) throws Exception {
+		// other values first, so the ids differ from the resuming run
+		SymbolTable.entities().idOf("Foo9");
+		SymbolTable.entities().idOf("Foo8");
+		SymbolTable.currencies().idOf(Currency.getInstance("GBP"));
+		CSVDataReader dyingReader = new CSVDataReader() {
+			private int reads;
+
+			@Override
+			public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+				if (++reads > 1)
+					throw new IllegalStateException("died");
+				return super.read(consumer);
+			}
+		};
+		dyingReader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor dyingProcessor = newProcessor(dyingReader, new ArrayList<>());
+		dyingProcessor.setCorrections(16, null);
+		dyingProcessor.setCheckpoint(checkpointFile.toPath(), 0);
+		Assert.assertEquals("FAILURE", dyingProcessor.process());
+	}
+
+	private static void assertRejected(ReportingSystemProcessor processor, InstructionCorrection correction) {
+		try {
+			processor.correct(correction);
+			Assert.fail("correction applied " + correction);
+		} catch (ReportingSystemException exception) {
+			Assert.assertTrue(exception.getMessage(), exception.getMessage().startsWith("Correction of an instruction"));
+		}
+	}
+
+	/**
+	 * with a watermark the settlement days are written and evicted once the
+	 * stream is a day past them, a row settling on a day already written is
+	 * routed to the late data writer. Two rows are read at a time
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void process_Watermark() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Buy,0.50,GBP,01/01/2019,07/01/2019,100,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,08/01/2019,200,100.25\n"
+				+ "Foo1,Buy,0.50,GBP,01/01/2019,09/01/2019,300,100.25\n"
+				+ "Foo2,Sell,0.50,GBP,01/01/2019,10/01/2019,400,100.25\n"
+				+ "Foo3,Buy,0.50,GBP,01/01/2019,08/01/2019,500,100.25\n"
+				+ "Foo1,Sell,0.50,GBP,01/01/2019,09/01/2019,600,100.25\n"
+				+ "Foo2,Buy,0.50,GBP,01/01/2019,14/01/2019,700,100.25\n");
+
+		List<String> reports = new ArrayList<>();
+		List<String> lateRows = new ArrayList<>();
+		CSVDataReader reader = new CSVDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		ReportingSystemProcessor watermarkProcessor = newProcessor(reader, reports);
+		watermarkProcessor.setWatermark(1, new DataWriter() {
+
+			@Override
+			public void write(String data) {
+				lateRows.add(data);
+			}
+
+			@Override
+			public void close() throws OperationNotSupportedException {
+			}
+		});
+		Assert.assertEquals("SUCCESS", watermarkProcessor.process());
+
+		// two finalized reports followed by the reports of the open days
+		Assert.assertEquals(7, reports.size());
+		Assert.assertTrue(reports.get(0).contains("2019-01-07") && reports.get(0).contains("2019-01-08"));
+		Assert.assertFalse(reports.get(0).contains("2019-01-09"));
+		Assert.assertTrue(reports.get(1).contains("2019-01-09") && reports.get(1).contains("2019-01-10"));
+		Assert.assertTrue(reports.get(2).contains("2019-01-14"));
+		Assert.assertFalse(reports.get(2).contains("2019-01-07"));
+		Assert.assertFalse(reports.get(4).contains("Foo3"));
+
+		Assert.assertEquals(1, watermarkProcessor.getLateCount());
+		Assert.assertEquals(1, lateRows.size());
+		Assert.assertTrue(lateRows.get(0), lateRows.get(0).startsWith("2019-01-08,"));
+		Assert.assertTrue(lateRows.get(0), lateRows.get(0).contains("Foo3"));
+	}
+
+	private static ReportingSystemProcessor newProcessor(DataReader dataReader, List<String> reports) {
+		return new ReportingSystemProcessor(new CalculationServiceImpl(), new RankingServiceImpl(),
+				new DataManipulationServiceImpl(), dataReader, new DataWriter() {
+
+					@Override
+					public void write(String data) {
+						reports.add(data);
+					}
+
+					@Override
+					public void close() throws OperationNotSupportedException {
+					}
+				});
+	}
+
+	/**
+	 * refreshes the reports till the outgoing ranking contains the entity
+	 */
+	private static String awaitOutgoingRanking(ReportingSystemProcessor processor, List<String> reports,
+			String entity) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (System.currentTimeMillis() < deadline) {
+			reports.clear();
+			processor.refreshReports();
+			String outgoingRanking = reports.get(3);
+			if (outgoingRanking.contains(entity))
+				return outgoingRanking;
+			Thread.sleep(10);
+		}
+		throw new AssertionError(entity + " not reported");
+	}
+
+	private static void append(File file, String lines) throws IOException {
+		Files.write(file.toPath(), lines.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+	}
 
 }
@@ -114,4 +114,27 @@ public final class ClientInstructionsTest {
 		Assert.assertFalse(clientInstructions.equals(clientInstructions1));
 	}
 
+	/**
+	 * dates handed over as decoders are decoded once, on first access, and
+	 * replaced by the dates set afterwards
+	 */
+	@Test
+	public void lazyDates_DecodedOnFirstAccess() {
+		ClientInstructions clientInstructions = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(200), Currency.getInstance("SGD"), null, null);
+		int[] decoded = new int[1];
+		clientInstructions.setInstructionDate(() -> {
+			decoded[0]++;
+			return LocalDate.of(2019, 1, 1);
+		});
+		clientInstructions.setSettlementDate(() -> LocalDate.of(2019, 1, 2));
+		Assert.assertEquals(0, decoded[0]);
+
+		Assert.assertEquals(LocalDate.of(2019, 1, 1), clientInstructions.getInstructionDate());
+		Assert.assertEquals(LocalDate.of(2019, 1, 1), clientInstructions.getInstructionDate());
+		Assert.assertEquals(1, decoded[0]);
+
+		clientInstructions.setSettlementDate(LocalDate.of(2019, 1, 3));
+		Assert.assertEquals(LocalDate.of(2019, 1, 3), clientInstructions.getSettlementDate());
+	}
 }
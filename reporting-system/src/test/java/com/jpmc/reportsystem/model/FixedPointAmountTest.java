@@ -0,0 +1,132 @@
+package com.jpmc.reportsystem.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the FixedPointAmount
+ *
+ * @author jnair1
+ *
+ */
+public class FixedPointAmountTest {
+
+	/**
+	 * the sum keeps the largest scale, same as BigDecimal.add
+	 */
+	@Test
+	public void add_KeepsLargestScale() {
+		FixedPointAmount sum = new FixedPointAmount();
+		Assert.assertTrue(sum.isEmpty());
+		Assert.assertEquals(BigDecimal.ZERO, sum.toBigDecimal());
+
+		sum.add(new BigDecimal("1.5")).add(new BigDecimal("2.250")).add(new BigDecimal("3"));
+		Assert.assertEquals(new BigDecimal("1.5").add(new BigDecimal("2.250")).add(new BigDecimal("3")),
+				sum.toBigDecimal());
+		Assert.assertEquals("6.750", sum.toString());
+		Assert.assertFalse(sum.isOverflow());
+	}
+
+	/**
+	 * an addition not fitting into a long moves the sum over to BigDecimal,
+	 * which stays exact
+	 */
+	@Test
+	public void add_Overflow() {
+		FixedPointAmount sum = new FixedPointAmount();
+		sum.add(Long.MAX_VALUE, 2).add(Long.MAX_VALUE, 2);
+		Assert.assertTrue(sum.isOverflow());
+		Assert.assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2).multiply(BigDecimal.valueOf(2)),
+				sum.toBigDecimal());
+
+		// rescaling beyond a long
+		FixedPointAmount rescaled = new FixedPointAmount().add(Long.MAX_VALUE / 10, 0).add(1, 2);
+		Assert.assertTrue(rescaled.isOverflow());
+		Assert.assertEquals(BigDecimal.valueOf(Long.MAX_VALUE / 10).add(BigDecimal.valueOf(1, 2)),
+				rescaled.toBigDecimal());
+
+		FixedPointAmount large = new FixedPointAmount().add(new BigDecimal("123456789012345678901234.5"));
+		Assert.assertTrue(large.isOverflow());
+		Assert.assertEquals("123456789012345678901235.75", large.add(125, 2).toString());
+	}
+
+	/**
+	 * subtracting retracts an amount added before, keeping the scale, also
+	 * once overflown
+	 */
+	@Test
+	public void subtract_RetractsAmount() {
+		FixedPointAmount sum = new FixedPointAmount().add(1025, 1).add(2, 2);
+		Assert.assertEquals("102.50", sum.subtract(2, 2).toString());
+		Assert.assertEquals(1, sum.signum());
+		Assert.assertEquals(0, sum.subtract(new BigDecimal("102.5")).signum());
+		Assert.assertEquals("0.00", sum.toString());
+		Assert.assertEquals(BigDecimal.valueOf(Long.MIN_VALUE).negate().setScale(2),
+				sum.subtract(Long.MIN_VALUE, 0).toBigDecimal());
+
+		FixedPointAmount overflow = new FixedPointAmount().add(Long.MAX_VALUE, 2).add(Long.MAX_VALUE, 2);
+		overflow.subtract(Long.MAX_VALUE, 2);
+		Assert.assertTrue(overflow.isOverflow());
+		Assert.assertEquals(BigDecimal.valueOf(Long.MAX_VALUE, 2), overflow.toBigDecimal());
+		Assert.assertEquals(0, new FixedPointAmount().signum());
+	}
+
+	/**
+	 * randomized sums are the same as BigDecimal, also the comparison
+	 */
+	@Test
+	public void add_SameAsBigDecimal() {
+		Random random = new Random(42);
+		FixedPointAmount first = new FixedPointAmount();
+		FixedPointAmount second = new FixedPointAmount();
+		BigDecimal firstExpected = null;
+		BigDecimal secondExpected = null;
+		for (int i = 0; i < 1000; i++) {
+			BigDecimal amount = BigDecimal.valueOf(random.nextInt(1000000), random.nextInt(6));
+			if (i % 2 == 0) {
+				first.add(amount);
+				firstExpected = firstExpected == null ? amount : firstExpected.add(amount);
+			} else {
+				second.add(amount);
+				secondExpected = secondExpected == null ? amount : secondExpected.add(amount);
+			}
+		}
+		Assert.assertEquals(firstExpected, first.toBigDecimal());
+		Assert.assertEquals(secondExpected, second.toBigDecimal());
+		Assert.assertEquals(Integer.signum(firstExpected.compareTo(secondExpected)),
+				Integer.signum(first.compareTo(second)));
+
+		Assert.assertEquals(firstExpected.add(secondExpected), first.add(second).toBigDecimal());
+	}
+
+	/**
+	 * the trade amount of an instruction is the same as the BigDecimal
+	 * product, also beyond a long
+	 */
+	@Test
+	public void clientInstructions_TradeAmount() {
+		ClientInstructions instruction = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(200), Currency.getInstance("SGD"), LocalDate.now(),
+				LocalDate.now());
+		Assert.assertEquals(BigDecimal.valueOf(100.25).multiply(BigDecimal.valueOf(200)).multiply(BigDecimal.valueOf(0.50)),
+				instruction.getTradeAmount());
+
+		BigDecimal unitPrice = new BigDecimal("98765432109876.54321");
+		ClientInstructions large = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(1.25), unitPrice,
+				BigInteger.valueOf(Integer.MAX_VALUE), Currency.getInstance("SGD"), LocalDate.now(), LocalDate.now());
+		BigDecimal expected = unitPrice.multiply(BigDecimal.valueOf(Integer.MAX_VALUE))
+				.multiply(BigDecimal.valueOf(1.25));
+		Assert.assertEquals(expected, large.getTradeAmount());
+
+		FixedPointAmount sum = new FixedPointAmount();
+		instruction.addTradeAmountTo(sum);
+		large.addTradeAmountTo(sum);
+		Assert.assertEquals(instruction.getTradeAmount().add(expected), sum.toBigDecimal());
+	}
+}
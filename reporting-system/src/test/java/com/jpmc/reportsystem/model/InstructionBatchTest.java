@@ -0,0 +1,99 @@
+package com.jpmc.reportsystem.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Currency;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the InstructionBatch
+ *
+ * @author jnair1
+ *
+ */
+public class InstructionBatchTest {
+
+	/**
+	 * the columns of a row hold the fields of the instruction, also once the
+	 * batch grew beyond its capacity
+	 */
+	@Test
+	public void add_Columns() {
+		InstructionBatch batch = new InstructionBatch(1);
+		ClientInstructions first = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(200), Currency.getInstance("SGD"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27));
+		ClientInstructions second = new ClientInstructions("bar", Indicator.SELL, BigDecimal.valueOf(0.25),
+				BigDecimal.valueOf(10.5), BigInteger.valueOf(3), Currency.getInstance("AED"), LocalDate.now(), null);
+		batch.add(first);
+		batch.add(second);
+
+		Assert.assertEquals(2, batch.size());
+		Assert.assertEquals(first.getEntityId(), batch.getEntityIds()[0]);
+		Assert.assertEquals(second.getCurrencyId(), batch.getCurrencyIds()[1]);
+		Assert.assertEquals(Indicator.BUY, batch.getIndicator(0));
+		Assert.assertEquals(Indicator.SELL, batch.getIndicator(1));
+		Assert.assertEquals(LocalDate.of(2018, 7, 27), batch.getSettlementDate(0));
+		Assert.assertEquals(InstructionBatch.NO_DATE, batch.getSettlementDays()[1]);
+		Assert.assertNull(batch.getSettlementDate(1));
+		Assert.assertEquals(first.getTradeAmount(), batch.getTradeAmount(0));
+		Assert.assertEquals(second.getTradeAmount(), batch.getTradeAmount(1));
+	}
+
+	/**
+	 * trade amounts beyond a long are kept exactly, and cleared along with the
+	 * batch
+	 */
+	@Test
+	public void add_OverflowAmount() {
+		InstructionBatch batch = new InstructionBatch();
+		ClientInstructions large = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(1.25),
+				new BigDecimal("98765432109876.54321"), BigInteger.valueOf(Integer.MAX_VALUE),
+				Currency.getInstance("SGD"), LocalDate.now(), LocalDate.now());
+		batch.add(large);
+
+		FixedPointAmount sum = new FixedPointAmount();
+		batch.addTradeAmountTo(0, sum);
+		Assert.assertEquals(large.getTradeAmount(), batch.getTradeAmount(0));
+		Assert.assertEquals(large.getTradeAmount(), sum.toBigDecimal());
+
+		batch.clear();
+		Assert.assertTrue(batch.isEmpty());
+		ClientInstructions small = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(0.5),
+				BigDecimal.valueOf(2), BigInteger.ONE, Currency.getInstance("SGD"), LocalDate.now(), LocalDate.now());
+		batch.add(small);
+		Assert.assertEquals(small.getTradeAmount(), batch.getTradeAmount(0));
+	}
+
+	/**
+	 * rows removed are dropped from every column, the rows kept move up in
+	 * their order
+	 */
+	@Test
+	public void removeIf_KeepsOrder() {
+		InstructionBatch batch = new InstructionBatch();
+		ClientInstructions large = new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(1.25),
+				new BigDecimal("98765432109876.54321"), BigInteger.valueOf(Integer.MAX_VALUE),
+				Currency.getInstance("SGD"), LocalDate.now(), LocalDate.of(2018, 7, 24));
+		for (int day = 0; day < 6; day++)
+			batch.add(new ClientInstructions("foo" + day, Indicator.SELL, BigDecimal.valueOf(0.5),
+					BigDecimal.valueOf(day + 1), BigInteger.ONE, Currency.getInstance("AED"), LocalDate.now(),
+					LocalDate.of(2018, 7, 20 + day)));
+		batch.add(large);
+
+		Assert.assertEquals(3, batch.removeIf(row -> row % 2 == 1));
+		Assert.assertEquals(4, batch.size());
+		Assert.assertEquals(LocalDate.of(2018, 7, 20), batch.getSettlementDate(0));
+		Assert.assertEquals(LocalDate.of(2018, 7, 24), batch.getSettlementDate(2));
+		Assert.assertEquals(BigDecimal.valueOf(15, 1), batch.getTradeAmount(1));
+		Assert.assertEquals(large.getTradeAmount(), batch.getTradeAmount(3));
+		Assert.assertFalse(batch.isTradeAmountOverflow(2));
+
+		Assert.assertEquals(1, batch.removeIf(row -> batch.isTradeAmountOverflow(row)));
+		Assert.assertEquals(3, batch.size());
+		Assert.assertEquals(0, batch.removeIf(row -> false));
+	}
+}
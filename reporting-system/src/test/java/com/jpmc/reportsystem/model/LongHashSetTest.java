@@ -0,0 +1,119 @@
+package com.jpmc.reportsystem.model;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the LongHashSet and the BloomFilter
+ *
+ * @author jnair1
+ *
+ */
+public class LongHashSetTest {
+
+	/**
+	 * values are added once, zero included
+	 */
+	@Test
+	public void add_Duplicates() {
+		LongHashSet set = new LongHashSet();
+		Assert.assertTrue(set.add(42));
+		Assert.assertFalse(set.add(42));
+		Assert.assertTrue(set.add(0));
+		Assert.assertFalse(set.add(0));
+		Assert.assertTrue(set.add(-1));
+
+		Assert.assertEquals(3, set.size());
+		Assert.assertTrue(set.contains(0));
+		Assert.assertTrue(set.contains(-1));
+		Assert.assertFalse(set.contains(43));
+
+		set.clear();
+		Assert.assertEquals(0, set.size());
+		Assert.assertFalse(set.contains(0));
+		Assert.assertFalse(set.contains(42));
+	}
+
+	/**
+	 * the set grows past its expected size, agreeing with a HashSet, and a set
+	 * sized up front takes at most 21.3 bytes per value
+	 */
+	@Test
+	public void add_Grows() {
+		Random random = new Random(7);
+		LongHashSet set = new LongHashSet(10);
+		Set<Long> expected = new HashSet<>();
+		for (int index = 0; index < 100000; index++) {
+			// few distinct values, most of them added more than once
+			long value = random.nextInt(50000) * 0x9E3779B97F4A7C15L;
+			Assert.assertEquals(expected.add(value), set.add(value));
+		}
+		Assert.assertEquals(expected.size(), set.size());
+		for (long value : expected)
+			Assert.assertTrue(set.contains(value));
+
+		LongHashSet sized = new LongHashSet(1000000);
+		Assert.assertTrue(sized.memoryBytes() <= 1000000 * 64 / 3);
+		Assert.assertTrue(sized.capacity() * 3L / 4 >= 1000000);
+	}
+
+	/**
+	 * values removed in between the values added agree with a HashSet, the
+	 * values colliding with a removed value are still found
+	 */
+	@Test
+	public void remove_KeepsCollidingValues() {
+		Random random = new Random(5);
+		LongHashSet set = new LongHashSet();
+		Set<Long> expected = new HashSet<>();
+		for (int index = 0; index < 100000; index++) {
+			long value = random.nextInt(2000) * 0x9E3779B97F4A7C15L;
+			if (random.nextBoolean())
+				Assert.assertEquals(expected.add(value), set.add(value));
+			else
+				Assert.assertEquals(expected.remove(value), set.remove(value));
+		}
+		Assert.assertEquals(expected.size(), set.size());
+		for (int value = 0; value < 2000; value++)
+			Assert.assertEquals(expected.contains(value * 0x9E3779B97F4A7C15L),
+					set.contains(value * 0x9E3779B97F4A7C15L));
+		long[] values = set.toArray();
+		Assert.assertEquals(expected.size(), values.length);
+		for (long value : values)
+			Assert.assertTrue(expected.contains(value));
+	}
+
+	/**
+	 * the filter never misses a value added, and wrongly answers about at its
+	 * false positive rate
+	 */
+	@Test
+	public void bloomFilter_FalsePositiveRate() {
+		Random random = new Random(11);
+		BloomFilter filter = new BloomFilter(100000, 0.01);
+		long[] values = new long[100000];
+		int added = 0;
+		for (int index = 0; index < values.length; index++) {
+			values[index] = random.nextLong();
+			if (filter.put(values[index]))
+				added++;
+		}
+		// a value added may already look added, at most at the final rate
+		Assert.assertTrue("added=" + added, added > 99000);
+		for (long value : values) {
+			Assert.assertTrue(filter.mightContain(value));
+			Assert.assertFalse(filter.put(value));
+		}
+		int falsePositives = 0;
+		for (int index = 0; index < 100000; index++)
+			if (filter.mightContain(random.nextLong()))
+				falsePositives++;
+		Assert.assertTrue("falsePositives=" + falsePositives, falsePositives < 2000);
+		Assert.assertTrue(filter.memoryBytes() < 130000);
+		Assert.assertEquals(7, filter.getHashCount());
+	}
+}
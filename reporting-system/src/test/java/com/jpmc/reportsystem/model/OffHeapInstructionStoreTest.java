@@ -0,0 +1,132 @@
+package com.jpmc.reportsystem.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for the OffHeapInstructionStore
+ *
+ * @author jnair1
+ *
+ */
+public class OffHeapInstructionStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * the typed accessors return the fields of the instructions, across
+	 * segments
+	 */
+	@Test
+	public void add_Accessors() {
+		List<ClientInstructions> clientInstructions = instructions();
+		try (OffHeapInstructionStore store = new OffHeapInstructionStore(2)) {
+			clientInstructions.forEach(store::add);
+
+			Assert.assertEquals(clientInstructions.size(), store.size());
+			Assert.assertEquals(3, store.getSegmentCount());
+			for (int row = 0; row < clientInstructions.size(); row++) {
+				ClientInstructions instruction = clientInstructions.get(row);
+				Assert.assertEquals(instruction.getEntityId(), store.getEntityId(row));
+				Assert.assertEquals(instruction.getCurrencyId(), store.getCurrencyId(row));
+				Assert.assertEquals(instruction.getIndicator(), store.getIndicator(row));
+				Assert.assertEquals(instruction.getSettlementDate(), store.getSettlementDate(row));
+				Assert.assertEquals(instruction.getTradeAmount(), store.getTradeAmount(row));
+			}
+
+			store.setSettlementDay(1, (int) LocalDate.of(2018, 7, 30).toEpochDay());
+			Assert.assertEquals(LocalDate.of(2018, 7, 30), store.getSettlementDate(1));
+		}
+	}
+
+	/**
+	 * the batches handed out add up to the same amounts as the instructions
+	 */
+	@Test
+	public void forEachBatch_SameAsInstructions() {
+		List<ClientInstructions> clientInstructions = instructions();
+		try (OffHeapInstructionStore store = new OffHeapInstructionStore(4)) {
+			store.addAll(InstructionBatch.of(clientInstructions));
+
+			FixedPointAmount expected = new FixedPointAmount();
+			clientInstructions.forEach(instruction -> instruction.addTradeAmountTo(expected));
+			FixedPointAmount actual = new FixedPointAmount();
+			List<Integer> batchSizes = new ArrayList<>();
+			store.forEachBatch(2, batch -> {
+				batchSizes.add(batch.size());
+				for (int row = 0; row < batch.size(); row++)
+					batch.addTradeAmountTo(row, actual);
+			});
+
+			Assert.assertEquals(expected.toBigDecimal(), actual.toBigDecimal());
+			Assert.assertEquals(3, batchSizes.size());
+			Assert.assertEquals(1, batchSizes.get(2).intValue());
+		}
+	}
+
+	/**
+	 * segments mapped to files are deleted once the store is freed, which can
+	 * not be used afterwards
+	 */
+	@Test
+	public void free_MappedSegments() {
+		OffHeapInstructionStore store = new OffHeapInstructionStore(2, folder.getRoot().toPath());
+		instructions().forEach(store::add);
+		Assert.assertEquals(3, folder.getRoot().list().length);
+		Assert.assertEquals(instructions().get(4).getTradeAmount(), store.getTradeAmount(4));
+
+		// the runtime of the build allows to release the buffers right away
+		Assert.assertTrue(store.free());
+		Assert.assertTrue(store.isFreed());
+		Assert.assertTrue(store.free());
+		Assert.assertEquals(0, store.size());
+		Assert.assertEquals(0, folder.getRoot().list().length);
+		try {
+			store.add(instructions().get(0));
+			Assert.fail("store can not be used once freed");
+		} catch (IllegalStateException exception) {
+			// expected
+		}
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void getEntityId_OutOfBounds() {
+		try (OffHeapInstructionStore store = new OffHeapInstructionStore(2)) {
+			store.add(instructions().get(0));
+			store.getEntityId(1);
+		}
+	}
+
+	/**
+	 * five instructions, the last one with a trade amount beyond a long
+	 */
+	private static List<ClientInstructions> instructions() {
+		List<ClientInstructions> clientInstructions = new ArrayList<>();
+		clientInstructions.add(new ClientInstructions("foo1", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 25)));
+		clientInstructions.add(new ClientInstructions("foo2", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(300), Currency.getInstance("GBP"), LocalDate.now(),
+				LocalDate.of(2018, 7, 26)));
+		clientInstructions.add(new ClientInstructions("foo3", null, BigDecimal.valueOf(0.25),
+				BigDecimal.valueOf(10.5), BigInteger.valueOf(900), Currency.getInstance("SGD"), LocalDate.now(),
+				null));
+		clientInstructions.add(new ClientInstructions("foo1", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(400), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)));
+		clientInstructions.add(new ClientInstructions("foo4", Indicator.BUY, BigDecimal.valueOf(1.25),
+				new BigDecimal("98765432109876.54321"), BigInteger.valueOf(Integer.MAX_VALUE),
+				Currency.getInstance("SGD"), LocalDate.now(), LocalDate.of(2018, 7, 27)));
+		return clientInstructions;
+	}
+}
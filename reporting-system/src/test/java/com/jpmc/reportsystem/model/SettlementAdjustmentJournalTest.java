@@ -0,0 +1,96 @@
+package com.jpmc.reportsystem.model;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the SettlementAdjustmentJournal
+ *
+ * @author jnair1
+ *
+ */
+public class SettlementAdjustmentJournalTest {
+
+	/**
+	 * entries hold the recorded adjustment, also once the journal grew beyond
+	 * its initial capacity, and render the comment when asked for
+	 */
+	@Test
+	public void record_Entries() {
+		SettlementAdjustmentJournal journal = new SettlementAdjustmentJournal();
+		int aed = journal.ruleIdOf("AED");
+		int friday = (int) LocalDate.of(2018, 7, 27).toEpochDay();
+		for (int entry = 0; entry < 3000; entry++)
+			Assert.assertEquals(entry, journal.record(entry * 2L, friday, friday + 2, aed));
+
+		Assert.assertEquals(3000, journal.size());
+		Assert.assertEquals(5998L, journal.getInstructionIndex(2999));
+		Assert.assertEquals(LocalDate.of(2018, 7, 27), journal.getOriginalDate(2999));
+		Assert.assertEquals(LocalDate.of(2018, 7, 29), journal.getAdjustedDate(2999));
+		Assert.assertEquals("AED", journal.getRuleName(journal.getRuleId(2999)));
+		Assert.assertEquals(" Settlement date changed from 2018-07-27 to 2018-07-29", journal.getComment(0));
+	}
+
+	/**
+	 * the summary counts the adjustments and days moved per rule
+	 */
+	@Test
+	public void summarize_PerRule() {
+		SettlementAdjustmentJournal journal = new SettlementAdjustmentJournal();
+		int aed = journal.ruleIdOf("AED");
+		int other = journal.ruleIdOf("Default");
+		int saturday = (int) LocalDate.of(2018, 7, 28).toEpochDay();
+		journal.record(0, saturday - 1, saturday + 1, aed);
+		journal.record(1, saturday, saturday + 1, aed);
+		journal.record(2, saturday, saturday + 2, other);
+
+		Map<String, long[]> summary = journal.summarize();
+		Assert.assertArrayEquals(new long[] { 2, 3 }, summary.get("AED"));
+		Assert.assertArrayEquals(new long[] { 1, 2 }, summary.get("Default"));
+
+		journal.clear();
+		Assert.assertEquals(0, journal.size());
+		Assert.assertTrue(journal.summarize().isEmpty());
+	}
+
+	/**
+	 * compacting drops the entries of the days before, keeps the later ones in
+	 * order and leaves the summary unchanged, also once added to another
+	 * journal
+	 */
+	@Test
+	public void compact_KeepsSummary() {
+		SettlementAdjustmentJournal journal = new SettlementAdjustmentJournal();
+		int aed = journal.ruleIdOf("AED");
+		int other = journal.ruleIdOf("Default");
+		int saturday = (int) LocalDate.of(2018, 7, 28).toEpochDay();
+		journal.record(0, saturday - 1, saturday + 1, aed);
+		journal.record(1, saturday + 7, saturday + 9, other);
+		journal.record(2, saturday, saturday + 2, other);
+		journal.record(3, saturday + 6, saturday + 8, aed);
+
+		Assert.assertEquals(2, journal.compact(saturday + 8));
+		Assert.assertEquals(2, journal.size());
+		Assert.assertEquals(1, journal.getInstructionIndex(0));
+		Assert.assertEquals(3, journal.getInstructionIndex(1));
+		Assert.assertEquals(1, journal.getCompactedCount(aed));
+		Assert.assertEquals(2, journal.getCompactedDaysMoved(other));
+		Assert.assertArrayEquals(new long[] { 2, 4 }, journal.summarize().get("AED"));
+		Assert.assertArrayEquals(new long[] { 2, 4 }, journal.summarize().get("Default"));
+
+		SettlementAdjustmentJournal copy = new SettlementAdjustmentJournal();
+		copy.ruleIdOf("Default");
+		copy.addAll(journal);
+		Assert.assertEquals(2, copy.size());
+		Assert.assertArrayEquals(new long[] { 2, 4 }, copy.summarize().get("AED"));
+		Assert.assertArrayEquals(new long[] { 2, 4 }, copy.summarize().get("Default"));
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void getOriginalDate_OutOfBounds() {
+		new SettlementAdjustmentJournal().getOriginalDate(0);
+	}
+}
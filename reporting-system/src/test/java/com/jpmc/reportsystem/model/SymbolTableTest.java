@@ -0,0 +1,86 @@
+package com.jpmc.reportsystem.model;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the SymbolTable
+ *
+ * @author jnair1
+ *
+ */
+public class SymbolTableTest {
+
+	/**
+	 * ids are dense, starting at 0, and the same for equal values
+	 */
+	@Test
+	public void idOf_DenseIds() {
+		SymbolTable<String> symbolTable = new SymbolTable<>();
+		Assert.assertEquals(0, symbolTable.idOf("foo"));
+		Assert.assertEquals(1, symbolTable.idOf("bar"));
+		Assert.assertEquals(0, symbolTable.idOf(new String("foo")));
+		Assert.assertEquals(SymbolTable.NO_ID, symbolTable.idOf(null));
+
+		Assert.assertEquals(2, symbolTable.size());
+		Assert.assertEquals("bar", symbolTable.valueOf(1));
+		Assert.assertNull(symbolTable.valueOf(SymbolTable.NO_ID));
+	}
+
+	/**
+	 * values added concurrently get distinct ids, resolving back to the value
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void idOf_Concurrently() throws Exception {
+		SymbolTable<String> symbolTable = new SymbolTable<>();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 1000; i++) {
+						String value = "entity" + i;
+						Assert.assertEquals(value, symbolTable.valueOf(symbolTable.idOf(value)));
+					}
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(1000, symbolTable.size());
+	}
+
+	/**
+	 * instructions hold the ids of the shared tables, and the entity instance
+	 * held by the table
+	 */
+	@Test
+	public void clientInstructions_WithIds() {
+		ClientInstructions first = new ClientInstructions(new String("symbol"), Indicator.BUY,
+				BigDecimal.valueOf(0.50), BigDecimal.valueOf(100.25), BigInteger.valueOf(200),
+				Currency.getInstance("SGD"), LocalDate.now(), LocalDate.now());
+		ClientInstructions second = new ClientInstructions(new String("symbol"), Indicator.SELL,
+				BigDecimal.valueOf(0.50), BigDecimal.valueOf(100.25), BigInteger.valueOf(200),
+				Currency.getInstance("SGD"), LocalDate.now(), LocalDate.now());
+
+		Assert.assertEquals(first.getEntityId(), second.getEntityId());
+		Assert.assertSame(first.getEntity(), second.getEntity());
+		Assert.assertEquals("symbol", SymbolTable.entities().valueOf(first.getEntityId()));
+		Assert.assertEquals(Currency.getInstance("SGD"), SymbolTable.currencies().valueOf(first.getCurrencyId()));
+	}
+}
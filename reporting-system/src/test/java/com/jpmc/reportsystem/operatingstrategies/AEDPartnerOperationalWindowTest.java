@@ -2,6 +2,7 @@ package com.jpmc.reportsystem.operatingstrategies;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.Currency;
 import java.util.Map;
 
 import org.junit.Assert;
@@ -10,7 +11,7 @@ import org.junit.Test;
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 
 /**
- * Tests for AEDOperationalWindow
+ * Tests for the AED partner of the PartnerRegistry
  * @author jnair1
  *
  */
@@ -22,7 +23,7 @@ public class AEDPartnerOperationalWindowTest {
 	@Test
 	public void getAEDOperatingWindowTest_Success() {
 		
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		Map<DayOfWeek, Boolean> aedWindow = aedOperationalWindow.getOperatingWindow();
 				
 		Assert.assertNotNull(aedWindow);
@@ -43,7 +44,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test(expected=NullPointerException.class)
 	public void findNextOperationalDayTest_WithNullPointerException() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		aedOperationalWindow.findNextOperationalDay(null);
 	}
 	
@@ -53,7 +54,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForSunday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 22));
 		
@@ -66,7 +67,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForMonday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 23));
 		
@@ -79,7 +80,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForTuesday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 24));
 		
@@ -92,7 +93,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForWednesday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 25));
 		
@@ -105,7 +106,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForThursday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 26));
 		
@@ -119,7 +120,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForFriday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 27));
 		
@@ -132,7 +133,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForSaturday() {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		LocalDate nextOpearationalDate = aedOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 28));
 		
@@ -146,7 +147,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test(expected=NullPointerException.class)
 	public void isSelectedDayWeekendTest_WithNullPointerException() throws ReportingSystemException {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		aedOperationalWindow.isSelectedDayWeekday(null);
 	}
 
@@ -157,7 +158,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void isSelectedDayWeekendTest_ForWeekend() throws ReportingSystemException {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		boolean isWeekend = aedOperationalWindow.isSelectedDayWeekday(LocalDate.of(2018, 07, 27));
 		// FRIDAY being a weekend for AED partner, returned value is false as it is a weekend
 		Assert.assertTrue(!isWeekend);
@@ -170,7 +171,7 @@ public class AEDPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void isSelectedDayWeekendTest_ForWeekday() throws ReportingSystemException {
-		PartnerOperationalWindow aedOperationalWindow = AEDPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow aedOperationalWindow = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
 		boolean isWeekday = aedOperationalWindow.isSelectedDayWeekday(LocalDate.of(2018, 07, 22));
 		// SUNDAY being a weekday for AED partner, returned value is true as it is a weekday
 		Assert.assertTrue(isWeekday);
@@ -0,0 +1,85 @@
+package com.jpmc.reportsystem.operatingstrategies;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for the BusinessDayCalendar
+ *
+ * @author jnair1
+ *
+ */
+public class BusinessDayCalendarTest {
+
+	/**
+	 * the calendar answers the same as walking the operating window day by
+	 * day, within the range and outside of it
+	 */
+	@Test
+	public void nextOperationalDay_SameAsOperatingWindow() {
+		PartnerOperationalWindow window = PartnerRegistry.getInstance().getPartner(Currency.getInstance("AED"));
+		BusinessDayCalendar calendar = new BusinessDayCalendar(window.getOperatingWindow(), new ArrayList<>(), 2018,
+				2019);
+		for (LocalDate date = LocalDate.of(2017, 12, 1); date.isBefore(LocalDate.of(2020, 2, 1)); date = date
+				.plusDays(1)) {
+			LocalDate expected = date;
+			while (!window.getOperatingWindow().get(expected.getDayOfWeek()))
+				expected = expected.plusDays(1);
+			Assert.assertEquals(date.toString(), expected, calendar.nextOperationalDay(date));
+			Assert.assertEquals(date.toString(), expected.equals(date), calendar.isOperationalDay(date));
+		}
+		Assert.assertEquals(LocalDate.of(2018, 1, 1), calendar.getFirstDate());
+		Assert.assertEquals(LocalDate.of(2019, 12, 31), calendar.getLastDate());
+	}
+
+	/**
+	 * a settlement date on a holiday moves past the holidays and the weekend
+	 * following it, the holidays outside the range are ignored
+	 */
+	@Test
+	public void nextOperationalDay_SkipsHolidays() {
+		BusinessDayCalendar calendar = new BusinessDayCalendar(
+				PartnerRegistry.getInstance().getDefaultPartner().getOperatingWindow(),
+				Arrays.asList(LocalDate.of(2020, 12, 24), LocalDate.of(2020, 12, 25), LocalDate.of(2021, 1, 1),
+						LocalDate.of(2030, 1, 1)),
+				2020, 2021);
+
+		Assert.assertFalse(calendar.isOperationalDay(LocalDate.of(2020, 12, 25)));
+		Assert.assertEquals(LocalDate.of(2020, 12, 28), calendar.nextOperationalDay(LocalDate.of(2020, 12, 24)));
+		Assert.assertEquals(LocalDate.of(2021, 1, 4), calendar.nextOperationalDay(LocalDate.of(2021, 1, 1)));
+		Assert.assertEquals(LocalDate.of(2021, 12, 31), calendar.nextOperationalDay(LocalDate.of(2021, 12, 31)));
+		Assert.assertEquals(LocalDate.of(2022, 1, 3), calendar.nextOperationalDay(LocalDate.of(2022, 1, 1)));
+		Assert.assertTrue(calendar.isOperationalDay(LocalDate.of(2030, 1, 1)));
+	}
+
+	/**
+	 * the last day of the range being off, its next operational day is past
+	 * the range
+	 */
+	@Test
+	public void nextOperationalDay_PastRange() {
+		BusinessDayCalendar calendar = new BusinessDayCalendar(
+				PartnerRegistry.getInstance().getDefaultPartner().getOperatingWindow(),
+				Arrays.asList(LocalDate.of(2021, 12, 31)), 2021, 2021);
+
+		Assert.assertEquals(LocalDate.of(2022, 1, 3), calendar.nextOperationalDay(LocalDate.of(2021, 12, 31)));
+		Assert.assertEquals((int) LocalDate.of(2022, 1, 3).toEpochDay(),
+				calendar.nextOperationalDay((int) LocalDate.of(2021, 12, 31).toEpochDay()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void new_NoOperatingDay() {
+		Map<DayOfWeek, Boolean> window = new EnumMap<>(DayOfWeek.class);
+		for (DayOfWeek dayOfWeek : DayOfWeek.values())
+			window.put(dayOfWeek, false);
+		new BusinessDayCalendar(window, new ArrayList<>(), 2018, 2019);
+	}
+}
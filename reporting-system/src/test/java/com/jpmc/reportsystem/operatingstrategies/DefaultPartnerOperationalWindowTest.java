@@ -10,7 +10,7 @@ import org.junit.Test;
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 
 /**
- * Tests for otherOperationalWindow
+ * Tests for the default partner of the PartnerRegistry
  * @author jnair1
  *
  */
@@ -22,7 +22,7 @@ public class DefaultPartnerOperationalWindowTest {
 	@Test
 	public void getAEDOperatingWindowTest_Success() {
 		
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		Map<DayOfWeek, Boolean> otherWindow = otherOperationalWindow.getOperatingWindow();
 				
 		Assert.assertNotNull(otherWindow);
@@ -43,7 +43,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test(expected=NullPointerException.class)
 	public void findNextOperationalDayTest_WithNullPointerException() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.findNextOperationalDay(null);
 		Assert.assertNull(nextOpearationalDate);		
 	}
@@ -54,7 +54,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForMonday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 23));
 		
@@ -67,7 +67,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForTuesday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 24));
 		
@@ -80,7 +80,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForWednesday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 25));
 		
@@ -93,7 +93,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForThursday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 26));
 		
@@ -106,7 +106,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForFriday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 27));
 		
@@ -119,7 +119,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForSaturday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 28));
 		
@@ -133,7 +133,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void findNextOperationalDayTest_ForSunday() {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		LocalDate nextOpearationalDate = otherOperationalWindow.
 				findNextOperationalDay(LocalDate.of(2018, 07, 22));
 		
@@ -147,7 +147,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test(expected=NullPointerException.class)
 	public void isSelectedDayWeekendTest_WithNullPointerException() throws ReportingSystemException {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		otherOperationalWindow.isSelectedDayWeekday(null);
 	}
 	
@@ -158,7 +158,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void isSelectedDayWeekendTest_ForWeekend() throws ReportingSystemException {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		boolean isWeekend = otherOperationalWindow.isSelectedDayWeekday(LocalDate.of(2018, 07, 28));
 		// SATURDAY being a weekend for other partner, returned value is false as it is not a weekday
 		Assert.assertTrue(!isWeekend);
@@ -171,7 +171,7 @@ public class DefaultPartnerOperationalWindowTest {
 	 */
 	@Test
 	public void isSelectedDayWeekendTest_ForWeekday() throws ReportingSystemException {
-		PartnerOperationalWindow otherOperationalWindow = DefaultPartnerOperationalWindow.getInstance();
+		PartnerOperationalWindow otherOperationalWindow = PartnerRegistry.getInstance().getDefaultPartner();
 		boolean isWeekday = otherOperationalWindow.isSelectedDayWeekday(LocalDate.of(2018, 07, 30));
 		// MONDAY being a weekday for other partner, returned value is true as it is a weekday
 		Assert.assertTrue(isWeekday);
@@ -0,0 +1,105 @@
+package com.jpmc.reportsystem.operatingstrategies;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.SymbolTable;
+
+/**
+ * Tests for the PartnerRegistry
+ *
+ * @author jnair1
+ *
+ */
+public class PartnerRegistryTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * the configured registry serves AED and SAR from the AED partner and any
+	 * other currency from the default one
+	 */
+	@Test
+	public void getInstance_Configured() {
+		PartnerRegistry registry = PartnerRegistry.getInstance();
+
+		Assert.assertEquals("AED", registry.getPartner(Currency.getInstance("AED")).getName());
+		Assert.assertEquals("AED",
+				registry.getPartner(SymbolTable.currencies().idOf(Currency.getInstance("SAR"))).getName());
+		Assert.assertEquals("Default", registry.getPartner(Currency.getInstance("JPY")).getName());
+		Assert.assertEquals("Default", registry.getPartner(SymbolTable.NO_ID).getName());
+		Assert.assertFalse(registry.getPartner(Currency.getInstance("AED")).isSelectedDayWeekday(LocalDate.of(2018, 7, 27)));
+	}
+
+	/**
+	 * a partner onboarded from a file takes its currency over once the
+	 * registry is swapped, the registry replaced still answers as before
+	 */
+	@Test
+	public void setInstance_OnboardsPartner() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("partners", "Default, AED, JPY");
+		properties.setProperty("partner.Default.operating.days", "MONDAY,TUESDAY,WEDNESDAY,THURSDAY,FRIDAY");
+		properties.setProperty("partner.AED.operating.days", "SUNDAY,MONDAY,TUESDAY,WEDNESDAY,THURSDAY");
+		properties.setProperty("partner.AED.currencies", "AED,SAR");
+		properties.setProperty("partner.JPY.operating.days", "monday,tuesday,wednesday,thursday,friday");
+		properties.setProperty("partner.JPY.holidays", "2018-07-16");
+		properties.setProperty("partner.JPY.currencies", "JPY");
+		File file = new File(folder.getRoot(), "partners.properties");
+		try (OutputStream output = Files.newOutputStream(file.toPath())) {
+			properties.store(output, null);
+		}
+
+		PartnerRegistry registry = PartnerRegistry.load(file.toPath());
+		PartnerRegistry previous = PartnerRegistry.setInstance(registry);
+		try {
+			PartnerOperationalWindow partner = PartnerRegistry.getInstance().getPartner(Currency.getInstance("JPY"));
+			Assert.assertEquals("JPY", partner.getName());
+			Assert.assertEquals(LocalDate.of(2018, 7, 17), partner.findNextOperationalDay(LocalDate.of(2018, 7, 14)));
+			Assert.assertEquals("Default", previous.getPartner(Currency.getInstance("JPY")).getName());
+			Assert.assertEquals(3, registry.getPartners().size());
+		} finally {
+			PartnerRegistry.setInstance(previous);
+		}
+	}
+
+	@Test(expected = ReportingSystemException.class)
+	public void load_CurrencyAssignedTwice() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("partners", "Default,AED");
+		properties.setProperty("partner.Default.operating.days", "MONDAY");
+		properties.setProperty("partner.Default.currencies", "AED");
+		properties.setProperty("partner.AED.operating.days", "SUNDAY");
+		properties.setProperty("partner.AED.currencies", "AED");
+		PartnerRegistry.load(properties::getProperty);
+	}
+
+	@Test(expected = ReportingSystemException.class)
+	public void load_PartnerConfiguredTwice() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("partners", "Default,AED,Default");
+		properties.setProperty("partner.Default.operating.days", "MONDAY");
+		properties.setProperty("partner.AED.operating.days", "SUNDAY");
+		properties.setProperty("partner.AED.currencies", "AED");
+		PartnerRegistry.load(properties::getProperty);
+	}
+
+	@Test(expected = ReportingSystemException.class)
+	public void load_InvalidDay() throws Exception {
+		Properties properties = new Properties();
+		properties.setProperty("partners", "Default");
+		properties.setProperty("partner.Default.operating.days", "MONDAY,FUNDAY");
+		PartnerRegistry.load(properties::getProperty);
+	}
+}
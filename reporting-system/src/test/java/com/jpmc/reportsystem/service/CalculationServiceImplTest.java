@@ -5,15 +5,19 @@ import java.math.BigInteger;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Currency;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.FixedPointAmount;
 import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
 
 /**
  * Tests written for CalculationServiceImpl
@@ -148,6 +152,122 @@ public class CalculationServiceImplTest {
 		Assert.assertEquals(settlements.get(LocalDate.of(2018, 7, 28)).get().setScale(0), BigDecimal.valueOf(20025));
 	}
 
+	/**
+	 * amounts added one instruction at a time are the same as the amounts
+	 * calculated on the entire dataset
+	 */
+	@Test
+	public void accumulateTotalAmount_SameAsTotalAmount() {
+		List<ClientInstructions> clientInstructions = new ArrayList<>();
+		clientInstructions.add(new ClientInstructions("foo5", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)));
+		clientInstructions.add(new ClientInstructions("foo6", Indicator.BUY, BigDecimal.valueOf(0.55),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(120), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)));
+		clientInstructions.add(new ClientInstructions("foo5", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(200.25), BigInteger.valueOf(200), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 28)));
+		clientInstructions.add(new ClientInstructions("foo6", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(200.25), BigInteger.valueOf(200), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 28)));
+
+		Map<LocalDate, FixedPointAmount> settlements = new HashMap<>();
+		clientInstructions.forEach(instruction -> calculationService.accumulateTotalAmount(settlements, instruction,
+				buyingPredicate -> buyingPredicate.getIndicator().equals(Indicator.BUY)));
+
+		Map<LocalDate, Optional<BigDecimal>> accumulated = new HashMap<>();
+		settlements.forEach((date, amount) -> accumulated.put(date, Optional.of(amount.toBigDecimal())));
+		Assert.assertEquals(calculationService.calculateTotalAmount(clientInstructions,
+				buyingPredicate -> buyingPredicate.getIndicator().equals(Indicator.BUY)), accumulated);
+	}
+
+	/**
+	 * retracting an instruction gives the amounts as if it never came in, a
+	 * day retracted down to zero is removed
+	 */
+	@Test
+	public void retractTotalAmount() {
+		ClientInstructions kept = new ClientInstructions("foo5", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27));
+		ClientInstructions retracted = new ClientInstructions("foo6", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(200.25), BigInteger.valueOf(120), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27));
+		ClientInstructions alone = new ClientInstructions("foo6", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(200.25), BigInteger.valueOf(200), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 28));
+		Predicate<ClientInstructions> buying = instruction -> instruction.getIndicator() == Indicator.BUY;
+
+		Map<LocalDate, FixedPointAmount> settlements = new HashMap<>();
+		calculationService.accumulateTotalAmount(settlements, kept, buying);
+		calculationService.accumulateTotalAmount(settlements, retracted, buying);
+		calculationService.accumulateTotalAmount(settlements, alone, buying);
+		calculationService.retractTotalAmount(settlements, retracted, buying);
+		calculationService.retractTotalAmount(settlements, alone, buying);
+		// not matching the predicate
+		calculationService.retractTotalAmount(settlements, kept, instruction -> false);
+
+		Assert.assertEquals(1, settlements.size());
+		Assert.assertEquals(0, kept.getTradeAmount().compareTo(settlements.get(LocalDate.of(2018, 7, 27)).toBigDecimal()));
+	}
+
+	/**
+	 * amounts added a batch at a time are the same as the amounts calculated
+	 * on the entire dataset
+	 */
+	@Test
+	public void accumulateTotalAmount_Batch() {
+		List<ClientInstructions> clientInstructions = new ArrayList<>();
+		clientInstructions.add(new ClientInstructions("foo5", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)));
+		clientInstructions.add(new ClientInstructions("foo6", Indicator.BUY, BigDecimal.valueOf(0.55),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(120), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 28)));
+		clientInstructions.add(new ClientInstructions("foo5", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(200.25), BigInteger.valueOf(200), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 28)));
+		clientInstructions.add(new ClientInstructions("foo6", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(200.25), BigInteger.valueOf(200), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)));
+		InstructionBatch batch = InstructionBatch.of(clientInstructions);
+
+		Map<LocalDate, FixedPointAmount> settlements = new HashMap<>();
+		calculationService.accumulateTotalAmount(settlements, batch, Indicator.BUY);
+
+		Map<LocalDate, Optional<BigDecimal>> accumulated = new HashMap<>();
+		settlements.forEach((date, amount) -> accumulated.put(date, Optional.of(amount.toBigDecimal())));
+		Assert.assertEquals(calculationService.calculateTotalAmount(clientInstructions,
+				buyingPredicate -> buyingPredicate.getIndicator().equals(Indicator.BUY)), accumulated);
+		Assert.assertEquals(
+				calculationService.calculateDayWiseTotalAmount(clientInstructions,
+						sellingPredicate -> sellingPredicate.getIndicator().equals(Indicator.SELL),
+						LocalDate.of(2018, 7, 28)),
+				calculationService.calculateDayWiseTotalAmount(batch, Indicator.SELL, LocalDate.of(2018, 7, 28)));
+	}
+
+	/**
+	 * day wise amounts are summed up exactly, same as BigDecimal
+	 */
+	@Test
+	public void calculateDayWiseSettlement_Exact() {
+		List<ClientInstructions> clientInstructions = new ArrayList<>();
+		BigDecimal expected = BigDecimal.ZERO;
+		for (int i = 0; i < 3; i++) {
+			ClientInstructions instruction = new ClientInstructions("foo5", Indicator.BUY, BigDecimal.valueOf(0.1),
+					BigDecimal.valueOf(0.1), BigInteger.ONE, Currency.getInstance("AED"), LocalDate.now(),
+					LocalDate.of(2018, 7, 27));
+			clientInstructions.add(instruction);
+			expected = expected.add(instruction.getTradeAmount());
+		}
+
+		BigDecimal settlementAmount = calculationService.calculateDayWiseTotalAmount(clientInstructions,
+				buyingPredicate -> buyingPredicate.getIndicator().equals(Indicator.BUY), LocalDate.of(2018, 7, 27));
+		Assert.assertEquals(expected, settlementAmount);
+		Assert.assertEquals("0.03", settlementAmount.toString());
+	}
+
 	/**
 	 * Only selected dates data would be calculated and returned back for buying
 	 */
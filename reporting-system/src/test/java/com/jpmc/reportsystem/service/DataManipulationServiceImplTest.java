@@ -3,13 +3,18 @@ package com.jpmc.reportsystem.service;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Currency;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import com.jpmc.reportsystem.model.ClientInstructions;
 import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
+import com.jpmc.reportsystem.model.SettlementAdjustmentJournal;
 
 /**
  * tests to validate the methods of DataManipulationServiceImpl
@@ -104,4 +109,64 @@ public class DataManipulationServiceImplTest {
 
 	}
 
+
+	/**
+	 * settlement dates of a batch are moved the same as the dates of its
+	 * instructions, for every day of the week and partner
+	 */
+	@Test
+	public void updateSettlementDates_Batch() {
+		DataManipulationServiceImpl serviceImpl = new DataManipulationServiceImpl();
+		List<ClientInstructions> clientInstructions = new ArrayList<>();
+		for (String currency : new String[] { "AED", "SAR", "GBP", "USD" }) {
+			for (int day = 0; day < 7; day++) {
+				clientInstructions.add(new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(0.50),
+						BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance(currency),
+						LocalDate.now(), LocalDate.of(2018, 7, 23).plusDays(day)));
+			}
+		}
+		InstructionBatch batch = InstructionBatch.of(clientInstructions);
+
+		int moved = serviceImpl.updateSettlementDates(batch);
+
+		// Friday and Saturday for AED and SAR, Saturday and Sunday otherwise
+		Assert.assertEquals(8, moved);
+		for (int row = 0; row < batch.size(); row++) {
+			ClientInstructions instruction = serviceImpl.updateSettlementDates(clientInstructions.get(row));
+			Assert.assertEquals(instruction.getSettlementDate(), batch.getSettlementDate(row));
+		}
+	}
+
+
+	/**
+	 * moved settlement dates are recorded to the journal, by the index of the
+	 * instruction, and the comment is rendered by the instruction
+	 */
+	@Test
+	public void updateSettlementDates_Journal() {
+		DataManipulationServiceImpl serviceImpl = new DataManipulationServiceImpl();
+		serviceImpl.updateSettlementDates(new ClientInstructions("foo", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("GBP"), LocalDate.now(),
+				LocalDate.of(2018, 7, 24)));
+		ClientInstructions instruction = serviceImpl.updateSettlementDates(new ClientInstructions("foo",
+				Indicator.BUY, BigDecimal.valueOf(0.50), BigDecimal.valueOf(100.25), BigInteger.valueOf(100),
+				Currency.getInstance("AED"), LocalDate.now(), LocalDate.of(2018, 7, 27)));
+		InstructionBatch batch = InstructionBatch.of(Arrays.asList(instruction,
+				new ClientInstructions("foo", Indicator.SELL, BigDecimal.valueOf(0.50), BigDecimal.valueOf(100.25),
+						BigInteger.valueOf(100), Currency.getInstance("GBP"), LocalDate.now(),
+						LocalDate.of(2018, 7, 28))));
+		serviceImpl.updateSettlementDates(batch);
+
+		SettlementAdjustmentJournal journal = serviceImpl.getAdjustmentJournal();
+		Assert.assertEquals(2, journal.size());
+		Assert.assertEquals(1L, journal.getInstructionIndex(0));
+		Assert.assertEquals(LocalDate.of(2018, 7, 29), journal.getAdjustedDate(0));
+		Assert.assertEquals(3L, journal.getInstructionIndex(1));
+		Assert.assertEquals(LocalDate.of(2018, 7, 28), journal.getOriginalDate(1));
+		Assert.assertEquals("Default", journal.getRuleName(journal.getRuleId(1)));
+		Assert.assertEquals(LocalDate.of(2018, 7, 27), instruction.getOriginalSettlementDate());
+		Assert.assertEquals(journal.getComment(0) + "\t", instruction.getComments().toString());
+		Assert.assertArrayEquals(new long[] { 1, 2 },
+				journal.summarize().get("AED"));
+	}
 }
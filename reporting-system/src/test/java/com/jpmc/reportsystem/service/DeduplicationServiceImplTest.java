@@ -0,0 +1,82 @@
+package com.jpmc.reportsystem.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Currency;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.Indicator;
+
+/**
+ * tests to validate the methods of DeduplicationServiceImpl
+ * 
+ * @author jnair1
+ *
+ */
+public class DeduplicationServiceImplTest {
+
+	/**
+	 * an instruction equal to one seen before is a duplicate, whatever the
+	 * scale of its amounts, while any field differing keeps it
+	 */
+	@Test
+	public void isDuplicate() {
+		DeduplicationServiceImpl service = new DeduplicationServiceImpl(16);
+		Assert.assertFalse(service.isDuplicate(newInstruction("foo", "100.25", 100)));
+		Assert.assertTrue(service.isDuplicate(newInstruction("foo", "100.25", 100)));
+		Assert.assertTrue(service.isDuplicate(newInstruction("foo", "100.250", 100)));
+		Assert.assertFalse(service.isDuplicate(newInstruction("bar", "100.25", 100)));
+		Assert.assertFalse(service.isDuplicate(newInstruction("foo", "100.26", 100)));
+		Assert.assertFalse(service.isDuplicate(newInstruction("foo", "100.25", 101)));
+
+		Assert.assertEquals(2, service.getDuplicateCount());
+		Assert.assertEquals(4, service.getInstructionCount());
+	}
+
+	/**
+	 * the bloom filter in front of the set drops the same duplicates, and
+	 * never a distinct instruction, even once full far beyond its size
+	 */
+	@Test
+	public void isDuplicate_WithBloomFilter() {
+		DeduplicationServiceImpl service = new DeduplicationServiceImpl(10, 0.5);
+		for (int units = 1; units <= 1000; units++)
+			Assert.assertFalse(service.isDuplicate(newInstruction("foo", "100.25", units)));
+		for (int units = 1; units <= 1000; units += 2)
+			Assert.assertTrue(service.isDuplicate(newInstruction("foo", "100.25", units)));
+
+		Assert.assertEquals(500, service.getDuplicateCount());
+		Assert.assertEquals(1000, service.getInstructionCount());
+		Assert.assertEquals(1000, service.getFingerprints().size());
+		Assert.assertTrue(service.getMemoryBytes() > new DeduplicationServiceImpl(10).getMemoryBytes());
+	}
+
+	/**
+	 * a service restored from the fingerprints of another drops the
+	 * instructions seen by it
+	 */
+	@Test
+	public void restore() {
+		DeduplicationServiceImpl service = new DeduplicationServiceImpl(16);
+		service.isDuplicate(newInstruction("foo", "100.25", 100));
+		service.isDuplicate(newInstruction("foo", "100.25", 100));
+
+		DeduplicationServiceImpl restored = new DeduplicationServiceImpl(16, 0.01);
+		restored.restore(service.getFingerprints(), service.getDuplicateCount());
+		Assert.assertTrue(restored.isDuplicate(newInstruction("foo", "100.25", 100)));
+		Assert.assertFalse(restored.isDuplicate(newInstruction("bar", "100.25", 100)));
+
+		Assert.assertEquals(2, restored.getDuplicateCount());
+		Assert.assertEquals(2, restored.getInstructionCount());
+	}
+
+	private static ClientInstructions newInstruction(String entity, String unitPrice, int units) {
+		return new ClientInstructions(entity, Indicator.BUY, BigDecimal.valueOf(0.50), new BigDecimal(unitPrice),
+				BigInteger.valueOf(units), Currency.getInstance("AED"), LocalDate.of(2018, 7, 22),
+				LocalDate.of(2018, 7, 24));
+	}
+}
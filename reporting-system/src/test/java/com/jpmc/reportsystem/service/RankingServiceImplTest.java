@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Currency;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -14,6 +15,7 @@ import org.junit.Test;
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
 import com.jpmc.reportsystem.model.Indicator;
+import com.jpmc.reportsystem.model.InstructionBatch;
 
 public class RankingServiceImplTest {
 
@@ -141,6 +143,97 @@ public class RankingServiceImplTest {
 		Assert.assertEquals(0, dataMap.size());
 	}
 	
+	/**
+	 * ranking of instructions accumulated one at a time, across multiple
+	 * calls
+	 */
+	@Test
+	public void evaluateRanking_Accumulated() {
+		rankingService.accumulate(new ClientInstructions("foo1", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 25)), sellingPredicate -> sellingPredicate.getIndicator().equals(Indicator.SELL));
+		rankingService.accumulate(new ClientInstructions("foo2", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(300), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 26)), sellingPredicate -> sellingPredicate.getIndicator().equals(Indicator.SELL));
+		rankingService.accumulate(new ClientInstructions("foo1", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(900), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 26)), sellingPredicate -> sellingPredicate.getIndicator().equals(Indicator.SELL));
+		Assert.assertEquals(1, rankingService.evaluateRanking().get("foo2").intValue());
+
+		rankingService.accumulate(new ClientInstructions("foo1", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(400), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)), sellingPredicate -> sellingPredicate.getIndicator().equals(Indicator.SELL));
+		Map<String, Integer> dataMap = rankingService.evaluateRanking();
+
+		Assert.assertEquals(2, dataMap.size());
+		Assert.assertEquals(1, dataMap.get("foo1").intValue());
+		Assert.assertEquals(2, dataMap.get("foo2").intValue());
+	}
+
+	/**
+	 * ranking of a batch is the same as of its instructions
+	 * 
+	 * @throws ReportingSystemException
+	 */
+	@Test
+	public void evaluateRanking_Batch() throws ReportingSystemException {
+		List<ClientInstructions> clientInstructions = new ArrayList<>();
+		clientInstructions.add(new ClientInstructions("foo1", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 25)));
+		clientInstructions.add(new ClientInstructions("foo2", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(300), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 26)));
+		clientInstructions.add(new ClientInstructions("foo3", Indicator.BUY, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(900), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 26)));
+		clientInstructions.add(new ClientInstructions("foo1", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(400), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 27)));
+
+		RankingService batchRankingService = new RankingServiceImpl();
+		batchRankingService.accumulate(InstructionBatch.of(clientInstructions), Indicator.SELL);
+
+		Map<String, Integer> dataMap = batchRankingService.evaluateRanking();
+		Assert.assertEquals(rankingService.evaluateRanking(clientInstructions,
+				sellingPredicate -> sellingPredicate.getIndicator().equals(Indicator.SELL)), dataMap);
+		Assert.assertEquals(1, dataMap.get("foo1").intValue());
+		Assert.assertNull(dataMap.get("foo3"));
+	}
+
+	/**
+	 * retracting an instruction changes the ranks as if it never came in, an
+	 * entity retracted down to zero is no longer ranked
+	 */
+	@Test
+	public void retract_ChangesRanking() {
+		ClientInstructions foo1 = new ClientInstructions("foo1", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(100), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 25));
+		ClientInstructions foo2 = new ClientInstructions("foo2", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(200), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 25));
+		ClientInstructions foo3 = new ClientInstructions("foo3", Indicator.SELL, BigDecimal.valueOf(0.50),
+				BigDecimal.valueOf(100.25), BigInteger.valueOf(50), Currency.getInstance("AED"), LocalDate.now(),
+				LocalDate.of(2018, 7, 25));
+		Predicate<ClientInstructions> selling = instruction -> instruction.getIndicator() == Indicator.SELL;
+		RankingService service = new RankingServiceImpl();
+		service.accumulate(foo1, selling);
+		service.accumulate(foo2, selling);
+		service.accumulate(foo2, selling);
+		service.accumulate(foo3, selling);
+		Assert.assertEquals(1, service.evaluateRanking().get("foo2").intValue());
+
+		service.retract(foo2, selling);
+		service.retract(foo2, selling);
+		service.retract(foo3, instruction -> false);
+		Map<String, Integer> dataMap = service.evaluateRanking();
+		Assert.assertEquals(2, dataMap.size());
+		Assert.assertEquals(1, dataMap.get("foo1").intValue());
+		Assert.assertEquals(2, dataMap.get("foo3").intValue());
+		Assert.assertNull(dataMap.get("foo2"));
+	}
+
 	/**
 	 * evaluate ranking tests for buy transactions with null data
 	 * @throws ReportingSystemException 
@@ -0,0 +1,99 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+
+/**
+ * Tests for the AdaptiveBatchSizer
+ *
+ * @author jnair1
+ *
+ */
+public class AdaptiveBatchSizerTest {
+
+	private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	/**
+	 * fast batches grow the size by at most a factor of two, up to the
+	 * ceiling
+	 */
+	@Test
+	public void adapt_GrowsTillCeiling() {
+		AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(10, 50, 100, 0.1);
+		Assert.assertEquals(10, batchSizer.getBatchSize());
+
+		Assert.assertEquals(20, batchSizer.adapt(10, MILLIS, 1.0));
+		Assert.assertEquals(40, batchSizer.adapt(20, MILLIS, 1.0));
+		Assert.assertEquals(50, batchSizer.adapt(40, MILLIS, 1.0));
+		Assert.assertEquals(50, batchSizer.adapt(50, MILLIS, 1.0));
+
+		Assert.assertEquals(10, batchSizer.getMinChosen());
+		Assert.assertEquals(50, batchSizer.getMaxChosen());
+		Assert.assertEquals(3, batchSizer.getAdjustments());
+	}
+
+	/**
+	 * the size settles where a batch takes the target time
+	 */
+	@Test
+	public void adapt_SettlesOnTarget() {
+		AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(10, 1000, 100, 0.1);
+		batchSizer.adapt(10, 2 * MILLIS, 1.0);
+		batchSizer.adapt(20, 4 * MILLIS, 1.0);
+		batchSizer.adapt(40, 8 * MILLIS, 1.0);
+		batchSizer.adapt(80, 16 * MILLIS, 1.0);
+		batchSizer.adapt(160, 32 * MILLIS, 1.0);
+
+		// 0.2ms per instruction, 100ms per batch
+		Assert.assertEquals(500, batchSizer.adapt(320, 64 * MILLIS, 1.0));
+		Assert.assertEquals(500, batchSizer.adapt(500, 100 * MILLIS, 1.0));
+	}
+
+	/**
+	 * slow batches and low heap shrink the size, but never below the floor
+	 */
+	@Test
+	public void adapt_ShrinksTillFloor() {
+		AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(10, 1000, 100, 0.1);
+		batchSizer.adapt(10, MILLIS, 1.0);
+		batchSizer.adapt(20, MILLIS, 1.0);
+		batchSizer.adapt(40, MILLIS, 1.0);
+		Assert.assertEquals(80, batchSizer.getBatchSize());
+
+		Assert.assertEquals(40, batchSizer.adapt(80, 1000 * MILLIS, 1.0));
+		Assert.assertEquals(20, batchSizer.adapt(40, MILLIS, 0.05));
+		Assert.assertEquals(10, batchSizer.adapt(20, MILLIS, 0.05));
+		Assert.assertEquals(10, batchSizer.adapt(10, MILLIS, 0.05));
+	}
+
+	/**
+	 * the reader hands out all the instructions with the sizes chosen by the
+	 * sizer
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_WithAdaptiveBatches() throws Exception {
+		AdaptiveBatchSizer batchSizer = new AdaptiveBatchSizer(2, 8, 100, 0.0);
+		CSVDataReader dataReader = new CSVDataReader(batchSizer);
+		dataReader.addConnectionDetails("src/main/resources", "client-instructions.csv");
+
+		int batches = 0;
+		int instructions = 0;
+		while (!dataReader.isDone()) {
+			List<ClientInstructions> batch = dataReader.read();
+			Assert.assertTrue(batch.size() <= 8);
+			instructions += batch.size();
+			batches++;
+		}
+
+		Assert.assertEquals(18, instructions);
+		Assert.assertTrue(batches < 10);
+		Assert.assertEquals(8, dataReader.getBatchSize());
+	}
+}
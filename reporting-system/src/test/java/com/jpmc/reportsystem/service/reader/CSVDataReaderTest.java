@@ -1,14 +1,28 @@
 package com.jpmc.reportsystem.service.reader;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import com.jpmc.reportsystem.exceptions.ReportingSystemException;
 import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
 
 /**
  * Tests for the CSVReader
@@ -18,7 +32,8 @@ import com.jpmc.reportsystem.model.ClientInstructions;
  */
 public class CSVDataReaderTest {
 
-
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
 
 	/**
 	 * read fail scenario without connection
@@ -54,6 +69,28 @@ public class CSVDataReaderTest {
 		Assert.assertEquals("Foo1", instructions.get(0).getEntity());
 	}
 
+	/**
+	 * streaming read pushes the same instructions as the list based read
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void readRecords_WithConsumer() throws Exception {
+		DataReader dataReader = new CSVDataReader();
+		dataReader.addConnectionDetails("src/main/resources", "client-instructions.csv");
+		List<ClientInstructions> instructions = new ArrayList<>();
+		int batches = 0;
+		while (!dataReader.isDone()) {
+			int count = dataReader.read(instructions::add);
+			Assert.assertTrue(count <= 2);
+			batches++;
+		}
+
+		Assert.assertEquals(18, instructions.size());
+		Assert.assertEquals(10, batches);
+		Assert.assertEquals("Foo1", instructions.get(0).getEntity());
+	}
+
 	/**
 	 * connection not established scenario
 	 * 
@@ -127,4 +164,243 @@ public class CSVDataReaderTest {
 				"client-instructions.csv");
 		Assert.assertTrue(isConnectionAvailable);
 	}
+
+	/**
+	 * follow mode hands out the complete lines appended after the end of file
+	 * was reached, till the following is stopped
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void read_FollowAppendedLines() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		append(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+
+		CSVDataReader dataReader = new CSVDataReader();
+		dataReader.setFollow(true);
+		dataReader.setFollowPollMillis(1);
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+
+		Assert.assertEquals(1, dataReader.read().size());
+		Assert.assertEquals(0, dataReader.read().size());
+		Assert.assertFalse(dataReader.isDone());
+
+		// second line is not complete yet
+		append(file, "Foo2,Sell,0.50,GBP,01/01/2019,11/01/2019,100,100.25\r\nFoo3,Sell,0.5");
+		List<ClientInstructions> instructions = dataReader.read();
+		Assert.assertEquals(1, instructions.size());
+		Assert.assertEquals("Foo2", instructions.get(0).getEntity());
+		Assert.assertEquals(0, dataReader.read().size());
+
+		append(file, "0,GBP,01/01/2019,11/01/2019,100,100.25\nFoo4,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25");
+		instructions = dataReader.read();
+		Assert.assertEquals(1, instructions.size());
+		Assert.assertEquals("Foo3", instructions.get(0).getEntity());
+
+		// last line without terminator is read once the following is stopped
+		dataReader.stopFollowing();
+		instructions.clear();
+		while (!dataReader.isDone())
+			instructions.addAll(dataReader.read());
+		Assert.assertEquals(1, instructions.size());
+		Assert.assertEquals("Foo4", instructions.get(0).getEntity());
+	}
+
+	private static void append(File file, String lines) throws IOException {
+		Files.write(file.toPath(), lines.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+	}
+
+	/**
+	 * columns not required are decoded on access, with the same values as
+	 * when decoded while reading
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void read_WithRequiredColumns() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 500, 29);
+
+		DataReader dataReader = new CSVDataReader();
+		dataReader.setRequiredColumns(EnumSet.of(InstructionColumn.ENTITY, InstructionColumn.INDICATOR));
+		InstructionFileGenerator.assertSameAsCSVDataReader(file.getParent(), file.getName(), dataReader);
+	}
+
+	/**
+	 * gzip compressed files are decompressed while reading, giving the same
+	 * instructions as the uncompressed file
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void read_GzipCompressed() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 20000, 31);
+		File compressedFile = folder.newFile("random-instructions.csv.gz");
+		try (OutputStream output = new GZIPOutputStream(new FileOutputStream(compressedFile))) {
+			Files.copy(file.toPath(), output);
+		}
+
+		DataReader dataReader = new CSVDataReader();
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		DataReader compressedReader = new CSVDataReader();
+		compressedReader.addConnectionDetails(compressedFile.getParent(), compressedFile.getName());
+		List<ClientInstructions> expected = InstructionFileGenerator.readAll(dataReader);
+		List<ClientInstructions> actual = InstructionFileGenerator.readAll(compressedReader);
+
+		Assert.assertEquals(20000, actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			Assert.assertEquals(expected.get(i).toString(), actual.get(i).toString());
+	}
+
+	/**
+	 * failure while decompressing is thrown to the caller of read
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = IOException.class)
+	public void read_CorruptGzip() throws Exception {
+		File compressedFile = folder.newFile("corrupt-instructions.csv.gz");
+		Files.write(compressedFile.toPath(), new byte[] { 0x1f, (byte) 0x8b, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12 });
+
+		DataReader dataReader = new CSVDataReader();
+		dataReader.addConnectionDetails(compressedFile.getParent(), compressedFile.getName());
+		InstructionFileGenerator.readAll(dataReader);
+	}
+
+	/**
+	 * an unchecked failure of the compressed input ends the decompression
+	 * thread, it is thrown to the reader rather than leaving it waiting for
+	 * the next chunk
+	 * 
+	 * @throws Exception
+	 */
+	@Test(timeout = 10000)
+	public void read_GzipRuntimeFailure() throws Exception {
+		InputStream failing = new InputStream() {
+			@Override
+			public int read() {
+				throw new IllegalStateException("input failed");
+			}
+		};
+		try (InputStream input = new PipelinedGzipInputStream(failing, 2)) {
+			input.read();
+			Assert.fail("exception expected");
+		} catch (IOException exception) {
+			Assert.assertTrue(exception.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	/**
+	 * in tolerant mode malformed lines are written to the dead letter file with
+	 * their line number, and the following lines are still read, also when
+	 * all the lines of a batch are malformed
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void readRecords_Tolerant() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		Files.write(file.toPath(), ("Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Hold,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo3,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo4,Buy,0.50,GBP,01/01/2019,32/01/2019,100,100.25\n"
+				+ "Foo5,Sell,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n").getBytes(StandardCharsets.UTF_8));
+		File deadLetterFile = new File(folder.getRoot(), "instructions.rejected");
+		CSVDataReader dataReader = new CSVDataReader();
+		dataReader.setDeadLetterWriter(new DeadLetterDataWriter(deadLetterFile.toPath(), 10));
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+
+		List<ClientInstructions> instructions = InstructionFileGenerator.readAll(dataReader);
+
+		Assert.assertEquals(2, instructions.size());
+		Assert.assertEquals("Foo5", instructions.get(1).getEntity());
+		Assert.assertEquals(3, dataReader.getRejectedCount());
+		List<String> rejected = Files.readAllLines(deadLetterFile.toPath(), StandardCharsets.UTF_8);
+		Assert.assertEquals(3, rejected.size());
+		Assert.assertTrue(rejected.get(0).startsWith("instructions.csv\t2\tjava.lang.IllegalArgumentException"));
+		Assert.assertTrue(rejected.get(1).startsWith("instructions.csv\t3\tjava.lang.NumberFormatException"));
+		Assert.assertTrue(rejected.get(2).startsWith("instructions.csv\t4\tjava.time.format.DateTimeParseException"));
+		Assert.assertTrue(rejected.get(2).endsWith("\tFoo4,Buy,0.50,GBP,01/01/2019,32/01/2019,100,100.25"));
+	}
+
+	/**
+	 * dates not required are still validated while reading, a malformed one
+	 * is rejected in tolerant mode instead of failing once accessed
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void readRecords_TolerantWithoutDates() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		Files.write(file.toPath(), ("Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Buy,0.50,GBP,0x/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo3,Buy,0.50,GBP,01/01/2019,11/13/2019,100,100.25\n"
+				+ "Foo4,Buy,0.50,GBP,01/01/2019,1/01/2019,100,100.25\n"
+				+ "Foo5,Sell,0.50,GBP,01/01/2019,31/01/2019,100,100.25\n").getBytes(StandardCharsets.UTF_8));
+		File deadLetterFile = new File(folder.getRoot(), "instructions.rejected");
+		CSVDataReader dataReader = new CSVDataReader();
+		dataReader.setRequiredColumns(EnumSet.of(InstructionColumn.ENTITY, InstructionColumn.INDICATOR));
+		dataReader.setDeadLetterWriter(new DeadLetterDataWriter(deadLetterFile.toPath(), 10));
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+
+		List<ClientInstructions> instructions = InstructionFileGenerator.readAll(dataReader);
+
+		Assert.assertEquals(2, instructions.size());
+		Assert.assertEquals(LocalDate.of(2019, 1, 31), instructions.get(1).getSettlementDate());
+		Assert.assertEquals(LocalDate.of(2019, 1, 1), instructions.get(1).getInstructionDate());
+		Assert.assertEquals(3, dataReader.getRejectedCount());
+		List<String> rejected = Files.readAllLines(deadLetterFile.toPath(), StandardCharsets.UTF_8);
+		Assert.assertEquals(3, rejected.size());
+		Assert.assertTrue(rejected.get(0).startsWith("instructions.csv\t2\tjava.time.format.DateTimeParseException"));
+		Assert.assertTrue(rejected.get(1).startsWith("instructions.csv\t3\tjava.time.format.DateTimeParseException"));
+		Assert.assertTrue(rejected.get(2).startsWith("instructions.csv\t4\tjava.time.format.DateTimeParseException"));
+	}
+
+	/**
+	 * the run fails once more lines are malformed than tolerated
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_Tolerant_ErrorLimit() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		Files.write(file.toPath(), ("Foo1,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\n").getBytes(StandardCharsets.UTF_8));
+		CSVDataReader dataReader = new CSVDataReader();
+		dataReader.setDeadLetterWriter(
+				new DeadLetterDataWriter(new File(folder.getRoot(), "instructions.rejected").toPath(), 1));
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		InstructionFileGenerator.readAll(dataReader);
+	}
+
+
+	/**
+	 * a reader resumed from the position of another reader hands out the
+	 * remaining lines
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void resume_FromPosition() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 50, 11);
+		DataReader firstReader = new CSVDataReader();
+		firstReader.addConnectionDetails(file.getParent(), file.getName());
+		List<ClientInstructions> expected = new ArrayList<>();
+		for (int i = 0; i < 5; i++)
+			firstReader.read(expected::add);
+		long position = firstReader.getPosition();
+		List<ClientInstructions> remaining = InstructionFileGenerator.readAll(firstReader);
+
+		DataReader resumedReader = new CSVDataReader();
+		resumedReader.addConnectionDetails(file.getParent(), file.getName());
+		resumedReader.resume(position);
+		List<ClientInstructions> actual = InstructionFileGenerator.readAll(resumedReader);
+
+		Assert.assertEquals(remaining.size(), actual.size());
+		Assert.assertEquals(50, expected.size() + actual.size());
+		for (int i = 0; i < remaining.size(); i++)
+			Assert.assertEquals(remaining.get(i).toString(), actual.get(i).toString());
+	}
 }
@@ -0,0 +1,179 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
+
+/**
+ * Tests for the CachingDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class CachingDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		new CachingDataReader(new CSVDataReader()).read();
+	}
+
+	/**
+	 * add connection failure scenario
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void addUrl_WithNull() throws Exception {
+		new CachingDataReader(new CSVDataReader()).addConnectionDetails(null, null);
+	}
+
+	/**
+	 * first run parses the source and writes the image, the second run reads
+	 * the same instructions from the image without opening the source
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_FromImageOnSecondRun() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 2000, 19);
+
+		InstructionFileGenerator.assertSameAsCSVDataReader(file.getParent(), file.getName(),
+				new CachingDataReader(new CSVDataReader()));
+		Assert.assertTrue(new File(folder.getRoot(), file.getName() + CachingDataReader.IMAGE_SUFFIX).isFile());
+
+		CSVDataReader csvReader = new CSVDataReader();
+		InstructionFileGenerator.assertSameAsCSVDataReader(file.getParent(), file.getName(),
+				new CachingDataReader(csvReader));
+		Assert.assertFalse(csvReader.isConnectedEstablished());
+	}
+
+	/**
+	 * a change of the content invalidates the image, even with the size and
+	 * last modified time unchanged
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_ImageInvalidatedOnChange() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		writeRows(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		FileTime lastModified = Files.getLastModifiedTime(file.toPath());
+		InstructionFileGenerator.readAll(connect(new CachingDataReader(new CSVDataReader()), file));
+
+		writeRows(file, "Bar1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		Files.setLastModifiedTime(file.toPath(), lastModified);
+		CSVDataReader csvReader = new CSVDataReader();
+		List<ClientInstructions> instructions = InstructionFileGenerator
+				.readAll(connect(new CachingDataReader(csvReader), file));
+
+		Assert.assertTrue(csvReader.isConnectedEstablished());
+		Assert.assertEquals("Bar1", instructions.get(0).getEntity());
+
+		// image rewritten by the previous run
+		instructions = InstructionFileGenerator.readAll(connect(new CachingDataReader(new CSVDataReader()), file));
+		Assert.assertEquals("Bar1", instructions.get(0).getEntity());
+	}
+
+	/**
+	 * an image is only written once the whole source was read
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void close_BeforeEndDiscardsImage() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 100, 23);
+
+		DataReader dataReader = connect(new CachingDataReader(new CSVDataReader()), file);
+		dataReader.read();
+		dataReader.close();
+
+		Assert.assertEquals(1, folder.getRoot().list().length);
+	}
+
+	/**
+	 * a run reading from the image reports the malformed rows rejected by the
+	 * run which wrote it
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void getRejectedCount_FromImage() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		writeRows(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo2,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\n"
+				+ "Foo3,Sell,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		CSVDataReader tolerantReader = new CSVDataReader();
+		tolerantReader.setDeadLetterWriter(
+				new DeadLetterDataWriter(new File(folder.getRoot(), "instructions.rejected").toPath(), 10));
+		DataReader dataReader = connect(new CachingDataReader(tolerantReader), file);
+		Assert.assertEquals(2, InstructionFileGenerator.readAll(dataReader).size());
+		Assert.assertEquals(1, dataReader.getRejectedCount());
+
+		CSVDataReader csvReader = new CSVDataReader();
+		dataReader = connect(new CachingDataReader(csvReader), file);
+		Assert.assertEquals(1, dataReader.getRejectedCount());
+		Assert.assertEquals(2, InstructionFileGenerator.readAll(dataReader).size());
+		Assert.assertFalse(csvReader.isConnectedEstablished());
+	}
+
+	/**
+	 * an instruction with a malformed column decoded on first access is handed
+	 * out without an image being written, the consumer fails on the column
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_UndecodableInstructionDiscardsImage() throws Exception {
+		File file = folder.newFile("instructions.csv");
+		writeRows(file, "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		CSVDataReader lazyReader = new CSVDataReader() {
+
+			@Override
+			public int read(Consumer<? super ClientInstructions> consumer) throws Exception {
+				return super.read(instruction -> {
+					instruction.setInstructionDate(() -> {
+						throw new DateTimeParseException("malformed date", "01/13/2019", 3);
+					});
+					consumer.accept(instruction);
+				});
+			}
+		};
+
+		List<ClientInstructions> instructions = InstructionFileGenerator
+				.readAll(connect(new CachingDataReader(lazyReader), file));
+		Assert.assertEquals(1, instructions.size());
+		Assert.assertEquals(1, folder.getRoot().list().length);
+	}
+
+	private static DataReader connect(DataReader dataReader, File file) throws Exception {
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		return dataReader;
+	}
+
+	private static void writeRows(File file, String rows) throws Exception {
+		Files.write(file.toPath(), rows.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,85 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.InstructionCorrection;
+
+/**
+ * Tests for the CorrectionDataReader
+ * 
+ * @author jnair1
+ *
+ */
+public class CorrectionDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * amendments and cancellations are read in the order of the file, over
+	 * several chunks, skipping the blank lines
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	public void read_Corrections() throws Exception {
+		File file = folder.newFile("corrections.csv");
+		Files.write(file.toPath(), ("CANCEL,foo,Buy,0.50,SGD,01/01/2016,02/01/2016,200,100.25\n\n"
+				+ "amend,bar,Sell,0.22,AED,05/01/2016,07/01/2016,450,150.5,bar,Sell,0.22,AED,05/01/2016,08/01/2016,400,150.5\n"
+				+ "CANCEL,baz,Buy,0.50,GBP,01/01/2016,04/01/2016,100,10\n").getBytes(StandardCharsets.UTF_8));
+
+		CorrectionDataReader reader = new CorrectionDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		List<InstructionCorrection> corrections = new ArrayList<>();
+		while (!reader.isDone())
+			corrections.addAll(reader.read());
+
+		Assert.assertEquals(3, corrections.size());
+		Assert.assertEquals(InstructionCorrection.Type.CANCEL, corrections.get(0).getType());
+		Assert.assertEquals("foo", corrections.get(0).getOriginal().getEntity());
+		Assert.assertNull(corrections.get(0).getAmended());
+		Assert.assertEquals(InstructionCorrection.Type.AMEND, corrections.get(1).getType());
+		Assert.assertEquals(LocalDate.of(2016, 1, 7), corrections.get(1).getOriginal().getSettlementDate());
+		Assert.assertEquals(LocalDate.of(2016, 1, 8), corrections.get(1).getAmended().getSettlementDate());
+		Assert.assertEquals(BigInteger.valueOf(400), corrections.get(1).getAmended().getUnits());
+		Assert.assertEquals("baz", corrections.get(2).getOriginal().getEntity());
+	}
+
+	/**
+	 * an amendment missing the amended instruction fails the read
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void read_Malformed() throws Exception {
+		File file = folder.newFile("corrections.csv");
+		Files.write(file.toPath(),
+				"AMEND,foo,Buy,0.50,SGD,01/01/2016,02/01/2016,200,100.25\n".getBytes(StandardCharsets.UTF_8));
+
+		CorrectionDataReader reader = new CorrectionDataReader();
+		reader.addConnectionDetails(file.getParent(), file.getName());
+		reader.read();
+	}
+
+	/**
+	 * read fail scenario without connection
+	 * 
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void read_WithoutConnection() throws Exception {
+		new CorrectionDataReader().read();
+	}
+}
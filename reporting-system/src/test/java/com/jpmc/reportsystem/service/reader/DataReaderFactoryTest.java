@@ -0,0 +1,45 @@
+package com.jpmc.reportsystem.service.reader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+
+/**
+ * Tests for the DataReaderFactory
+ *
+ * @author jnair1
+ *
+ */
+public class DataReaderFactoryTest {
+
+	/**
+	 * every configured type gives its reader, whatever the case
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void createDataReader() throws Exception {
+		Assert.assertEquals(CSVDataReader.class, DataReaderFactory.createDataReader("csv", null).getClass());
+		Assert.assertEquals(MappedCSVDataReader.class, DataReaderFactory.createDataReader("Mapped", null).getClass());
+		Assert.assertEquals(ParallelCSVDataReader.class,
+				DataReaderFactory.createDataReader("parallel", null).getClass());
+		Assert.assertEquals(FixedWidthDataReader.class,
+				DataReaderFactory.createDataReader("FIXEDWIDTH", null).getClass());
+	}
+
+	/**
+	 * a misspelt type is not taken for the csv reader
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void createDataReader_UnknownType() throws Exception {
+		DataReaderFactory.createDataReader("cvs", null);
+	}
+
+	@Test(expected = ReportingSystemException.class)
+	public void createDataReader_NoType() throws Exception {
+		DataReaderFactory.createDataReader(null, null);
+	}
+}
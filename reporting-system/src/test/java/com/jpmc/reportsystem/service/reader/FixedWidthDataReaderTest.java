@@ -0,0 +1,233 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.InstructionColumn;
+
+/**
+ * Tests for the FixedWidthDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class FixedWidthDataReaderTest {
+
+	private static final String CSV_URL = "src/main/resources";
+	private static final String CSV_RESOURCE = "client-instructions.csv";
+	private static final String FIXED_WIDTH_RESOURCE = "client-instructions.dat";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private FixedWidthLayout layout;
+
+	private String url;
+
+	private List<ClientInstructions> expected;
+
+	/**
+	 * converts the sample csv file into fixed width records of the configured
+	 * layout
+	 *
+	 * @throws Exception
+	 */
+	@Before
+	public void setUp() throws Exception {
+		layout = FixedWidthLayout.fromProperties();
+		url = folder.getRoot().getPath();
+		writeRecords(new File(folder.getRoot(), FIXED_WIDTH_RESOURCE), "\n");
+
+		DataReader csvReader = new CSVDataReader();
+		csvReader.addConnectionDetails(CSV_URL, CSV_RESOURCE);
+		expected = InstructionFileGenerator.readAll(csvReader);
+	}
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		new FixedWidthDataReader(layout, 1, 64).read();
+	}
+
+	/**
+	 * add connection failure scenario
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void addUrl_WithNull() throws Exception {
+		new FixedWidthDataReader().addConnectionDetails(null, null);
+	}
+
+	/**
+	 * the records decode to the same instructions as the csv rows
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_MatchesCSVDataReader() throws Exception {
+		FixedWidthDataReader dataReader = new FixedWidthDataReader(layout, 1, 64);
+		Assert.assertTrue(dataReader.addConnectionDetails(url, FIXED_WIDTH_RESOURCE));
+		Assert.assertEquals(expected.size(), dataReader.getRecordCount());
+
+		assertInstructions(expected, InstructionFileGenerator.readAll(dataReader));
+		Assert.assertTrue(dataReader.isDone());
+		Assert.assertEquals(expected.size(), dataReader.getNextRecord());
+	}
+
+	/**
+	 * ranges decoded by the workers are handed out in the order of the file
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_Parallel() throws Exception {
+		// ranges of two records each
+		FixedWidthDataReader dataReader = new FixedWidthDataReader(layout, 3, 2 * layout.getRecordLength());
+		dataReader.addConnectionDetails(url, FIXED_WIDTH_RESOURCE);
+
+		assertInstructions(expected, InstructionFileGenerator.readAll(dataReader));
+	}
+
+	/**
+	 * reading resumes from the record sought, also after a part of the file
+	 * has been read already
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void seek_ResumesFromRecord() throws Exception {
+		for (int threadCount : new int[] { 1, 2 }) {
+			FixedWidthDataReader dataReader = new FixedWidthDataReader(layout, threadCount,
+					3 * layout.getRecordLength());
+			dataReader.addConnectionDetails(url, FIXED_WIDTH_RESOURCE);
+			dataReader.read();
+			dataReader.seek(11);
+
+			assertInstructions(expected.subList(11, expected.size()), InstructionFileGenerator.readAll(dataReader));
+		}
+	}
+
+	/**
+	 * any range of records can be decoded, independent of the reader position
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void readRange_RandomAccess() throws Exception {
+		FixedWidthDataReader dataReader = new FixedWidthDataReader(layout, 1, 64);
+		dataReader.addConnectionDetails(url, FIXED_WIDTH_RESOURCE);
+		dataReader.read();
+
+		List<ClientInstructions> instructions = new ArrayList<>();
+		dataReader.readRange(5, 9, instructions::add);
+		assertInstructions(expected.subList(5, 9), instructions);
+
+		instructions.clear();
+		dataReader.readRange(3, 3, instructions::add);
+		Assert.assertTrue(instructions.isEmpty());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void readRange_OutOfBounds() throws Exception {
+		FixedWidthDataReader dataReader = new FixedWidthDataReader(layout, 1, 64);
+		dataReader.addConnectionDetails(url, FIXED_WIDTH_RESOURCE);
+		dataReader.readRange(0, expected.size() + 1, instruction -> {
+		});
+	}
+
+	/**
+	 * the last record may lack the line terminator, the dates not required
+	 * are decoded once accessed
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_WithoutTerminatorAndLazyDates() throws Exception {
+		writeRecords(new File(folder.getRoot(), FIXED_WIDTH_RESOURCE), "\r\n");
+		String content = new String(Files.readAllBytes(Paths.get(url, FIXED_WIDTH_RESOURCE)), StandardCharsets.UTF_8);
+		Files.write(Paths.get(url, FIXED_WIDTH_RESOURCE),
+				content.substring(0, content.length() - 2).getBytes(StandardCharsets.UTF_8));
+
+		FixedWidthLayout crlfLayout = new FixedWidthLayout(layout.toString().split(" ")[0],
+				layout.getRecordLength() + 1);
+		FixedWidthDataReader dataReader = new FixedWidthDataReader(crlfLayout, 1, 64);
+		dataReader.setRequiredColumns(EnumSet.of(InstructionColumn.INDICATOR));
+		dataReader.addConnectionDetails(url, FIXED_WIDTH_RESOURCE);
+
+		assertInstructions(expected, InstructionFileGenerator.readAll(dataReader));
+	}
+
+	/**
+	 * a layout missing a column is rejected
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void layout_MissingColumn() throws Exception {
+		new FixedWidthLayout("ENTITY:0:20,INDICATOR:20:4", 86);
+	}
+
+	/**
+	 * a column beyond the record length is rejected
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void layout_ColumnOutOfRecord() throws Exception {
+		new FixedWidthLayout(layout.toString().split(" ")[0], 40);
+	}
+
+	private static void assertInstructions(List<ClientInstructions> expected, List<ClientInstructions> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			// equals compares dates by reference, hence comparing every field
+			// through the string representation
+			Assert.assertEquals("record " + i, expected.get(i).toString(), actual.get(i).toString());
+		}
+	}
+
+	/**
+	 * writes every row of the sample csv file as a record, with the numbers
+	 * right aligned and the text left aligned
+	 */
+	private void writeRecords(File file, String terminator) throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (String line : Files.readAllLines(Paths.get(CSV_URL, CSV_RESOURCE), StandardCharsets.UTF_8)) {
+			if (line.trim().isEmpty())
+				continue;
+			char[] record = new char[layout.getDataLength()];
+			Arrays.fill(record, ' ');
+			String[] columns = line.split(",");
+			for (InstructionColumn column : InstructionColumn.values()) {
+				String value = columns[column.getIndex()];
+				int offset = layout.getOffset(column);
+				boolean rightAligned = column == InstructionColumn.AGREED_FX || column == InstructionColumn.UNITS
+						|| column == InstructionColumn.UNIT_PRICE;
+				if (rightAligned)
+					offset += layout.getWidth(column) - value.length();
+				value.getChars(0, value.length(), record, offset);
+			}
+			content.append(record).append(terminator);
+		}
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,103 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+
+import com.jpmc.reportsystem.model.ClientInstructions;
+
+/**
+ * Test utility generating instruction files with randomized rows, covering
+ * different number formats, letter cases and line terminators
+ *
+ * @author jnair1
+ *
+ */
+public class InstructionFileGenerator {
+
+	private static final String[] ENTITIES = { "Foo1", "Bar", "Baz Inc", "Qux" };
+	private static final String[] INDICATORS = { "Buy", "Sell", "BUY", "sell" };
+	private static final String[] CURRENCIES = { "GBP", "SAR", "AED", "USD", "SGD" };
+	private static final String[] DECIMALS = { "0.50", "1", "100.25", "0.001", "12345678.5", "0.0001", "150.500",
+			"3.14159", "2.5e2", "7." };
+	private static final String[] TERMINATORS = { "\n", "\r\n", "\r" };
+
+	private InstructionFileGenerator() {
+	}
+
+	/**
+	 * writes the given number of randomized rows into the file
+	 *
+	 * @param file
+	 * @param rows
+	 * @param seed
+	 * @throws IOException
+	 */
+	public static void generate(File file, int rows, long seed) throws IOException {
+		Random random = new Random(seed);
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < rows; i++) {
+			content.append(pick(random, ENTITIES)).append(',').append(pick(random, INDICATORS)).append(',')
+					.append(pick(random, DECIMALS)).append(',').append(pick(random, CURRENCIES)).append(',')
+					.append(String.format("%02d/%02d/2019", 1 + random.nextInt(31), 1 + random.nextInt(12)))
+					.append(',')
+					.append(String.format("%02d/%02d/2020", 1 + random.nextInt(31), 1 + random.nextInt(12)))
+					.append(',').append(random.nextInt(100000)).append(',').append(pick(random, DECIMALS))
+					.append(pick(random, TERMINATORS));
+		}
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * asserts the reader produces exactly the same instructions as the String
+	 * based parser of CSVDataReader
+	 *
+	 * @param url
+	 * @param resourceName
+	 * @param dataReader
+	 *            - reader under test, not yet connected
+	 * @throws Exception
+	 */
+	public static void assertSameAsCSVDataReader(String url, String resourceName, DataReader dataReader)
+			throws Exception {
+		DataReader csvReader = new CSVDataReader();
+		csvReader.addConnectionDetails(url, resourceName);
+		dataReader.addConnectionDetails(url, resourceName);
+
+		List<ClientInstructions> expected = readAll(csvReader);
+		List<ClientInstructions> actual = readAll(dataReader);
+
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			// equals compares dates by reference, hence comparing every field
+			// through the string representation
+			Assert.assertEquals("row " + i, expected.get(i).toString(), actual.get(i).toString());
+			Assert.assertEquals("row " + i, expected.get(i).hashCode(), actual.get(i).hashCode());
+		}
+	}
+
+	/**
+	 * reads till the reader is done
+	 *
+	 * @param dataReader
+	 * @return instructions
+	 * @throws Exception
+	 */
+	public static List<ClientInstructions> readAll(DataReader dataReader) throws Exception {
+		List<ClientInstructions> instructions = new ArrayList<>();
+		while (!dataReader.isDone()) {
+			instructions.addAll(dataReader.read());
+		}
+		return instructions;
+	}
+
+	private static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+}
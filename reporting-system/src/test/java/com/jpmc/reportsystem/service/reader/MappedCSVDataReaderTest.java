@@ -0,0 +1,170 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
+
+/**
+ * Tests for the MappedCSVDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class MappedCSVDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		DataReader dataReader = new MappedCSVDataReader();
+		dataReader.read();
+	}
+
+	/**
+	 * read success scenario with connection
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void readRecords_SUCCESS() throws Exception {
+		DataReader dataReader = new MappedCSVDataReader();
+		boolean isConnectionAvailable = dataReader.addConnectionDetails("src/main/resources",
+				"client-instructions.csv");
+		List<ClientInstructions> instructions = InstructionFileGenerator.readAll(dataReader);
+
+		Assert.assertTrue(isConnectionAvailable);
+		Assert.assertEquals(18, instructions.size());
+		Assert.assertEquals("Foo1", instructions.get(0).getEntity());
+		Assert.assertTrue(dataReader.isDone());
+	}
+
+	/**
+	 * add connection failure scenarios
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void addUrl_WithNull() throws Exception {
+		new MappedCSVDataReader().addConnectionDetails(null, null);
+	}
+
+	@Test(expected = IOException.class)
+	public void addUrl_WithInvalidResource() throws Exception {
+		new MappedCSVDataReader().addConnectionDetails("src/main/resources", "invalid-client-instructions.csv");
+	}
+
+	/**
+	 * the byte parser has to produce exactly the same instructions as the
+	 * String based parser of CSVDataReader
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_MatchesCSVDataReader() throws Exception {
+		InstructionFileGenerator.assertSameAsCSVDataReader("src/main/resources", "client-instructions.csv",
+				new MappedCSVDataReader());
+	}
+
+	/**
+	 * randomized rows with different number formats and line terminators,
+	 * read through a tiny window to cross the window boundaries
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_MatchesCSVDataReader_AcrossWindows() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 500, 7);
+
+		InstructionFileGenerator.assertSameAsCSVDataReader(file.getParent(), file.getName(),
+				new MappedCSVDataReader(97));
+	}
+
+	/**
+	 * a malformed row fails the same way as with the String parser
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = NumberFormatException.class)
+	public void read_WithInvalidNumber() throws Exception {
+		File file = folder.newFile("invalid-instructions.csv");
+		Files.write(file.toPath(),
+				"Foo1,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\n".getBytes(StandardCharsets.UTF_8));
+		DataReader dataReader = new MappedCSVDataReader();
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		InstructionFileGenerator.readAll(dataReader);
+	}
+
+
+	/**
+	 * in tolerant mode a malformed row is written to the dead letter file with
+	 * its line number, blank lines included
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_Tolerant() throws Exception {
+		File file = folder.newFile("invalid-instructions.csv");
+		Files.write(file.toPath(), ("Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\r\n\r\n"
+				+ "Foo2,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\r\n"
+				+ "Foo3,Sell,0.50,GBP,01/01/2019,11/01/2019,100,100.25").getBytes(StandardCharsets.UTF_8));
+		File deadLetterFile = new File(folder.getRoot(), "instructions.rejected");
+		MappedCSVDataReader dataReader = new MappedCSVDataReader();
+		dataReader.setDeadLetterWriter(new DeadLetterDataWriter(deadLetterFile.toPath(), 10));
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+
+		List<ClientInstructions> instructions = InstructionFileGenerator.readAll(dataReader);
+
+		Assert.assertEquals(2, instructions.size());
+		Assert.assertEquals(1, dataReader.getRejectedCount());
+		List<String> rejected = Files.readAllLines(deadLetterFile.toPath(), StandardCharsets.UTF_8);
+		Assert.assertEquals(1, rejected.size());
+		Assert.assertTrue(rejected.get(0).startsWith("invalid-instructions.csv\t3\t"));
+		Assert.assertTrue(rejected.get(0).endsWith("\tFoo2,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25"));
+	}
+
+
+	/**
+	 * a reader resumed from the position of another reader hands out the
+	 * remaining rows, also across the mapped windows
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void resume_FromPosition() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 200, 5);
+		DataReader firstReader = new MappedCSVDataReader(256);
+		firstReader.addConnectionDetails(file.getParent(), file.getName());
+		for (int i = 0; i < 7; i++)
+			firstReader.read();
+		long position = firstReader.getPosition();
+		List<ClientInstructions> remaining = InstructionFileGenerator.readAll(firstReader);
+
+		DataReader resumedReader = new MappedCSVDataReader(256);
+		resumedReader.addConnectionDetails(file.getParent(), file.getName());
+		resumedReader.resume(position);
+		List<ClientInstructions> actual = InstructionFileGenerator.readAll(resumedReader);
+
+		Assert.assertEquals(200 - 14, actual.size());
+		for (int i = 0; i < remaining.size(); i++)
+			Assert.assertEquals(remaining.get(i).toString(), actual.get(i).toString());
+	}
+}
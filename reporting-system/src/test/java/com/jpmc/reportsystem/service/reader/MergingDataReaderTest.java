@@ -0,0 +1,164 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.service.writer.DeadLetterDataWriter;
+
+/**
+ * Tests for the MergingDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class MergingDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		new MergingDataReader(CSVDataReader::new, 0).read();
+	}
+
+	/**
+	 * sorted sources read ahead are merged into a single stream in order
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_MergesSortedSources() throws Exception {
+		List<ClientInstructions> expected = new ArrayList<>();
+		for (int source = 0; source < 3; source++) {
+			File file = writeSortedSource("desk" + source + ".csv", source);
+			CSVDataReader dataReader = new CSVDataReader();
+			dataReader.addConnectionDetails(file.getParent(), file.getName());
+			expected.addAll(InstructionFileGenerator.readAll(dataReader));
+			dataReader.close();
+		}
+		expected.sort(SortingDataReader.SETTLEMENT_ORDER);
+
+		MergingDataReader dataReader = new MergingDataReader(CSVDataReader::new, 2);
+		Assert.assertTrue(dataReader.addConnectionDetails(folder.getRoot().getPath(), "desk0.csv, desk1.csv,desk2.csv"));
+		dataReader.setBatchSize(7);
+		List<ClientInstructions> actual = InstructionFileGenerator.readAll(dataReader);
+		dataReader.close();
+
+		Assert.assertEquals(3, dataReader.getSourceCount());
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++)
+			Assert.assertEquals("row " + i, expected.get(i).toString(), actual.get(i).toString());
+	}
+
+	/**
+	 * a source out of order fails the read instead of breaking the order
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void read_UnsortedSource() throws Exception {
+		writeSortedSource("desk0.csv", 0);
+		File unsorted = folder.newFile("desk1.csv");
+		Files.write(unsorted.toPath(), ("Foo1,Buy,0.50,GBP,01/01/2019,12/01/2019,100,100.25\n"
+				+ "Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n").getBytes(StandardCharsets.UTF_8));
+
+		MergingDataReader dataReader = new MergingDataReader(CSVDataReader::new, 0);
+		dataReader.addConnectionDetails(folder.getRoot().getPath(), "desk0.csv,desk1.csv");
+		try {
+			InstructionFileGenerator.readAll(dataReader);
+		} finally {
+			dataReader.close();
+		}
+	}
+
+	/**
+	 * in tolerant mode the sources share a single dead letter writer, hence
+	 * a single file naming the source of every row and a single error limit
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_TolerantSharesDeadLetterWriter() throws Exception {
+		String malformed = "Foo9,Hold,0.50,GBP,01/01/2019,01/02/2019,100,100.25\n";
+		for (int source = 0; source < 2; source++) {
+			File file = writeSortedSource("desk" + source + ".csv", source);
+			Files.write(file.toPath(), (malformed + new String(Files.readAllBytes(file.toPath()),
+					StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+		}
+		File deadLetterFile = new File(folder.getRoot(), "instructions.rejected");
+		DeadLetterDataWriter deadLetterWriter = new DeadLetterDataWriter(deadLetterFile.toPath(), 2);
+
+		MergingDataReader dataReader = new MergingDataReader(() -> {
+			CSVDataReader source = new CSVDataReader();
+			source.setDeadLetterWriter(deadLetterWriter);
+			return source;
+		}, 0);
+		dataReader.addConnectionDetails(folder.getRoot().getPath(), "desk0.csv,desk1.csv");
+		InstructionFileGenerator.readAll(dataReader);
+		dataReader.close();
+
+		Assert.assertEquals(2, dataReader.getRejectedCount());
+		List<String> rejected = Files.readAllLines(deadLetterFile.toPath(), StandardCharsets.UTF_8);
+		Assert.assertEquals(2, rejected.size());
+		Assert.assertTrue(rejected.get(0).startsWith("desk0.csv\t1\t"));
+		Assert.assertTrue(rejected.get(1).startsWith("desk1.csv\t1\t"));
+	}
+
+	/**
+	 * the error limit is of the run, not of every source
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void read_TolerantErrorLimitOfRun() throws Exception {
+		String malformed = "Foo9,Hold,0.50,GBP,01/01/2019,01/02/2019,100,100.25\n";
+		for (int source = 0; source < 2; source++) {
+			File file = writeSortedSource("desk" + source + ".csv", source);
+			Files.write(file.toPath(), (malformed + new String(Files.readAllBytes(file.toPath()),
+					StandardCharsets.UTF_8)).getBytes(StandardCharsets.UTF_8));
+		}
+		DeadLetterDataWriter deadLetterWriter = new DeadLetterDataWriter(
+				new File(folder.getRoot(), "instructions.rejected").toPath(), 1);
+
+		MergingDataReader dataReader = new MergingDataReader(() -> {
+			CSVDataReader source = new CSVDataReader();
+			source.setDeadLetterWriter(deadLetterWriter);
+			return source;
+		}, 0);
+		dataReader.addConnectionDetails(folder.getRoot().getPath(), "desk0.csv,desk1.csv");
+		try {
+			InstructionFileGenerator.readAll(dataReader);
+		} finally {
+			dataReader.close();
+		}
+	}
+
+	/**
+	 * instructions of a desk every few days, sorted by settlement date
+	 */
+	private File writeSortedSource(String name, int source) throws Exception {
+		StringBuilder content = new StringBuilder();
+		for (int day = 1; day <= 28; day += source + 1)
+			content.append("Foo").append(source).append(source % 2 == 0 ? ",Buy" : ",Sell").append(",0.50,GBP,01/01/2019,")
+					.append(String.format("%02d/02/2019", day)).append(',').append(day * 10 + source)
+					.append(",100.25\n");
+		File file = folder.newFile(name);
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
@@ -1,51 +1,212 @@
 package com.jpmc.reportsystem.service.reader;
 
-import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Currency;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.model.Indicator;
+
 /**
  * Tests for the MessageDataReader
- * 
- * actual implementation is not done. just a mock structure
- * 
+ *
  * @author jnair1
  *
  */
 public class MessageDataReaderTest {
 
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void read_WithoutConnection() throws Exception {
+		new MessageDataReader(16, 2, 10).read();
+	}
+
+	/**
+	 * add connection failure scenario
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void addConnectionDetails_WithNull() throws Exception {
+		new MessageDataReader(16, 2, 10).addConnectionDetails(null, null);
+	}
+
+	/**
+	 * connection status before and after adding the connection
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void isConnectedEstablished_test() throws Exception {
+		MessageDataReader dataReader = new MessageDataReader(16, 2, 10);
+		Assert.assertFalse(dataReader.isConnectedEstablished());
+		Assert.assertTrue(dataReader.addConnectionDetails("orders", "capture"));
+		Assert.assertTrue(dataReader.isConnectedEstablished());
+	}
+
+	/**
+	 * published instructions are handed out in batches of the chunk size, the
+	 * reader is done after the end of stream once everything is handed out
+	 *
+	 * @throws Exception
+	 */
 	@Test
-	public void read_test() throws IOException, Exception {
-		new MessageDataReader().read();
-		
+	public void read_BatchesTillEndOfStream() throws Exception {
+		MessageDataReader dataReader = new MessageDataReader(16, 2, 10);
+		dataReader.addConnectionDetails("orders", "capture");
+		for (int i = 0; i < 5; i++)
+			Assert.assertTrue(dataReader.publish(instruction("foo" + i)));
+		dataReader.signalEndOfStream();
+
+		List<Integer> sizes = new ArrayList<>();
+		List<String> entities = new ArrayList<>();
+		while (!dataReader.isDone()) {
+			List<ClientInstructions> instructions = dataReader.read();
+			sizes.add(instructions.size());
+			instructions.forEach(instruction -> entities.add(instruction.getEntity()));
+		}
+
+		Assert.assertEquals("[2, 2, 1, 0]", sizes.toString());
+		Assert.assertEquals("[foo0, foo1, foo2, foo3, foo4]", entities.toString());
 	}
-	
+
+	/**
+	 * a partial batch is handed out once the batch timeout elapsed
+	 *
+	 * @throws Exception
+	 */
 	@Test
-	public void addConnectionDetails_test() throws IOException, Exception {
-		new MessageDataReader().addConnectionDetails(null, null);
-		
+	public void read_PartialBatchAfterTimeout() throws Exception {
+		MessageDataReader dataReader = new MessageDataReader(16, 10, 5);
+		dataReader.addConnectionDetails("orders", "capture");
+		Assert.assertEquals(0, dataReader.read().size());
+
+		dataReader.publish(instruction("foo1"));
+		Assert.assertEquals(1, dataReader.read().size());
+		Assert.assertFalse(dataReader.isDone());
 	}
+
+	/**
+	 * producers are rejected once the buffer is full, till the reader takes
+	 * the instructions
+	 *
+	 * @throws Exception
+	 */
 	@Test
-	public void isConnectedEstablished_test() throws IOException, Exception {
-		new MessageDataReader().isConnectedEstablished();
-		
+	public void publish_RejectedWhenFull() throws Exception {
+		MessageDataReader dataReader = new MessageDataReader(4, 2, 10);
+		dataReader.addConnectionDetails("orders", "capture");
+		for (int i = 0; i < 4; i++)
+			Assert.assertTrue(dataReader.publish(instruction("foo" + i)));
+		Assert.assertFalse(dataReader.publish(instruction("foo4")));
+		Assert.assertEquals(1, dataReader.getBackpressureRejectedCount());
+		// turned away instructions are not malformed rows of the run
+		Assert.assertEquals(0, dataReader.getRejectedCount());
+
+		Assert.assertEquals(2, dataReader.read().size());
+		Assert.assertTrue(dataReader.publish(instruction("foo4")));
+	}
+
+	/**
+	 * publishing after the end of stream is a mistake of the producer
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void publish_AfterEndOfStream() throws Exception {
+		MessageDataReader dataReader = new MessageDataReader(4, 2, 10);
+		dataReader.signalEndOfStream();
+		dataReader.publish(instruction("foo1"));
 	}
+
+	/**
+	 * publishing to a closed reader is rejected
+	 *
+	 * @throws Exception
+	 */
 	@Test
-	public void close_test() throws IOException, Exception {
-		new MessageDataReader().close();;
-		
+	public void close_test() throws Exception {
+		MessageDataReader dataReader = new MessageDataReader(4, 2, 10);
+		dataReader.addConnectionDetails("orders", "capture");
+		dataReader.publish(instruction("foo1"));
+		dataReader.close();
+
+		Assert.assertTrue(dataReader.isDone());
+		Assert.assertFalse(dataReader.publish(instruction("foo2")));
+		Assert.assertEquals(0, dataReader.read().size());
 	}
+
+	/**
+	 * instructions of several producers are all handed out exactly once, and
+	 * in the order published by each of the producers
+	 *
+	 * @throws Exception
+	 */
 	@Test
-	public void isDone_test() throws IOException, Exception {
-		new MessageDataReader().isDone();
-		
-	}
-	
-	
-	
-	
-	
-	
-	
-	
+	public void read_MultipleProducers() throws Exception {
+		int producerCount = 4;
+		int perProducer = 20000;
+		MessageDataReader dataReader = new MessageDataReader(64, 32, 10);
+		dataReader.addConnectionDetails("orders", "capture");
+
+		CountDownLatch producersDone = new CountDownLatch(producerCount);
+		for (int p = 0; p < producerCount; p++) {
+			String entity = "producer" + p;
+			Thread producer = new Thread(() -> {
+				// units start at 1, as the instruction turns 0 units into 1
+				for (int i = 1; i <= perProducer; i++) {
+					ClientInstructions instruction = instruction(entity, i);
+					while (!dataReader.publish(instruction))
+						Thread.yield();
+				}
+				producersDone.countDown();
+			});
+			producer.setDaemon(true);
+			producer.start();
+		}
+		Thread signal = new Thread(() -> {
+			try {
+				producersDone.await();
+				dataReader.signalEndOfStream();
+			} catch (InterruptedException exception) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		signal.setDaemon(true);
+		signal.start();
+
+		int[] nextUnits = new int[producerCount];
+		int[] total = new int[1];
+		while (!dataReader.isDone()) {
+			dataReader.read(instruction -> {
+				int producer = Integer.parseInt(instruction.getEntity().substring("producer".length()));
+				Assert.assertEquals(++nextUnits[producer], instruction.getUnits().intValue());
+				total[0]++;
+			});
+		}
+
+		Assert.assertEquals(producerCount * perProducer, total[0]);
+	}
+
+	private static ClientInstructions instruction(String entity) {
+		return instruction(entity, 100);
+	}
+
+	private static ClientInstructions instruction(String entity, long units) {
+		return new ClientInstructions(entity, Indicator.BUY, BigDecimal.valueOf(0.50), BigDecimal.valueOf(100.25),
+				BigInteger.valueOf(units), Currency.getInstance("SGD"), LocalDate.of(2016, 1, 1),
+				LocalDate.of(2016, 1, 2));
+	}
 }
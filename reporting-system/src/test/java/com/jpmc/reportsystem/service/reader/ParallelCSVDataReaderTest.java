@@ -0,0 +1,147 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.naming.OperationNotSupportedException;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.app.ReportingSystemProcessor;
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+import com.jpmc.reportsystem.service.CalculationServiceImpl;
+import com.jpmc.reportsystem.service.DataManipulationServiceImpl;
+import com.jpmc.reportsystem.service.RankingServiceImpl;
+import com.jpmc.reportsystem.service.writer.DataWriter;
+
+/**
+ * Tests for the ParallelCSVDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class ParallelCSVDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		new ParallelCSVDataReader(2, 64).read();
+	}
+
+	/**
+	 * read success scenario with connection
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void readRecords_SUCCESS() throws Exception {
+		DataReader dataReader = new ParallelCSVDataReader(3, 64);
+		boolean isConnectionAvailable = dataReader.addConnectionDetails("src/main/resources",
+				"client-instructions.csv");
+		List<ClientInstructions> instructions = InstructionFileGenerator.readAll(dataReader);
+
+		Assert.assertTrue(isConnectionAvailable);
+		Assert.assertEquals(18, instructions.size());
+		Assert.assertEquals("Foo1", instructions.get(0).getEntity());
+		Assert.assertTrue(dataReader.isDone());
+	}
+
+	/**
+	 * add connection failure scenario
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void addUrl_WithNull() throws Exception {
+		new ParallelCSVDataReader().addConnectionDetails(null, null);
+	}
+
+	/**
+	 * segments are handed out in the order of the file, hence the
+	 * instructions are the same as the serial reader, row for row
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_MatchesCSVDataReader() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 5000, 11);
+
+		InstructionFileGenerator.assertSameAsCSVDataReader(file.getParent(), file.getName(),
+				new ParallelCSVDataReader(4, 512));
+	}
+
+	/**
+	 * reports generated from the parallel reader are the same as the reports
+	 * of a serial run
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void process_SameReportsAsSerial() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 5000, 13);
+
+		DataReader serialReader = new CSVDataReader();
+		serialReader.addConnectionDetails(file.getParent(), file.getName());
+		DataReader parallelReader = new ParallelCSVDataReader(4, 1024);
+		parallelReader.addConnectionDetails(file.getParent(), file.getName());
+
+		List<String> serialReports = generateReports(serialReader);
+		List<String> parallelReports = generateReports(parallelReader);
+
+		Assert.assertEquals(5, serialReports.size());
+		Assert.assertEquals(serialReports, parallelReports);
+	}
+
+	/**
+	 * exception raised by a worker is thrown back to the caller
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = NumberFormatException.class)
+	public void read_WithInvalidNumber() throws Exception {
+		File file = folder.newFile("invalid-instructions.csv");
+		StringBuilder content = new StringBuilder();
+		for (int i = 0; i < 100; i++)
+			content.append("Foo1,Buy,0.50,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		content.append("Foo1,Buy,abc,GBP,01/01/2019,11/01/2019,100,100.25\n");
+		Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+
+		DataReader dataReader = new ParallelCSVDataReader(2, 256);
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		InstructionFileGenerator.readAll(dataReader);
+	}
+
+	private static List<String> generateReports(DataReader dataReader) {
+		List<String> reports = new ArrayList<>();
+		ReportingSystemProcessor processor = new ReportingSystemProcessor(new CalculationServiceImpl(),
+				new RankingServiceImpl(), new DataManipulationServiceImpl(), dataReader, new DataWriter() {
+
+					@Override
+					public void write(String data) {
+						reports.add(data);
+					}
+
+					@Override
+					public void close() throws OperationNotSupportedException {
+					}
+				});
+		Assert.assertEquals("SUCCESS", processor.process());
+		return reports;
+	}
+}
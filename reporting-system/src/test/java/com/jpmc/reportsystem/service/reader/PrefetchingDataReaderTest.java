@@ -0,0 +1,169 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+
+/**
+ * Tests for the PrefetchingDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class PrefetchingDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		new PrefetchingDataReader(new CSVDataReader(), 4).read();
+	}
+
+	/**
+	 * batches are handed out in the order read by the wrapped reader
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_MatchesCSVDataReader() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 1000, 17);
+
+		InstructionFileGenerator.assertSameAsCSVDataReader(file.getParent(), file.getName(),
+				new PrefetchingDataReader(new CSVDataReader(), 3));
+	}
+
+	/**
+	 * reader is done right after the batch on which the wrapped reader was
+	 * done
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void isDone_AfterLastBatch() throws Exception {
+		DataReader dataReader = new PrefetchingDataReader(new CSVDataReader(), 2);
+		dataReader.addConnectionDetails("src/main/resources", "client-instructions.csv");
+
+		int batches = 0;
+		while (!dataReader.isDone()) {
+			dataReader.read();
+			batches++;
+		}
+
+		// 18 rows in batches of 2, followed by the empty batch marking the end
+		Assert.assertEquals(10, batches);
+	}
+
+	/**
+	 * failure of the wrapped reader is thrown to the caller after the batches
+	 * read before the failure
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_PropagatesException() throws Exception {
+		DataReader dataReader = new PrefetchingDataReader(new FailingDataReader(3), 2);
+		List<Integer> sizes = new ArrayList<>();
+		try {
+			while (!dataReader.isDone())
+				sizes.add(dataReader.read().size());
+			Assert.fail("exception expected");
+		} catch (IllegalStateException exception) {
+			Assert.assertEquals("read failed", exception.getMessage());
+		}
+		Assert.assertEquals(Arrays.asList(0, 0, 0), sizes);
+		Assert.assertTrue(dataReader.isDone());
+	}
+
+	/**
+	 * an error of the wrapped reader, e.g. a stack overflow, is thrown back
+	 * to the caller rather than leaving it waiting for the next batch
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = StackOverflowError.class, timeout = 10000)
+	public void read_PropagatesError() throws Exception {
+		DataReader dataReader = new PrefetchingDataReader(new FailingDataReader(1, new StackOverflowError()), 2);
+		while (!dataReader.isDone())
+			dataReader.read();
+	}
+
+	/**
+	 * closing stops the read ahead and closes the wrapped reader
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void close_ClosesWrappedReader() throws Exception {
+		CSVDataReader csvReader = new CSVDataReader();
+		DataReader dataReader = new PrefetchingDataReader(csvReader, 1);
+		dataReader.addConnectionDetails("src/main/resources", "client-instructions.csv");
+		dataReader.read();
+		dataReader.close();
+
+		Assert.assertTrue(dataReader.isDone());
+		Assert.assertTrue(csvReader.isDone());
+	}
+
+	/**
+	 * reader handing out empty batches till it fails
+	 */
+	private static class FailingDataReader implements DataReader {
+
+		private int remainingBatches;
+
+		private final Error error;
+
+		FailingDataReader(int remainingBatches) {
+			this(remainingBatches, null);
+		}
+
+		FailingDataReader(int remainingBatches, Error error) {
+			this.remainingBatches = remainingBatches;
+			this.error = error;
+		}
+
+		@Override
+		public List<ClientInstructions> read() throws Exception {
+			if (remainingBatches-- == 0 && error != null)
+				throw error;
+			if (remainingBatches < 0)
+				throw new IllegalStateException("read failed");
+			return new ArrayList<>();
+		}
+
+		@Override
+		public boolean isDone() {
+			return false;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public boolean addConnectionDetails(String url, String resourceName) {
+			return true;
+		}
+
+		@Override
+		public boolean isConnectedEstablished() {
+			return true;
+		}
+	}
+}
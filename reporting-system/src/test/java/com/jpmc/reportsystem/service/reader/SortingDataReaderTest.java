@@ -0,0 +1,99 @@
+package com.jpmc.reportsystem.service.reader;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.jpmc.reportsystem.exceptions.ReportingSystemException;
+import com.jpmc.reportsystem.model.ClientInstructions;
+
+/**
+ * Tests for the SortingDataReader
+ *
+ * @author jnair1
+ *
+ */
+public class SortingDataReaderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * read fail scenario without connection
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = ReportingSystemException.class)
+	public void readRecords_FAIL() throws Exception {
+		new SortingDataReader(new CSVDataReader(), 16, folder.getRoot().toPath()).read();
+	}
+
+	/**
+	 * the instructions spilled in runs are merged back in order, the same as
+	 * sorting all of them in memory, and the runs are deleted once closed
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_SpilledRuns() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 1000, 29);
+		File spillDirectory = folder.newFolder("runs");
+
+		SortingDataReader dataReader = new SortingDataReader(new CSVDataReader(), 64, spillDirectory.toPath());
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		dataReader.setBatchSize(100);
+		List<String> actual = readAll(dataReader);
+		Assert.assertEquals(16, dataReader.getRunCount());
+		Assert.assertEquals(16, spillDirectory.list().length);
+		dataReader.close();
+		Assert.assertEquals(0, spillDirectory.list().length);
+
+		Assert.assertEquals(sortedInMemory(file), actual);
+	}
+
+	/**
+	 * input fitting into a single run is sorted without spilling
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void read_SingleRun() throws Exception {
+		File file = folder.newFile("random-instructions.csv");
+		InstructionFileGenerator.generate(file, 300, 31);
+		File spillDirectory = folder.newFolder("runs");
+
+		SortingDataReader dataReader = new SortingDataReader(new CSVDataReader(), 1000, spillDirectory.toPath());
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		List<String> actual = readAll(dataReader);
+		Assert.assertEquals(1, dataReader.getRunCount());
+		Assert.assertEquals(0, spillDirectory.list().length);
+		dataReader.close();
+
+		Assert.assertEquals(sortedInMemory(file), actual);
+	}
+
+	private static List<String> readAll(DataReader dataReader) throws Exception {
+		List<String> instructions = new ArrayList<>();
+		while (!dataReader.isDone())
+			dataReader.read(instruction -> instructions.add(instruction.toString()));
+		return instructions;
+	}
+
+	private static List<String> sortedInMemory(File file) throws Exception {
+		CSVDataReader dataReader = new CSVDataReader();
+		dataReader.addConnectionDetails(file.getParent(), file.getName());
+		List<ClientInstructions> instructions = new ArrayList<>();
+		while (!dataReader.isDone())
+			instructions.addAll(dataReader.read());
+		dataReader.close();
+		instructions.sort(SortingDataReader.SETTLEMENT_ORDER);
+		return instructions.stream().map(ClientInstructions::toString).collect(Collectors.toList());
+	}
+}